@@ -18,6 +18,7 @@ import static io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.streamnative.pulsar.handlers.kop.exceptions.KoPTopicException;
+import io.streamnative.pulsar.handlers.kop.security.auth.AuthorizationCache;
 import io.streamnative.pulsar.handlers.kop.utils.KopTopic;
 import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation;
 import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperationPurgatory;
@@ -32,10 +33,12 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
@@ -52,8 +55,10 @@ import org.apache.kafka.common.requests.ApiError;
 import org.apache.kafka.common.requests.CreateTopicsRequest;
 import org.apache.kafka.common.requests.DescribeConfigsResponse;
 import org.apache.kafka.common.requests.MetadataResponse;
+import org.apache.kafka.common.utils.Time;
 import org.apache.pulsar.client.admin.PulsarAdmin;
 import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.common.naming.TopicName;
 
 @Slf4j
 public class AdminManager {
@@ -74,11 +79,27 @@ public class AdminManager {
     private final Random random = new Random();
     private volatile Map<String, Integer> controllerId = Maps.newHashMap();
 
+    @Getter
+    private final TopicMetadataCache topicMetadataCache;
+    @Getter
+    private final AuthorizationCache authorizationCache;
 
     public AdminManager(PulsarAdmin admin, KafkaServiceConfiguration conf) {
         this.admin = admin;
         this.defaultNumPartitions = conf.getDefaultNumPartitions();
         this.maxMessageSize = conf.getMaxMessageSize();
+        this.topicMetadataCache = new TopicMetadataCache(
+                TimeUnit.SECONDS.toMillis(conf.getKopTopicMetadataCacheExpireSeconds()), Time.SYSTEM);
+        // The cache is keyed by the role, so it's disabled for the providers that depend on the authentication data
+        final boolean isAuthorizationCacheable = AuthorizationCache.isCacheable(conf.getAuthorizationProvider());
+        if (!isAuthorizationCacheable && conf.getKopAuthorizationCacheMaxSize() > 0) {
+            log.info("Disable the authorization cache for the authorization provider {}",
+                    conf.getAuthorizationProvider());
+        }
+        this.authorizationCache = new AuthorizationCache(
+                isAuthorizationCacheable ? conf.getKopAuthorizationCacheMaxSize() : 0,
+                TimeUnit.SECONDS.toMillis(conf.getKopAuthorizationCachePositiveExpireSeconds()),
+                TimeUnit.SECONDS.toMillis(conf.getKopAuthorizationCacheNegativeExpireSeconds()), Time.SYSTEM);
     }
 
     public void shutdown() {
@@ -137,6 +158,7 @@ public class AdminManager {
             admin.topics().createPartitionedTopicAsync(kopTopic.getFullName(), numPartitions)
                     .whenComplete((ignored, e) -> {
                         if (e == null) {
+                            topicMetadataCache.invalidateTopic(TopicName.get(kopTopic.getFullName()));
                             if (log.isDebugEnabled()) {
                                 log.debug("Successfully create topic '{}'", topic);
                             }
@@ -261,6 +283,7 @@ public class AdminManager {
         admin.topics()
                 .deletePartitionedTopicAsync(topicToDelete, true, true)
                 .thenRun(() -> {
+                    topicMetadataCache.invalidateTopic(TopicName.get(topicToDelete));
                     log.info("delete topic {} successfully.", topicToDelete);
                     successConsumer.accept(topicToDelete);
                 })
@@ -408,6 +431,7 @@ public class AdminManager {
                         admin.topics().updatePartitionedTopicAsync(kopTopic.getFullName(), newPartitions)
                                 .whenComplete((ignored, e) -> {
                                     if (e == null) {
+                                        topicMetadataCache.invalidateTopic(TopicName.get(kopTopic.getFullName()));
                                         if (log.isDebugEnabled()) {
                                             log.debug("Successfully create topic '{}' new partitions '{}'",
                                                     topic, newPartitions);
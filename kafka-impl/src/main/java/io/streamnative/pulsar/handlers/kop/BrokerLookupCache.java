@@ -0,0 +1,192 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Time;
+import org.apache.pulsar.common.naming.NamespaceBundle;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.naming.TopicName;
+
+/**
+ * A bounded cache of the broker lookup results, which is keyed by the namespace bundle so that all topics in the same
+ * bundle share one entry.
+ *
+ * <p>The concurrent lookups of the same bundle are merged into one. A successful result is only cached if it's
+ * accepted by the given predicate, e.g. the bundle is owned by this broker so that its unload event can invalidate the
+ * entry. A failed lookup is cached for a short time to avoid the lookup storms. The least recently used entry is
+ * evicted when the cache is full.
+ */
+@Slf4j
+public class BrokerLookupCache {
+
+    private final Time time;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile int maxSize;
+    private volatile long expireTimeMs;
+    private volatile long negativeExpireTimeMs;
+
+    private final Map<NamespaceBundle, Entry> entries = new LinkedHashMap<NamespaceBundle, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<NamespaceBundle, Entry> eldest) {
+            if (size() > maxSize) {
+                unindex(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<NamespaceName, Set<NamespaceBundle>> bundlesByNamespace = new HashMap<>();
+
+    private static class Entry {
+
+        private final CompletableFuture<InetSocketAddress> future = new CompletableFuture<>();
+        // It's updated when the lookup is done
+        private long expireTimeMs = Long.MAX_VALUE;
+    }
+
+    public BrokerLookupCache(int maxSize, long expireTimeMs, long negativeExpireTimeMs, Time time) {
+        this.time = time;
+        configure(maxSize, expireTimeMs, negativeExpireTimeMs);
+    }
+
+    public void configure(int maxSize, long expireTimeMs, long negativeExpireTimeMs) {
+        this.maxSize = maxSize;
+        this.expireTimeMs = expireTimeMs;
+        this.negativeExpireTimeMs = negativeExpireTimeMs;
+    }
+
+    /**
+     * Get the owner broker of a bundle, the owner is looked up by the given loader if it's not cached.
+     *
+     * @param bundle the bundle to look up
+     * @param loader the loader to look up the owner broker
+     * @param cacheable whether the looked up broker should be cached
+     * @return the future of the owner broker's address
+     */
+    public CompletableFuture<InetSocketAddress> get(NamespaceBundle bundle,
+                                                    Supplier<CompletableFuture<InetSocketAddress>> loader,
+                                                    Predicate<InetSocketAddress> cacheable) {
+        final Entry entry;
+        synchronized (this) {
+            final Entry cachedEntry = entries.get(bundle);
+            if (cachedEntry != null && time.milliseconds() < cachedEntry.expireTimeMs) {
+                hits.increment();
+                return cachedEntry.future;
+            }
+            misses.increment();
+            if (maxSize <= 0) {
+                return loader.get();
+            }
+            entry = new Entry();
+            entries.put(bundle, entry);
+            bundlesByNamespace.computeIfAbsent(bundle.getNamespaceObject(), __ -> new HashSet<>()).add(bundle);
+        }
+
+        loader.get().whenComplete((address, e) -> {
+            synchronized (this) {
+                // The entry might have been invalidated or evicted during the lookup
+                if (entries.get(bundle) == entry) {
+                    if (e != null || address == null) {
+                        entry.expireTimeMs = time.milliseconds() + negativeExpireTimeMs;
+                    } else if (cacheable.test(address)) {
+                        entry.expireTimeMs = time.milliseconds() + expireTimeMs;
+                    } else {
+                        remove(bundle);
+                    }
+                }
+            }
+            if (e == null) {
+                entry.future.complete(address);
+            } else {
+                entry.future.completeExceptionally(e);
+            }
+        });
+        return entry.future;
+    }
+
+    public synchronized void invalidate(NamespaceBundle bundle) {
+        if (remove(bundle) != null && log.isDebugEnabled()) {
+            log.debug("Invalidate the lookup cache of bundle {}", bundle);
+        }
+    }
+
+    public synchronized void invalidate(TopicName topicName) {
+        final Set<NamespaceBundle> bundles = bundlesByNamespace.get(topicName.getNamespaceObject());
+        if (bundles == null) {
+            return;
+        }
+        for (NamespaceBundle bundle : bundles.toArray(new NamespaceBundle[0])) {
+            if (bundle.includes(topicName)) {
+                remove(bundle);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bundlesByNamespace.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private Entry remove(NamespaceBundle bundle) {
+        final Entry entry = entries.remove(bundle);
+        if (entry != null) {
+            unindex(bundle);
+        }
+        return entry;
+    }
+
+    private void unindex(NamespaceBundle bundle) {
+        final Set<NamespaceBundle> bundles = bundlesByNamespace.get(bundle.getNamespaceObject());
+        if (bundles != null) {
+            bundles.remove(bundle);
+            if (bundles.isEmpty()) {
+                bundlesByNamespace.remove(bundle.getNamespaceObject());
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return entries.keySet().toString();
+    }
+}
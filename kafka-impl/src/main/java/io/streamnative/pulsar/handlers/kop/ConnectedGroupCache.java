@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.metadata.api.MetadataStore;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+
+/**
+ * The in-memory mapping from a client (its host and client id) to the group it consumes for, which is used by the
+ * group level consumer metrics.
+ *
+ * <p>The FIND_COORDINATOR request and the FETCH requests of a consumer might be sent to different brokers, so the
+ * mapping is also written to the metadata store. However, it's only written when the group of a client changes, and a
+ * FETCH request only reads the metadata store when the mapping is not known by this broker.
+ *
+ * <p>The path of a client might also be written or deleted by another broker, e.g. when the client's connection to
+ * that broker is closed, so a cached mapping is invalidated when the metadata store notifies that the path is deleted
+ * or no longer has the same group id. Then the next FIND_COORDINATOR request writes it again.
+ */
+@Slf4j
+public class ConnectedGroupCache {
+
+    private final Map<String, String> groupIds = new ConcurrentHashMap<>();
+
+    /**
+     * Store the group id of a client, the metadata store is only written if the group id changes.
+     *
+     * @param path the full path in the metadata store
+     * @param groupId the group id
+     * @param metadataStore the metadata store
+     * @return the future that is completed when the group id is stored
+     */
+    public CompletableFuture<Void> store(String path, String groupId, MetadataStore metadataStore) {
+        final String previousGroupId = groupIds.put(path, groupId);
+        if (groupId.equals(previousGroupId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Store groupId {} to {}, the previous groupId is {}", groupId, path, previousGroupId);
+        }
+        return metadataStore.put(path, groupId.getBytes(UTF_8), Optional.empty()).handle((__, e) -> {
+            if (e != null) {
+                // Write it again for the next FIND_COORDINATOR request
+                groupIds.remove(path, groupId);
+                throw (e instanceof RuntimeException) ? (RuntimeException) e : new RuntimeException(e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Invalidate the cached group id of a client according to a metadata store notification.
+     *
+     * @param notification the notification
+     * @param metadataStore the metadata store that sends the notification
+     */
+    public void onNotification(Notification notification, MetadataStore metadataStore) {
+        final String path = notification.getPath();
+        final String groupId = groupIds.get(path);
+        if (groupId == null) {
+            return;
+        }
+        final NotificationType type = notification.getType();
+        if (type == NotificationType.Deleted) {
+            invalidate(path, groupId, type);
+        } else if (type == NotificationType.Created || type == NotificationType.Modified) {
+            // The notifications of the writes by this broker are received as well, so compare the stored value
+            metadataStore.get(path).whenComplete((getResultOpt, e) -> {
+                if (e != null || !getResultOpt.isPresent()
+                        || !groupId.equals(new String(getResultOpt.get().getValue(), UTF_8))) {
+                    invalidate(path, groupId, type);
+                }
+            });
+        }
+    }
+
+    private void invalidate(String path, String groupId, NotificationType type) {
+        if (groupIds.remove(path, groupId) && log.isDebugEnabled()) {
+            log.debug("Invalidate groupId {} of {} for {}", groupId, path, type);
+        }
+    }
+
+    public Optional<String> get(String path) {
+        return Optional.ofNullable(groupIds.get(path));
+    }
+
+    public void remove(String path) {
+        groupIds.remove(path);
+    }
+}
@@ -20,17 +20,15 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.streamnative.pulsar.handlers.kop.storage.ReplicaManager;
 import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation;
 import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperationPurgatory;
-import io.streamnative.pulsar.handlers.kop.utils.ssl.SSLUtils;
+import io.streamnative.pulsar.handlers.kop.utils.ssl.SslHandlerFactory;
 import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.pulsar.broker.PulsarService;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
 
 /**
  * A channel initializer that initialize channels for kafka protocol.
@@ -61,7 +59,7 @@ public class KafkaChannelInitializer extends ChannelInitializer<SocketChannel> {
     private final EndPoint advertisedEndPoint;
     private final boolean skipMessagesWithoutIndex;
     @Getter
-    private final SslContextFactory.Server sslContextFactory;
+    private final SslHandlerFactory sslHandlerFactory;
     @Getter
     private final RequestStats requestStats;
     private final OrderedScheduler sendResponseScheduler;
@@ -82,7 +80,7 @@ public class KafkaChannelInitializer extends ChannelInitializer<SocketChannel> {
                                    RequestStats requestStats,
                                    OrderedScheduler sendResponseScheduler,
                                    KafkaTopicManagerSharedState kafkaTopicManagerSharedState,
-                                   LookupClient lookupClient) {
+                                   LookupClient lookupClient) throws Exception {
         super();
         this.pulsarService = pulsarService;
         this.kafkaConfig = kafkaConfig;
@@ -98,17 +96,24 @@ public class KafkaChannelInitializer extends ChannelInitializer<SocketChannel> {
         this.skipMessagesWithoutIndex = skipMessagesWithoutIndex;
         this.requestStats = requestStats;
         if (enableTls) {
-            sslContextFactory = SSLUtils.createSslContextFactory(kafkaConfig);
+            sslHandlerFactory = SslHandlerFactory.forServer(kafkaConfig, pulsarService.getExecutor());
         } else {
-            sslContextFactory = null;
+            sslHandlerFactory = null;
         }
         this.sendResponseScheduler = sendResponseScheduler;
         this.kafkaTopicManagerSharedState = kafkaTopicManagerSharedState;
         this.lengthFieldPrepender = new LengthFieldPrepender(4);
     }
 
+    public void close() {
+        if (sslHandlerFactory != null) {
+            sslHandlerFactory.close();
+        }
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
+        KafkaListenerEventLoops.configureChannel(ch, kafkaConfig);
         ch.pipeline().addLast("idleStateHandler",
                 new IdleStateHandler(
                         kafkaConfig.getConnectionMaxIdleMs(),
@@ -116,7 +121,7 @@ public class KafkaChannelInitializer extends ChannelInitializer<SocketChannel> {
                         0,
                         TimeUnit.MILLISECONDS));
         if (this.enableTls) {
-            ch.pipeline().addLast(TLS_HANDLER, new SslHandler(SSLUtils.createSslEngine(sslContextFactory)));
+            ch.pipeline().addLast(TLS_HANDLER, sslHandlerFactory.newHandler(ch.alloc()));
         }
         ch.pipeline().addLast(lengthFieldPrepender);
         ch.pipeline().addLast("frameDecoder",
@@ -17,20 +17,30 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static org.apache.kafka.common.protocol.ApiKeys.API_VERSIONS;
 import static org.apache.kafka.common.protocol.ApiKeys.PRODUCE;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
+import io.streamnative.pulsar.handlers.kop.jfr.KafkaRequestEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.KopEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.RequestEventThresholds;
+import io.streamnative.pulsar.handlers.kop.jfr.ResponseBlockedEvent;
+import io.streamnative.pulsar.handlers.kop.utils.OrderedRingBuffer;
+import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation;
 import java.io.Closeable;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.Queue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import lombok.Getter;
 import lombok.Setter;
@@ -63,7 +73,7 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
     @Getter
     protected AtomicBoolean isActive = new AtomicBoolean(false);
     // Queue to make response get responseFuture in order and limit the max request size
-    private final LinkedBlockingQueue<ResponseAndRequest> requestQueue;
+    private final OrderedRingBuffer<ResponseAndRequest> requestQueue;
     @Getter
     @Setter
     protected volatile RequestStats requestStats;
@@ -71,14 +81,30 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
     protected final KafkaServiceConfiguration kafkaConfig;
 
     private final OrderedScheduler sendResponseScheduler;
+    // Whether a drain of the request queue is scheduled, so that the responses completed before the drain runs are
+    // written together by a single drain.
+    private final AtomicBoolean responseDrainScheduled = new AtomicBoolean(false);
+    private final RequestEventThresholds requestEventThresholds;
+    // The bytes of the acks=0 produce requests that are being handled, which are not in the request queue
+    private final AtomicLong acksZeroProduceInflightBytes = new AtomicLong(0);
+    @Getter
+    private volatile boolean autoReadDisabledAcksZeroProduce = false;
+    // The requests that are read when the request queue is full, they are handled in order once there is room
+    private final Queue<KafkaHeaderAndRequest> requestsWaitingForQueue = new ConcurrentLinkedQueue<>();
+    @Getter
+    private volatile boolean autoReadDisabledRequestQueueFull = false;
+    // Whether a drain is scheduled at the expiry of the head of the request queue, it's only accessed in the event loop
+    private boolean headExpiryDrainScheduled = false;
 
     public KafkaCommandDecoder(RequestStats requestStats,
                                KafkaServiceConfiguration kafkaConfig,
                                OrderedScheduler sendResponseScheduler) {
         this.requestStats = requestStats;
         this.kafkaConfig = kafkaConfig;
-        this.requestQueue = new LinkedBlockingQueue<>(kafkaConfig.getMaxQueuedRequests());
+        this.requestQueue = new OrderedRingBuffer<>(kafkaConfig.getMaxQueuedRequests());
         this.sendResponseScheduler = sendResponseScheduler;
+        this.requestEventThresholds = RequestEventThresholds.parse(kafkaConfig.getKopJfrRequestThresholds(),
+                kafkaConfig.getKopJfrRequestDefaultThresholdMs());
     }
 
     @Override
@@ -126,6 +152,13 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
             // update request queue size stat
             RequestStats.REQUEST_QUEUE_SIZE_INSTANCE.decrementAndGet();
         }
+        while (true) {
+            final KafkaHeaderAndRequest request = requestsWaitingForQueue.poll();
+            if (request == null) {
+                break;
+            }
+            request.close();
+        }
         ctx.close();
     }
 
@@ -147,6 +180,10 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         } else {
             ApiKeys apiKey = header.apiKey();
             short apiVersion = header.apiVersion();
+            if (apiKey == PRODUCE && msg.nioBufferCount() > 1) {
+                // The frame is merged into a new buffer, so the records can't be sliced from the frame
+                requestStats.getProduceBytesCopied().addCount(msg.readableBytes());
+            }
             AbstractRequest body = AbstractRequest.parseRequest(apiKey, apiVersion, nio).request;
             return new KafkaHeaderAndRequest(header, body, msg, remoteAddress);
         }
@@ -203,10 +240,7 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         };
 
         // Update handle request latency metrics
-        final BiConsumer<ApiKeys, Long> registerRequestLatency = (apiKey, startProcessTime) -> {
-            requestStats.getRequestStatsLogger(apiKey, KopServerStats.REQUEST_LATENCY)
-                    .registerSuccessfulEvent(MathUtils.elapsedNanos(startProcessTime), TimeUnit.NANOSECONDS);
-        };
+        final BiConsumer<ApiKeys, Long> registerRequestLatency = this::registerRequestLatency;
 
         // If kop is enabled for authentication and the client
         // has not completed the handshake authentication,
@@ -231,9 +265,14 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         }
 
         final long timeBeforeParse = MathUtils.nowInNano();
+        final KafkaRequestEvent requestEvent = KopEvent.beginIfEnabled(new KafkaRequestEvent());
         KafkaHeaderAndRequest kafkaHeaderAndRequest = byteBufToRequest(buffer, remoteAddress);
         // potentially blocking until there is room in the queue for the request.
         registerRequestParseLatency.accept(timeBeforeParse, null);
+        final RequestTrace trace = RequestTrace.start(kafkaConfig, timeBeforeParse);
+        trace.record(RequestTrace.Stage.PARSE, timeBeforeParse);
+        kafkaHeaderAndRequest.setTrace(trace);
+        kafkaHeaderAndRequest.setRequestEvent(requestEvent);
 
         try {
             if (log.isDebugEnabled()) {
@@ -242,130 +281,13 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
                     kafkaHeaderAndRequest.getHeader(), kafkaHeaderAndRequest);
             }
 
-            CompletableFuture<AbstractResponse> responseFuture = new CompletableFuture<>();
-            final long startProcessRequestTimestamp = MathUtils.nowInNano();
-            responseFuture.whenComplete((response, e) -> {
-                if (e instanceof CancellationException) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("[{}] Request {} is cancelled",
-                                ctx.channel(), kafkaHeaderAndRequest.getHeader());
-                    }
-                    // The response future is cancelled by `close` or `writeAndFlushResponseToClient` method, there's
-                    // no need to call `writeAndFlushResponseToClient` again.
-                    return;
-                }
-
-                registerRequestLatency.accept(kafkaHeaderAndRequest.getHeader().apiKey(),
-                        startProcessRequestTimestamp);
-
-                sendResponseScheduler.executeOrdered(channel.remoteAddress().hashCode(), () -> {
-                    writeAndFlushResponseToClient(channel);
-                });
-            });
-            // potentially blocking until there is room in the queue for the request.
-            requestQueue.put(ResponseAndRequest.of(responseFuture, kafkaHeaderAndRequest));
-            RequestStats.REQUEST_QUEUE_SIZE_INSTANCE.incrementAndGet();
-
-            if (!isActive.get()) {
-                handleInactive(kafkaHeaderAndRequest, responseFuture);
-            } else {
-                switch (kafkaHeaderAndRequest.getHeader().apiKey()) {
-                    case API_VERSIONS:
-                        handleApiVersionsRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case METADATA:
-                        handleTopicMetadataRequest(kafkaHeaderAndRequest, responseFuture);
-                        // this is special, wait Metadata command return, before execute other command?
-                        // responseFuture.get();
-                        break;
-                    case PRODUCE:
-                        handleProduceRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case FIND_COORDINATOR:
-                        handleFindCoordinatorRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case LIST_OFFSETS:
-                        handleListOffsetRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case OFFSET_FETCH:
-                        handleOffsetFetchRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case OFFSET_COMMIT:
-                        handleOffsetCommitRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case FETCH:
-                        handleFetchRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case JOIN_GROUP:
-                        handleJoinGroupRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case SYNC_GROUP:
-                        handleSyncGroupRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case HEARTBEAT:
-                        handleHeartbeatRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case LEAVE_GROUP:
-                        handleLeaveGroupRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DESCRIBE_GROUPS:
-                        handleDescribeGroupRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case LIST_GROUPS:
-                        handleListGroupsRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DELETE_GROUPS:
-                        handleDeleteGroupsRequest(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case SASL_HANDSHAKE:
-                        handleSaslHandshake(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case SASL_AUTHENTICATE:
-                        handleSaslAuthenticate(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case CREATE_TOPICS:
-                        handleCreateTopics(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case INIT_PRODUCER_ID:
-                        handleInitProducerId(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case ADD_PARTITIONS_TO_TXN:
-                        handleAddPartitionsToTxn(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case ADD_OFFSETS_TO_TXN:
-                        handleAddOffsetsToTxn(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case TXN_OFFSET_COMMIT:
-                        handleTxnOffsetCommit(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case END_TXN:
-                        handleEndTxn(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case WRITE_TXN_MARKERS:
-                        handleWriteTxnMarkers(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DESCRIBE_CONFIGS:
-                        handleDescribeConfigs(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case ALTER_CONFIGS:
-                        handleAlterConfigs(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DELETE_TOPICS:
-                        handleDeleteTopics(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DELETE_RECORDS:
-                        handleDeleteRecords(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case CREATE_PARTITIONS:
-                        handleCreatePartitions(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    case DESCRIBE_CLUSTER:
-                        handleDescribeCluster(kafkaHeaderAndRequest, responseFuture);
-                        break;
-                    default:
-                        handleError(kafkaHeaderAndRequest, responseFuture);
-                }
+            if (isActive.get() && kafkaConfig.isKopWriteResponsesInEventLoop()
+                    && (!requestsWaitingForQueue.isEmpty() || requestQueue.isFull())) {
+                // Keep the order with the requests that are already waiting, even for an acks=0 produce request
+                waitForRoomInRequestQueue(channel, kafkaHeaderAndRequest);
+                return;
             }
+            handleRequest(kafkaHeaderAndRequest);
         } catch (Exception e) {
             log.error("error while handle command:", e);
             close();
@@ -375,9 +297,355 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         }
     }
 
-    // Write and flush continuously completed request back through channel.
+    private void registerRequestLatency(ApiKeys apiKey, long startProcessTime) {
+        requestStats.getRequestStatsLogger(apiKey, KopServerStats.REQUEST_LATENCY)
+                .registerSuccessfulEvent(MathUtils.elapsedNanos(startProcessTime), TimeUnit.NANOSECONDS);
+    }
+
+    private void handleRequest(KafkaHeaderAndRequest kafkaHeaderAndRequest) throws Exception {
+        final Channel channel = ctx.channel();
+        final BiConsumer<ApiKeys, Long> registerRequestLatency = this::registerRequestLatency;
+        if (isActive.get() && isAcksZeroProduceRequest(kafkaHeaderAndRequest)) {
+            // There is no response to write, so it doesn't need to wait in the request queue
+            handleAcksZeroProduceRequest(kafkaHeaderAndRequest, registerRequestLatency);
+            return;
+        }
+
+        CompletableFuture<AbstractResponse> responseFuture = new CompletableFuture<>();
+        final long startProcessRequestTimestamp = MathUtils.nowInNano();
+        responseFuture.whenComplete((response, e) -> {
+            if (e instanceof CancellationException) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Request {} is cancelled",
+                            ctx.channel(), kafkaHeaderAndRequest.getHeader());
+                }
+                // The response future is cancelled by `close` or `writeAndFlushResponseToClient` method, there's
+                // no need to call `writeAndFlushResponseToClient` again.
+                return;
+            }
+
+            registerRequestLatency.accept(kafkaHeaderAndRequest.getHeader().apiKey(),
+                    startProcessRequestTimestamp);
+
+            scheduleResponseDrain(channel);
+        });
+        // potentially blocking until there is room in the queue for the request, it never blocks when the
+        // responses are written in the event loop because the request waits in requestsWaitingForQueue instead.
+        requestQueue.put(ResponseAndRequest.of(responseFuture, kafkaHeaderAndRequest));
+        RequestStats.REQUEST_QUEUE_SIZE_INSTANCE.incrementAndGet();
+
+        if (!isActive.get()) {
+            handleInactive(kafkaHeaderAndRequest, responseFuture);
+        } else {
+            switch (kafkaHeaderAndRequest.getHeader().apiKey()) {
+                case API_VERSIONS:
+                    handleApiVersionsRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case METADATA:
+                    handleTopicMetadataRequest(kafkaHeaderAndRequest, responseFuture);
+                    // this is special, wait Metadata command return, before execute other command?
+                    // responseFuture.get();
+                    break;
+                case PRODUCE:
+                    handleProduceRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case FIND_COORDINATOR:
+                    handleFindCoordinatorRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case LIST_OFFSETS:
+                    handleListOffsetRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case OFFSET_FETCH:
+                    handleOffsetFetchRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case OFFSET_COMMIT:
+                    handleOffsetCommitRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case FETCH:
+                    handleFetchRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case JOIN_GROUP:
+                    handleJoinGroupRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case SYNC_GROUP:
+                    handleSyncGroupRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case HEARTBEAT:
+                    handleHeartbeatRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case LEAVE_GROUP:
+                    handleLeaveGroupRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DESCRIBE_GROUPS:
+                    handleDescribeGroupRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case LIST_GROUPS:
+                    handleListGroupsRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DELETE_GROUPS:
+                    handleDeleteGroupsRequest(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case SASL_HANDSHAKE:
+                    handleSaslHandshake(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case SASL_AUTHENTICATE:
+                    handleSaslAuthenticate(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case CREATE_TOPICS:
+                    handleCreateTopics(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case INIT_PRODUCER_ID:
+                    handleInitProducerId(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case ADD_PARTITIONS_TO_TXN:
+                    handleAddPartitionsToTxn(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case ADD_OFFSETS_TO_TXN:
+                    handleAddOffsetsToTxn(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case TXN_OFFSET_COMMIT:
+                    handleTxnOffsetCommit(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case END_TXN:
+                    handleEndTxn(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case WRITE_TXN_MARKERS:
+                    handleWriteTxnMarkers(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DESCRIBE_CONFIGS:
+                    handleDescribeConfigs(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case ALTER_CONFIGS:
+                    handleAlterConfigs(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DELETE_TOPICS:
+                    handleDeleteTopics(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DELETE_RECORDS:
+                    handleDeleteRecords(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case CREATE_PARTITIONS:
+                    handleCreatePartitions(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                case DESCRIBE_CLUSTER:
+                    handleDescribeCluster(kafkaHeaderAndRequest, responseFuture);
+                    break;
+                default:
+                    handleError(kafkaHeaderAndRequest, responseFuture);
+            }
+        }
+    }
+
+    private static boolean isAcksZeroProduceRequest(KafkaHeaderAndRequest kafkaHeaderAndRequest) {
+        return kafkaHeaderAndRequest.getHeader().apiKey() == PRODUCE
+                && ((ProduceRequest) kafkaHeaderAndRequest.getRequest()).acks() == 0;
+    }
+
+    private void handleAcksZeroProduceRequest(KafkaHeaderAndRequest kafkaHeaderAndRequest,
+                                              BiConsumer<ApiKeys, Long> registerRequestLatency) {
+        final long maxInflightBytes = kafkaConfig.getKopAcksZeroProduceMaxInflightBytes();
+        final long requestBytes = kafkaHeaderAndRequest.getBuffer().readableBytes();
+        if (maxInflightBytes > 0 && kafkaConfig.isKopAcksZeroProduceDropWhenBudgetExhausted()) {
+            final long inflightBytes = acksZeroProduceInflightBytes.get();
+            // A request larger than the budget is still accepted when nothing else is in flight
+            if (inflightBytes > 0 && inflightBytes + requestBytes > maxInflightBytes) {
+                if (log.isDebugEnabled()) {
+                    log.debug("[{}] Drop acks=0 produce request {} because {} bytes are in flight",
+                            remoteAddress, kafkaHeaderAndRequest.getHeader(), inflightBytes);
+                }
+                requestStats.getAcksZeroProduceDropped().inc();
+                onAcksZeroProduceCompleted(kafkaHeaderAndRequest, false);
+                return;
+            }
+        }
+        acquireAcksZeroProduceBytes(requestBytes, maxInflightBytes);
+
+        // The append might never complete, so the bytes are released from the budget after the request timeout as
+        // well. The request itself is only released once the append completes since the records might be in use.
+        final AtomicBoolean bytesReleased = new AtomicBoolean(false);
+        final Runnable releaseBytes = () -> {
+            if (bytesReleased.compareAndSet(false, true)) {
+                releaseAcksZeroProduceBytes(requestBytes, maxInflightBytes);
+            }
+        };
+        final ScheduledFuture<?> timeoutTask = (maxInflightBytes <= 0) ? null : ctx.executor().schedule(() -> {
+            if (!bytesReleased.get()) {
+                log.warn("[{}] The acks=0 produce request {} is not completed in {} ms",
+                        remoteAddress, kafkaHeaderAndRequest.getHeader(), kafkaConfig.getRequestTimeoutMs());
+                releaseBytes.run();
+            }
+        }, kafkaConfig.getRequestTimeoutMs(), TimeUnit.MILLISECONDS);
+
+        final CompletableFuture<AbstractResponse> responseFuture = new CompletableFuture<>();
+        final long startProcessRequestTimestamp = MathUtils.nowInNano();
+        responseFuture.whenComplete((response, e) -> {
+            if (e != null && log.isDebugEnabled()) {
+                log.debug("[{}] Failed to handle acks=0 produce request {}",
+                        remoteAddress, kafkaHeaderAndRequest.getHeader(), e);
+            }
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+            registerRequestLatency.accept(PRODUCE, startProcessRequestTimestamp);
+            onAcksZeroProduceCompleted(kafkaHeaderAndRequest, e == null);
+            releaseBytes.run();
+        });
+        try {
+            handleProduceRequest(kafkaHeaderAndRequest, responseFuture);
+        } catch (Exception e) {
+            log.error("[{}] Failed to handle acks=0 produce request {}",
+                    remoteAddress, kafkaHeaderAndRequest.getHeader(), e);
+            responseFuture.completeExceptionally(e);
+        }
+    }
+
+    // It's called in the event loop
+    private void acquireAcksZeroProduceBytes(long requestBytes, long maxInflightBytes) {
+        RequestStats.ACKS_ZERO_PRODUCE_INFLIGHT_BYTES_INSTANCE.addAndGet(requestBytes);
+        final long inflightBytes = acksZeroProduceInflightBytes.addAndGet(requestBytes);
+        if (maxInflightBytes <= 0 || kafkaConfig.isKopAcksZeroProduceDropWhenBudgetExhausted()
+                || inflightBytes < maxInflightBytes || autoReadDisabledAcksZeroProduce) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Disable auto read because {} bytes of acks=0 produce requests are in flight",
+                    remoteAddress, inflightBytes);
+        }
+        autoReadDisabledAcksZeroProduce = true;
+        ctx.channel().config().setAutoRead(false);
+        requestStats.getAcksZeroProducePaused().inc();
+        // The requests that completed before the flag was set didn't see it
+        maybeEnableAutoReadAfterAcksZeroProduce(maxInflightBytes);
+    }
+
+    private void releaseAcksZeroProduceBytes(long requestBytes, long maxInflightBytes) {
+        RequestStats.ACKS_ZERO_PRODUCE_INFLIGHT_BYTES_INSTANCE.addAndGet(-requestBytes);
+        final long inflightBytes = acksZeroProduceInflightBytes.addAndGet(-requestBytes);
+        if (autoReadDisabledAcksZeroProduce && inflightBytes < maxInflightBytes / 2) {
+            // Run in the event loop so that it won't race with acquireAcksZeroProduceBytes
+            ctx.executor().execute(() -> maybeEnableAutoReadAfterAcksZeroProduce(maxInflightBytes));
+        }
+    }
+
+    @VisibleForTesting
+    long getAcksZeroProduceInflightBytes() {
+        return acksZeroProduceInflightBytes.get();
+    }
+
+    private void maybeEnableAutoReadAfterAcksZeroProduce(long maxInflightBytes) {
+        if (autoReadDisabledAcksZeroProduce && acksZeroProduceInflightBytes.get() < maxInflightBytes / 2) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Enable auto read because {} bytes of acks=0 produce requests are in flight",
+                        remoteAddress, acksZeroProduceInflightBytes.get());
+            }
+            autoReadDisabledAcksZeroProduce = false;
+            enableCnxAutoRead();
+        }
+    }
+
+    private void onAcksZeroProduceCompleted(KafkaHeaderAndRequest request, boolean success) {
+        request.close();
+        final RequestTrace trace = request.getTrace();
+        if (trace.isEnabled()) {
+            trace.finish(request.getHeader(), request.getRemoteAddress(), requestStats);
+        }
+        commitRequestEvent(request, 0, success);
+    }
+
+    /**
+     * Resume reading from the connection, unless the reading is stopped for other reasons.
+     */
+    protected void enableCnxAutoRead() {
+        if (ctx != null && !ctx.channel().config().isAutoRead()
+                && !autoReadDisabledAcksZeroProduce && !autoReadDisabledRequestQueueFull) {
+            ctx.channel().config().setAutoRead(true);
+            ctx.read();
+        }
+    }
+
+    private void scheduleResponseDrain(Channel channel) {
+        if (!kafkaConfig.isKopWriteResponsesInEventLoop()) {
+            sendResponseScheduler.executeOrdered(channel.remoteAddress().hashCode(), () -> {
+                writeAndFlushResponseToClient(channel);
+            });
+            return;
+        }
+        if (!responseDrainScheduled.compareAndSet(false, true)) {
+            // The scheduled drain hasn't started, it will write this response
+            return;
+        }
+        channel.eventLoop().execute(() -> {
+            // Reset it before draining so that the responses completed during the drain will schedule another drain
+            responseDrainScheduled.set(false);
+            writeAndFlushResponseToClient(channel);
+        });
+    }
+
+    // The drains run in the event loop, so the event loop can't block until they free the room of the request queue.
+    // Instead, stop reading from the connection and keep the requests that are already read, then the drains handle
+    // them in order once there is room and resume reading.
+    private void waitForRoomInRequestQueue(Channel channel, KafkaHeaderAndRequest kafkaHeaderAndRequest) {
+        requestsWaitingForQueue.add(kafkaHeaderAndRequest);
+        if (!autoReadDisabledRequestQueueFull) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Disable auto read because the request queue is full", remoteAddress);
+            }
+            autoReadDisabledRequestQueueFull = true;
+            channel.config().setAutoRead(false);
+        }
+        scheduleDrainAtHeadExpiry(channel);
+    }
+
+    // It's called in the event loop at the end of each drain
+    private void handleRequestsWaitingForQueue(Channel channel) {
+        while (isActive.get()) {
+            final KafkaHeaderAndRequest request = requestsWaitingForQueue.peek();
+            if (request == null) {
+                break;
+            }
+            if (requestQueue.isFull()) {
+                scheduleDrainAtHeadExpiry(channel);
+                return;
+            }
+            requestsWaitingForQueue.poll();
+            try {
+                handleRequest(request);
+            } catch (Exception e) {
+                log.error("error while handle command:", e);
+                close();
+                return;
+            }
+        }
+        if (autoReadDisabledRequestQueueFull && requestsWaitingForQueue.isEmpty() && !requestQueue.isFull()) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Enable auto read because there is room in the request queue", remoteAddress);
+            }
+            autoReadDisabledRequestQueueFull = false;
+            enableCnxAutoRead();
+        }
+    }
+
+    // The drains are triggered by the completed responses, so schedule one when the head expires as well, otherwise
+    // the waiting requests would wait forever for a head that never completes.
+    private void scheduleDrainAtHeadExpiry(Channel channel) {
+        final ResponseAndRequest head = requestQueue.peek();
+        if (headExpiryDrainScheduled || head == null) {
+            return;
+        }
+        headExpiryDrainScheduled = true;
+        final long remainingMs = kafkaConfig.getRequestTimeoutMs()
+                - TimeUnit.NANOSECONDS.toMillis(head.nanoSecondsSinceCreated());
+        // The head is expired after the request timeout is exceeded
+        channel.eventLoop().schedule(() -> {
+            headExpiryDrainScheduled = false;
+            writeAndFlushResponseToClient(channel);
+        }, Math.max(remainingMs, 0) + 1, TimeUnit.MILLISECONDS);
+    }
+
+    // Write continuously completed request back through channel and flush them once.
     // This is to make sure request get responseFuture in the same order.
     protected void writeAndFlushResponseToClient(Channel channel) {
+        int numWritten = 0;
         // loop from first responseFuture.
         while (isActive.get()) {
             final ResponseAndRequest responseAndRequest = requestQueue.peek();
@@ -389,7 +657,7 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
             if (PRODUCE.equals(responseAndRequest.request.getHeader().apiKey())) {
                 ProduceRequest produceRequest = (ProduceRequest) responseAndRequest.request.getRequest();
                 if (produceRequest.acks() == 0) {
-                    if (requestQueue.remove(responseAndRequest)) {
+                    if (requestQueue.removeHead(responseAndRequest)) {
                         RequestStats.REQUEST_QUEUE_SIZE_INSTANCE.decrementAndGet();
                     }
                     continue;
@@ -407,11 +675,22 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
                 long firstBlockTimestamp = responseAndRequest.getFirstBlockedTimestamp();
                 if (firstBlockTimestamp == 0) {
                     responseAndRequest.setFirstBlockedTimestamp(MathUtils.nowInNano());
+                    final ResponseBlockedEvent blockedEvent = KopEvent.beginIfEnabled(new ResponseBlockedEvent());
+                    if (blockedEvent != null) {
+                        blockedEvent.apiKey = apiKey.name;
+                        blockedEvent.correlationId = responseAndRequest.getRequest().getHeader().correlationId();
+                        blockedEvent.remoteAddress = String.valueOf(channel.remoteAddress());
+                        blockedEvent.blockedResponses = requestQueue.size() - 1;
+                        responseAndRequest.setBlockedEvent(blockedEvent);
+                    }
                 }
+                maybeCompleteDelayedFetchEarly(responseAndRequest);
                 break;
             } else {
-                if (requestQueue.remove(responseAndRequest)) {
+                if (requestQueue.removeHead(responseAndRequest)) {
                     RequestStats.REQUEST_QUEUE_SIZE_INSTANCE.decrementAndGet();
+                    // Each removed response is written below, either the response or an error response
+                    numWritten++;
                 } else { // it has been removed by another thread, skip this element
                     continue;
                 }
@@ -420,6 +699,10 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
             if (responseAndRequest.getFirstBlockedTimestamp() != 0) {
                 requestStats.getResponseBlockedLatency().registerSuccessfulEvent(
                         MathUtils.elapsedNanos(responseAndRequest.getFirstBlockedTimestamp()), TimeUnit.NANOSECONDS);
+                final ResponseBlockedEvent blockedEvent = responseAndRequest.getBlockedEvent();
+                if (blockedEvent != null) {
+                    blockedEvent.endAndCommit(requestEventThresholds.getThresholdNanos(apiKey));
+                }
             }
 
             final KafkaHeaderAndRequest request = responseAndRequest.getRequest();
@@ -454,9 +737,10 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
                                 request, response);
                     }
 
+                    final long startWriteNanos = MathUtils.nowInNano();
                     final ByteBuf result = responseToByteBuf(response, request, true);
                     final int resultSize = result.readableBytes();
-                    channel.writeAndFlush(result).addListener(future -> {
+                    channel.write(result).addListener(future -> {
                         if (response instanceof ResponseCallbackWrapper) {
                             ((ResponseCallbackWrapper) response).responseComplete();
                         }
@@ -465,6 +749,7 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
                         } else {
                             requestStats.getNetworkTotalBytesOut().addCount(resultSize);
                         }
+                        onResponseWritten(request, startWriteNanos, resultSize, future.isSuccess());
                     });
                     requestStats.getRequestStatsLogger(apiKey, KopServerStats.REQUEST_QUEUED_LATENCY)
                             .registerSuccessfulEvent(nanoSecondsSinceCreated, TimeUnit.NANOSECONDS);
@@ -483,19 +768,79 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
                         .registerFailedEvent(nanoSecondsSinceCreated, TimeUnit.NANOSECONDS);
             }
         }
+        if (numWritten > 0) {
+            channel.flush();
+        }
+        if (kafkaConfig.isKopWriteResponsesInEventLoop()) {
+            handleRequestsWaitingForQueue(channel);
+        }
+    }
+
+    // If the head is a delayed fetch that blocks the completed responses behind it, complete the delayed fetch early
+    // with the data that is already available after kopDelayedFetchMaxWaitWhenBlockingMs.
+    private void maybeCompleteDelayedFetchEarly(ResponseAndRequest head) {
+        final long maxWaitMs = kafkaConfig.getKopDelayedFetchMaxWaitWhenBlockingMs();
+        if (maxWaitMs < 0 || head.isEarlyCompletionScheduled()) {
+            return;
+        }
+        final DelayedOperation delayedFetch = head.getRequest().getDelayedOperation();
+        if (delayedFetch == null || delayedFetch.isCompleted()
+                || !requestQueue.anyMatchAfterHead(later -> later.getResponseFuture().isDone())) {
+            return;
+        }
+        head.setEarlyCompletionScheduled(true);
+        final Runnable completeEarly = () -> {
+            if (delayedFetch.forceComplete()) {
+                requestStats.getWaitingFetchesCompletedEarly().inc();
+            }
+        };
+        final long remainingMs = maxWaitMs - TimeUnit.NANOSECONDS.toMillis(head.nanoSecondsSinceCreated());
+        if (remainingMs <= 0) {
+            completeEarly.run();
+        } else {
+            ctx.executor().schedule(completeEarly, remainingMs, TimeUnit.MILLISECONDS);
+        }
     }
 
     private void sendErrorResponse(KafkaHeaderAndRequest request, Channel channel, Throwable customError,
             boolean releaseRequest) {
+        final long startWriteNanos = MathUtils.nowInNano();
         ByteBuf result = request.createErrorResponse(customError, releaseRequest);
         final int resultSize = result.readableBytes();
-        channel.writeAndFlush(result).addListener(future -> {
+        // It's flushed at the end of writeAndFlushResponseToClient
+        channel.write(result).addListener(future -> {
             if (future.isSuccess()) {
                 requestStats.getNetworkTotalBytesOut().addCount(resultSize);
             }
+            onResponseWritten(request, startWriteNanos, resultSize, false);
         });
     }
 
+    private void onResponseWritten(KafkaHeaderAndRequest request, long startWriteNanos, int responseBytes,
+                                   boolean success) {
+        final RequestTrace trace = request.getTrace();
+        if (trace.isEnabled()) {
+            trace.record(RequestTrace.Stage.RESPONSE_WRITE, startWriteNanos);
+            trace.finish(request.getHeader(), request.getRemoteAddress(), requestStats);
+        }
+        commitRequestEvent(request, responseBytes, success);
+    }
+
+    private void commitRequestEvent(KafkaHeaderAndRequest request, int responseBytes, boolean success) {
+        final KafkaRequestEvent requestEvent = request.getRequestEvent();
+        if (requestEvent != null) {
+            final RequestHeader header = request.getHeader();
+            requestEvent.apiKey = header.apiKey().name;
+            requestEvent.apiVersion = header.apiVersion();
+            requestEvent.correlationId = header.correlationId();
+            requestEvent.clientId = header.clientId();
+            requestEvent.remoteAddress = request.getClientHost();
+            requestEvent.responseBytes = responseBytes;
+            requestEvent.success = success;
+            requestEvent.endAndCommit(requestEventThresholds.getThresholdNanos(header.apiKey()));
+        }
+    }
+
     protected abstract boolean hasAuthenticated();
 
     protected abstract void channelPrepare(ChannelHandlerContext ctx,
@@ -622,6 +967,11 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         private final AbstractRequest request;
         private final ByteBuf buffer;
         private final SocketAddress remoteAddress;
+        private volatile RequestTrace trace = RequestTrace.DISABLED;
+        // null if the JFR event is not enabled
+        private volatile KafkaRequestEvent requestEvent;
+        // the delayed operation that the response is waiting for, e.g. a delayed fetch
+        private volatile DelayedOperation delayedOperation;
 
         public KafkaHeaderAndRequest(RequestHeader header,
                               AbstractRequest request,
@@ -649,6 +999,30 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
             return this.remoteAddress;
         }
 
+        public RequestTrace getTrace() {
+            return this.trace;
+        }
+
+        public void setTrace(RequestTrace trace) {
+            this.trace = trace;
+        }
+
+        public KafkaRequestEvent getRequestEvent() {
+            return this.requestEvent;
+        }
+
+        public void setRequestEvent(KafkaRequestEvent requestEvent) {
+            this.requestEvent = requestEvent;
+        }
+
+        public DelayedOperation getDelayedOperation() {
+            return this.delayedOperation;
+        }
+
+        public void setDelayedOperation(DelayedOperation delayedOperation) {
+            this.delayedOperation = delayedOperation;
+        }
+
         public String getClientHost() {
             if (remoteAddress == null) {
                 return DEFAULT_CLIENT_HOST;
@@ -735,6 +1109,15 @@ public abstract class KafkaCommandDecoder extends ChannelInboundHandlerAdapter {
         @Setter
         private long firstBlockedTimestamp;
 
+        // null if the response is not blocked or the JFR event is not enabled
+        @Getter
+        @Setter
+        private ResponseBlockedEvent blockedEvent;
+
+        @Getter
+        @Setter
+        private boolean earlyCompletionScheduled;
+
         public static ResponseAndRequest of(CompletableFuture<AbstractResponse> response,
                                             KafkaHeaderAndRequest request) {
             return new ResponseAndRequest(response, request);
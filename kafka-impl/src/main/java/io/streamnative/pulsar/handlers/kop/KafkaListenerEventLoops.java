@@ -0,0 +1,257 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.EVENT_LOOP_PENDING_TASKS;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.EVENT_LOOP_THREADS;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.EVENT_LOOP_UTILIZATION;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.LISTENER_SCOPE;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.streamnative.pulsar.handlers.kop.stats.StatsLogger;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.util.netty.EventLoopUtil;
+
+/**
+ * The event loop groups owned by KoP for the Kafka listeners.
+ *
+ * <p>By default, the channel initializers of the Kafka listeners are returned to the Pulsar protocol handler
+ * framework, which binds them on the same event loops as the Pulsar binary protocol. When
+ * {@link KafkaServiceConfiguration#getKafkaListenerIoThreads()} is positive, each Kafka listener is bound by KoP
+ * instead, on its own acceptor and I/O event loop groups (epoll if available, NIO otherwise), so that the Kafka
+ * and Pulsar traffic don't compete for the same threads.
+ */
+@Slf4j
+public class KafkaListenerEventLoops implements AutoCloseable {
+
+    private final KafkaServiceConfiguration kafkaConfig;
+    private final StatsLogger statsLogger;
+    private final Map<String, ListenerEventLoop> listeners = new ConcurrentHashMap<>();
+
+    public KafkaListenerEventLoops(KafkaServiceConfiguration kafkaConfig, StatsLogger statsLogger) {
+        this.kafkaConfig = kafkaConfig;
+        this.statsLogger = statsLogger;
+    }
+
+    public boolean isEnabled() {
+        return kafkaConfig.getKafkaListenerIoThreads() > 0;
+    }
+
+    /**
+     * Bind the listener on its own event loop groups.
+     *
+     * @param endPoint the endpoint of the Kafka listener
+     * @param channelInitializer the channel initializer of the Kafka listener
+     * @throws InterruptedException if it's interrupted while binding
+     */
+    public void bind(final EndPoint endPoint,
+                     final ChannelInitializer<SocketChannel> channelInitializer) throws InterruptedException {
+        final String listenerName = endPoint.getListenerName();
+        final ListenerEventLoop listener = new ListenerEventLoop(listenerName);
+        if (listeners.putIfAbsent(listenerName, listener) != null) {
+            listener.close();
+            throw new IllegalStateException("Listener " + listenerName + " is already bound");
+        }
+
+        final ServerBootstrap bootstrap = new ServerBootstrap();
+        bootstrap.group(listener.acceptorGroup, listener.ioGroup);
+        bootstrap.channel(EventLoopUtil.getServerSocketChannelClass(listener.ioGroup));
+        bootstrap.option(ChannelOption.ALLOCATOR, PulsarByteBufAllocator.DEFAULT);
+        bootstrap.option(ChannelOption.SO_REUSEADDR, true);
+        bootstrap.childOption(ChannelOption.ALLOCATOR, PulsarByteBufAllocator.DEFAULT);
+        bootstrap.childOption(ChannelOption.RCVBUF_ALLOCATOR,
+                new AdaptiveRecvByteBufAllocator(1024, 16 * 1024, 1024 * 1024));
+        EventLoopUtil.enableTriggeredMode(bootstrap);
+        bootstrap.childHandler(channelInitializer);
+
+        final InetSocketAddress address = endPoint.getInetAddress();
+        try {
+            listener.serverChannel = bootstrap.bind(address).sync().channel();
+        } catch (Throwable e) {
+            listeners.remove(listenerName, listener);
+            listener.close();
+            throw e;
+        }
+        listener.registerGauges(statsLogger.scopeLabel(LISTENER_SCOPE, listenerName));
+        log.info("Kafka listener {} is bound on {} with {} I/O threads", listenerName, address,
+                kafkaConfig.getKafkaListenerIoThreads());
+    }
+
+    @VisibleForTesting
+    ListenerEventLoop getListener(String listenerName) {
+        return listeners.get(listenerName);
+    }
+
+    @Override
+    public void close() {
+        listeners.values().forEach(ListenerEventLoop::close);
+        listeners.clear();
+    }
+
+    /**
+     * Apply the socket options of Kafka listeners on an accepted channel.
+     *
+     * <p>It's applied on each channel rather than on the {@link ServerBootstrap} so that the options also take
+     * effect when the listener shares the event loops with Pulsar.
+     */
+    public static void configureChannel(final SocketChannel ch, final KafkaServiceConfiguration kafkaConfig) {
+        ch.config().setTcpNoDelay(kafkaConfig.isKafkaSocketTcpNoDelay());
+        if (kafkaConfig.getKafkaSocketSendBufferBytes() > 0) {
+            ch.config().setSendBufferSize(kafkaConfig.getKafkaSocketSendBufferBytes());
+        }
+        if (kafkaConfig.getKafkaSocketReceiveBufferBytes() > 0) {
+            ch.config().setReceiveBufferSize(kafkaConfig.getKafkaSocketReceiveBufferBytes());
+        }
+    }
+
+    @VisibleForTesting
+    class ListenerEventLoop {
+
+        private final String listenerName;
+        private final List<Thread> ioThreads = new CopyOnWriteArrayList<>();
+        @Getter
+        private final EventLoopGroup acceptorGroup;
+        @Getter
+        private final EventLoopGroup ioGroup;
+        private volatile Channel serverChannel;
+
+        // Used to compute the utilization of the I/O threads between two samples
+        private long lastSampleNanos = MathUtils.nowInNano();
+        private long lastCpuTimeNanos = 0L;
+
+        ListenerEventLoop(String listenerName) {
+            this.listenerName = listenerName;
+            final boolean enableBusyWait = kafkaConfig.isKafkaListenerEnableBusyWait();
+            this.acceptorGroup = EventLoopUtil.newEventLoopGroup(kafkaConfig.getKafkaListenerAcceptorThreads(),
+                    false, new DefaultThreadFactory("kop-acceptor-" + listenerName));
+            this.ioGroup = EventLoopUtil.newEventLoopGroup(kafkaConfig.getKafkaListenerIoThreads(),
+                    enableBusyWait, new DefaultThreadFactory("kop-io-" + listenerName) {
+                        @Override
+                        protected Thread newThread(Runnable r, String name) {
+                            final Thread thread = super.newThread(r, name);
+                            ioThreads.add(thread);
+                            return thread;
+                        }
+                    });
+        }
+
+        InetSocketAddress localAddress() {
+            return (InetSocketAddress) serverChannel.localAddress();
+        }
+
+        int pendingTasks() {
+            int pendingTasks = 0;
+            for (EventExecutor executor : ioGroup) {
+                if (executor instanceof SingleThreadEventLoop) {
+                    pendingTasks += ((SingleThreadEventLoop) executor).pendingTasks();
+                }
+            }
+            return pendingTasks;
+        }
+
+        /**
+         * Get the CPU utilization of the I/O threads since the last sample, in percent of the thread count.
+         */
+        synchronized double sampleUtilization() {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (!threadMXBean.isThreadCpuTimeSupported() || !threadMXBean.isThreadCpuTimeEnabled()) {
+                return 0.0;
+            }
+            long cpuTimeNanos = 0L;
+            for (Thread thread : ioThreads) {
+                final long threadCpuTime = threadMXBean.getThreadCpuTime(thread.getId());
+                if (threadCpuTime > 0) {
+                    cpuTimeNanos += threadCpuTime;
+                }
+            }
+            final long now = MathUtils.nowInNano();
+            final long elapsedNanos = now - lastSampleNanos;
+            final long usedNanos = cpuTimeNanos - lastCpuTimeNanos;
+            lastSampleNanos = now;
+            lastCpuTimeNanos = cpuTimeNanos;
+            if (elapsedNanos <= 0 || usedNanos <= 0) {
+                return 0.0;
+            }
+            // The threads are started lazily, so the configured count is used rather than the started ones
+            return Math.min(100.0, 100.0 * usedNanos / elapsedNanos / kafkaConfig.getKafkaListenerIoThreads());
+        }
+
+        void registerGauges(StatsLogger listenerStatsLogger) {
+            listenerStatsLogger.registerGauge(EVENT_LOOP_THREADS, new Gauge<Number>() {
+                @Override
+                public Number getDefaultValue() {
+                    return 0;
+                }
+
+                @Override
+                public Number getSample() {
+                    return kafkaConfig.getKafkaListenerIoThreads();
+                }
+            });
+            listenerStatsLogger.registerGauge(EVENT_LOOP_PENDING_TASKS, new Gauge<Number>() {
+                @Override
+                public Number getDefaultValue() {
+                    return 0;
+                }
+
+                @Override
+                public Number getSample() {
+                    return pendingTasks();
+                }
+            });
+            listenerStatsLogger.registerGauge(EVENT_LOOP_UTILIZATION, new Gauge<Number>() {
+                @Override
+                public Number getDefaultValue() {
+                    return 0;
+                }
+
+                @Override
+                public Number getSample() {
+                    return sampleUtilization();
+                }
+            });
+        }
+
+        void close() {
+            if (serverChannel != null) {
+                serverChannel.close().awaitUninterruptibly();
+            }
+            acceptorGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            ioGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            log.info("Closed the event loops of Kafka listener {}", listenerName);
+        }
+    }
+}
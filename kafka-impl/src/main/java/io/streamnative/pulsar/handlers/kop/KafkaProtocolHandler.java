@@ -26,6 +26,7 @@ import io.streamnative.pulsar.handlers.kop.coordinator.group.OffsetConfig;
 import io.streamnative.pulsar.handlers.kop.coordinator.transaction.TransactionConfig;
 import io.streamnative.pulsar.handlers.kop.coordinator.transaction.TransactionCoordinator;
 import io.streamnative.pulsar.handlers.kop.http.HttpChannelInitializer;
+import io.streamnative.pulsar.handlers.kop.jfr.RequestEventThresholds;
 import io.streamnative.pulsar.handlers.kop.migration.MigrationManager;
 import io.streamnative.pulsar.handlers.kop.schemaregistry.SchemaRegistryChannelInitializer;
 import io.streamnative.pulsar.handlers.kop.stats.PrometheusMetricsProvider;
@@ -65,6 +66,7 @@ import org.apache.pulsar.common.naming.NamespaceName;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.ClusterData;
 import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.metadata.api.MetadataStore;
 
 /**
  * Kafka Protocol Handler load and run by Pulsar Service.
@@ -110,6 +112,7 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
     private SchemaRegistryManager schemaRegistryManager;
     private MigrationManager migrationManager;
     private ReplicaManager replicaManager;
+    private KafkaListenerEventLoops kafkaListenerEventLoops;
 
     private final Map<String, GroupCoordinator> groupCoordinatorsByTenant = new ConcurrentHashMap<>();
     private final Map<String, TransactionCoordinator> transactionCoordinatorByTenant = new ConcurrentHashMap<>();
@@ -170,10 +173,19 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
                     tokens[0].replace(KafkaServiceConfiguration.TENANT_PLACEHOLDER, kafkaConfig.getKafkaTenant()),
                     tokens[1].replace("*", kafkaConfig.getKafkaNamespace()));
         }
+        // Validate the thresholds here because they're parsed when each connection is created
+        RequestEventThresholds.parse(kafkaConfig.getKopJfrRequestThresholds(),
+                kafkaConfig.getKopJfrRequestDefaultThresholdMs());
 
         statsProvider = new PrometheusMetricsProvider();
         StatsLogger rootStatsLogger = statsProvider.getStatsLogger("");
-        requestStats = new RequestStats(rootStatsLogger.scope(SERVER_SCOPE));
+        requestStats = new RequestStats(rootStatsLogger.scope(SERVER_SCOPE), TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.parse(kafkaConfig.getKopTopicMetricsAggregationLevel()))
+                .maxSeries(kafkaConfig.getKopTopicMetricsMaxSeries())
+                .expiryMs(TimeUnit.SECONDS.toMillis(kafkaConfig.getKopTopicMetricsExpirySeconds()))
+                .maintenanceIntervalMs(
+                        TimeUnit.SECONDS.toMillis(kafkaConfig.getKopPrometheusStatsLatencyRolloverSeconds()))
+                .namespacePrefix(kafkaConfig.getKafkaTenant() + "/" + kafkaConfig.getKafkaNamespace()));
         sendResponseScheduler = OrderedScheduler.newSchedulerBuilder()
                 .name("send-response")
                 .numThreads(kafkaConfig.getNumSendKafkaResponseThreads())
@@ -199,6 +211,12 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
 
         brokerService = service;
         kafkaTopicManagerSharedState = new KafkaTopicManagerSharedState(brokerService);
+        if (kafkaConfig.isKopEnableGroupLevelConsumerMetrics()) {
+            // The group ids of the clients are stored in the local metadata store by KafkaRequestHandler
+            final MetadataStore localMetadataStore = brokerService.getPulsar().getLocalMetadataStore();
+            localMetadataStore.registerListener(notification -> kafkaTopicManagerSharedState
+                    .getConnectedGroupCache().onNotification(notification, localMetadataStore));
+        }
         PulsarAdmin pulsarAdmin;
         try {
             pulsarAdmin = brokerService.getPulsar().getAdminClient();
@@ -213,7 +231,8 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
         txnTopicClient = new SystemTopicClient(brokerService.pulsar(), kafkaConfig);
 
         try {
-            kopBrokerLookupManager = new KopBrokerLookupManager(kafkaConfig, brokerService.getPulsar(), lookupClient);
+            kopBrokerLookupManager = new KopBrokerLookupManager(kafkaConfig, brokerService.getPulsar(), lookupClient,
+                    requestStats.getStatsLogger());
         } catch (Exception ex) {
             log.error("Failed to get kopBrokerLookupManager", ex);
             throw new IllegalStateException(ex);
@@ -221,6 +240,7 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
 
         // Listener for invalidating the global Broker ownership cache
         bundleListener = new NamespaceBundleOwnershipListenerImpl(brokerService);
+        bundleListener.addBundleUnloadListener(KopBrokerLookupManager::removeBundleCache);
 
         bundleListener.addTopicOwnershipListener(new TopicOwnershipListener() {
 
@@ -280,6 +300,16 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
                 kafkaConfig,
                 groupCoordinatorsByTenant);
         kopEventManager.start();
+        // The tenant and namespace policies are stored in the configuration metadata store
+        brokerService.getPulsar().getConfigurationMetadataStore()
+                .registerListener(adminManager.getAuthorizationCache()::onNotification);
+        // The notifications of the local metadata store are already forwarded to the topic metadata cache by the
+        // KopEventManager
+        if (brokerService.getPulsar().getConfigurationMetadataStore()
+                != brokerService.getPulsar().getLocalMetadataStore()) {
+            brokerService.getPulsar().getConfigurationMetadataStore()
+                    .registerListener(adminManager.getTopicMetadataCache()::onNotification);
+        }
 
         if (kafkaConfig.isKafkaTransactionCoordinatorEnabled() && kafkaConfig.isKafkaManageSystemNamespaces()) {
             getTransactionCoordinator(kafkaConfig.getKafkaMetadataTenant());
@@ -417,7 +447,7 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
         return groupCoordinator;
     }
 
-    private KafkaChannelInitializer newKafkaChannelInitializer(final EndPoint endPoint) {
+    private KafkaChannelInitializer newKafkaChannelInitializer(final EndPoint endPoint) throws Exception {
         return new KafkaChannelInitializer(
                 brokerService.getPulsar(),
                 kafkaConfig,
@@ -444,11 +474,19 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
 
         producePurgatory = DelayedOperationPurgatory.builder()
                 .purgatoryName("produce")
-                .timeoutTimer(SystemTimer.builder().executorName("produce").build())
+                .timeoutTimer(SystemTimer.builder()
+                        .executorName("produce")
+                        .shards(kafkaConfig.getDelayedOperationTimerShards())
+                        .statsLogger(requestStats.getStatsLogger())
+                        .build())
                 .build();
         fetchPurgatory = DelayedOperationPurgatory.builder()
                 .purgatoryName("fetch")
-                .timeoutTimer(SystemTimer.builder().executorName("fetch").build())
+                .timeoutTimer(SystemTimer.builder()
+                        .executorName("fetch")
+                        .shards(kafkaConfig.getDelayedOperationTimerShards())
+                        .statsLogger(requestStats.getStatsLogger())
+                        .build())
                 .build();
 
         replicaManager = new ReplicaManager(
@@ -463,22 +501,35 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
             ImmutableMap.Builder<InetSocketAddress, ChannelInitializer<SocketChannel>> builder =
                     ImmutableMap.builder();
 
-            EndPoint.parseListeners(kafkaConfig.getListeners(), kafkaConfig.getKafkaProtocolMap()).
-                    forEach((listener, endPoint) ->
-                            builder.put(endPoint.getInetAddress(), newKafkaChannelInitializer(endPoint))
-                    );
+            ImmutableMap.Builder<InetSocketAddress, ChannelInitializer<SocketChannel>> pulsarBoundBuilder =
+                    ImmutableMap.builder();
+            kafkaListenerEventLoops = new KafkaListenerEventLoops(kafkaConfig, requestStats.getStatsLogger());
+
+            for (EndPoint endPoint : EndPoint.parseListeners(kafkaConfig.getListeners(),
+                    kafkaConfig.getKafkaProtocolMap()).values()) {
+                final KafkaChannelInitializer initializer = newKafkaChannelInitializer(endPoint);
+                builder.put(endPoint.getInetAddress(), initializer);
+                if (kafkaListenerEventLoops.isEnabled()) {
+                    // The listener is bound by KoP on its own event loops, so it's not returned to Pulsar
+                    kafkaListenerEventLoops.bind(endPoint, initializer);
+                } else {
+                    pulsarBoundBuilder.put(endPoint.getInetAddress(), initializer);
+                }
+            }
 
             Optional<HttpChannelInitializer> migrationChannelInitializer = migrationManager.build();
-            migrationChannelInitializer.ifPresent(
-                    initializer -> builder.put(migrationManager.getAddress(),
-                            initializer));
+            migrationChannelInitializer.ifPresent(initializer -> {
+                builder.put(migrationManager.getAddress(), initializer);
+                pulsarBoundBuilder.put(migrationManager.getAddress(), initializer);
+            });
 
             Optional<SchemaRegistryChannelInitializer> schemaRegistryChannelInitializer = schemaRegistryManager.build();
-            schemaRegistryChannelInitializer.ifPresent(
-                    registryChannelInitializer -> builder.put(schemaRegistryManager.getAddress(),
-                            registryChannelInitializer));
+            schemaRegistryChannelInitializer.ifPresent(registryChannelInitializer -> {
+                builder.put(schemaRegistryManager.getAddress(), registryChannelInitializer);
+                pulsarBoundBuilder.put(schemaRegistryManager.getAddress(), registryChannelInitializer);
+            });
             channelInitializerMap = builder.build();
-            return channelInitializerMap;
+            return pulsarBoundBuilder.build();
         } catch (Exception e){
             log.error("KafkaProtocolHandler newChannelInitializers failed with ", e);
             return null;
@@ -487,6 +538,16 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
 
     @Override
     public void close() {
+        if (kafkaListenerEventLoops != null) {
+            kafkaListenerEventLoops.close();
+        }
+        if (channelInitializerMap != null) {
+            channelInitializerMap.values().forEach(initializer -> {
+                if (initializer instanceof KafkaChannelInitializer) {
+                    ((KafkaChannelInitializer) initializer).close();
+                }
+            });
+        }
         if (producePurgatory != null) {
             producePurgatory.shutdown();
         }
@@ -571,6 +632,10 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
             .offsetsRetentionCheckIntervalMs(kafkaConfig.getOffsetsRetentionCheckIntervalMs())
             .offsetsRetentionMs(TimeUnit.MINUTES.toMillis(kafkaConfig.getOffsetsRetentionMinutes()))
             .offsetCommitTimeoutMs(kafkaConfig.getOffsetCommitTimeoutMs())
+            .offsetCommitBatchingEnabled(kafkaConfig.isOffsetCommitBatchingEnabled())
+            .offsetCommitBatchingMaxPublishDelayMicros(kafkaConfig.getOffsetCommitBatchingMaxPublishDelayMicros())
+            .offsetCommitBatchingMaxMessages(kafkaConfig.getOffsetCommitBatchingMaxMessages())
+            .offsetCommitBatchingMaxBytes(kafkaConfig.getOffsetCommitBatchingMaxBytes())
             .build();
 
         GroupCoordinator groupCoordinator = GroupCoordinator.of(
@@ -581,6 +646,8 @@ public class KafkaProtocolHandler implements ProtocolHandler, TenantContextManag
             namespacePrefixForMetadata,
             SystemTimer.builder()
                 .executorName("group-coordinator-timer")
+                .shards(kafkaConfig.getDelayedOperationTimerShards())
+                .statsLogger(requestStats.getStatsLogger())
                 .build(),
             Time.SYSTEM
         );
@@ -44,6 +44,7 @@ import io.streamnative.pulsar.handlers.kop.utils.GroupIdUtils;
 import io.streamnative.pulsar.handlers.kop.utils.KafkaRequestUtils;
 import io.streamnative.pulsar.handlers.kop.utils.KafkaResponseUtils;
 import io.streamnative.pulsar.handlers.kop.utils.KopTopic;
+import io.streamnative.pulsar.handlers.kop.utils.KopTopicNameCache;
 import io.streamnative.pulsar.handlers.kop.utils.MessageMetadataUtils;
 import io.streamnative.pulsar.handlers.kop.utils.MetadataUtils;
 import io.streamnative.pulsar.handlers.kop.utils.OffsetFinder;
@@ -80,6 +81,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
@@ -212,6 +214,7 @@ import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
 public class KafkaRequestHandler extends KafkaCommandDecoder {
     private static final int THROTTLE_TIME_MS = 10;
     private static final String POLICY_ROOT = "/admin/policies/";
+    private static final int MAX_CACHED_PARTITION_NAMES = 10000;
 
     private final PulsarService pulsarService;
     private final KafkaTopicManager topicManager;
@@ -247,6 +250,8 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
     // key is the topic(partition), value is the future that indicates whether the PersistentTopic instance of the key
     // is found.
     private final Map<TopicPartition, PendingTopicFutures> pendingTopicFuturesMap = new ConcurrentHashMap<>();
+    // The full partition names of the partitions requested by this connection
+    private final KopTopicNameCache topicNameCache = new KopTopicNameCache(MAX_CACHED_PARTITION_NAMES);
     // DelayedOperation for produce and fetch
     private final DelayedOperationPurgatory<DelayedOperation> producePurgatory;
     private final DelayedOperationPurgatory<DelayedOperation> fetchPurgatory;
@@ -405,6 +410,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
             if (kafkaConfig.isKopEnableGroupLevelConsumerMetrics()) {
                 currentConnectedClientId.forEach(clientId -> {
                     String path = groupIdStoredPath + GroupIdUtils.groupIdPathFormat(clientHost, clientId);
+                    kafkaTopicManagerSharedState.getConnectedGroupCache().remove(path);
                     metadataStore.delete(path, Optional.empty())
                             .whenComplete((__, ex) -> {
                                 if (ex != null) {
@@ -444,7 +450,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
             authenticator.authenticate(ctx, requestBuf, registerRequestParseLatency, registerRequestLatency,
                     this::validateTenantAccessForSession);
             if (authenticator.complete() && kafkaConfig.isKafkaEnableMultiTenantMetadata()) {
-                setRequestStats(requestStats.forTenant(getCurrentTenant()));
+                setRequestStats(requestStats.forTenant(getCurrentTenant(), currentNamespacePrefix()));
             }
         }
     }
@@ -517,13 +523,21 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
     // NOTE: the returned future never completes exceptionally
     private CompletableFuture<TopicAndMetadata> getTopicMetadataAsync(String topic,
                                                                       boolean allowAutoTopicCreation) {
-        final CompletableFuture<TopicAndMetadata> future = new CompletableFuture<>();
         final TopicName topicName = TopicName.get(topic);
+        final TopicMetadataCache topicMetadataCache = adminManager.getTopicMetadataCache();
+        final Integer cachedPartitions = topicMetadataCache.getPartitions(topicName);
+        if (cachedPartitions != null) {
+            return CompletableFuture.completedFuture(TopicAndMetadata.success(topic, cachedPartitions));
+        }
+        // Only the existing topics are cached, a missed topic might be created later
+        final long version = topicMetadataCache.version(topicName.getNamespace());
+        final CompletableFuture<TopicAndMetadata> future = new CompletableFuture<>();
         admin.topics().getPartitionedTopicMetadataAsync(topic).whenComplete((metadata, e) -> {
             if (e == null) {
                 if (log.isDebugEnabled()) {
                     log.debug("Topic {} has {} partitions", topic, metadata.partitions);
                 }
+                topicMetadataCache.putPartitions(topicName, metadata.partitions, version);
                 future.complete(TopicAndMetadata.success(topic, metadata.partitions));
             } else if (e instanceof PulsarAdminException.NotFoundException) {
                 (allowAutoTopicCreation ? checkAllowAutoTopicCreation(topicName.getNamespace())
@@ -574,13 +588,27 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
 
     private CompletableFuture<Set<String>> expandAllowedNamespaces(Set<String> allowedNamespaces) {
         String currentTenant = getCurrentTenant(kafkaConfig.getKafkaTenant());
-        return expandAllowedNamespaces(allowedNamespaces, currentTenant, pulsarService);
+        final TopicMetadataCache topicMetadataCache = adminManager.getTopicMetadataCache();
+        return expandAllowedNamespaces(allowedNamespaces, currentTenant, tenant ->
+                topicMetadataCache.getNamespacesAsync(tenant, __ -> listNamespacesAsync(pulsarService, tenant)));
     }
 
     @VisibleForTesting
     static CompletableFuture<Set<String>> expandAllowedNamespaces(Set<String> allowedNamespaces,
                                                                   String currentTenant,
                                                                   PulsarService pulsarService) {
+        return expandAllowedNamespaces(allowedNamespaces, currentTenant,
+                tenant -> listNamespacesAsync(pulsarService, tenant));
+    }
+
+    private static CompletableFuture<List<String>> listNamespacesAsync(PulsarService pulsarService, String tenant) {
+        return pulsarService.getPulsarResources().getNamespaceResources().listNamespacesAsync(tenant);
+    }
+
+    private static CompletableFuture<Set<String>> expandAllowedNamespaces(
+            Set<String> allowedNamespaces,
+            String currentTenant,
+            Function<String, CompletableFuture<List<String>>> namespaceLister) {
         Set<String> result = new CopyOnWriteArraySet<>();
         List<CompletableFuture<?>> results = new ArrayList<>();
         for (String namespaceTemplate : allowedNamespaces) {
@@ -591,9 +619,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
             } else {
                 int slash = namespace.lastIndexOf('/');
                 String tenant = namespace.substring(0, slash);
-                results.add(pulsarService.getPulsarResources()
-                        .getNamespaceResources()
-                        .listNamespacesAsync(tenant)
+                results.add(namespaceLister.apply(tenant)
                         .thenAccept(namespaces -> namespaces.forEach(ns -> result.add(tenant + "/" + ns))));
             }
         }
@@ -659,12 +685,17 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         );
     }
 
-    private CompletableFuture<Stream<String>> listAllTopicsFromNamespacesAsync(final List<String> namespaces) {
+    private CompletableFuture<List<TopicAndMetadata>> listAllTopicsFromNamespacesAsync(
+            final List<String> namespaces) {
+        final TopicMetadataCache topicMetadataCache = adminManager.getTopicMetadataCache();
+        // Each namespace's topics are analyzed once when they're loaded, so a cached namespace costs no more than
+        // copying its result
         return CoreUtils.waitForAll(namespaces.stream()
-                .map(namespace -> pulsarService.getNamespaceService()
-                        .getListOfPersistentTopics(NamespaceName.get(namespace))
+                .map(namespace -> topicMetadataCache.getTopicsAsync(namespace, ns ->
+                        pulsarService.getNamespaceService().getListOfPersistentTopics(NamespaceName.get(ns))
+                                .thenApply(topics -> analyzeFullTopicNames(topics.stream())))
                 ).collect(Collectors.toList()),
-                topics -> topics.stream().flatMap(List::stream));
+                topics -> topics.stream().flatMap(List::stream).collect(Collectors.toList()));
     }
 
     private CompletableFuture<ListPair<String>> authorizeTopicsAsync(final Collection<String> topics,
@@ -701,12 +732,9 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         // The implementation of MetadataRequest#isAllTopics() in kafka-clients 2.0 is wrong.
         // Because in version 0, an empty topic list indicates "request metadata for all topics."
         if ((request.topics() == null) || (request.topics().isEmpty() && request.version() == 0)) {
-            // clean all cache when get all metadata for librdkafka(<1.0.0).
-            KopBrokerLookupManager.clear();
             return expandAllowedNamespaces(kafkaConfig.getKopAllowedNamespaces())
                     .thenCompose(namespaces -> authorizeNamespacesAsync(namespaces, AclOperation.DESCRIBE))
-                    .thenCompose(this::listAllTopicsFromNamespacesAsync)
-                    .thenApply(this::analyzeFullTopicNames);
+                    .thenCompose(this::listAllTopicsFromNamespacesAsync);
         } else {
             return authorizeTopicsAsync(fullTopicNames, AclOperation.DESCRIBE)
                     .thenCompose(authorizedTopicsPair -> findTopicMetadata(authorizedTopicsPair,
@@ -780,9 +808,11 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         }
     }
 
-    private void enableCnxAutoRead() {
+    @Override
+    protected void enableCnxAutoRead() {
         if (ctx != null && !ctx.channel().config().isAutoRead()
-                && !autoReadDisabledPublishBufferLimiting) {
+                && !autoReadDisabledPublishBufferLimiting && !isAutoReadDisabledAcksZeroProduce()
+                && !isAutoReadDisabledRequestQueueFull()) {
             // Resume reading from socket if pending-request is not reached to threshold
             ctx.channel().config().setAutoRead(true);
             // triggers channel read
@@ -852,9 +882,11 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         short requiredAcks = produceRequest.acks();
         String namespacePrefix = currentNamespacePrefix();
         final AtomicInteger unfinishedAuthorizationCount = new AtomicInteger(numPartitions);
+        final long startAuthorizeNanos = MathUtils.nowInNano();
         Runnable completeOne = () -> {
             // When complete one authorization or failed, will do the action first.
             if (unfinishedAuthorizationCount.decrementAndGet() == 0) {
+                produceHar.getTrace().record(RequestTrace.Stage.AUTHORIZE, startAuthorizeNanos);
                 if (authorizedRequestInfo.isEmpty()) {
                     resultFuture.complete(new ProduceResponse(unauthorizedTopicResponsesMap));
                     return;
@@ -864,7 +896,9 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                         this::startSendOperationForThrottling,
                         this::completeSendOperationForThrottling,
                         pendingTopicFuturesMap,
-                        ctx);
+                        ctx,
+                        produceHar.getTrace(),
+                        produceHar.getBuffer());
                 ReplicaManager replicaManager = getReplicaManager();
                 replicaManager.appendRecords(
                         timeoutMs,
@@ -907,7 +941,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                     return;
                 }
 
-                final String fullPartitionName = KopTopic.toString(topicPartition, namespacePrefix);
+                final String fullPartitionName = topicNameCache.toString(topicPartition, namespacePrefix);
                 authorize(AclOperation.WRITE, Resource.of(ResourceType.TOPIC, fullPartitionName))
                         .whenCompleteAsync((isAuthorized, ex) -> {
                             if (ex != null) {
@@ -988,13 +1022,15 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                 + request.data().keyType());
         }
 
-        // Store group name to metadata store for current client, use to collect consumer metrics.
+        // The coordinator lookup doesn't depend on the stored group name, so don't wait for it
+        final CompletableFuture<KafkaResponseUtils.BrokerLookupResult> findBrokerFuture =
+                findBroker(TopicName.get(pulsarTopicName));
         storeGroupIdFuture
                 .whenComplete((__, ex) -> {
                     if (ex != null) {
                         log.warn("Store groupId failed, the groupId might already stored.", ex);
                     }
-                    findBroker(TopicName.get(pulsarTopicName))
+                    findBrokerFuture
                             .whenComplete((KafkaResponseUtils.BrokerLookupResult result, Throwable throwable) -> {
                                 if (result.error != Errors.NONE || throwable != null) {
                                     log.error("[{}] Request {}: Error while find coordinator.",
@@ -1016,15 +1052,8 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
 
     @VisibleForTesting
     protected CompletableFuture<Void> storeGroupId(String groupId, String groupIdPath) {
-        String path = groupIdStoredPath + groupIdPath;
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        metadataStore.put(path, groupId.getBytes(UTF_8), Optional.empty())
-                .thenAccept(__ -> future.complete(null))
-                .exceptionally(ex -> {
-                    future.completeExceptionally(ex);
-                    return null;
-                });
-        return future;
+        return kafkaTopicManagerSharedState.getConnectedGroupCache()
+                .store(groupIdStoredPath + groupIdPath, groupId, metadataStore);
     }
 
     @VisibleForTesting
@@ -1302,7 +1331,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         };
         String namespacePrefix = currentNamespacePrefix();
         KafkaRequestUtils.forEachListOffsetRequest(request, (topic, times) -> {
-            String fullPartitionName = KopTopic.toString(topic, namespacePrefix);
+            String fullPartitionName = topicNameCache.toString(topic, namespacePrefix);
             authorize(AclOperation.DESCRIBE, Resource.of(ResourceType.TOPIC, fullPartitionName))
                     .whenComplete((isAuthorized, ex) -> {
                                 if (ex != null) {
@@ -1356,7 +1385,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         }
         String namespacePrefix = currentNamespacePrefix();
         KafkaRequestUtils.LegacyUtils.forEachListOffsetRequest(request, topic -> times -> maxNumOffsets -> {
-            String fullPartitionName = KopTopic.toString(topic, namespacePrefix);
+            String fullPartitionName = topicNameCache.toString(topic, namespacePrefix);
 
             authorize(AclOperation.DESCRIBE, Resource.of(ResourceType.TOPIC, fullPartitionName))
                     .whenComplete((isAuthorized, ex) -> {
@@ -1543,6 +1572,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                     getGroupCoordinator().handleCommitOffsets(
                             data.groupId(),
                             data.memberId(),
+                            Optional.ofNullable(data.groupInstanceId()),
                             data.generationId(),
                             convertedPartitionData
                     ).thenAccept(offsetCommitResult -> {
@@ -1628,8 +1658,10 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                 new ConcurrentHashMap<>();
 
         AtomicInteger unfinishedAuthorizationCount = new AtomicInteger(request.fetchData().size());
+        final long startAuthorizeNanos = MathUtils.nowInNano();
         Runnable completeOne = () -> {
             if (unfinishedAuthorizationCount.decrementAndGet() == 0) {
+                fetch.getTrace().record(RequestTrace.Stage.AUTHORIZE, startAuthorizeNanos);
                 TransactionCoordinator transactionCoordinator = null;
                 if (request.isolationLevel().equals(IsolationLevel.READ_COMMITTED)
                         && kafkaConfig.isKafkaTransactionCoordinatorEnabled()) {
@@ -1687,8 +1719,9 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         };
 
         // Regular Kafka consumers need READ permission on each partition they are fetching.
+        final String fetchNamespacePrefix = currentNamespacePrefix();
         request.fetchData().forEach((topicPartition, partitionData) -> {
-            final String fullTopicName = KopTopic.toString(topicPartition, this.currentNamespacePrefix());
+            final String fullTopicName = topicNameCache.toString(topicPartition, fetchNamespacePrefix);
             authorize(AclOperation.READ, Resource.of(ResourceType.TOPIC, fullTopicName))
                     .whenComplete((isAuthorized, ex) -> {
                         if (ex != null) {
@@ -1735,6 +1768,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         getGroupCoordinator().handleJoinGroup(
                 data.groupId(),
                 data.memberId(),
+                Optional.ofNullable(data.groupInstanceId()),
                 joinGroup.getHeader().clientId(),
                 joinGroup.getClientHost(),
                 data.rebalanceTimeoutMs(),
@@ -1781,6 +1815,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                 data.groupId(),
                 data.generationId(),
                 data.memberId(),
+                Optional.ofNullable(data.groupInstanceId()),
                 assignments
         ).thenAccept(syncGroupResult -> {
             SyncGroupResponse response = KafkaResponseUtils.newSyncGroup(
@@ -1804,6 +1839,7 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         getGroupCoordinator().handleHeartbeat(
             request.data().groupId(),
             request.data().memberId(),
+            Optional.ofNullable(request.data().groupInstanceId()),
             request.data().generationId()
         ).thenAccept(errors -> {
             HeartbeatResponse response = KafkaResponseUtils.newHeartbeat(errors);
@@ -1823,12 +1859,10 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         checkArgument(leaveGroup.getRequest() instanceof LeaveGroupRequest);
         LeaveGroupRequest request = (LeaveGroupRequest) leaveGroup.getRequest();
         LeaveGroupRequestData data = request.data();
-        Set<String> members = data.members().stream()
-                .map(LeaveGroupRequestData.MemberIdentity::memberId)
-                .collect(Collectors.toSet());
+        List<LeaveGroupRequestData.MemberIdentity> members = new ArrayList<>(data.members());
         if (!data.memberId().isEmpty()) {
             // old clients
-            members.add(data.memberId());
+            members.add(new LeaveGroupRequestData.MemberIdentity().setMemberId(data.memberId()));
         }
 
         // let the coordinator to handle heartbeat
@@ -2408,7 +2442,9 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
                     this::startSendOperationForThrottling,
                     this::completeSendOperationForThrottling,
                     this.pendingTopicFuturesMap,
-                    ctx);
+                    ctx,
+                    kafkaHeaderAndRequest.getTrace(),
+                    null);
             getReplicaManager().appendRecords(
                     kafkaConfig.getRequestTimeoutMs(),
                     (short) 1,
@@ -2766,6 +2802,12 @@ public class KafkaRequestHandler extends KafkaCommandDecoder {
         if (session == null) {
             return CompletableFuture.completedFuture(false);
         }
+        return adminManager.getAuthorizationCache().authorize(session.getPrincipal(), operation, resource,
+                () -> authorizeWithoutCache(operation, resource, session));
+    }
+
+    private CompletableFuture<Boolean> authorizeWithoutCache(AclOperation operation, Resource resource,
+                                                             Session session) {
         CompletableFuture<Boolean> isAuthorizedFuture = null;
         switch (operation) {
             case READ:
@@ -79,6 +79,14 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private int numSendKafkaResponseThreads = 4;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to write the responses in the event loop of the connection. The responses that are ready"
+                    + " together are written with a single flush. If it's false, the responses are written by the"
+                    + " threads configured by numSendKafkaResponseThreads."
+    )
+    private boolean kopWriteResponsesInEventLoop = true;
+
     @FieldContext(
             required = true,
             doc = "Manage automatically system namespaces and topic"
@@ -200,6 +208,34 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private int offsetCommitTimeoutMs = 5000;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to accumulate concurrent offset commits and group metadata writes to the same offsets\n"
+                    + "topic partition into a single entry. Each commit is still a separate keyed message inside\n"
+                    + "the entry, so compaction and the per-request results are not affected."
+    )
+    private boolean offsetCommitBatchingEnabled = OffsetConfig.DefaultOffsetCommitBatchingEnabled;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The maximum time in microseconds that an offset commit waits in the accumulator before the\n"
+                    + "accumulated commits are written to the offsets topic partition."
+    )
+    private long offsetCommitBatchingMaxPublishDelayMicros =
+            OffsetConfig.DefaultOffsetCommitBatchingMaxPublishDelayMicros;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The maximum number of offset commits that are accumulated into a single entry."
+    )
+    private int offsetCommitBatchingMaxMessages = OffsetConfig.DefaultOffsetCommitBatchingMaxMessages;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The maximum size in bytes of the offset commits that are accumulated into a single entry."
+    )
+    private int offsetCommitBatchingMaxBytes = OffsetConfig.DefaultOffsetCommitBatchingMaxBytes;
+
     @FieldContext(
             category = CATEGORY_KOP,
             doc = "send queue size of system client to produce system topic."
@@ -250,6 +286,33 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private int maxQueuedRequests = 500;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The max time in milliseconds that a delayed fetch waits, since the fetch request is received, when"
+                    + " the responses of later requests on the same connection are already complete. When it's"
+                    + " reached, the fetch is completed with the data that is already available so that the later"
+                    + " responses are not blocked until fetch.max.wait.ms. A negative value disables it."
+    )
+    private long kopDelayedFetchMaxWaitWhenBlockingMs = -1;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The max bytes of the acks=0 produce requests that are being handled on a connection. The acks=0"
+                    + " produce requests are handled outside the request queue since they have no responses. When"
+                    + " the budget is exhausted, the connection stops reading until the in-flight bytes fall below"
+                    + " half of the budget, or the request is dropped if kopAcksZeroProduceDropWhenBudgetExhausted"
+                    + " is true. The bytes of a request that isn't completed in requestTimeoutMs are released from the"
+                    + " budget. A non-positive value disables the budget."
+    )
+    private long kopAcksZeroProduceMaxInflightBytes = 16 * 1024 * 1024;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to drop the acks=0 produce requests instead of pausing the connection when the budget of"
+                    + " kopAcksZeroProduceMaxInflightBytes is exhausted."
+    )
+    private boolean kopAcksZeroProduceDropWhenBudgetExhausted = false;
+
     @FieldContext(
             category = CATEGORY_KOP,
             doc = "The largest record batch size allowed by Kop, \n"
@@ -271,6 +334,57 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private long connectionMaxIdleMs = 10 * 60 * 1000L;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The number of I/O threads of each Kafka listener. If it's positive, each Kafka listener is bound"
+                    + " by KoP on its own event loop groups instead of sharing the event loops of Pulsar."
+                    + " 0 keeps sharing the event loops of Pulsar."
+    )
+    private int kafkaListenerIoThreads = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The number of acceptor threads of each Kafka listener. It only takes effect when"
+                    + " kafkaListenerIoThreads is positive."
+    )
+    private int kafkaListenerAcceptorThreads = 1;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to enable the busy-wait of the I/O threads of each Kafka listener. It only takes effect"
+                    + " when kafkaListenerIoThreads is positive and the epoll transport is available."
+                    + " It reduces the latency at the cost of keeping the I/O threads always busy."
+    )
+    private boolean kafkaListenerEnableBusyWait = false;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to enable TCP_NODELAY on the connections of Kafka listeners."
+    )
+    private boolean kafkaSocketTcpNoDelay = true;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The SO_SNDBUF buffer size of the connections of Kafka listeners, like socket.send.buffer.bytes"
+                    + " in kafka server. If it's not positive, the OS default will be used."
+    )
+    private int kafkaSocketSendBufferBytes = -1;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The SO_RCVBUF buffer size of the connections of Kafka listeners, like"
+                    + " socket.receive.buffer.bytes in kafka server. If it's not positive, the OS default will be used."
+    )
+    private int kafkaSocketReceiveBufferBytes = -1;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The number of shards of the timers of delayed produce, fetch and group operations. Each shard has"
+                    + " its own timing wheel and reaper thread, so that the expired operations of different shards"
+                    + " are handled in parallel. 1 means the timer is advanced by the purgatory's reaper thread only."
+    )
+    private int delayedOperationTimerShards = 1;
+
     @FieldContext(
             category = CATEGORY_KOP,
             doc = "Connection close delay on failed authentication: "
@@ -285,6 +399,50 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private int brokerLookupTimeoutMs = 30_000;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The maximum number of namespace bundles whose broker lookup results are cached."
+                    + " 0 disables the cache, while the concurrent lookups of a bundle are still merged."
+    )
+    private int kopBrokerLookupCacheMaxSize = 10000;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The expiration time in seconds of a cached broker lookup result. Only the bundles owned by this"
+                    + " broker are cached and they are invalidated when the bundles are unloaded."
+    )
+    private int kopBrokerLookupCacheExpireSeconds = 300;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The expiration time in milliseconds of a failed broker lookup, during which the lookups of the"
+                    + " same bundle fail fast without querying the owner again."
+    )
+    private long kopBrokerLookupCacheNegativeExpireMs = 1000;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The maximum number of authorization decisions cached by a broker, each decision is identified by"
+                    + " the role and the tenant of the principal, the operation and the resource, so the decisions are"
+                    + " shared by all connections. The cache is only used with the default PulsarAuthorizationProvider,"
+                    + " whose decisions don't depend on the authentication data. 0 disables the cache."
+    )
+    private int kopAuthorizationCacheMaxSize = 10000;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The expiration time in seconds of a cached granted authorization decision. The decisions of a"
+                    + " tenant are invalidated when the tenant or namespace policies change, while the changes of"
+                    + " topic level policies take effect after the expiration."
+    )
+    private int kopAuthorizationCachePositiveExpireSeconds = 30;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The expiration time in seconds of a cached denied authorization decision."
+    )
+    private int kopAuthorizationCacheNegativeExpireSeconds = 5;
+
     // Kafka SSL configs
     @FieldContext(
         category = CATEGORY_KOP_SSL,
@@ -383,6 +541,34 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private String kopSslClientAuth;
 
+    @FieldContext(
+            category = CATEGORY_KOP_SSL,
+            doc = "Whether to use OpenSSL (netty-tcnative) for the TLS of Kafka listeners and transaction markers."
+                    + " If OpenSSL is not available, the JDK SSLEngine is used."
+    )
+    private boolean kopSslUseOpenSsl = false;
+
+    @FieldContext(
+            category = CATEGORY_KOP_SSL,
+            doc = "The maximum number of cached TLS sessions for the session resumption when OpenSSL is used."
+                    + " 0 means the default size of the provider."
+    )
+    private long kopSslSessionCacheSize = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP_SSL,
+            doc = "The timeout in seconds of the cached TLS sessions when OpenSSL is used."
+                    + " 0 means the default timeout of the provider."
+    )
+    private long kopSslSessionTimeoutSec = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP_SSL,
+            doc = "The interval in seconds to check whether the key store and the trust store files are modified."
+                    + " The modified stores are reloaded without restarting. 0 disables the check."
+    )
+    private long kopSslCertRefreshCheckDurationSec = 300;
+
     @FieldContext(
         category = CATEGORY_KOP,
         doc = "supported SASL mechanisms exposed by broker"
@@ -478,6 +664,57 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private boolean kopEnableGroupLevelConsumerMetrics = false;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The aggregation level of the topic level metrics, like BYTES_IN and MESSAGE_OUT. It can be one of"
+                    + " broker, namespace, topic and partition. (Default: partition)"
+    )
+    private String kopTopicMetricsAggregationLevel = "partition";
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The max number of series of the topic level metrics for each tenant. Only the busiest namespaces,"
+                    + " topics or partitions, depending on kopTopicMetricsAggregationLevel, own their series, the"
+                    + " others are aggregated into the series with the \"__others__\" labels. It also limits the"
+                    + " consumer groups of the others that own their series. 0 means no limit."
+    )
+    private int kopTopicMetricsMaxSeries = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The series of the topic level metrics that are not updated in this time are removed."
+                    + " 0 means the series never expire."
+    )
+    private int kopTopicMetricsExpirySeconds = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "Whether to record the latency of each stage of the requests, like authorize, topic_lookup, read"
+                    + " and publish, into the REQUEST_STAGE_LATENCY metrics of each request type."
+    )
+    private boolean kopRequestStageStatsEnabled = false;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The requests that take longer than this time in milliseconds are logged with the latency of each"
+                    + " stage. 0 means the slow requests are not logged."
+    )
+    private long kopSlowRequestThresholdMs = 0;
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The thresholds in milliseconds of each request type for the KafkaRequest and ResponseBlocked JFR"
+                    + " events, e.g. \"Fetch=500,Produce=50\". The requests that are faster than the threshold are not"
+                    + " recorded. The request types that are not configured use kopJfrRequestDefaultThresholdMs."
+    )
+    private String kopJfrRequestThresholds = "";
+
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The default threshold in milliseconds of the KafkaRequest and ResponseBlocked JFR events."
+    )
+    private long kopJfrRequestDefaultThresholdMs = 0;
+
     @FieldContext(
             category = CATEGORY_KOP,
             doc = "The allowed namespaces to list topics with a comma separator.\n"
@@ -486,6 +723,15 @@ public class KafkaServiceConfiguration extends ServiceConfiguration {
     )
     private Set<String> kopAllowedNamespaces;
 
+    @FieldContext(
+            category = CATEGORY_KOP,
+            doc = "The expiration time in seconds of the cached namespaces, topics and partition counts that are"
+                    + " used to serve the METADATA requests. The cache is invalidated by the metadata store"
+                    + " notifications, the expiration only limits the staleness if a notification is missed."
+                    + " 0 disables the cache."
+    )
+    private int kopTopicMetadataCacheExpireSeconds = 60;
+
     @FieldContext(
             category = CATEGORY_KOP,
             doc = "Whether to enable the Schema Registry."
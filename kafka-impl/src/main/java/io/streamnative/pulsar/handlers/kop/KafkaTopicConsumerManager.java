@@ -16,6 +16,9 @@ package io.streamnative.pulsar.handlers.kop;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.streamnative.pulsar.handlers.kop.jfr.CursorCreateEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.CursorDeleteEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.KopEvent;
 import io.streamnative.pulsar.handlers.kop.utils.MessageMetadataUtils;
 import java.io.Closeable;
 import java.util.ArrayList;
@@ -113,9 +116,11 @@ public class KafkaTopicConsumerManager implements Closeable {
     // delete passed in cursor.
     public void deleteOneCursorAsync(ManagedCursor cursor, String reason) {
         if (cursor != null) {
+            final CursorDeleteEvent deleteEvent = KopEvent.beginIfEnabled(new CursorDeleteEvent());
             topic.getManagedLedger().asyncDeleteCursor(cursor.getName(), new DeleteCursorCallback() {
                 @Override
                 public void deleteCursorComplete(Object ctx) {
+                    commitDeleteEvent(deleteEvent, cursor, reason, true);
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Cursor {} for topic {} deleted successfully for reason: {}.",
                             requestHandler.ctx.channel(), cursor.getName(), topic.getName(), reason);
@@ -124,6 +129,7 @@ public class KafkaTopicConsumerManager implements Closeable {
 
                 @Override
                 public void deleteCursorFailed(ManagedLedgerException exception, Object ctx) {
+                    commitDeleteEvent(deleteEvent, cursor, reason, false);
                     log.warn("[{}] Error deleting cursor {} for topic {} for reason: {}.",
                         requestHandler.ctx.channel(), cursor.getName(), topic.getName(), reason, exception);
                 }
@@ -132,6 +138,17 @@ public class KafkaTopicConsumerManager implements Closeable {
         }
     }
 
+    private void commitDeleteEvent(CursorDeleteEvent deleteEvent, ManagedCursor cursor, String reason,
+                                   boolean success) {
+        if (deleteEvent != null) {
+            deleteEvent.topic = topic.getName();
+            deleteEvent.cursor = cursor.getName();
+            deleteEvent.reason = reason;
+            deleteEvent.success = success;
+            deleteEvent.endAndCommit();
+        }
+    }
+
     // get one cursor offset pair.
     // remove from cache, so another same offset read could happen.
     // each success remove should have a following add.
@@ -232,8 +249,10 @@ public class KafkaTopicConsumerManager implements Closeable {
             return future;
         }
 
+        final CursorCreateEvent createEvent = KopEvent.beginIfEnabled(new CursorCreateEvent());
         return MessageMetadataUtils.asyncFindPosition(ledger, offset, skipMessagesWithoutIndex).thenApply(position -> {
             if (position == null) {
+                commitCreateEvent(createEvent, null, offset, false);
                 return null;
             }
             final String cursorName = "kop-consumer-cursor-" + topic.getName()
@@ -250,15 +269,27 @@ public class KafkaTopicConsumerManager implements Closeable {
                 final ManagedCursor newCursor = ledger.newNonDurableCursor(previous, cursorName);
                 createdCursors.putIfAbsent(newCursor.getName(), newCursor);
                 lastAccessTimes.put(offset, System.currentTimeMillis());
+                commitCreateEvent(createEvent, cursorName, offset, true);
                 return Pair.of(newCursor, offset);
             } catch (ManagedLedgerException e) {
                 log.error("[{}] Error new cursor for topic {} at offset {} - {}. will cause fetch data error.",
                         requestHandler.ctx.channel(), topic.getName(), offset, previous, e);
+                commitCreateEvent(createEvent, cursorName, offset, false);
                 return null;
             }
         });
     }
 
+    private void commitCreateEvent(CursorCreateEvent createEvent, String cursorName, long offset, boolean success) {
+        if (createEvent != null) {
+            createEvent.topic = topic.getName();
+            createEvent.cursor = cursorName;
+            createEvent.offset = offset;
+            createEvent.success = success;
+            createEvent.endAndCommit();
+        }
+    }
+
     public ManagedLedger getManagedLedger() {
         return topic.getManagedLedger();
     }
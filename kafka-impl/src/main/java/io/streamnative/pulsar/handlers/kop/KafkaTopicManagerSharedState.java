@@ -35,6 +35,9 @@ public final class KafkaTopicManagerSharedState {
     private final KafkaTopicConsumerManagerCache kafkaTopicConsumerManagerCache =
             new KafkaTopicConsumerManagerCache();
 
+    @Getter
+    private final ConnectedGroupCache connectedGroupCache = new ConnectedGroupCache();
+
     // every 1 min, check if the KafkaTopicConsumerManagers have expired cursors.
     // remove expired cursors, so backlog can be cleared.
     private static final long checkPeriodMillis = 1 * 60 * 1000;
@@ -14,18 +14,33 @@
 package io.streamnative.pulsar.handlers.kop;
 
 
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.BROKER_LOOKUP_LATENCY;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.LOOKUP_CACHE_HITS;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.LOOKUP_CACHE_MISSES;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.LOOKUP_CACHE_SIZE;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.streamnative.pulsar.handlers.kop.stats.NullStatsLogger;
+import io.streamnative.pulsar.handlers.kop.stats.StatsLogger;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.common.utils.Time;
 import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.resources.MetadataStoreCacheLoader;
+import org.apache.pulsar.common.naming.NamespaceBundle;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.policies.data.loadbalancer.LoadManagerReport;
 import org.apache.pulsar.policies.data.loadbalancer.ServiceLookupData;
@@ -39,22 +54,66 @@ public class KopBrokerLookupManager {
 
     private final LookupClient lookupClient;
     private final MetadataStoreCacheLoader metadataStoreCacheLoader;
-    private final String selfAdvertisedListeners;
 
     private final PulsarService pulsar;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
-    public static final ConcurrentHashMap<String, CompletableFuture<InetSocketAddress>>
-            LOOKUP_CACHE = new ConcurrentHashMap<>();
+    private final OpStatsLogger lookupLatency;
+
+    // The lookup results of the bundles owned by this broker, which are invalidated when the bundles are unloaded
+    public static final BrokerLookupCache LOOKUP_CACHE = new BrokerLookupCache(10000,
+            TimeUnit.MINUTES.toMillis(5), TimeUnit.SECONDS.toMillis(1), Time.SYSTEM);
 
     public KopBrokerLookupManager(KafkaServiceConfiguration conf, PulsarService pulsarService,
                                   LookupClient lookupClient) throws Exception {
+        this(conf, pulsarService, lookupClient, NullStatsLogger.INSTANCE);
+    }
+
+    public KopBrokerLookupManager(KafkaServiceConfiguration conf, PulsarService pulsarService,
+                                  LookupClient lookupClient, StatsLogger statsLogger) throws Exception {
         this.pulsar = pulsarService;
         this.lookupClient = lookupClient;
         this.metadataStoreCacheLoader = new MetadataStoreCacheLoader(pulsarService.getPulsarResources(),
                 conf.getBrokerLookupTimeoutMs());
-        this.selfAdvertisedListeners = conf.getKafkaAdvertisedListeners();
+        LOOKUP_CACHE.configure(conf.getKopBrokerLookupCacheMaxSize(),
+                TimeUnit.SECONDS.toMillis(conf.getKopBrokerLookupCacheExpireSeconds()),
+                conf.getKopBrokerLookupCacheNegativeExpireMs());
+
+        this.lookupLatency = statsLogger.getOpStatsLogger(BROKER_LOOKUP_LATENCY);
+        statsLogger.registerGauge(LOOKUP_CACHE_HITS, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return LOOKUP_CACHE.hitCount();
+            }
+        });
+        statsLogger.registerGauge(LOOKUP_CACHE_MISSES, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return LOOKUP_CACHE.missCount();
+            }
+        });
+        statsLogger.registerGauge(LOOKUP_CACHE_SIZE, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return LOOKUP_CACHE.size();
+            }
+        });
     }
 
     public CompletableFuture<Optional<InetSocketAddress>> findBroker(String topic,
@@ -62,8 +121,8 @@ public class KopBrokerLookupManager {
         return getTopicBroker(topic)
                 .thenApply(internalListenerAddress -> {
                     if (internalListenerAddress == null) {
+                        // The failed lookup is cached for a short time, don't remove it
                         log.error("[{}] failed get pulsar address, returned null.", topic);
-                        removeTopicManagerCache(topic);
                         return Optional.empty();
                     } else if (log.isDebugEnabled()) {
                         log.debug("[{}] Found broker's internal listener address: {}",
@@ -106,18 +165,49 @@ public class KopBrokerLookupManager {
             log.debug("Handle Lookup for topic {}", topicName);
         }
 
-        final CompletableFuture<InetSocketAddress> future = LOOKUP_CACHE.get(topicName);
-        return (future != null) ? future : lookupBroker(topicName);
+        final TopicName topic = TopicName.get(topicName);
+        return pulsar.getNamespaceService().getBundleAsync(topic).thenCompose(bundle ->
+                LOOKUP_CACHE.get(bundle, () -> lookupBroker(topic, bundle), this::isSelfAddress));
     }
 
-    private CompletableFuture<InetSocketAddress> lookupBroker(final String topic) {
+    private CompletableFuture<InetSocketAddress> lookupBroker(final TopicName topic, final NamespaceBundle bundle) {
         if (closed.get()) {
             if (log.isDebugEnabled()) {
                 log.debug("Return null for getTopic({}) since channel closing", topic);
             }
             return CompletableFuture.completedFuture(null);
         }
-        return lookupClient.getBrokerAddress(TopicName.get(topic));
+        final long startTimeNanos = MathUtils.nowInNano();
+        return lookupClient.getBrokerAddress(topic).whenComplete((address, e) -> {
+            if (e == null && address != null) {
+                lookupLatency.registerSuccessfulEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            } else {
+                log.warn("Failed to look up the owner of bundle {} for {}", bundle, topic, e);
+                lookupLatency.registerFailedEvent(MathUtils.elapsedNanos(startTimeNanos), TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    // Only the bundles owned by this broker are cached because the unload events of other brokers are not notified
+    private boolean isSelfAddress(InetSocketAddress address) {
+        return isServiceUrlOf(pulsar.getBrokerServiceUrl(), address)
+                || isServiceUrlOf(pulsar.getBrokerServiceUrlTls(), address);
+    }
+
+    // whether the host and the port of a service URL (e.g. pulsar://broker:6650) are exactly the given address
+    @VisibleForTesting
+    static boolean isServiceUrlOf(@Nullable String serviceUrl, InetSocketAddress address) {
+        if (serviceUrl == null) {
+            return false;
+        }
+        final URI uri;
+        try {
+            uri = new URI(serviceUrl);
+        } catch (URISyntaxException e) {
+            log.warn("Invalid service URL {}", serviceUrl, e);
+            return false;
+        }
+        return uri.getPort() == address.getPort() && address.getHostString().equalsIgnoreCase(uri.getHost());
     }
 
     public CompletableFuture<Boolean> isTopicExists(final String topic) {
@@ -174,15 +264,11 @@ public class KopBrokerLookupManager {
             return null;
         }
 
-        return serviceLookupData.get().getProtocol(KafkaProtocolHandler.PROTOCOL_NAME).map(kafkaAdvertisedListeners -> {
-            if (kafkaAdvertisedListeners.equals(selfAdvertisedListeners)) {
-                // the topic is owned by this broker, cache the look up result
-                LOOKUP_CACHE.put(topic, CompletableFuture.completedFuture(internalListenerAddress));
-            }
-            return Optional.ofNullable(advertisedEndPoint)
-                    .map(endPoint -> EndPoint.findListener(kafkaAdvertisedListeners, endPoint.getListenerName()))
-                    .orElse(EndPoint.findFirstListener(kafkaAdvertisedListeners));
-        }).orElseThrow(() -> new IllegalStateException(
+        return serviceLookupData.get().getProtocol(KafkaProtocolHandler.PROTOCOL_NAME).map(kafkaAdvertisedListeners ->
+                Optional.ofNullable(advertisedEndPoint)
+                        .map(endPoint -> EndPoint.findListener(kafkaAdvertisedListeners, endPoint.getListenerName()))
+                        .orElse(EndPoint.findFirstListener(kafkaAdvertisedListeners))
+        ).orElseThrow(() -> new IllegalStateException(
                 "No kafkaAdvertisedListeners found in broker " + internalListenerAddress));
     }
 
@@ -193,7 +279,11 @@ public class KopBrokerLookupManager {
     }
 
     public static void removeTopicManagerCache(String topicName) {
-        LOOKUP_CACHE.remove(topicName);
+        LOOKUP_CACHE.invalidate(TopicName.get(topicName));
+    }
+
+    public static void removeBundleCache(NamespaceBundle bundle) {
+        LOOKUP_CACHE.invalidate(bundle);
     }
 
     public static void clear() {
@@ -167,6 +167,8 @@ public class KopEventManager {
             this.brokersChangeHandler.handleChildChange();
         } else if (notification.getPath().equals(getDeleteTopicsPath())) {
             this.deletionTopicsHandler.handleChildChange();
+        } else {
+            adminManager.getTopicMetadataCache().onNotification(notification);
         }
     }
 
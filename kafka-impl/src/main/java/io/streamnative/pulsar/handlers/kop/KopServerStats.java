@@ -22,13 +22,19 @@ public interface KopServerStats {
     String SERVER_SCOPE = "kop_server";
 
     String REQUEST_SCOPE = "request";
+    String NAMESPACE_SCOPE = "namespace";
     String TOPIC_SCOPE = "topic";
     String PARTITION_SCOPE = "partition";
     String GROUP_SCOPE = "group";
+    String PATH_SCOPE = "path";
+    String STAGE_SCOPE = "stage";
+    String LISTENER_SCOPE = "listener";
+    String TIMER_SCOPE = "timer";
 
     String KOP_EVENT_SCOPE = "kop_event";
 
     String WAITING_FETCHES_TRIGGERED = "WAITING_FETCHES_TRIGGERED";
+    String WAITING_FETCHES_COMPLETED_EARLY = "WAITING_FETCHES_COMPLETED_EARLY";
 
     /**
      * Request stats.
@@ -37,6 +43,10 @@ public interface KopServerStats {
     String REQUEST_QUEUED_LATENCY = "REQUEST_QUEUED_LATENCY";
     String REQUEST_PARSE_LATENCY = "REQUEST_PARSE_LATENCY";
     String REQUEST_LATENCY = "REQUEST_LATENCY";
+    String REQUEST_STAGE_LATENCY = "REQUEST_STAGE_LATENCY";
+    String ACKS_ZERO_PRODUCE_INFLIGHT_BYTES = "ACKS_ZERO_PRODUCE_INFLIGHT_BYTES";
+    String ACKS_ZERO_PRODUCE_DROPPED = "ACKS_ZERO_PRODUCE_DROPPED";
+    String ACKS_ZERO_PRODUCE_PAUSED = "ACKS_ZERO_PRODUCE_PAUSED";
 
     /**
      * Channel stats.
@@ -44,6 +54,18 @@ public interface KopServerStats {
     String ALIVE_CHANNEL_COUNT = "ALIVE_CHANNEL_COUNT";
     String ACTIVE_CHANNEL_COUNT = "ACTIVE_CHANNEL_COUNT";
 
+    /**
+     * Listener event loop stats.
+     */
+    String EVENT_LOOP_THREADS = "EVENT_LOOP_THREADS";
+    String EVENT_LOOP_PENDING_TASKS = "EVENT_LOOP_PENDING_TASKS";
+    String EVENT_LOOP_UTILIZATION = "EVENT_LOOP_UTILIZATION";
+
+    /**
+     * Timer stats.
+     */
+    String TIMER_LAG = "TIMER_LAG";
+
     /**
      * Response stats.
      */
@@ -55,6 +77,7 @@ public interface KopServerStats {
      */
     String PENDING_TOPIC_LATENCY = "PENDING_TOPIC_LATENCY";
     String PRODUCE_ENCODE = "PRODUCE_ENCODE";
+    String PRODUCE_BYTES_COPIED = "PRODUCE_BYTES_COPIED";
     String MESSAGE_PUBLISH = "MESSAGE_PUBLISH";
     String MESSAGE_QUEUED_LATENCY = "MESSAGE_QUEUED_LATENCY";
 
@@ -96,6 +119,14 @@ public interface KopServerStats {
     String KOP_EVENT_QUEUED_LATENCY = "KOP_EVENT_QUEUED_LATENCY";
     String KOP_EVENT_LATENCY = "KOP_EVENT_LATENCY";
 
+    /**
+     * Broker lookup stats.
+     */
+    String BROKER_LOOKUP_LATENCY = "BROKER_LOOKUP_LATENCY";
+    String LOOKUP_CACHE_HITS = "LOOKUP_CACHE_HITS";
+    String LOOKUP_CACHE_MISSES = "LOOKUP_CACHE_MISSES";
+    String LOOKUP_CACHE_SIZE = "LOOKUP_CACHE_SIZE";
+
     /**
      * Network stats.
      */
@@ -14,23 +14,88 @@
 package io.streamnative.pulsar.handlers.kop;
 
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.lookup.LookupResult;
+import org.apache.pulsar.broker.namespace.LookupOptions;
+import org.apache.pulsar.common.lookup.data.LookupData;
+import org.apache.pulsar.common.naming.NamespaceBundle;
 import org.apache.pulsar.common.naming.TopicName;
 
 /**
  * The client that is responsible for topic lookup.
+ *
+ * <p>The owner of a topic's bundle is resolved by the {@link org.apache.pulsar.broker.namespace.NamespaceService} of
+ * this broker, so that the lookup doesn't go through a loopback connection to the cluster. The concurrent lookups of
+ * the topics in the same bundle are merged into one. The Pulsar client is only used when the bundle is not owned yet
+ * and the load manager redirects the lookup to another broker.
  */
 @Slf4j
 public class LookupClient extends AbstractPulsarClient {
 
+    private static final LookupOptions LOOKUP_OPTIONS = LookupOptions.builder()
+            .authoritative(false)
+            .readOnly(false)
+            .loadTopicsInBundle(false)
+            .build();
+
+    private final PulsarService pulsarService;
+    private final boolean tlsEnabled;
+    private final Map<NamespaceBundle, CompletableFuture<InetSocketAddress>> pendingLookups =
+            new ConcurrentHashMap<>();
+
     public LookupClient(final PulsarService pulsarService, final KafkaServiceConfiguration kafkaConfig) {
         super(createPulsarClient(pulsarService, kafkaConfig, conf -> {}));
+        this.pulsarService = pulsarService;
+        this.tlsEnabled = kafkaConfig.isBrokerClientTlsEnabled();
     }
 
     public CompletableFuture<InetSocketAddress> getBrokerAddress(final TopicName topicName) {
-        return getPulsarClient().getLookup().getBroker(topicName).thenApply(Pair::getLeft);
+        return pulsarService.getNamespaceService().getBundleAsync(topicName).thenCompose(bundle -> {
+            final CompletableFuture<InetSocketAddress> future = new CompletableFuture<>();
+            final CompletableFuture<InetSocketAddress> pendingFuture = pendingLookups.putIfAbsent(bundle, future);
+            if (pendingFuture != null) {
+                return pendingFuture;
+            }
+            lookupBundleOwner(topicName).whenComplete((address, e) -> {
+                pendingLookups.remove(bundle, future);
+                if (e == null) {
+                    future.complete(address);
+                } else {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+    }
+
+    private CompletableFuture<InetSocketAddress> lookupBundleOwner(final TopicName topicName) {
+        return pulsarService.getNamespaceService().getBrokerServiceUrlAsync(topicName, LOOKUP_OPTIONS)
+                .thenCompose(optLookupResult -> {
+                    final Optional<String> brokerUrl = optLookupResult
+                            .filter(lookupResult -> !lookupResult.isRedirect())
+                            .map(LookupResult::getLookupData)
+                            .map(this::getBrokerUrl);
+                    if (brokerUrl.isPresent()) {
+                        final URI uri = URI.create(brokerUrl.get());
+                        return CompletableFuture.completedFuture(
+                                InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort()));
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Lookup {} via the Pulsar client, in-process result: {}",
+                                topicName, optLookupResult);
+                    }
+                    return getPulsarClient().getLookup().getBroker(topicName).thenApply(Pair::getLeft);
+                });
+    }
+
+    private String getBrokerUrl(final LookupData lookupData) {
+        return tlsEnabled ? lookupData.getBrokerUrlTls() : lookupData.getBrokerUrl();
     }
 }
@@ -18,9 +18,12 @@ import io.netty.util.Recycler.Handle;
 import io.streamnative.pulsar.handlers.kop.KafkaCommandDecoder.KafkaHeaderAndRequest;
 import io.streamnative.pulsar.handlers.kop.coordinator.transaction.TransactionCoordinator;
 import io.streamnative.pulsar.handlers.kop.utils.GroupIdUtils;
+import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation;
 import java.nio.charset.StandardCharsets;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.requests.RequestHeader;
@@ -50,6 +53,9 @@ public final class MessageFetchContext {
     private volatile int maxReadEntriesNum;
 
     private volatile RequestHeader header;
+    private volatile RequestTrace trace;
+    @Getter(AccessLevel.NONE)
+    private volatile KafkaHeaderAndRequest kafkaHeaderAndRequest;
 
     private volatile KafkaTopicManagerSharedState sharedState;
     private volatile ScheduledExecutorService decodeExecutor;
@@ -71,6 +77,8 @@ public final class MessageFetchContext {
         context.tc = tc;
         context.clientHost = kafkaHeaderAndRequest.getClientHost();
         context.header = kafkaHeaderAndRequest.getHeader();
+        context.trace = kafkaHeaderAndRequest.getTrace();
+        context.kafkaHeaderAndRequest = kafkaHeaderAndRequest;
         context.namespacePrefix = namespacePrefix;
         context.maxReadEntriesNum = maxReadEntriesNum;
         return context;
@@ -83,10 +91,16 @@ public final class MessageFetchContext {
     public CompletableFuture<String> getCurrentConnectedGroupNameAsync() {
         return this.requestHandler.getCurrentConnectedGroup()
                 .computeIfAbsent(this.clientHost, clientHost -> {
-                    CompletableFuture<String> storeGroupIdFuture = new CompletableFuture<>();
                     String groupIdPath = GroupIdUtils.groupIdPathFormat(clientHost, header.clientId());
+                    String path = this.requestHandler.getGroupIdStoredPath() + groupIdPath;
+                    // The group name is known if the FIND_COORDINATOR request was sent to this broker
+                    Optional<String> groupIdOpt = sharedState.getConnectedGroupCache().get(path);
+                    if (groupIdOpt.isPresent()) {
+                        return CompletableFuture.completedFuture(groupIdOpt.get());
+                    }
+                    CompletableFuture<String> storeGroupIdFuture = new CompletableFuture<>();
                     this.requestHandler.getMetadataStore()
-                            .get(this.requestHandler.getGroupIdStoredPath() + groupIdPath)
+                            .get(path)
                             .thenAccept(getResultOpt -> {
                                 if (getResultOpt.isPresent()) {
                                     GetResult getResult = getResultOpt.get();
@@ -103,6 +117,16 @@ public final class MessageFetchContext {
                 });
     }
 
+    /**
+     * Called when the fetch is delayed because there is not enough data.
+     */
+    public void onDelayed(DelayedOperation delayedFetch) {
+        final KafkaHeaderAndRequest request = kafkaHeaderAndRequest;
+        if (request != null) {
+            request.setDelayedOperation(delayedFetch);
+        }
+    }
+
     public void recycle() {
         requestHandler = null;
         sharedState = null;
@@ -112,6 +136,8 @@ public final class MessageFetchContext {
         tc = null;
         clientHost = null;
         header = null;
+        trace = null;
+        kafkaHeaderAndRequest = null;
         maxReadEntriesNum = -1;
         namespacePrefix = null;
         recyclerHandle.recycle(this);
@@ -16,6 +16,7 @@ package io.streamnative.pulsar.handlers.kop;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -46,6 +47,7 @@ public class NamespaceBundleOwnershipListenerImpl {
     }
 
     private final List<TopicOwnershipListener> topicOwnershipListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<NamespaceBundle>> bundleUnloadListeners = new CopyOnWriteArrayList<>();
     private final NamespaceService namespaceService;
     private final BrokerService brokerService;
     private final String brokerUrl;
@@ -70,6 +72,14 @@ public class NamespaceBundleOwnershipListenerImpl {
                 .filter(bundleBasedImpl).forEach(bundleBasedImpl::onLoad);
     }
 
+    /**
+     * Add a listener that is called with the bundle itself when a bundle is unloaded, which is cheaper than listing all
+     * topics of the bundle for the caches keyed by bundles.
+     */
+    public void addBundleUnloadListener(final Consumer<NamespaceBundle> listener) {
+        bundleUnloadListeners.add(listener);
+    }
+
     private boolean anyListenerInterestedInEvent(NamespaceName namespaceName, TopicOwnershipListener.EventType event) {
         return topicOwnershipListeners
                 .stream()
@@ -103,6 +113,7 @@ public class NamespaceBundleOwnershipListenerImpl {
 
         @Override
         public void unLoad(NamespaceBundle bundle) {
+            bundleUnloadListeners.forEach(listener -> listener.accept(bundle));
             if (USE_TOPIC_EVENT_LISTENER) {
                 // Unload events hard dispatched in a better way using the TopicEventListener API.
                 return;
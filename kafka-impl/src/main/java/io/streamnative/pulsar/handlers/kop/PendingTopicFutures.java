@@ -95,6 +95,13 @@ public class PendingTopicFutures {
         }
     }
 
+    /**
+     * Check if there is no pending future, so that a new append of the partition won't overtake the pending ones.
+     */
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
     @VisibleForTesting
     public synchronized int waitAndGetSize() throws ExecutionException, InterruptedException {
         currentTopicFuture.get();
@@ -13,27 +13,32 @@
  */
 package io.streamnative.pulsar.handlers.kop;
 
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.ACKS_ZERO_PRODUCE_DROPPED;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.ACKS_ZERO_PRODUCE_INFLIGHT_BYTES;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.ACKS_ZERO_PRODUCE_PAUSED;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.ACTIVE_CHANNEL_COUNT;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.ALIVE_CHANNEL_COUNT;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.BATCH_COUNT_PER_MEMORYRECORDS;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.CATEGORY_SERVER;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.FETCH_DECODE;
-import static io.streamnative.pulsar.handlers.kop.KopServerStats.GROUP_SCOPE;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.MESSAGE_PUBLISH;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.MESSAGE_QUEUED_LATENCY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.MESSAGE_READ;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.NETWORK_TOTAL_BYTES_IN;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.NETWORK_TOTAL_BYTES_OUT;
-import static io.streamnative.pulsar.handlers.kop.KopServerStats.PARTITION_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.PATH_SCOPE;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.PENDING_TOPIC_LATENCY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.PREPARE_METADATA;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.PRODUCE_BYTES_COPIED;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.PRODUCE_ENCODE;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.REQUEST_PARSE_LATENCY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.REQUEST_QUEUE_SIZE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.REQUEST_STAGE_LATENCY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.RESPONSE_BLOCKED_LATENCY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.RESPONSE_BLOCKED_TIMES;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.SERVER_SCOPE;
-import static io.streamnative.pulsar.handlers.kop.KopServerStats.TOPIC_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.STAGE_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.WAITING_FETCHES_COMPLETED_EARLY;
 import static io.streamnative.pulsar.handlers.kop.KopServerStats.WAITING_FETCHES_TRIGGERED;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -44,13 +49,14 @@ import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.stats.Counter;
 import org.apache.bookkeeper.stats.Gauge;
 import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.bookkeeper.stats.annotations.StatsDoc;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.protocol.ApiKeys;
 
@@ -71,6 +77,7 @@ public class RequestStats {
     public static final AtomicInteger BATCH_COUNT_PER_MEMORY_RECORDS_INSTANCE = new AtomicInteger(0);
     public static final AtomicInteger ALIVE_CHANNEL_COUNT_INSTANCE = new AtomicInteger(0);
     public static final AtomicInteger ACTIVE_CHANNEL_COUNT_INSTANCE = new AtomicInteger(0);
+    public static final AtomicLong ACKS_ZERO_PRODUCE_INFLIGHT_BYTES_INSTANCE = new AtomicLong(0);
 
 
     public static final RequestStats NULL_INSTANCE = new RequestStats(NullStatsLogger.INSTANCE);
@@ -83,6 +90,25 @@ public class RequestStats {
     )
     private final Counter waitingFetchesTriggered;
 
+    @StatsDoc(
+            name = WAITING_FETCHES_COMPLETED_EARLY,
+            help = "number of pending fetches that were completed early because they blocked later responses"
+    )
+    private final Counter waitingFetchesCompletedEarly;
+
+    @StatsDoc(
+            name = ACKS_ZERO_PRODUCE_DROPPED,
+            help = "number of acks=0 produce requests that were dropped because the in-flight budget was exhausted"
+    )
+    private final Counter acksZeroProduceDropped;
+
+    @StatsDoc(
+            name = ACKS_ZERO_PRODUCE_PAUSED,
+            help = "number of times that a connection stopped reading because the in-flight budget of acks=0"
+                    + " produce requests was exhausted"
+    )
+    private final Counter acksZeroProducePaused;
+
     @StatsDoc(
             name = REQUEST_PARSE_LATENCY,
             help = "parse ByteBuf to request latency"
@@ -103,9 +129,11 @@ public class RequestStats {
 
     @StatsDoc(
             name = PENDING_TOPIC_LATENCY,
-            help = "pending topic latency stats of Kop"
+            help = "pending topic latency stats of Kop, the path label is fast if the topic is already ready, or"
+                    + " queued if the appends are queued until the topic is ready"
     )
     private final OpStatsLogger pendingTopicLatencyStats;
+    private final OpStatsLogger pendingTopicFastPathLatencyStats;
 
     @StatsDoc(
         name = PRODUCE_ENCODE,
@@ -149,6 +177,12 @@ public class RequestStats {
     )
     private final Counter networkTotalBytesIn;
 
+    @StatsDoc(
+            name = PRODUCE_BYTES_COPIED,
+            help = "total bytes of the produced records that were copied from the request to the entry"
+    )
+    private final Counter produceBytesCopied;
+
     @StatsDoc(
             name = NETWORK_TOTAL_BYTES_OUT,
             help = "total bytes sent out"
@@ -157,21 +191,44 @@ public class RequestStats {
 
     private final Map<ApiKeys, StatsLogger> apiKeysToStatsLogger = new ConcurrentHashMap<>();
 
-    private final Map<TopicPartition, StatsLogger> cachedLoggersForTopicPartitions = new ConcurrentHashMap<>();
-    private final Map<Pair<TopicPartition, String>, StatsLogger> cachedLoggersForTopicPartitionsAndGroups =
-            new ConcurrentHashMap<>();
+    @StatsDoc(
+            name = REQUEST_STAGE_LATENCY,
+            help = "latency of each stage of Kafka requests"
+    )
+    @Getter(AccessLevel.NONE)
+    private final Map<ApiKeys, OpStatsLogger[]> apiKeysToStageStatsLoggers = new ConcurrentHashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    private final TopicStatsLoggers.Builder topicStatsLoggersBuilder;
+    @Getter(AccessLevel.NONE)
+    private final TopicStatsLoggers topicStatsLoggers;
 
     private final Map<String, RequestStats> cachedRequestStatsForTenants = new ConcurrentHashMap<>();
 
     public RequestStats(StatsLogger statsLogger) {
+        this(statsLogger, TopicStatsLoggers.builder());
+    }
+
+    public RequestStats(StatsLogger statsLogger, TopicStatsLoggers.Builder topicStatsLoggersBuilder) {
+        this(statsLogger, topicStatsLoggersBuilder, topicStatsLoggersBuilder.build(statsLogger));
+    }
+
+    private RequestStats(StatsLogger statsLogger,
+                         TopicStatsLoggers.Builder topicStatsLoggersBuilder,
+                         TopicStatsLoggers topicStatsLoggers) {
         this.statsLogger = statsLogger;
+        this.topicStatsLoggersBuilder = topicStatsLoggersBuilder;
+        this.topicStatsLoggers = topicStatsLoggers;
 
         this.requestParseLatencyStats = statsLogger.getOpStatsLogger(REQUEST_PARSE_LATENCY);
 
         this.responseBlockedLatency = statsLogger.getOpStatsLogger(RESPONSE_BLOCKED_LATENCY);
         this.responseBlockedTimes = statsLogger.getCounter(RESPONSE_BLOCKED_TIMES);
 
-        this.pendingTopicLatencyStats = statsLogger.getOpStatsLogger(PENDING_TOPIC_LATENCY);
+        this.pendingTopicLatencyStats = statsLogger.scopeLabel(PATH_SCOPE, "queued")
+                .getOpStatsLogger(PENDING_TOPIC_LATENCY);
+        this.pendingTopicFastPathLatencyStats = statsLogger.scopeLabel(PATH_SCOPE, "fast")
+                .getOpStatsLogger(PENDING_TOPIC_LATENCY);
         this.produceEncodeStats = statsLogger.getOpStatsLogger(PRODUCE_ENCODE);
         this.messagePublishStats = statsLogger.getOpStatsLogger(MESSAGE_PUBLISH);
         this.messageQueuedLatencyStats = statsLogger.getOpStatsLogger(MESSAGE_QUEUED_LATENCY);
@@ -180,7 +237,11 @@ public class RequestStats {
         this.messageReadStats = statsLogger.getOpStatsLogger(MESSAGE_READ);
         this.fetchDecodeStats  = statsLogger.getOpStatsLogger(FETCH_DECODE);
         this.waitingFetchesTriggered = statsLogger.getCounter(WAITING_FETCHES_TRIGGERED);
+        this.waitingFetchesCompletedEarly = statsLogger.getCounter(WAITING_FETCHES_COMPLETED_EARLY);
+        this.acksZeroProduceDropped = statsLogger.getCounter(ACKS_ZERO_PRODUCE_DROPPED);
+        this.acksZeroProducePaused = statsLogger.getCounter(ACKS_ZERO_PRODUCE_PAUSED);
         this.networkTotalBytesIn = statsLogger.getCounter(NETWORK_TOTAL_BYTES_IN);
+        this.produceBytesCopied = statsLogger.getCounter(PRODUCE_BYTES_COPIED);
         this.networkTotalBytesOut = statsLogger.getCounter(NETWORK_TOTAL_BYTES_OUT);
 
         statsLogger.registerGauge(REQUEST_QUEUE_SIZE, new Gauge<Number>() {
@@ -195,6 +256,18 @@ public class RequestStats {
             }
         });
 
+        statsLogger.registerGauge(ACKS_ZERO_PRODUCE_INFLIGHT_BYTES, new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return ACKS_ZERO_PRODUCE_INFLIGHT_BYTES_INSTANCE;
+            }
+        });
+
         statsLogger.registerGauge(BATCH_COUNT_PER_MEMORYRECORDS, new Gauge<Number>() {
             @Override
             public Number getDefaultValue() {
@@ -232,18 +305,18 @@ public class RequestStats {
         });
     }
 
+    /**
+     * Get the stats logger for the topic level metrics of a partition.
+     *
+     * <p>The labels of the returned stats logger depend on the aggregation level, so it might be shared with other
+     * partitions. See {@link TopicStatsLoggers}.
+     */
     public StatsLogger getStatsLoggerForTopicPartition(TopicPartition topicPartition) {
-        return cachedLoggersForTopicPartitions.computeIfAbsent(topicPartition,
-                __ -> statsLogger
-                        .scopeLabel(TOPIC_SCOPE, topicPartition.topic())
-                        .scopeLabel(PARTITION_SCOPE, String.valueOf(topicPartition.partition())));
+        return topicStatsLoggers.get(topicPartition);
     }
 
     public StatsLogger getStatsLoggerForTopicPartitionAndGroup(TopicPartition topicPartition, String groupId) {
-        return cachedLoggersForTopicPartitionsAndGroups.computeIfAbsent(
-                Pair.of(topicPartition, groupId),
-                __ -> getStatsLoggerForTopicPartition(topicPartition)
-                        .scopeLabel(GROUP_SCOPE, groupId));
+        return topicStatsLoggers.get(topicPartition, groupId);
     }
 
     /**
@@ -259,13 +332,42 @@ public class RequestStats {
         ).getOpStatsLogger(statsName);
     }
 
+    /**
+     * Get the stats loggers of each stage for Kafka requests.
+     *
+     * @param apiKey the {@link ApiKeys} object that represents the Kafka request's type
+     * @return the stats loggers indexed by the ordinal of {@link RequestTrace.Stage}
+     */
+    public OpStatsLogger[] getRequestStageStatsLoggers(final ApiKeys apiKey) {
+        return apiKeysToStageStatsLoggers.computeIfAbsent(apiKey, __ -> {
+            final StatsLogger requestStatsLogger = statsLogger.scopeLabel(KopServerStats.REQUEST_SCOPE, apiKey.name);
+            final RequestTrace.Stage[] stages = RequestTrace.Stage.values();
+            final OpStatsLogger[] stageStatsLoggers = new OpStatsLogger[stages.length];
+            for (RequestTrace.Stage stage : stages) {
+                stageStatsLoggers[stage.ordinal()] = requestStatsLogger.scopeLabel(STAGE_SCOPE, stage.getLabel())
+                        .getOpStatsLogger(REQUEST_STAGE_LATENCY);
+            }
+            return stageStatsLoggers;
+        });
+    }
+
     @VisibleForTesting
     public Set<ApiKeys> getApiKeysSet() {
         return new TreeSet<>(apiKeysToStatsLogger.keySet());
     }
 
-    public RequestStats forTenant(String tenant) {
-        return cachedRequestStatsForTenants.computeIfAbsent(tenant,
-                __ -> new RequestStats(statsLogger.scopeLabel("tenant", tenant)));
+    /**
+     * Get the stats of a tenant.
+     *
+     * @param tenant the tenant
+     * @param namespacePrefix the default namespace of the tenant's short topic names
+     * @return the stats whose metrics have the tenant label
+     */
+    public RequestStats forTenant(String tenant, String namespacePrefix) {
+        return cachedRequestStatsForTenants.computeIfAbsent(tenant, __ -> {
+            final StatsLogger tenantStatsLogger = statsLogger.scopeLabel("tenant", tenant);
+            return new RequestStats(tenantStatsLogger, topicStatsLoggersBuilder,
+                    topicStatsLoggersBuilder.build(tenantStatsLogger, namespacePrefix));
+        });
     }
 }
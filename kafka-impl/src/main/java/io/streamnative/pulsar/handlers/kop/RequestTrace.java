@@ -0,0 +1,200 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.kafka.common.requests.RequestHeader;
+
+/**
+ * The trace of a Kafka request, which records how long each stage of the request takes.
+ *
+ * <p>The trace is carried by {@link KafkaCommandDecoder.KafkaHeaderAndRequest} and the contexts of the fetch and
+ * produce paths. When the request's response is written, the stages are recorded into the per API key stage stats if
+ * kopRequestStageStatsEnabled is true, and the full breakdown is logged if the request takes longer than
+ * kopSlowRequestThresholdMs.
+ *
+ * <p>Some stages, like READ and PUBLISH, run once per partition and concurrently. For these stages, the duration of
+ * the slowest partition is recorded. If both features are disabled, {@link #DISABLED} is used and no trace is
+ * allocated.
+ */
+@Slf4j
+public class RequestTrace {
+
+    /**
+     * The stages of a request.
+     */
+    public enum Stage {
+        PARSE("parse"),
+        AUTHORIZE("authorize"),
+        TOPIC_LOOKUP("topic_lookup"),
+        CURSOR("cursor"),
+        READ("read"),
+        DECODE("decode"),
+        ENCODE("encode"),
+        PUBLISH("publish"),
+        RESPONSE_WRITE("response_write");
+
+        @Getter
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final long NOT_RECORDED = -1L;
+
+    // Shared by all connections so that a burst of slow requests won't flood the logs
+    private static final RateLimiter SLOW_REQUEST_LOG_LIMITER = RateLimiter.create(10);
+    private static final LongAdder SUPPRESSED_SLOW_REQUEST_LOGS = new LongAdder();
+
+    public static final RequestTrace DISABLED = new RequestTrace(0L, 0L, false);
+
+    private final long startNanos;
+    private final long slowRequestThresholdNanos;
+    private final boolean stageStatsEnabled;
+    private final AtomicLongArray stageNanos;
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+
+    private RequestTrace(long startNanos, long slowRequestThresholdNanos, boolean stageStatsEnabled) {
+        this.startNanos = startNanos;
+        this.slowRequestThresholdNanos = slowRequestThresholdNanos;
+        this.stageStatsEnabled = stageStatsEnabled;
+        this.stageNanos = new AtomicLongArray(STAGES.length);
+        for (int i = 0; i < STAGES.length; i++) {
+            stageNanos.set(i, NOT_RECORDED);
+        }
+    }
+
+    /**
+     * Start the trace of a request.
+     *
+     * @param kafkaConfig the configuration that decides whether the request is traced
+     * @param startNanos the time in nanoseconds when the request is received
+     * @return the trace, or {@link #DISABLED} if neither the stage stats nor the slow request logs is enabled
+     */
+    public static RequestTrace start(KafkaServiceConfiguration kafkaConfig, long startNanos) {
+        final long slowRequestThresholdMs = kafkaConfig.getKopSlowRequestThresholdMs();
+        if (!kafkaConfig.isKopRequestStageStatsEnabled() && slowRequestThresholdMs <= 0) {
+            return DISABLED;
+        }
+        return new RequestTrace(startNanos,
+                (slowRequestThresholdMs > 0) ? TimeUnit.MILLISECONDS.toNanos(slowRequestThresholdMs) : Long.MAX_VALUE,
+                kafkaConfig.isKopRequestStageStatsEnabled());
+    }
+
+    public boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * Record a stage that starts at stageStartNanos and ends now.
+     */
+    public void record(Stage stage, long stageStartNanos) {
+        if (this == DISABLED) {
+            return;
+        }
+        recordElapsed(stage, MathUtils.elapsedNanos(stageStartNanos));
+    }
+
+    /**
+     * Record a stage that takes elapsedNanos. If the stage is recorded more than once, the max duration is kept.
+     */
+    public void recordElapsed(Stage stage, long elapsedNanos) {
+        if (this == DISABLED) {
+            return;
+        }
+        final int index = stage.ordinal();
+        long current;
+        do {
+            current = stageNanos.get(index);
+            if (current >= elapsedNanos) {
+                return;
+            }
+        } while (!stageNanos.compareAndSet(index, current, elapsedNanos));
+    }
+
+    @VisibleForTesting
+    long getStageNanos(Stage stage) {
+        return stageNanos.get(stage.ordinal());
+    }
+
+    /**
+     * Finish the trace after the response is written. Only the first call takes effect.
+     *
+     * @param header the header of the request
+     * @param remoteAddress the remote address of the connection
+     * @param requestStats the stats to record the stages into
+     */
+    public void finish(RequestHeader header, SocketAddress remoteAddress, RequestStats requestStats) {
+        if (this == DISABLED || !finished.compareAndSet(false, true)) {
+            return;
+        }
+        if (stageStatsEnabled) {
+            final OpStatsLogger[] stageStatsLoggers = requestStats.getRequestStageStatsLoggers(header.apiKey());
+            for (int i = 0; i < STAGES.length; i++) {
+                final long nanos = stageNanos.get(i);
+                if (nanos != NOT_RECORDED) {
+                    stageStatsLoggers[i].registerSuccessfulEvent(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+        final long totalNanos = MathUtils.elapsedNanos(startNanos);
+        if (totalNanos > slowRequestThresholdNanos) {
+            if (SLOW_REQUEST_LOG_LIMITER.tryAcquire()) {
+                log.warn("[{}] Slow request {} (correlationId: {}, clientId: {}) took {} ms: {}{}", remoteAddress,
+                        header.apiKey(), header.correlationId(), header.clientId(), toMillis(totalNanos),
+                        breakdown(), suppressedLogs());
+            } else {
+                SUPPRESSED_SLOW_REQUEST_LOGS.increment();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    String breakdown() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < STAGES.length; i++) {
+            final long nanos = stageNanos.get(i);
+            if (nanos == NOT_RECORDED) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(STAGES[i].getLabel()).append('=').append(toMillis(nanos)).append(" ms");
+        }
+        return sb.toString();
+    }
+
+    private static String suppressedLogs() {
+        final long suppressed = SUPPRESSED_SLOW_REQUEST_LOGS.sumThenReset();
+        return (suppressed > 0) ? " (" + suppressed + " slow requests were not logged)" : "";
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
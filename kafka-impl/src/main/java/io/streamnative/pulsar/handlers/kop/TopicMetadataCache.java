@@ -0,0 +1,409 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Time;
+import org.apache.pulsar.common.naming.TopicDomain;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.util.Codec;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+
+/**
+ * An in-memory snapshot of the namespaces of each tenant, the topics of each namespace and their partition counts,
+ * which is used to serve METADATA requests without querying the Pulsar admin API each time.
+ *
+ * <p>The snapshot of a namespace is invalidated by the metadata store notifications on its partitioned topic metadata
+ * and its managed ledgers, the snapshot of a tenant is invalidated when a namespace is created or deleted. Each
+ * invalidation bumps the version of the snapshot, so that a load that started before the invalidation won't install a
+ * stale result. The entries also expire after a configured time in case a notification is missed.
+ *
+ * <p>The versions are drawn from a counter shared by all snapshots, so that an invalidated snapshot can be removed
+ * and a new snapshot of the same namespace never reuses the version of a load that started before the removal. The
+ * invalidations only look up the existing snapshots, the snapshots of the deleted namespaces and tenants are removed,
+ * and the expired entries and the empty snapshots are removed at most once per expiration time.
+ */
+@Slf4j
+public class TopicMetadataCache {
+
+    static final String PARTITIONED_TOPICS_ROOT = "/admin/partitioned-topics";
+    static final String MANAGED_LEDGERS_ROOT = "/managed-ledgers";
+    static final String POLICIES_ROOT = "/admin/policies";
+
+    private final Map<String, NamespaceSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, TenantSnapshot> tenantSnapshots = new ConcurrentHashMap<>();
+    private final long expireTimeMs;
+    private final Time time;
+    private final AtomicLong versions = new AtomicLong(0L);
+    private final AtomicLong nextExpirationCheckMs;
+
+    public TopicMetadataCache(long expireTimeMs, Time time) {
+        this.expireTimeMs = expireTimeMs;
+        this.time = time;
+        this.nextExpirationCheckMs = new AtomicLong(time.milliseconds() + expireTimeMs);
+    }
+
+    private static class Listing<T> {
+
+        private long version;
+        private Entry<T> entry = null;
+        private CompletableFuture<T> pending = null;
+
+        Listing(long version) {
+            this.version = version;
+        }
+
+        // It must be called with the lock of the snapshot held
+        void invalidate(long newVersion) {
+            version = newVersion;
+            entry = null;
+            pending = null;
+        }
+
+        // It must be called with the lock of the snapshot held
+        boolean isEmpty() {
+            return entry == null && pending == null;
+        }
+    }
+
+    private static class NamespaceSnapshot {
+
+        private final Map<String, Entry<Integer>> partitions = new HashMap<>();
+        private final Listing<List<TopicAndMetadata>> topics;
+
+        NamespaceSnapshot(long version) {
+            this.topics = new Listing<>(version);
+        }
+
+        synchronized void invalidate(String topic, long newVersion) {
+            if (topic == null) {
+                partitions.clear();
+            } else {
+                partitions.remove(topic);
+            }
+            topics.invalidate(newVersion);
+        }
+
+        synchronized boolean isEmpty() {
+            return partitions.isEmpty() && topics.isEmpty();
+        }
+    }
+
+    private static class TenantSnapshot {
+
+        private final Listing<List<String>> namespaces;
+
+        TenantSnapshot(long version) {
+            this.namespaces = new Listing<>(version);
+        }
+
+        synchronized void invalidate(long newVersion) {
+            namespaces.invalidate(newVersion);
+        }
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+        private final long loadedTimeMs;
+
+        Entry(T value, long loadedTimeMs) {
+            this.value = value;
+            this.loadedTimeMs = loadedTimeMs;
+        }
+    }
+
+    public boolean isEnabled() {
+        return expireTimeMs > 0;
+    }
+
+    private NamespaceSnapshot snapshot(String namespace) {
+        maybeRemoveExpiredEntries();
+        return snapshots.computeIfAbsent(namespace, __ -> new NamespaceSnapshot(versions.incrementAndGet()));
+    }
+
+    private boolean isExpired(Entry<?> entry) {
+        return entry == null || time.milliseconds() - entry.loadedTimeMs >= expireTimeMs;
+    }
+
+    /**
+     * Get the current version of the snapshot of a namespace, it should be passed to
+     * {@link TopicMetadataCache#putPartitions(TopicName, int, long)} after the partition count has been loaded.
+     */
+    public long version(String namespace) {
+        if (!isEnabled()) {
+            return 0L;
+        }
+        final NamespaceSnapshot snapshot = snapshot(namespace);
+        synchronized (snapshot) {
+            return snapshot.topics.version;
+        }
+    }
+
+    /**
+     * Get the cached partition count of a topic, 0 means a non-partitioned topic.
+     *
+     * @return null if the topic is not cached or the entry is expired
+     */
+    public Integer getPartitions(TopicName topicName) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final NamespaceSnapshot snapshot = snapshots.get(topicName.getNamespace());
+        if (snapshot == null) {
+            return null;
+        }
+        synchronized (snapshot) {
+            final Entry<Integer> entry = snapshot.partitions.get(topicName.getPartitionedTopicName());
+            return isExpired(entry) ? null : entry.value;
+        }
+    }
+
+    public void putPartitions(TopicName topicName, int numPartitions, long version) {
+        if (!isEnabled()) {
+            return;
+        }
+        final NamespaceSnapshot snapshot = snapshot(topicName.getNamespace());
+        synchronized (snapshot) {
+            if (snapshot.topics.version == version) {
+                snapshot.partitions.put(topicName.getPartitionedTopicName(),
+                        new Entry<>(numPartitions, time.milliseconds()));
+            }
+        }
+    }
+
+    /**
+     * Get the persistent topics of a namespace and their partition counts. The topics are loaded by the given loader
+     * if they're not cached and the concurrent loads of the same namespace are merged into one. The partition counts
+     * of the loaded topics are also cached for {@link TopicMetadataCache#getPartitions(TopicName)}.
+     */
+    public CompletableFuture<List<TopicAndMetadata>> getTopicsAsync(
+            String namespace, Function<String, CompletableFuture<List<TopicAndMetadata>>> loader) {
+        if (!isEnabled()) {
+            return loader.apply(namespace);
+        }
+        final NamespaceSnapshot snapshot = snapshot(namespace);
+        return getListingAsync(snapshot, snapshot.topics, () -> loader.apply(namespace), topics -> {
+            final long now = time.milliseconds();
+            topics.stream().filter(TopicAndMetadata::hasNoError).forEach(topicAndMetadata -> snapshot.partitions
+                    .put(topicAndMetadata.getTopic(), new Entry<>(topicAndMetadata.getNumPartitions(), now)));
+        });
+    }
+
+    /**
+     * Get the namespaces of a tenant, the namespaces are loaded by the given loader if they're not cached.
+     */
+    public CompletableFuture<List<String>> getNamespacesAsync(
+            String tenant, Function<String, CompletableFuture<List<String>>> loader) {
+        if (!isEnabled()) {
+            return loader.apply(tenant);
+        }
+        maybeRemoveExpiredEntries();
+        final TenantSnapshot snapshot =
+                tenantSnapshots.computeIfAbsent(tenant, __ -> new TenantSnapshot(versions.incrementAndGet()));
+        return getListingAsync(snapshot, snapshot.namespaces, () -> loader.apply(tenant), __ -> {});
+    }
+
+    private <T> CompletableFuture<List<T>> getListingAsync(Object lock,
+                                                         Listing<List<T>> listing,
+                                                         Supplier<CompletableFuture<List<T>>> loader,
+                                                         Consumer<List<T>> onLoaded) {
+        final CompletableFuture<List<T>> future;
+        final long version;
+        synchronized (lock) {
+            if (!isExpired(listing.entry)) {
+                return CompletableFuture.completedFuture(listing.entry.value);
+            }
+            if (listing.pending != null) {
+                return listing.pending;
+            }
+            future = new CompletableFuture<>();
+            listing.pending = future;
+            version = listing.version;
+        }
+        loader.get().whenComplete((values, e) -> {
+            synchronized (lock) {
+                if (listing.pending == future) {
+                    listing.pending = null;
+                }
+                if (e == null && values != null && listing.version == version) {
+                    listing.entry = new Entry<>(Collections.unmodifiableList(values), time.milliseconds());
+                    onLoaded.accept(values);
+                }
+            }
+            if (e == null) {
+                future.complete(values);
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public void invalidateTopic(TopicName topicName) {
+        final NamespaceSnapshot snapshot = snapshots.get(topicName.getNamespace());
+        if (snapshot != null) {
+            snapshot.invalidate(topicName.getPartitionedTopicName(), versions.incrementAndGet());
+            if (snapshot.isEmpty()) {
+                snapshots.remove(topicName.getNamespace(), snapshot);
+            }
+        }
+    }
+
+    public void invalidateNamespace(String namespace) {
+        final NamespaceSnapshot snapshot = snapshots.remove(namespace);
+        if (snapshot != null) {
+            // The pending load of the removed snapshot might still be referenced
+            snapshot.invalidate(null, versions.incrementAndGet());
+        }
+    }
+
+    public void invalidateTenant(String tenant) {
+        final TenantSnapshot snapshot = tenantSnapshots.remove(tenant);
+        if (snapshot != null) {
+            snapshot.invalidate(versions.incrementAndGet());
+        }
+    }
+
+    public void clear() {
+        snapshots.keySet().forEach(this::invalidateNamespace);
+        tenantSnapshots.keySet().forEach(this::invalidateTenant);
+    }
+
+    @VisibleForTesting
+    int size() {
+        return snapshots.size() + tenantSnapshots.size();
+    }
+
+    // The loaded entries are only replaced by the later loads, so remove the expired entries and the snapshots that
+    // become empty, otherwise the snapshots of the namespaces and topics that are no longer queried would be kept.
+    private void maybeRemoveExpiredEntries() {
+        final long now = time.milliseconds();
+        final long nextCheckMs = nextExpirationCheckMs.get();
+        if (now < nextCheckMs || !nextExpirationCheckMs.compareAndSet(nextCheckMs, now + expireTimeMs)) {
+            return;
+        }
+        snapshots.forEach((namespace, snapshot) -> {
+            synchronized (snapshot) {
+                final Iterator<Entry<Integer>> iterator = snapshot.partitions.values().iterator();
+                while (iterator.hasNext()) {
+                    if (isExpired(iterator.next())) {
+                        iterator.remove();
+                    }
+                }
+                if (isExpired(snapshot.topics.entry)) {
+                    snapshot.topics.entry = null;
+                }
+            }
+            if (snapshot.isEmpty()) {
+                snapshots.remove(namespace, snapshot);
+            }
+        });
+        tenantSnapshots.forEach((tenant, snapshot) -> {
+            synchronized (snapshot) {
+                if (isExpired(snapshot.namespaces.entry)) {
+                    snapshot.namespaces.entry = null;
+                }
+                if (!snapshot.namespaces.isEmpty()) {
+                    return;
+                }
+            }
+            tenantSnapshots.remove(tenant, snapshot);
+        });
+    }
+
+    /**
+     * Invalidate the snapshot according to a metadata store notification.
+     *
+     * <p>A partitioned topic's metadata is stored in "/admin/partitioned-topics/tenant/namespace/persistent/topic",
+     * the managed ledger of a non-partitioned topic or a partition is stored in
+     * "/managed-ledgers/tenant/namespace/persistent/topic". The updates of the managed ledgers and their cursors
+     * don't change the topic list, so they are ignored.
+     */
+    public void onNotification(Notification notification) {
+        final String path = notification.getPath();
+        if (path.startsWith(POLICIES_ROOT + "/")) {
+            onPoliciesNotification(notification, path.substring(POLICIES_ROOT.length() + 1).split("/"));
+            return;
+        }
+        final boolean isManagedLedger;
+        final String relativePath;
+        if (path.startsWith(PARTITIONED_TOPICS_ROOT + "/")) {
+            isManagedLedger = false;
+            relativePath = path.substring(PARTITIONED_TOPICS_ROOT.length() + 1);
+        } else if (path.startsWith(MANAGED_LEDGERS_ROOT + "/")) {
+            isManagedLedger = true;
+            relativePath = path.substring(MANAGED_LEDGERS_ROOT.length() + 1);
+        } else {
+            return;
+        }
+        if (isManagedLedger && notification.getType() != NotificationType.Created
+                && notification.getType() != NotificationType.Deleted) {
+            return;
+        }
+
+        // tenant/namespace/domain/topic
+        final String[] parts = relativePath.split("/");
+        if (parts.length < 2 || (isManagedLedger && parts.length > 4)) {
+            return;
+        }
+        final String namespace = parts[0] + "/" + parts[1];
+        if (parts.length == 4 && TopicDomain.persistent.value().equals(parts[2])) {
+            final TopicName topicName = TopicName.get(TopicDomain.persistent.value(), parts[0], parts[1],
+                    Codec.decode(parts[3]));
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidate the metadata of topic {} for {} {}",
+                        topicName, notification.getType(), path);
+            }
+            invalidateTopic(topicName);
+        } else if (parts.length < 4) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidate the metadata of namespace {} for {} {}",
+                        namespace, notification.getType(), path);
+            }
+            invalidateNamespace(namespace);
+        }
+    }
+
+    // The policies of a namespace are stored in "/admin/policies/tenant/namespace", they're created and deleted with
+    // the namespace. The updates of the policies don't change the namespace list, so they are ignored.
+    private void onPoliciesNotification(Notification notification, String[] parts) {
+        final NotificationType type = notification.getType();
+        if (parts.length == 1 && (type == NotificationType.ChildrenChanged || type == NotificationType.Deleted)) {
+            invalidateTenant(parts[0]);
+        } else if (parts.length == 2 && (type == NotificationType.Created || type == NotificationType.Deleted)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidate the namespaces of tenant {} for {} {}",
+                        parts[0], type, notification.getPath());
+            }
+            invalidateTenant(parts[0]);
+            if (type == NotificationType.Deleted) {
+                invalidateNamespace(parts[0] + "/" + parts[1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,464 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.GROUP_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.NAMESPACE_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.PARTITION_SCOPE;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.TOPIC_SCOPE;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.streamnative.pulsar.handlers.kop.stats.StatsLogger;
+import io.streamnative.pulsar.handlers.kop.utils.KopTopic;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.bookkeeper.stats.Counter;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.bookkeeper.stats.OpStatsLogger;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.pulsar.common.naming.TopicName;
+
+/**
+ * The stats loggers of the topic level metrics, like BYTES_IN and MESSAGE_OUT, whose cardinality is controlled.
+ *
+ * <p>The metrics are aggregated to the configured {@link AggregationLevel}. With a positive max series, only the
+ * busiest keys (namespaces, topics or partitions, depending on the aggregation level) own their series, the other
+ * keys are aggregated into the series whose labels are {@link #OTHERS}. With a positive expiry time, the series of
+ * the keys that are not accessed during the expiry time are removed.
+ *
+ * <p>The busiest keys are ranked by the number of accesses since the previous maintenance, which is performed by
+ * the accessing thread at most once per maintenance interval.
+ *
+ * <p>The stats logger of a key only creates the series while the key still owns them, which is checked under the
+ * same lock that removes them, so that a stale stats logger can't bring back the series of a demoted or expired key.
+ * The created counters and op stats loggers are cached by the stats logger, so the lock is only taken once per
+ * name, then the ownership is checked with a volatile read. An update that races with the removal might be lost.
+ * With a positive max series, at most max series consumer groups own their series in the others, the other groups
+ * are aggregated into the series whose group label is {@link #OTHERS} as well.
+ */
+@Slf4j
+public class TopicStatsLoggers {
+
+    public static final String OTHERS = "__others__";
+
+    /**
+     * The aggregation level of the topic level metrics.
+     */
+    public enum AggregationLevel {
+        BROKER,
+        NAMESPACE,
+        TOPIC,
+        PARTITION;
+
+        public static AggregationLevel parse(String level) {
+            try {
+                return AggregationLevel.valueOf(level.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid aggregation level '" + level
+                        + "' of topic metrics, it should be one of broker, namespace, topic and partition");
+            }
+        }
+    }
+
+    private final StatsLogger statsLogger;
+    private final AggregationLevel level;
+    private final int maxSeries;
+    private final long expiryNanos;
+    private final long maintenanceIntervalNanos;
+    private final String namespacePrefix;
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> topicToNamespace = new ConcurrentHashMap<>();
+    private final StatsLogger othersStatsLogger;
+    private final Map<String, StatsLogger> othersGroupStatsLoggers = new ConcurrentHashMap<>();
+    private final StatsLogger othersGroupOthersStatsLogger;
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private volatile long nextMaintenanceNanos;
+
+    private TopicStatsLoggers(Builder builder, StatsLogger statsLogger, String namespacePrefix) {
+        this.statsLogger = statsLogger;
+        this.level = builder.level;
+        this.maxSeries = builder.maxSeries;
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(builder.expiryMs);
+        this.maintenanceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(builder.maintenanceIntervalMs);
+        this.namespacePrefix = namespacePrefix;
+        this.othersStatsLogger = newOthersStatsLogger();
+        this.othersGroupOthersStatsLogger = othersStatsLogger.scopeLabel(GROUP_SCOPE, OTHERS);
+        this.nextMaintenanceNanos = MathUtils.nowInNano() + maintenanceIntervalNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Get the stats logger for a partition.
+     *
+     * @param topicPartition the partition
+     * @return the stats logger whose labels depend on the aggregation level
+     */
+    public StatsLogger get(TopicPartition topicPartition) {
+        if (level == AggregationLevel.BROKER) {
+            return statsLogger;
+        }
+        final Entry entry = getEntry(topicPartition);
+        final StatsLogger entryStatsLogger = entry.statsLogger;
+        return (entryStatsLogger != null) ? entryStatsLogger : othersStatsLogger;
+    }
+
+    /**
+     * Get the stats logger for a partition and a consumer group.
+     *
+     * @param topicPartition the partition
+     * @param groupId the consumer group
+     * @return the stats logger whose labels depend on the aggregation level, with the group label
+     */
+    public StatsLogger get(TopicPartition topicPartition, String groupId) {
+        if (level == AggregationLevel.BROKER) {
+            return getOthersStatsLogger(groupId);
+        }
+        final Entry entry = getEntry(topicPartition);
+        final StatsLogger groupStatsLogger = entry.groupStatsLoggers.get(groupId);
+        if (groupStatsLogger != null) {
+            return groupStatsLogger;
+        }
+        synchronized (entry) {
+            // Add the group under the lock so that it can't be added after the series of the key are removed
+            final StatsLogger entryStatsLogger = entry.statsLogger;
+            if (entryStatsLogger == null) {
+                return getOthersStatsLogger(groupId);
+            }
+            return entry.groupStatsLoggers.computeIfAbsent(groupId, __ ->
+                    new EntryStatsLogger(entry, groupId, entryStatsLogger.scopeLabel(GROUP_SCOPE, groupId)));
+        }
+    }
+
+    private StatsLogger getOthersStatsLogger(String groupId) {
+        final StatsLogger groupStatsLogger = othersGroupStatsLoggers.get(groupId);
+        if (groupStatsLogger != null) {
+            return groupStatsLogger;
+        }
+        // The check is not atomic, concurrent new groups might exceed the max series slightly
+        if (maxSeries > 0 && othersGroupStatsLoggers.size() >= maxSeries) {
+            return othersGroupOthersStatsLogger;
+        }
+        return othersGroupStatsLoggers.computeIfAbsent(groupId,
+                __ -> othersStatsLogger.scopeLabel(GROUP_SCOPE, groupId));
+    }
+
+    private boolean isBounded() {
+        return maxSeries > 0 || expiryNanos > 0;
+    }
+
+    private Entry getEntry(TopicPartition topicPartition) {
+        final Object key;
+        switch (level) {
+            case NAMESPACE:
+                key = topicToNamespace.computeIfAbsent(topicPartition.topic(), this::getNamespace);
+                break;
+            case TOPIC:
+                key = topicPartition.topic();
+                break;
+            default:
+                key = topicPartition;
+        }
+        final Entry entry = entries.computeIfAbsent(key, __ -> {
+            // Before the next ranking, new keys own their series until the max series is reached
+            final Entry newEntry = new Entry();
+            if (maxSeries <= 0 || entries.size() < maxSeries) {
+                newEntry.statsLogger = new EntryStatsLogger(newEntry, null, newStatsLogger(key));
+            }
+            return newEntry;
+        });
+        if (isBounded()) {
+            final long now = MathUtils.nowInNano();
+            entry.accesses.increment();
+            entry.lastAccessNanos = now;
+            if (now >= nextMaintenanceNanos) {
+                maybeMaintain(now);
+            }
+        }
+        return entry;
+    }
+
+    private void maybeMaintain(long now) {
+        if (!maintenanceLock.tryLock()) {
+            return;
+        }
+        try {
+            if (now >= nextMaintenanceNanos) {
+                nextMaintenanceNanos = now + maintenanceIntervalNanos;
+                maintain(now);
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    void maintain(long now) {
+        final List<Map.Entry<Object, Entry>> activeEntries = new ArrayList<>(entries.size());
+        int numExpired = 0;
+        for (Map.Entry<Object, Entry> mapEntry : entries.entrySet()) {
+            final Entry entry = mapEntry.getValue();
+            entry.recentAccesses = entry.accesses.sumThenReset();
+            if (expiryNanos > 0 && now - entry.lastAccessNanos > expiryNanos
+                    && entries.remove(mapEntry.getKey(), entry)) {
+                entry.removeStats();
+                numExpired++;
+            } else {
+                activeEntries.add(mapEntry);
+            }
+        }
+        topicToNamespace.clear();
+
+        int numDemoted = 0;
+        if (maxSeries > 0) {
+            activeEntries.sort(Comparator.comparingLong(mapEntry -> -mapEntry.getValue().recentAccesses));
+            for (int i = 0; i < activeEntries.size(); i++) {
+                final Entry entry = activeEntries.get(i).getValue();
+                if (i < maxSeries) {
+                    synchronized (entry) {
+                        if (entry.statsLogger == null) {
+                            entry.statsLogger =
+                                    new EntryStatsLogger(entry, null, newStatsLogger(activeEntries.get(i).getKey()));
+                        }
+                    }
+                } else if (entry.removeStats()) {
+                    numDemoted++;
+                }
+            }
+        }
+        if (log.isDebugEnabled() && (numExpired > 0 || numDemoted > 0)) {
+            log.debug("Removed the topic metrics series of {} expired and {} less active {}s, {} {}s are tracked",
+                    numExpired, numDemoted, level.name().toLowerCase(), activeEntries.size(),
+                    level.name().toLowerCase());
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        return entries.size();
+    }
+
+    private String getNamespace(String topic) {
+        try {
+            return TopicName.get(new KopTopic(topic, namespacePrefix).getFullName()).getNamespace();
+        } catch (RuntimeException e) {
+            // The topic name has been validated before, it should not happen
+            return OTHERS;
+        }
+    }
+
+    private StatsLogger newStatsLogger(Object key) {
+        switch (level) {
+            case NAMESPACE:
+                return statsLogger.scopeLabel(NAMESPACE_SCOPE, (String) key);
+            case TOPIC:
+                return statsLogger.scopeLabel(TOPIC_SCOPE, (String) key);
+            default:
+                final TopicPartition topicPartition = (TopicPartition) key;
+                return statsLogger.scopeLabel(TOPIC_SCOPE, topicPartition.topic())
+                        .scopeLabel(PARTITION_SCOPE, String.valueOf(topicPartition.partition()));
+        }
+    }
+
+    private StatsLogger newOthersStatsLogger() {
+        switch (level) {
+            case BROKER:
+                return statsLogger;
+            case PARTITION:
+                return statsLogger.scopeLabel(TOPIC_SCOPE, OTHERS).scopeLabel(PARTITION_SCOPE, OTHERS);
+            default:
+                return newStatsLogger(OTHERS);
+        }
+    }
+
+    private static class Entry {
+        final LongAdder accesses = new LongAdder();
+        volatile long lastAccessNanos = MathUtils.nowInNano();
+        long recentAccesses;
+        // null if the key is aggregated into the others, it's only changed under the lock of the entry
+        volatile StatsLogger statsLogger;
+        final Map<String, StatsLogger> groupStatsLoggers = new ConcurrentHashMap<>();
+
+        /**
+         * Remove the series of the key and its groups, then the key is aggregated into the others.
+         *
+         * @return true if the key owned its series
+         */
+        synchronized boolean removeStats() {
+            final StatsLogger currentStatsLogger = statsLogger;
+            if (currentStatsLogger != null) {
+                currentStatsLogger.removeStats();
+                statsLogger = null;
+            }
+            groupStatsLoggers.values().forEach(StatsLogger::removeStats);
+            groupStatsLoggers.clear();
+            return currentStatsLogger != null;
+        }
+    }
+
+    /**
+     * The stats logger of a key, or of a key and a group, which falls back to the others once the key doesn't own
+     * the series anymore.
+     */
+    private class EntryStatsLogger implements StatsLogger {
+        private final Entry entry;
+        // null if it's the stats logger of the key itself
+        private final String groupId;
+        private final StatsLogger delegate;
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+        private final Map<String, OpStatsLogger> opStatsLoggers = new ConcurrentHashMap<>();
+
+        EntryStatsLogger(Entry entry, String groupId, StatsLogger delegate) {
+            this.entry = entry;
+            this.groupId = groupId;
+            this.delegate = delegate;
+        }
+
+        // The ownership only changes under the lock of the entry
+        private boolean isOwned() {
+            return (groupId == null) ? (entry.statsLogger == this) : (entry.groupStatsLoggers.get(groupId) == this);
+        }
+
+        private StatsLogger others() {
+            return (groupId == null) ? othersStatsLogger : getOthersStatsLogger(groupId);
+        }
+
+        @Override
+        public OpStatsLogger getOpStatsLogger(String name) {
+            if (isOwned()) {
+                final OpStatsLogger opStatsLogger = opStatsLoggers.get(name);
+                if (opStatsLogger != null) {
+                    return opStatsLogger;
+                }
+                synchronized (entry) {
+                    if (isOwned()) {
+                        return opStatsLoggers.computeIfAbsent(name, delegate::getOpStatsLogger);
+                    }
+                }
+            }
+            return others().getOpStatsLogger(name);
+        }
+
+        @Override
+        public Counter getCounter(String name) {
+            if (isOwned()) {
+                final Counter counter = counters.get(name);
+                if (counter != null) {
+                    return counter;
+                }
+                synchronized (entry) {
+                    if (isOwned()) {
+                        return counters.computeIfAbsent(name, delegate::getCounter);
+                    }
+                }
+            }
+            return others().getCounter(name);
+        }
+
+        @Override
+        public <T extends Number> void registerGauge(String name, Gauge<T> gauge) {
+            synchronized (entry) {
+                if (isOwned()) {
+                    delegate.registerGauge(name, gauge);
+                    return;
+                }
+            }
+            others().registerGauge(name, gauge);
+        }
+
+        @Override
+        public <T extends Number> void unregisterGauge(String name, Gauge<T> gauge) {
+            delegate.unregisterGauge(name, gauge);
+        }
+
+        @Override
+        public StatsLogger scope(String name) {
+            return delegate.scope(name);
+        }
+
+        @Override
+        public StatsLogger scopeLabel(String labelName, String labelValue) {
+            return delegate.scopeLabel(labelName, labelValue);
+        }
+
+        @Override
+        public void removeScope(String name, StatsLogger statsLogger) {
+            delegate.removeScope(name, statsLogger);
+        }
+
+        @Override
+        public void removeStats() {
+            delegate.removeStats();
+        }
+    }
+
+    /**
+     * The builder of {@link TopicStatsLoggers}, which is shared by the stats loggers of all tenants. The namespace
+     * prefix is the default one, each tenant builds its stats loggers with its own namespace prefix.
+     */
+    public static class Builder {
+        private AggregationLevel level = AggregationLevel.PARTITION;
+        private int maxSeries = 0;
+        private long expiryMs = 0;
+        private long maintenanceIntervalMs = TimeUnit.MINUTES.toMillis(1);
+        private String namespacePrefix = null;
+
+        public Builder level(AggregationLevel level) {
+            this.level = level;
+            return this;
+        }
+
+        public Builder maxSeries(int maxSeries) {
+            this.maxSeries = maxSeries;
+            return this;
+        }
+
+        public Builder expiryMs(long expiryMs) {
+            this.expiryMs = expiryMs;
+            return this;
+        }
+
+        public Builder maintenanceIntervalMs(long maintenanceIntervalMs) {
+            this.maintenanceIntervalMs = maintenanceIntervalMs;
+            return this;
+        }
+
+        public Builder namespacePrefix(String namespacePrefix) {
+            this.namespacePrefix = namespacePrefix;
+            return this;
+        }
+
+        public TopicStatsLoggers build(StatsLogger statsLogger) {
+            return build(statsLogger, namespacePrefix);
+        }
+
+        /**
+         * Build the stats loggers whose short topic names are in the given namespace, e.g. for a tenant.
+         */
+        public TopicStatsLoggers build(StatsLogger statsLogger, String namespacePrefix) {
+            return new TopicStatsLoggers(this, statsLogger, namespacePrefix);
+        }
+    }
+}
@@ -17,6 +17,8 @@ import com.google.common.collect.Sets;
 import io.streamnative.pulsar.handlers.kop.coordinator.group.OffsetConfig;
 import io.streamnative.pulsar.handlers.kop.utils.CoreUtils;
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -31,6 +33,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.client.api.BatcherBuilder;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.Producer;
@@ -55,6 +58,8 @@ public class CompactedPartitionedTopic<T> implements Closeable {
         }
     }
 
+    private static final int MAX_READ_BATCH_SIZE = 1000;
+
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final Map<Integer, Future<Producer<T>>> producers = new ConcurrentHashMap<>();
     private final Map<Integer, Future<Reader<T>>> readers = new ConcurrentHashMap<>();
@@ -79,7 +84,17 @@ public class CompactedPartitionedTopic<T> implements Closeable {
         this.producerBuilder = client.newProducer(schema)
                 .maxPendingMessages(maxPendingMessages)
                 .sendTimeout(offsetConfig.offsetCommitTimeoutMs(), TimeUnit.MILLISECONDS)
-                .blockIfQueueFull(true);
+                .blockIfQueueFull(true)
+                // Each partition's producer acts as the commit accumulator: concurrent writes from different
+                // groups are merged into one entry, while every write keeps its own key so that compaction and
+                // the per-message send futures still work as if they were written one by one. The default settings
+                // are the same as the defaults of the Pulsar producer, which already batched these writes.
+                .enableBatching(offsetConfig.offsetCommitBatchingEnabled())
+                .batcherBuilder(BatcherBuilder.DEFAULT)
+                .batchingMaxPublishDelay(offsetConfig.offsetCommitBatchingMaxPublishDelayMicros(),
+                        TimeUnit.MICROSECONDS)
+                .batchingMaxMessages(offsetConfig.offsetCommitBatchingMaxMessages())
+                .batchingMaxBytes(offsetConfig.offsetCommitBatchingMaxBytes());
         this.readerBuilder = client.newReader(schema)
                 .startMessageId(MessageId.earliest)
                 .readCompacted(true);
@@ -119,6 +134,10 @@ public class CompactedPartitionedTopic<T> implements Closeable {
     /**
      * Read to the latest message of the partition.
      *
+     * <p>Messages are read in batches of at most {@link #MAX_READ_BATCH_SIZE} messages. The messages that are already
+     * in the reader's receiver queue are drained without any thread switch, and each batch is handed to `executor` in
+     * bulk so that the callbacks of a batch are processed while the next batch is being read.
+     *
      * @param partition the partition of `topic` to read
      * @param messageConsumer the message callback that is guaranteed to be called in the same thread
      * @return the future of the read result
@@ -128,7 +147,8 @@ public class CompactedPartitionedTopic<T> implements Closeable {
         executor.execute(() -> {
             try {
                 final Reader<T> reader = getReader(partition);
-                readToLatest(reader, partition, messageConsumer, future, System.currentTimeMillis(), 0);
+                final var context = new ReadContext(reader, partition, messageConsumer, future);
+                readToLatest(context, CompletableFuture.completedFuture(null));
             } catch (ExceptionWrapper e) {
                 future.completeExceptionally(e.getCause());
             }
@@ -136,45 +156,132 @@ public class CompactedPartitionedTopic<T> implements Closeable {
         return future;
     }
 
-    private void readToLatest(Reader<T> reader, int partition, Consumer<Message<T>> messageConsumer,
-                              CompletableFuture<ReadResult> future, long startTimeMs, long numMessages) {
-        if (closed.get()) {
-            future.complete(new ReadResult(System.currentTimeMillis() - startTimeMs, numMessages));
-            return;
-        }
-        reader.hasMessageAvailableAsync().thenComposeAsync(available -> {
-            if (available && !closed.get()) {
-                return reader.readNextAsync();
-            } else {
-                return CompletableFuture.completedFuture(null);
-            }
-        }, executor).thenAcceptAsync(msg -> {
-            if (msg == null) {
-                future.complete(new ReadResult(System.currentTimeMillis() - startTimeMs, numMessages));
+    private void readToLatest(ReadContext context, CompletableFuture<Void> previousProcessFuture) {
+        final var batchFuture = new CompletableFuture<List<Message<T>>>();
+        readBatch(context.reader, new ArrayList<>(), batchFuture);
+        // Process the batch only after the previous batch is processed, but start reading the next batch immediately
+        batchFuture.thenCombine(previousProcessFuture, (batch, __) -> batch).thenAccept(batch -> {
+            if (batch.isEmpty()) {
+                context.complete();
                 return;
             }
-            long numMessagesProcessed = numMessages;
-            if (!valueIsEmpty.apply(msg.getValue())) {
-                numMessagesProcessed++;
-                messageConsumer.accept(msg);
-            }
-            readToLatest(reader, partition, messageConsumer, future, startTimeMs, numMessagesProcessed);
-        }, executor).exceptionallyAsync(e -> {
+            readToLatest(context, CompletableFuture.runAsync(() -> context.process(batch), executor));
+        }).exceptionally(e -> {
             while (e.getCause() != null) {
                 e = e.getCause();
             }
-            if (e instanceof PulsarClientException.AlreadyClosedException) {
-                // The producer is already closed, we don't need to close it again.
-                removeAndClose("reader", readers, partition, producer -> CompletableFuture.completedFuture(null));
-                log.warn("Failed to read {}-{} to latest since the reader is closed", topic, partition);
-                future.complete(new ReadResult(System.currentTimeMillis() - startTimeMs, numMessages));
-            } else {
-                removeAndClose("reader", readers, partition, Reader::closeAsync);
-                log.error("Failed to read {}-{} to latest", topic, partition, e);
-                future.completeExceptionally(e);
+            final var cause = e;
+            previousProcessFuture.whenCompleteAsync((__, ignored) -> {
+                if (cause instanceof PulsarClientException.AlreadyClosedException) {
+                    // The reader is already closed, we don't need to close it again.
+                    removeAndClose("reader", readers, context.partition,
+                            reader -> CompletableFuture.completedFuture(null));
+                    log.warn("Failed to read {}-{} to latest since the reader is closed", topic, context.partition);
+                    context.complete();
+                } else {
+                    removeAndClose("reader", readers, context.partition, Reader::closeAsync);
+                    log.error("Failed to read {}-{} to latest", topic, context.partition, cause);
+                    context.future.completeExceptionally(cause);
+                }
+            }, executor);
+            return null;
+        });
+    }
+
+    private void readBatch(Reader<T> reader, List<Message<T>> batch, CompletableFuture<List<Message<T>>> future) {
+        while (!closed.get() && batch.size() < MAX_READ_BATCH_SIZE) {
+            final var availableFuture = reader.hasMessageAvailableAsync();
+            if (!availableFuture.isDone()) {
+                availableFuture.thenAccept(available -> {
+                    if (available) {
+                        readNext(reader, batch, future);
+                    } else {
+                        future.complete(batch);
+                    }
+                }).exceptionally(e -> {
+                    future.completeExceptionally(e);
+                    return null;
+                });
+                return;
+            }
+            if (availableFuture.isCompletedExceptionally()) {
+                availableFuture.exceptionally(e -> {
+                    future.completeExceptionally(e);
+                    return null;
+                });
+                return;
+            }
+            if (!availableFuture.join()) {
+                break;
             }
+            final var messageFuture = reader.readNextAsync();
+            if (!messageFuture.isDone() || messageFuture.isCompletedExceptionally()) {
+                // The message is not in the receiver queue yet, the next read will be triggered in the callback
+                onMessageReceived(messageFuture, reader, batch, future);
+                return;
+            }
+            batch.add(messageFuture.join());
+        }
+        future.complete(batch);
+    }
+
+    private void readNext(Reader<T> reader, List<Message<T>> batch, CompletableFuture<List<Message<T>>> future) {
+        if (closed.get()) {
+            future.complete(batch);
+            return;
+        }
+        onMessageReceived(reader.readNextAsync(), reader, batch, future);
+    }
+
+    private void onMessageReceived(CompletableFuture<Message<T>> messageFuture, Reader<T> reader,
+                                   List<Message<T>> batch, CompletableFuture<List<Message<T>>> future) {
+        messageFuture.thenAccept(msg -> {
+            batch.add(msg);
+            readBatch(reader, batch, future);
+        }).exceptionally(e -> {
+            future.completeExceptionally(e);
             return null;
-        }, executor);
+        });
+    }
+
+    private class ReadContext {
+
+        private final Reader<T> reader;
+        private final int partition;
+        private final Consumer<Message<T>> messageConsumer;
+        private final CompletableFuture<ReadResult> future;
+        private final long startTimeMs = System.currentTimeMillis();
+        // The following fields are only accessed in `executor`
+        private long numMessages = 0;
+        private long numBytes = 0;
+        private long numBatches = 0;
+
+        ReadContext(Reader<T> reader, int partition, Consumer<Message<T>> messageConsumer,
+                    CompletableFuture<ReadResult> future) {
+            this.reader = reader;
+            this.partition = partition;
+            this.messageConsumer = messageConsumer;
+            this.future = future;
+        }
+
+        void process(List<Message<T>> batch) {
+            numBatches++;
+            for (Message<T> msg : batch) {
+                if (closed.get()) {
+                    return;
+                }
+                if (!valueIsEmpty.apply(msg.getValue())) {
+                    numMessages++;
+                    numBytes += msg.size();
+                    messageConsumer.accept(msg);
+                }
+            }
+        }
+
+        void complete() {
+            future.complete(new ReadResult(System.currentTimeMillis() - startTimeMs, numMessages, numBytes,
+                    numBatches));
+        }
     }
 
     /**
@@ -189,6 +296,7 @@ public class CompactedPartitionedTopic<T> implements Closeable {
 
     @Override
     public void close() {
+        closed.set(true);
         try {
             CoreUtils.waitForAll(
                     Sets.union(producers.keySet(), readers.keySet()).stream().map(this::remove).toList()
@@ -237,13 +345,27 @@ public class CompactedPartitionedTopic<T> implements Closeable {
         return topic + TopicName.PARTITIONED_TOPIC_SUFFIX + partition;
     }
 
-    public record ReadResult(long timeMs, long numMessages) {
+    public record ReadResult(long timeMs, long numMessages, long numBytes, long numBatches) {
+
+        public double messagesPerSecond() {
+            return perSecond(numMessages);
+        }
+
+        public double bytesPerSecond() {
+            return perSecond(numBytes);
+        }
+
+        private double perSecond(long value) {
+            return (timeMs > 0) ? value * 1000.0 / timeMs : value;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (!(obj instanceof ReadResult that)) {
                 return false;
             }
-            return this.timeMs == that.timeMs && this.numMessages == that.numMessages;
+            return this.timeMs == that.timeMs && this.numMessages == that.numMessages
+                    && this.numBytes == that.numBytes && this.numBatches == that.numBatches;
         }
     }
 }
@@ -19,6 +19,9 @@ import java.util.Optional;
 /**
  * Delayed heartbeat operations that are added to the purgatory for session timeout checking.
  * Heartbeats are paused during rebalance.
+ *
+ * <p>Only one operation is scheduled for a member at a time. Heartbeats just update the member's latest heartbeat,
+ * which is checked when the operation expires.
  */
 class DelayedHeartbeat extends DelayedOperation {
 
@@ -31,8 +34,8 @@ class DelayedHeartbeat extends DelayedOperation {
                      GroupMetadata group,
                      MemberMetadata member,
                      long heartbeatDeadline,
-                     long sessionTimeout) {
-        super(sessionTimeout, Optional.of(group.lock()));
+                     long delayMs) {
+        super(delayMs, Optional.of(group.lock()));
 
         this.coordinator = coordinator;
         this.group = group;
@@ -40,6 +43,10 @@ class DelayedHeartbeat extends DelayedOperation {
         this.heartbeatDeadline = heartbeatDeadline;
     }
 
+    long heartbeatDeadline() {
+        return heartbeatDeadline;
+    }
+
     @Override
     public void onExpiration() {
         coordinator.onExpireHeartbeat(group, member, heartbeatDeadline);
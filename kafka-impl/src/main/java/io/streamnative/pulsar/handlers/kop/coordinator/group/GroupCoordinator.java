@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -53,6 +54,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.internals.Topic;
+import org.apache.kafka.common.message.LeaveGroupRequestData.MemberIdentity;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.requests.JoinGroupRequest;
@@ -202,6 +204,30 @@ public class GroupCoordinator {
         int sessionTimeoutMs,
         String protocolType,
         Map<String, byte[]> protocols
+    ) {
+        return handleJoinGroup(
+            groupId,
+            memberId,
+            Optional.empty(),
+            clientId,
+            clientHost,
+            rebalanceTimeoutMs,
+            sessionTimeoutMs,
+            protocolType,
+            protocols
+        );
+    }
+
+    public CompletableFuture<JoinGroupResult> handleJoinGroup(
+        String groupId,
+        String memberId,
+        Optional<String> groupInstanceId,
+        String clientId,
+        String clientHost,
+        int rebalanceTimeoutMs,
+        int sessionTimeoutMs,
+        String protocolType,
+        Map<String, byte[]> protocols
     ) {
         Optional<Errors> errors = validateGroupStatus(groupId, ApiKeys.JOIN_GROUP);
         if (errors.isPresent()) {
@@ -220,6 +246,7 @@ public class GroupCoordinator {
             return groupManager.getGroup(groupId).map(group -> doJoinGroup(
                 group,
                 memberId,
+                groupInstanceId,
                 clientId,
                 clientHost,
                 rebalanceTimeoutMs,
@@ -237,6 +264,7 @@ public class GroupCoordinator {
                     return doJoinGroup(
                         group,
                         memberId,
+                        groupInstanceId,
                         clientId,
                         clientHost,
                         rebalanceTimeoutMs,
@@ -252,6 +280,7 @@ public class GroupCoordinator {
     private CompletableFuture<JoinGroupResult> doJoinGroup(
         GroupMetadata group,
         String memberId,
+        Optional<String> groupInstanceId,
         String clientId,
         String clientHost,
         int rebalanceTimeoutMs,
@@ -262,6 +291,7 @@ public class GroupCoordinator {
         return group.inLock(() -> unsafeJoinGroup(
             group,
             memberId,
+            groupInstanceId,
             clientId,
             clientHost,
             rebalanceTimeoutMs,
@@ -274,6 +304,7 @@ public class GroupCoordinator {
     private CompletableFuture<JoinGroupResult> unsafeJoinGroup(
         GroupMetadata group,
         String memberId,
+        Optional<String> groupInstanceId,
         String clientId,
         String clientHost,
         int rebalanceTimeoutMs,
@@ -293,12 +324,37 @@ public class GroupCoordinator {
             // reject if first member with empty group protocol or protocolType is empty
             return CompletableFuture.completedFuture(
                 joinError(memberId, Errors.INCONSISTENT_GROUP_PROTOCOL));
+        } else if (!JoinGroupRequest.UNKNOWN_MEMBER_ID.equals(memberId)
+            && groupInstanceId.isPresent()
+            && group.isStaticMemberFenced(memberId, groupInstanceId.get())) {
+            // another instance has taken over the group instance id, fence this one
+            return CompletableFuture.completedFuture(
+                joinError(memberId, Errors.FENCED_INSTANCE_ID));
         } else if (!JoinGroupRequest.UNKNOWN_MEMBER_ID.equals(memberId)
             && !group.has(memberId)) {
             // if the member trying to register with a un-recognized id, send the response to let
             // it reset its member id and retry
             return CompletableFuture.completedFuture(
                 joinError(memberId, Errors.UNKNOWN_MEMBER_ID));
+        } else if (JoinGroupRequest.UNKNOWN_MEMBER_ID.equals(memberId)
+            && groupInstanceId.isPresent()
+            && group.hasStaticMember(groupInstanceId.get())
+            && group.not(Dead)) {
+            // a known static member is rejoining with an unknown member id (e.g. it has been restarted), let it
+            // take over its previous member id instead of adding a new member
+            CompletableFuture<JoinGroupResult> resultFuture = updateStaticMemberAndRebalance(
+                group,
+                groupInstanceId.get(),
+                clientId,
+                clientHost,
+                rebalanceTimeoutMs,
+                sessionTimeoutMs,
+                protocols
+            );
+            if (group.is(PreparingRebalance)) {
+                joinPurgatory.checkAndComplete(new GroupKey(group.groupId()));
+            }
+            return resultFuture;
         } else {
             CompletableFuture<JoinGroupResult> resultFuture;
             switch (group.currentState()) {
@@ -315,6 +371,7 @@ public class GroupCoordinator {
                         resultFuture = addMemberAndRebalance(
                             rebalanceTimeoutMs,
                             sessionTimeoutMs,
+                            groupInstanceId,
                             clientId,
                             clientHost,
                             protocolType,
@@ -323,7 +380,8 @@ public class GroupCoordinator {
                         );
                     } else {
                         MemberMetadata member = group.get(memberId);
-                        resultFuture = updateMemberAndRebalance(group, member, protocols);
+                        resultFuture = updateMemberAndRebalance(
+                            group, member, rebalanceTimeoutMs, sessionTimeoutMs, protocols);
                     }
                     break;
                 case CompletingRebalance:
@@ -331,6 +389,7 @@ public class GroupCoordinator {
                         resultFuture = addMemberAndRebalance(
                             rebalanceTimeoutMs,
                             sessionTimeoutMs,
+                            groupInstanceId,
                             clientId,
                             clientHost,
                             protocolType,
@@ -364,6 +423,8 @@ public class GroupCoordinator {
                             resultFuture = updateMemberAndRebalance(
                                 group,
                                 member,
+                                rebalanceTimeoutMs,
+                                sessionTimeoutMs,
                                 protocols
                             );
                         }
@@ -376,6 +437,7 @@ public class GroupCoordinator {
                         resultFuture = addMemberAndRebalance(
                             rebalanceTimeoutMs,
                             sessionTimeoutMs,
+                            groupInstanceId,
                             clientId,
                             clientHost,
                             protocolType,
@@ -388,7 +450,8 @@ public class GroupCoordinator {
                             // force a rebalance if a member has changed metadata or if the leader sends JoinGroup.
                             // The latter allows the leader to trigger rebalances for changes affecting assignment
                             // which do not affect the member metadata (such as topic metadata changes for the consumer)
-                            resultFuture = updateMemberAndRebalance(group, member, protocols);
+                            resultFuture = updateMemberAndRebalance(
+                                group, member, rebalanceTimeoutMs, sessionTimeoutMs, protocols);
                         } else {
                             // for followers with no actual change to their metadata, just return group information
                             // for the current generation which will allow them to issue SyncGroup
@@ -422,12 +485,23 @@ public class GroupCoordinator {
         int generation,
         String memberId,
         Map<String, byte[]> groupAssignment
+    ) {
+        return handleSyncGroup(groupId, generation, memberId, Optional.empty(), groupAssignment);
+    }
+
+    public CompletableFuture<KeyValue<Errors, byte[]>> handleSyncGroup(
+        String groupId,
+        int generation,
+        String memberId,
+        Optional<String> groupInstanceId,
+        Map<String, byte[]> groupAssignment
     ) {
         CompletableFuture<KeyValue<Errors, byte[]>> resultFuture = new CompletableFuture<>();
         handleSyncGroup(
             groupId,
             generation,
             memberId,
+            groupInstanceId,
             groupAssignment,
             (assignment, errors) -> resultFuture.complete(
                 new KeyValue<>(errors, assignment))
@@ -440,6 +514,15 @@ public class GroupCoordinator {
                                 String memberId,
                                 Map<String, byte[]> groupAssignment,
                                 BiConsumer<byte[], Errors> responseCallback) {
+        handleSyncGroup(groupId, generation, memberId, Optional.empty(), groupAssignment, responseCallback);
+    }
+
+    public void handleSyncGroup(String groupId,
+                                int generation,
+                                String memberId,
+                                Optional<String> groupInstanceId,
+                                Map<String, byte[]> groupAssignment,
+                                BiConsumer<byte[], Errors> responseCallback) {
         Optional<Errors> errorsOpt = validateGroupStatus(groupId, ApiKeys.SYNC_GROUP);
         if (errorsOpt.isPresent()) {
             Errors error = errorsOpt.get();
@@ -459,6 +542,7 @@ public class GroupCoordinator {
                     groupOpt.get(),
                     generation,
                     memberId,
+                    groupInstanceId,
                     groupAssignment,
                     responseCallback
                 );
@@ -471,10 +555,13 @@ public class GroupCoordinator {
     private void doSyncGroup(GroupMetadata group,
                              int generationId,
                              String memberId,
+                             Optional<String> groupInstanceId,
                              final Map<String, byte[]> groupAssignment,
                              BiConsumer<byte[], Errors> responseCallback) {
         group.inLock(() -> {
-            if (!group.has(memberId)) {
+            if (group.isStaticMemberFenced(memberId, groupInstanceId)) {
+                responseCallback.accept(new byte[0], Errors.FENCED_INSTANCE_ID);
+            } else if (!group.has(memberId)) {
                 responseCallback.accept(new byte[0], Errors.UNKNOWN_MEMBER_ID);
             } else if (generationId != group.generationId()) {
                 responseCallback.accept(new byte[0], Errors.ILLEGAL_GENERATION);
@@ -546,12 +633,44 @@ public class GroupCoordinator {
     public CompletableFuture<Errors> handleLeaveGroup(
         String groupId,
         Set<String> members
+    ) {
+        return handleLeaveGroup(groupId, members.stream()
+            .map(memberId -> new MemberIdentity().setMemberId(memberId))
+            .collect(Collectors.toList()));
+    }
+
+    /**
+     * Remove the leaving members from the group.
+     *
+     * <p>A static member can be removed by its group instance id with an unknown member id (KIP-345), in which case
+     * the member id is looked up by the group instance id.
+     */
+    public CompletableFuture<Errors> handleLeaveGroup(
+        String groupId,
+        List<MemberIdentity> leavingMembers
     ) {
         return validateGroupStatus(groupId, ApiKeys.LEAVE_GROUP).map(CompletableFuture::completedFuture
         ).orElseGet(() -> groupManager.getGroup(groupId).map(group -> group.inLock(() -> {
             if (group.is(Dead)) {
                 return CompletableFuture.completedFuture(Errors.COORDINATOR_NOT_AVAILABLE);
-            } else if (!members.stream().allMatch(group::has)) {
+            }
+            Set<String> members = new HashSet<>();
+            for (MemberIdentity leavingMember : leavingMembers) {
+                String memberId = leavingMember.memberId();
+                String groupInstanceId = leavingMember.groupInstanceId();
+                if (groupInstanceId != null) {
+                    if (!group.hasStaticMember(groupInstanceId)) {
+                        return CompletableFuture.completedFuture(Errors.UNKNOWN_MEMBER_ID);
+                    }
+                    if (!JoinGroupRequest.UNKNOWN_MEMBER_ID.equals(memberId)
+                            && group.isStaticMemberFenced(memberId, groupInstanceId)) {
+                        return CompletableFuture.completedFuture(Errors.FENCED_INSTANCE_ID);
+                    }
+                    memberId = group.getStaticMemberId(groupInstanceId);
+                }
+                members.add(memberId);
+            }
+            if (!members.stream().allMatch(group::has)) {
                 return CompletableFuture.completedFuture(Errors.UNKNOWN_MEMBER_ID);
             } else {
                 for (String memberId : members) {
@@ -639,6 +758,13 @@ public class GroupCoordinator {
     public CompletableFuture<Errors> handleHeartbeat(String groupId,
                                                      String memberId,
                                                      int generationId) {
+        return handleHeartbeat(groupId, memberId, Optional.empty(), generationId);
+    }
+
+    public CompletableFuture<Errors> handleHeartbeat(String groupId,
+                                                     String memberId,
+                                                     Optional<String> groupInstanceId,
+                                                     int generationId) {
         return validateGroupStatus(groupId, ApiKeys.HEARTBEAT).map(error -> {
             if (error == Errors.COORDINATOR_LOAD_IN_PROGRESS) {
                 // the group is still loading, so respond just blindly
@@ -648,6 +774,9 @@ public class GroupCoordinator {
             }
         }).orElseGet(() -> groupManager.getGroup(groupId).map(group ->
             group.inLock(() -> {
+                if (group.not(Dead) && group.isStaticMemberFenced(memberId, groupInstanceId)) {
+                    return CompletableFuture.completedFuture(Errors.FENCED_INSTANCE_ID);
+                }
                 switch(group.currentState()) {
                     case Dead:
                         // if the group is marked as dead, it means some other thread has just removed the group
@@ -717,6 +846,7 @@ public class GroupCoordinator {
             return doCommitOffsets(
                 group,
                 NoMemberId,
+                Optional.empty(),
                 NoGeneration,
                 producerId,
                 producerEpoch,
@@ -730,6 +860,16 @@ public class GroupCoordinator {
         String memberId,
         int generationId,
         Map<TopicPartition, OffsetAndMetadata> offsetMetadata
+    ) {
+        return handleCommitOffsets(groupId, memberId, Optional.empty(), generationId, offsetMetadata);
+    }
+
+    public CompletableFuture<Map<TopicPartition, Errors>> handleCommitOffsets(
+        String groupId,
+        String memberId,
+        Optional<String> groupInstanceId,
+        int generationId,
+        Map<TopicPartition, OffsetAndMetadata> offsetMetadata
     ) {
         return validateGroupStatus(groupId, ApiKeys.OFFSET_COMMIT)
             .map(error ->
@@ -742,15 +882,15 @@ public class GroupCoordinator {
             ).orElseGet(() -> groupManager.getGroup(groupId)
                 .map(group ->
                     doCommitOffsets(
-                        group, memberId, generationId, NO_PRODUCER_ID, NO_PRODUCER_EPOCH,
+                        group, memberId, groupInstanceId, generationId, NO_PRODUCER_ID, NO_PRODUCER_EPOCH,
                         offsetMetadata
                     )
                 ).orElseGet(() -> {
                     if (generationId < 0) {
                         // the group is not relying on Kafka for group management, so allow the commit
                         GroupMetadata group = groupManager.addGroup(new GroupMetadata(groupId, Empty));
-                        return doCommitOffsets(group, memberId, generationId, NO_PRODUCER_ID, NO_PRODUCER_EPOCH,
-                            offsetMetadata);
+                        return doCommitOffsets(group, memberId, groupInstanceId, generationId,
+                            NO_PRODUCER_ID, NO_PRODUCER_EPOCH, offsetMetadata);
                     } else {
                         return CompletableFuture.completedFuture(
                             CoreUtils.mapValue(
@@ -778,6 +918,7 @@ public class GroupCoordinator {
     private CompletableFuture<Map<TopicPartition, Errors>> doCommitOffsets(
         GroupMetadata group,
         String memberId,
+        Optional<String> groupInstanceId,
         int generationId,
         long producerId,
         short producerEpoch,
@@ -793,6 +934,10 @@ public class GroupCoordinator {
                 // Also, for transactional offset commits we don't need to validate group membership
                 // and the generation.
                 return groupManager.storeOffsets(group, memberId, offsetMetadata, producerId, producerEpoch);
+            } else if (group.isStaticMemberFenced(memberId, groupInstanceId)) {
+                return CompletableFuture.completedFuture(
+                    CoreUtils.mapValue(offsetMetadata, ignored ->
+                        Errors.FENCED_INSTANCE_ID));
             } else if (group.is(CompletingRebalance)) {
                 return CompletableFuture.completedFuture(
                     CoreUtils.mapValue(offsetMetadata, ignored ->
@@ -1013,24 +1158,38 @@ public class GroupCoordinator {
     }
 
     /**
-     * Complete existing DelayedHeartbeats for the given member and schedule the next one.
+     * Record a heartbeat of the given member and make sure its session expiration is scheduled.
+     *
+     * <p>A heartbeat only moves the member's deadline forward. At most one {@link DelayedHeartbeat} is scheduled for
+     * a member, when it expires, it's re-armed for the latest deadline if the member has sent heartbeats since. If the
+     * member has rejoined with a shorter session timeout, the scheduled one would expire too late, so it's cancelled
+     * and scheduled again for the new deadline.
      */
     private void completeAndScheduleNextHeartbeatExpiration(GroupMetadata group, MemberMetadata member) {
-        // complete current heartbeat expectation
         member.latestHeartbeat(time.milliseconds());
-        MemberKey memberKey = new MemberKey(member.groupId(), member.memberId());
-        heartbeatPurgatory.checkAndComplete(memberKey);
+        final DelayedHeartbeat heartbeatExpiration = member.heartbeatExpiration();
+        if (heartbeatExpiration != null
+                && heartbeatExpiration.heartbeatDeadline() > member.latestHeartbeat() + member.sessionTimeoutMs()) {
+            member.heartbeatExpiration(null);
+            // It's only completed, the member is checked by the new one
+            heartbeatExpiration.forceComplete();
+        }
+        if (!member.heartbeatExpirationScheduled()) {
+            scheduleHeartbeatExpiration(group, member);
+        }
+    }
 
-        // reschedule the next heartbeat expiration deadline
-        long newHeartbeatDeadline = member.latestHeartbeat() + member.sessionTimeoutMs();
+    private void scheduleHeartbeatExpiration(GroupMetadata group, MemberMetadata member) {
+        long heartbeatDeadline = member.latestHeartbeat() + member.sessionTimeoutMs();
         DelayedHeartbeat delayedHeartbeat = new DelayedHeartbeat(
             this,
             group,
             member,
-            newHeartbeatDeadline,
-            member.sessionTimeoutMs());
+            heartbeatDeadline,
+            Math.max(heartbeatDeadline - time.milliseconds(), 0));
+        member.heartbeatExpiration(delayedHeartbeat);
         heartbeatPurgatory.tryCompleteElseWatch(
-            delayedHeartbeat, Lists.newArrayList(memberKey));
+            delayedHeartbeat, Lists.newArrayList(new MemberKey(member.groupId(), member.memberId())));
     }
 
     private void removeHeartbeatForLeavingMember(MemberMetadata member) {
@@ -1042,6 +1201,7 @@ public class GroupCoordinator {
     private CompletableFuture<JoinGroupResult> addMemberAndRebalance(
         int rebalanceTimeoutMs,
         int sessionTimeoutMs,
+        Optional<String> groupInstanceId,
         String clientId,
         String clientHost,
         String protocolType,
@@ -1058,6 +1218,7 @@ public class GroupCoordinator {
             sessionTimeoutMs,
             protocolType,
             protocols);
+        member.groupInstanceId(groupInstanceId);
         CompletableFuture<JoinGroupResult> joinFuture = new CompletableFuture<>();
         member.awaitingJoinCallback(joinFuture);
         // update the newMemberAdded flag to indicate that the join group can be further delayed
@@ -1073,15 +1234,76 @@ public class GroupCoordinator {
     private CompletableFuture<JoinGroupResult> updateMemberAndRebalance(
         GroupMetadata group,
         MemberMetadata member,
+        int rebalanceTimeoutMs,
+        int sessionTimeoutMs,
         Map<String, byte[]> protocols
     ) {
         CompletableFuture<JoinGroupResult> resultFuture = new CompletableFuture<>();
+        // the heartbeat expiration is checked against the new session timeout once the join completes
+        member.rebalanceTimeoutMs(rebalanceTimeoutMs);
+        member.sessionTimeoutMs(sessionTimeoutMs);
         member.supportedProtocols(protocols);
         member.awaitingJoinCallback(resultFuture);
         maybePrepareRebalance(group);
         return resultFuture;
     }
 
+    private CompletableFuture<JoinGroupResult> updateStaticMemberAndRebalance(
+        GroupMetadata group,
+        String groupInstanceId,
+        String clientId,
+        String clientHost,
+        int rebalanceTimeoutMs,
+        int sessionTimeoutMs,
+        Map<String, byte[]> protocols
+    ) {
+        String oldMemberId = group.getStaticMemberId(groupInstanceId);
+        String newMemberId = clientId + "-" + group.generateMemberIdSuffix();
+        String currentLeader = group.leaderOrNull();
+
+        // complete the heartbeat of the old member id, so that it won't expire the new member
+        MemberMetadata oldMember = group.get(oldMemberId);
+        removeHeartbeatForLeavingMember(oldMember);
+        MemberMetadata member = group.replaceStaticMember(
+            groupInstanceId, newMemberId, clientId, clientHost, rebalanceTimeoutMs, sessionTimeoutMs);
+        log.info("Static member {} of group {} rejoined, replacing its member id {} with {}",
+            groupInstanceId, group.groupId(), oldMemberId, newMemberId);
+        completeAndScheduleNextHeartbeatExpiration(group, member);
+
+        if (!group.is(Stable) || !member.matches(protocols)) {
+            return updateMemberAndRebalance(group, member, rebalanceTimeoutMs, sessionTimeoutMs, protocols);
+        }
+
+        // the group is stable and the member's metadata doesn't change, so the assignment stays the same. We only
+        // need to persist the new member id and let the member sync the current generation. The current leader is
+        // returned so that a rejoining leader doesn't compute a new assignment.
+        Map<String, byte[]> assignment = group.allMemberMetadata().stream()
+            .collect(Collectors.toMap(MemberMetadata::memberId, MemberMetadata::assignment));
+        return groupManager.storeGroup(group, assignment).thenApply(error -> group.inLock(() -> {
+            if (error == Errors.NONE) {
+                return new JoinGroupResult(
+                    Collections.emptyMap(),
+                    newMemberId,
+                    group.generationId(),
+                    group.protocolOrNull(),
+                    group.protocolTypeOrNull(),
+                    currentLeader,
+                    Errors.NONE);
+            }
+            log.warn("Failed to persist member id {} of static member {} in group {}: {}",
+                newMemberId, groupInstanceId, group.groupId(), error.message());
+            if (newMemberId.equals(group.getStaticMemberId(groupInstanceId))) {
+                // revert the replacement, the member will retry with an unknown member id
+                removeHeartbeatForLeavingMember(group.get(newMemberId));
+                MemberMetadata revertedMember = group.replaceStaticMember(groupInstanceId, oldMemberId,
+                    oldMember.clientId(), oldMember.clientHost(),
+                    oldMember.rebalanceTimeoutMs(), oldMember.sessionTimeoutMs());
+                completeAndScheduleNextHeartbeatExpiration(group, revertedMember);
+            }
+            return joinError(JoinGroupRequest.UNKNOWN_MEMBER_ID, error);
+        }));
+    }
+
     private void maybePrepareRebalance(GroupMetadata group) {
         group.inLock(() -> {
             if (group.canRebalance()) {
@@ -1159,14 +1381,23 @@ public class GroupCoordinator {
 
     void onCompleteJoin(GroupMetadata group) {
         group.inLock(() -> {
-            // remove any members who haven't joined the group yet
-            group.notYetRejoinedMembers().forEach(failedMember -> {
+            // remove any dynamic members who haven't joined the group yet, the static members are only removed when
+            // their sessions time out
+            group.notYetRejoinedMembers().stream().filter(member -> !member.isStaticMember()).forEach(failedMember -> {
                 removeHeartbeatForLeavingMember(failedMember);
                 group.remove(failedMember.memberId());
                 // TODO: cut the socket connection to the client
             });
 
             if (!group.is(Dead)) {
+                if (!group.maybeElectNewJoinedLeader() && !group.allMembers().isEmpty()) {
+                    // only the static members that haven't rejoined are left, wait for them to rejoin or expire
+                    log.error("Group {} could not complete rebalance because no members rejoined", group.groupId());
+                    joinPurgatory.tryCompleteElseWatch(
+                        new DelayedJoin(this, group, group.rebalanceTimeoutMs()),
+                        Lists.newArrayList(new GroupKey(group.groupId())));
+                    return null;
+                }
                 group.initNextGeneration();
                 if (group.is(Empty)) {
                     log.info("Group {} with generation {} is now empty {}-{}",
@@ -1196,7 +1427,10 @@ public class GroupCoordinator {
 
                     // trigger the awaiting join group response callback for all the members after rebalancing
                     for (MemberMetadata member : group.allMemberMetadata()) {
-                        Objects.requireNonNull(member.awaitingJoinCallback());
+                        if (member.awaitingJoinCallback() == null) {
+                            // a static member that hasn't rejoined
+                            continue;
+                        }
                         Map<String, byte[]> members;
                         if (group.isLeader(member.memberId())) {
                             members = group.currentMemberMetadata();
@@ -1227,8 +1461,9 @@ public class GroupCoordinator {
                                  long heartbeatDeadline,
                                  Supplier<Boolean> forceComplete) {
         return group.inLock(() -> {
-            if (shouldKeepMemberAlive(member, heartbeatDeadline)
-                || member.isLeaving()) {
+            // The heartbeats of a live member don't complete the operation, it's checked when the deadline is reached
+            if (member.isLeaving() || group.is(Dead)) {
+                member.heartbeatExpiration(null);
                 return forceComplete.get();
             } else {
                 return false;
@@ -1240,10 +1475,16 @@ public class GroupCoordinator {
                            MemberMetadata member,
                            long heartbeatDeadline) {
         group.inLock(() -> {
+            member.heartbeatExpiration(null);
             if (!shouldKeepMemberAlive(member, heartbeatDeadline)) {
                 log.info("Member {} in group {} has failed, removing it from the group",
                     member.memberId(), group.groupId());
                 removeMemberAndUpdateGroup(group, member);
+            } else if (member.awaitingJoinCallback() == null && member.awaitingSyncCallback() == null
+                    && !member.isLeaving() && group.not(Dead) && group.get(member.memberId()) == member) {
+                // the member has sent heartbeats after the expiration was scheduled, re-arm it with the latest
+                // deadline. Otherwise, the expiration will be scheduled again once the join or sync completes.
+                scheduleHeartbeatExpiration(group, member);
             }
             return null;
         });
@@ -53,6 +53,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.protocol.Errors;
 import org.apache.pulsar.common.schema.KeyValue;
 
 /**
@@ -190,8 +191,10 @@ public class GroupMetadata {
     // state management
     private final Map<String, MemberMetadata> members =
         Collections.synchronizedMap(new HashMap<>());
-    private final Map<TopicPartition, CommitRecordMetadataAndOffset> offsets =
+    // map of group.instance.id to the member id of the static members
+    private final Map<String, String> staticMembers =
         Collections.synchronizedMap(new HashMap<>());
+    private final OffsetTable offsets = new OffsetTable();
     private final Map<TopicPartition, OffsetAndMetadata> pendingOffsetCommits =
         Collections.synchronizedMap(new HashMap<>());
     private final Map<Long, Map<TopicPartition, CommitRecordMetadataAndOffset>> pendingTransactionalOffsetCommits =
@@ -263,6 +266,90 @@ public class GroupMetadata {
         return members.get(memberId);
     }
 
+    public boolean hasStaticMember(String groupInstanceId) {
+        return groupInstanceId != null && staticMembers.containsKey(groupInstanceId);
+    }
+
+    public String getStaticMemberId(String groupInstanceId) {
+        return staticMembers.get(groupInstanceId);
+    }
+
+    /**
+     * Check if the member with the given member id is fenced by another member with the same group instance id.
+     */
+    public boolean isStaticMemberFenced(String memberId, String groupInstanceId) {
+        return hasStaticMember(groupInstanceId) && !getStaticMemberId(groupInstanceId).equals(memberId);
+    }
+
+    public boolean isStaticMemberFenced(String memberId, Optional<String> groupInstanceId) {
+        return groupInstanceId.isPresent() && isStaticMemberFenced(memberId, groupInstanceId.get());
+    }
+
+    /**
+     * Replace the static member registered with the given group instance id by a member with the new member id.
+     *
+     * <p>The new member keeps the assignment and the leadership of the old member, while the client info and the
+     * timeouts are taken from the rejoining member. The pending callbacks of the old member are completed with
+     * {@link Errors#FENCED_INSTANCE_ID}.
+     *
+     * @return the new member
+     */
+    public MemberMetadata replaceStaticMember(String groupInstanceId,
+                                              String newMemberId,
+                                              String clientId,
+                                              String clientHost,
+                                              int rebalanceTimeoutMs,
+                                              int sessionTimeoutMs) {
+        String oldMemberId = staticMembers.get(groupInstanceId);
+        checkArgument(oldMemberId != null, "Cannot replace non-existing static member %s", groupInstanceId);
+        MemberMetadata oldMember = members.remove(oldMemberId);
+        checkArgument(oldMember != null, "Cannot replace non-existing member %s", oldMemberId);
+
+        if (oldMember.awaitingJoinCallback() != null) {
+            oldMember.awaitingJoinCallback().complete(new JoinGroupResult(
+                Collections.emptyMap(),
+                oldMemberId,
+                GroupCoordinator.NoGeneration,
+                GroupCoordinator.NoProtocol,
+                GroupCoordinator.NoProtocolType,
+                GroupCoordinator.NoLeader,
+                Errors.FENCED_INSTANCE_ID));
+            oldMember.awaitingJoinCallback(null);
+        }
+        if (oldMember.awaitingSyncCallback() != null) {
+            oldMember.awaitingSyncCallback().accept(new byte[0], Errors.FENCED_INSTANCE_ID);
+            oldMember.awaitingSyncCallback(null);
+        }
+
+        MemberMetadata newMember = oldMember.copyWithMemberId(
+            newMemberId, clientId, clientHost, rebalanceTimeoutMs, sessionTimeoutMs);
+        members.put(newMemberId, newMember);
+        staticMembers.put(groupInstanceId, newMemberId);
+        if (isLeader(oldMemberId)) {
+            leaderId = Optional.of(newMemberId);
+        }
+        return newMember;
+    }
+
+    /**
+     * Make sure the leader is one of the members that have rejoined, because the static members are not removed
+     * when they don't rejoin in time.
+     *
+     * @return false if no member has rejoined
+     */
+    public boolean maybeElectNewJoinedLeader() {
+        MemberMetadata leader = leaderId.map(members::get).orElse(null);
+        if (leader != null && leader.awaitingJoinCallback() != null) {
+            return true;
+        }
+        Optional<String> newLeaderId = members.values().stream()
+            .filter(member -> member.awaitingJoinCallback() != null)
+            .map(MemberMetadata::memberId)
+            .findFirst();
+        newLeaderId.ifPresent(memberId -> leaderId = Optional.of(memberId));
+        return newLeaderId.isPresent();
+    }
+
     public boolean isLeader(String memberId) {
         return Objects.equals(leaderId.orElse(null), memberId);
     }
@@ -298,7 +385,7 @@ public class GroupMetadata {
     }
 
     public void initNextGeneration() {
-        checkArgument(notYetRejoinedMembers().isEmpty());
+        checkArgument(notYetRejoinedMembers().stream().allMatch(MemberMetadata::isStaticMember));
         if (!members.isEmpty()) {
             generationId += 1;
             protocol = Optional.ofNullable(selectProtocol());
@@ -324,10 +411,14 @@ public class GroupMetadata {
         }
 
         members.put(member.memberId(), member);
+        member.groupInstanceId().ifPresent(groupInstanceId -> staticMembers.put(groupInstanceId, member.memberId()));
     }
 
     public void remove(String memberId) {
-        members.remove(memberId);
+        MemberMetadata member = members.remove(memberId);
+        if (member != null) {
+            member.groupInstanceId().ifPresent(groupInstanceId -> staticMembers.remove(groupInstanceId, memberId));
+        }
         if (isLeader(memberId)) {
             if (members.isEmpty()) {
                 leaderId = Optional.empty();
@@ -439,8 +530,10 @@ public class GroupMetadata {
                 throw new IllegalStateException("Cannot complete offset commit write without providing the metadata"
                     + " of the record in the log.");
             }
+            // Commits accumulated into the same entry share the same position and are completed in the order
+            // they were appended, so only skip the commit if it's strictly older than the current one.
             if (!offsets.containsKey(topicPartition)
-                || offsets.get(topicPartition).olderThan(offsetWithCommitRecordMetadata)) {
+                || !offsetWithCommitRecordMetadata.olderThan(offsets.get(topicPartition))) {
                 offsets.put(topicPartition, offsetWithCommitRecordMetadata);
             }
         }
@@ -615,55 +708,46 @@ public class GroupMetadata {
                                 topicPartition -> topics.contains(topicPartition.topic()))
                         .collect(Collectors.toList())));
 
-        topicPartitions.addAll(offsets.keySet().stream().filter(
-                topicPartition -> topics.contains(topicPartition.topic())
-        ).collect(Collectors.toList()));
+        topicPartitions.addAll(offsets.partitionsOf(topics));
         return topicPartitions;
     }
 
     public Map<TopicPartition, OffsetAndMetadata> removeExpiredOffsets(long startMs) {
-        Map<TopicPartition, OffsetAndMetadata> expiredOffsets = offsets.entrySet().stream()
-            .filter(e ->
-                e.getValue().offsetAndMetadata().expireTimestamp() < startMs
-                    && !pendingOffsetCommits.containsKey(e.getKey()))
-            .map(e -> new KeyValue<>(
-                e.getKey(),
-                e.getValue().offsetAndMetadata()
-            ))
-            .collect(Collectors.toMap(
-                    KeyValue::getKey,
-                    KeyValue::getValue
-            ));
+        Map<TopicPartition, OffsetAndMetadata> expiredOffsets = new HashMap<>();
+        offsets.forEach((topicPartition, commitRecordMetadataAndOffset) -> {
+            if (commitRecordMetadataAndOffset.offsetAndMetadata().expireTimestamp() < startMs
+                    && !pendingOffsetCommits.containsKey(topicPartition)) {
+                expiredOffsets.put(topicPartition, commitRecordMetadataAndOffset.offsetAndMetadata());
+            }
+        });
 
         expiredOffsets.keySet().forEach(offsets::remove);
         return expiredOffsets;
     }
 
     public Map<TopicPartition, OffsetAndMetadata> allOffsets() {
-        return offsets.entrySet().stream().collect(Collectors.toMap(
-                Entry::getKey,
-            e -> e.getValue().offsetAndMetadata()
-        ));
+        Map<TopicPartition, OffsetAndMetadata> allOffsets = new HashMap<>();
+        offsets.forEach((topicPartition, commitRecordMetadataAndOffset) ->
+                allOffsets.put(topicPartition, commitRecordMetadataAndOffset.offsetAndMetadata()));
+        return allOffsets;
     }
 
     public Optional<OffsetAndMetadata> offset(TopicPartition topicPartition, String namespacePrefix) {
-        return Optional
-                .ofNullable(offsets.computeIfAbsent(
-                        topicPartition,
-                        tp -> {
-                            // Some test cases may use the original topic name to read the offset
-                            // directly from this method, so we need to ensure that all the topics
-                            // has chances to be converted when it is missing
-                            try {
-                                return offsets.get(new TopicPartition(
-                                        new KopTopic(tp.topic(), namespacePrefix).getFullName(), tp.partition()));
-                            } catch (KoPTopicException e) {
-                                // In theory, this place will not be executed
-                                log.warn("Invalid topic name: {}", tp.topic(), e);
-                                return null;
-                            }
-                        }))
-                .map(e -> e.offsetAndMetadata);
+        CommitRecordMetadataAndOffset commitRecordMetadataAndOffset = offsets.get(topicPartition);
+        if (commitRecordMetadataAndOffset == null) {
+            // Some test cases may use the original topic name to read the offset
+            // directly from this method, so we need to ensure that all the topics
+            // has chances to be converted when it is missing
+            try {
+                commitRecordMetadataAndOffset = offsets.get(new TopicPartition(
+                        new KopTopic(topicPartition.topic(), namespacePrefix).getFullName(),
+                        topicPartition.partition()));
+            } catch (KoPTopicException e) {
+                // In theory, this place will not be executed
+                log.warn("Invalid topic name: {}", topicPartition.topic(), e);
+            }
+        }
+        return Optional.ofNullable(commitRecordMetadataAndOffset).map(e -> e.offsetAndMetadata);
     }
 
     @VisibleForTesting
@@ -33,6 +33,7 @@ import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.KafkaException;
@@ -58,6 +59,12 @@ import org.apache.pulsar.common.schema.KeyValue;
  *
  * <p>key version 2:       group metadata
  *     -> value version 0:       [protocol_type, generation, protocol, leader, members]
+ *     -> value version 1:       [protocol_type, generation, protocol, leader, members(+rebalance_timeout)]
+ *     -> value version 2:       [protocol_type, generation, protocol, leader, current_state_timestamp, members]
+ *     -> value version 3:       [protocol_type, generation, protocol, leader, current_state_timestamp,
+ *                                members(+group_instance_id)]
+ *
+ * <p>The group metadata value versions follow the layouts of Apache Kafka, so the records can be read by Kafka tools.
  */
 @Slf4j
 public final class GroupMetadataConstants {
@@ -100,6 +107,7 @@ public final class GroupMetadataConstants {
     static final BoundField GROUP_KEY_GROUP_FIELD = GROUP_METADATA_KEY_SCHEMA.get("group");
 
     static final String MEMBER_ID_KEY = "member_id";
+    static final String GROUP_INSTANCE_ID_KEY = "group_instance_id";
     static final String CLIENT_ID_KEY = "client_id";
     static final String CLIENT_HOST_KEY = "client_host";
     static final String REBALANCE_TIMEOUT_KEY = "rebalance_timeout";
@@ -124,10 +132,23 @@ public final class GroupMetadataConstants {
         new Field(SUBSCRIPTION_KEY, BYTES),
         new Field(ASSIGNMENT_KEY, BYTES));
 
+    static final Schema MEMBER_METADATA_V2 = MEMBER_METADATA_V1;
+
+    static final Schema MEMBER_METADATA_V3 = new Schema(
+        new Field(MEMBER_ID_KEY, STRING),
+        new Field(GROUP_INSTANCE_ID_KEY, NULLABLE_STRING),
+        new Field(CLIENT_ID_KEY, STRING),
+        new Field(CLIENT_HOST_KEY, STRING),
+        new Field(REBALANCE_TIMEOUT_KEY, INT32),
+        new Field(SESSION_TIMEOUT_KEY, INT32),
+        new Field(SUBSCRIPTION_KEY, BYTES),
+        new Field(ASSIGNMENT_KEY, BYTES));
+
     static final String PROTOCOL_TYPE_KEY = "protocol_type";
     static final String GENERATION_KEY = "generation";
     static final String PROTOCOL_KEY = "protocol";
     static final String LEADER_KEY = "leader";
+    static final String CURRENT_STATE_TIMESTAMP_KEY = "current_state_timestamp";
     static final String MEMBERS_KEY = "members";
 
     static final Schema GROUP_METADATA_VALUE_SCHEMA_V0 = new Schema(
@@ -144,6 +165,22 @@ public final class GroupMetadataConstants {
         new Field(LEADER_KEY, NULLABLE_STRING),
         new Field(MEMBERS_KEY, new ArrayOf(MEMBER_METADATA_V1)));
 
+    static final Schema GROUP_METADATA_VALUE_SCHEMA_V2 = new Schema(
+        new Field(PROTOCOL_TYPE_KEY, STRING),
+        new Field(GENERATION_KEY, INT32),
+        new Field(PROTOCOL_KEY, NULLABLE_STRING),
+        new Field(LEADER_KEY, NULLABLE_STRING),
+        new Field(CURRENT_STATE_TIMESTAMP_KEY, INT64),
+        new Field(MEMBERS_KEY, new ArrayOf(MEMBER_METADATA_V2)));
+
+    static final Schema GROUP_METADATA_VALUE_SCHEMA_V3 = new Schema(
+        new Field(PROTOCOL_TYPE_KEY, STRING),
+        new Field(GENERATION_KEY, INT32),
+        new Field(PROTOCOL_KEY, NULLABLE_STRING),
+        new Field(LEADER_KEY, NULLABLE_STRING),
+        new Field(CURRENT_STATE_TIMESTAMP_KEY, INT64),
+        new Field(MEMBERS_KEY, new ArrayOf(MEMBER_METADATA_V3)));
+
     // map of versions to key schemas as data types
     static final Map<Integer, Schema> MESSAGE_TYPE_SCHEMAS = asMap(
         kv(0, OFFSET_COMMIT_KEY_SCHEMA),
@@ -161,9 +198,15 @@ public final class GroupMetadataConstants {
     // map of version of group metadata value schemas
     static final Map<Integer, Schema> GROUP_VALUE_SCHEMAS = asMap(
         kv(0, GROUP_METADATA_VALUE_SCHEMA_V0),
-        kv(1, GROUP_METADATA_VALUE_SCHEMA_V1)
+        kv(1, GROUP_METADATA_VALUE_SCHEMA_V1),
+        kv(2, GROUP_METADATA_VALUE_SCHEMA_V2),
+        kv(3, GROUP_METADATA_VALUE_SCHEMA_V3)
     );
-    static final short CURRENT_GROUP_VALUE_SCHEMA_VERSION = 1;
+    static final short CURRENT_GROUP_VALUE_SCHEMA_VERSION = 3;
+    // the version of group metadata value schemas that is used for groups without static members
+    static final short GROUP_VALUE_SCHEMA_VERSION_WITHOUT_STATIC_MEMBERS = 1;
+    // the current state timestamp isn't tracked, it's written as -1 like Kafka does when it's unknown
+    static final long UNKNOWN_CURRENT_STATE_TIMESTAMP = -1L;
 
     static final Schema CURRENT_OFFSET_KEY_SCHEMA = schemaForKey(CURRENT_OFFSET_KEY_SCHEMA_VERSION);
     static final Schema CURRENT_GROUP_KEY_SCHEMA = schemaForKey(CURRENT_GROUP_KEY_SCHEMA_VERSION);
@@ -276,11 +319,27 @@ public final class GroupMetadataConstants {
         value.set(OFFSET_VALUE_COMMIT_TIMESTAMP_FIELD_V1, offsetAndMetadata.commitTimestamp());
         value.set(OFFSET_VALUE_EXPIRE_TIMESTAMP_FIELD_V1, offsetAndMetadata.expireTimestamp());
         ByteBuffer byteBuffer = ByteBuffer.allocate(2 /* version */ + value.sizeOf());
-        byteBuffer.putShort(CURRENT_GROUP_VALUE_SCHEMA_VERSION);
+        byteBuffer.putShort(CURRENT_OFFSET_VALUE_SCHEMA_VERSION);
         value.writeTo(byteBuffer);
         return byteBuffer.array();
     }
 
+    /**
+     * Get the version of the value message to persist the given group with.
+     *
+     * <p>The version 3 is only used when the group has static members, so a group without static members can still
+     * be loaded by a broker that doesn't know the version 3 during a rolling upgrade or a rollback.
+     *
+     * @param groupMetadata current group metadata
+     * @return the version of the value message to use
+     */
+    static short groupMetadataValueVersion(GroupMetadata groupMetadata) {
+        if (groupMetadata.allMemberMetadata().stream().anyMatch(MemberMetadata::isStaticMember)) {
+            return CURRENT_GROUP_VALUE_SCHEMA_VERSION;
+        }
+        return GROUP_VALUE_SCHEMA_VERSION_WITHOUT_STATIC_MEMBERS;
+    }
+
 
     static byte[] groupMetadataValue(GroupMetadata groupMetadata,
                                      Map<String, byte[]> assignment) {
@@ -299,21 +358,22 @@ public final class GroupMetadataConstants {
     static byte[] groupMetadataValue(GroupMetadata groupMetadata,
                                      Map<String, byte[]> assignment,
                                      short version) {
-        Struct value;
-        if (version == 0) {
-            value = new Struct(GROUP_METADATA_VALUE_SCHEMA_V0);
-        } else {
-            value = new Struct(CURRENT_GROUP_VALUE_SCHEMA);
-        }
+        Struct value = new Struct(schemaForGroup(version));
 
         value.set(PROTOCOL_TYPE_KEY, groupMetadata.protocolType().orElse(""));
         value.set(GENERATION_KEY, groupMetadata.generationId());
         value.set(PROTOCOL_KEY, groupMetadata.protocolOrNull());
         value.set(LEADER_KEY, groupMetadata.leaderOrNull());
+        if (version >= 2) {
+            value.set(CURRENT_STATE_TIMESTAMP_KEY, UNKNOWN_CURRENT_STATE_TIMESTAMP);
+        }
 
         value.set(MEMBERS_KEY, groupMetadata.allMemberMetadata().stream().map(memberMetadata -> {
             Struct memberStruct = value.instance(MEMBERS_KEY);
             memberStruct.set(MEMBER_ID_KEY, memberMetadata.memberId());
+            if (version >= 3) {
+                memberStruct.set(GROUP_INSTANCE_ID_KEY, memberMetadata.groupInstanceId().orElse(null));
+            }
             memberStruct.set(CLIENT_ID_KEY, memberMetadata.clientId());
             memberStruct.set(CLIENT_HOST_KEY, memberMetadata.clientHost());
             memberStruct.set(SESSION_TIMEOUT_KEY, memberMetadata.sessionTimeoutMs());
@@ -416,7 +476,7 @@ public final class GroupMetadataConstants {
         Schema valueSchema = schemaForGroup(version);
         Struct value = valueSchema.read(buffer);
 
-        if (version == 0 || version == 1) {
+        if (version <= CURRENT_GROUP_VALUE_SCHEMA_VERSION) {
             int generationId = value.getInt(GENERATION_KEY);
             String protocolType = value.getString(PROTOCOL_TYPE_KEY);
             String protocol = value.getString(PROTOCOL_KEY);
@@ -434,6 +494,8 @@ public final class GroupMetadataConstants {
                 .map(memberMetadataObj -> {
                     Struct memberMetadata = (Struct) memberMetadataObj;
                     String memberId = memberMetadata.getString(MEMBER_ID_KEY);
+                    String groupInstanceId = (version >= 3)
+                        ? memberMetadata.getString(GROUP_INSTANCE_ID_KEY) : null;
                     String clientId = memberMetadata.getString(CLIENT_ID_KEY);
                     String clientHost = memberMetadata.getString(CLIENT_HOST_KEY);
                     int sessionTimeout = memberMetadata.getInt(SESSION_TIMEOUT_KEY);
@@ -457,7 +519,7 @@ public final class GroupMetadataConstants {
                         sessionTimeout,
                         protocolType,
                         protocols
-                    );
+                    ).groupInstanceId(Optional.ofNullable(groupInstanceId));
                 }).collect(Collectors.toList());
 
             return GroupMetadata.loadGroup(
@@ -13,9 +13,9 @@
  */
 package io.streamnative.pulsar.handlers.kop.coordinator.group;
 
-import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.CURRENT_GROUP_VALUE_SCHEMA_VERSION;
 import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.groupMetadataKey;
 import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.groupMetadataValue;
+import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.groupMetadataValueVersion;
 import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.offsetCommitKey;
 import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.offsetCommitValue;
 import static io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadataConstants.readGroupMessageValue;
@@ -328,7 +328,7 @@ public class GroupMetadataManager {
         long timestamp = time.milliseconds();
         byte[] key = groupMetadataKey(group.groupId());
         byte[] value = groupMetadataValue(
-            group, groupAssignment, CURRENT_GROUP_VALUE_SCHEMA_VERSION);
+            group, groupAssignment, groupMetadataValueVersion(group));
 
         // construct the record
         ByteBuffer buffer = ByteBuffer.allocate(AbstractRecords.estimateSizeInBytes(
@@ -675,8 +675,11 @@ public class GroupMetadataManager {
                     future.completeExceptionally(cause);
                     return;
                 }
-                log.info("Finished loading {} offsets and group metadata from {} in {} milliseconds",
-                        topicPartition, result.numMessages(), result.timeMs());
+                log.info("Finished loading {} offsets and group metadata from {} in {} milliseconds"
+                                + " ({} batches, {} messages/s, {} bytes/s)",
+                        result.numMessages(), topicPartition, result.timeMs(), result.numBatches(),
+                        String.format("%.1f", result.messagesPerSecond()),
+                        String.format("%.1f", result.bytesPerSecond()));
                 future.complete(null);
             }, scheduler);
             return future;
@@ -19,6 +19,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.MoreObjects.ToStringHelper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -27,7 +28,6 @@ import java.util.function.BiConsumer;
 import javax.annotation.concurrent.NotThreadSafe;
 import lombok.Data;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 import org.apache.kafka.common.protocol.Errors;
@@ -52,7 +52,6 @@ import org.apache.kafka.common.protocol.Errors;
  *                            is kept in metadata until the leader provides the group assignment
  *                            and the group transitions to stable
  */
-@RequiredArgsConstructor
 @NotThreadSafe
 @Accessors(fluent = true)
 @Getter
@@ -83,16 +82,73 @@ public class MemberMetadata {
     private final String groupId;
     private final String clientId;
     private final String clientHost;
-    private final int rebalanceTimeoutMs;
-    private final int sessionTimeoutMs;
+    // the timeouts can be updated by a rejoin of the member
+    private int rebalanceTimeoutMs;
+    private int sessionTimeoutMs;
     private final String protocolType;
     private final Map<String, byte[]> supportedProtocols;
 
+    // the group.instance.id of a static member, which is kept across the restarts of the member
+    private Optional<String> groupInstanceId = Optional.empty();
     private byte[] assignment = new byte[0];
     private CompletableFuture<JoinGroupResult> awaitingJoinCallback = null;
     private BiConsumer<byte[], Errors> awaitingSyncCallback = null;
-    private long latestHeartbeat = -1L;
+    private volatile long latestHeartbeat = -1L;
     private boolean isLeaving = false;
+    // the DelayedHeartbeat that is scheduled for this member, it's protected by the group lock
+    private DelayedHeartbeat heartbeatExpiration = null;
+
+    public MemberMetadata(String memberId,
+                          String groupId,
+                          String clientId,
+                          String clientHost,
+                          int rebalanceTimeoutMs,
+                          int sessionTimeoutMs,
+                          String protocolType,
+                          Map<String, byte[]> supportedProtocols) {
+        this.memberId = memberId;
+        this.groupId = groupId;
+        this.clientId = clientId;
+        this.clientHost = clientHost;
+        this.rebalanceTimeoutMs = rebalanceTimeoutMs;
+        this.sessionTimeoutMs = sessionTimeoutMs;
+        this.protocolType = protocolType;
+        this.supportedProtocols = supportedProtocols;
+    }
+
+    public boolean heartbeatExpirationScheduled() {
+        return heartbeatExpiration != null;
+    }
+
+    public boolean isStaticMember() {
+        return groupInstanceId.isPresent();
+    }
+
+    /**
+     * Create a copy of this member with a new member id, it's used when a static member rejoins with an unknown
+     * member id and takes over its previous member id.
+     *
+     * <p>The client info and the timeouts are taken from the rejoining member. The assignment is kept, while the
+     * callbacks and the heartbeat state are not copied.
+     */
+    public MemberMetadata copyWithMemberId(String newMemberId,
+                                           String newClientId,
+                                           String newClientHost,
+                                           int newRebalanceTimeoutMs,
+                                           int newSessionTimeoutMs) {
+        MemberMetadata member = new MemberMetadata(
+            newMemberId,
+            groupId,
+            newClientId,
+            newClientHost,
+            newRebalanceTimeoutMs,
+            newSessionTimeoutMs,
+            protocolType,
+            new HashMap<>(supportedProtocols));
+        member.groupInstanceId(groupInstanceId);
+        member.assignment(assignment);
+        return member;
+    }
 
     public Set<String> protocols() {
         return supportedProtocols.keySet();
@@ -162,6 +218,7 @@ public class MemberMetadata {
     public String toString() {
         ToStringHelper helper = MoreObjects.toStringHelper("MemberMetadata")
             .add("memberId", memberId)
+            .add("groupInstanceId", groupInstanceId.orElse(null))
             .add("clientId", clientId)
             .add("clientHost", clientHost)
             .add("sessionTimeoutMs", sessionTimeoutMs)
@@ -34,6 +34,10 @@ public class OffsetConfig {
     public static final String DefaultOffsetsTopicName = "public/__kafka/__consumer_offsets";
     public static final int DefaultOffsetsNumPartitions = KafkaServiceConfiguration.DefaultOffsetsTopicNumPartitions;
     public static final int DefaultOffsetCommitTimeoutMs = 5000;
+    public static final boolean DefaultOffsetCommitBatchingEnabled = true;
+    public static final long DefaultOffsetCommitBatchingMaxPublishDelayMicros = 1000L;
+    public static final int DefaultOffsetCommitBatchingMaxMessages = 1000;
+    public static final int DefaultOffsetCommitBatchingMaxBytes = 128 * 1024;
 
     @Default
     private String offsetsTopicName = DefaultOffsetsTopicName;
@@ -49,4 +53,12 @@ public class OffsetConfig {
     private int offsetsTopicNumPartitions = DefaultOffsetsNumPartitions;
     @Default
     private int offsetCommitTimeoutMs = DefaultOffsetCommitTimeoutMs;
+    @Default
+    private boolean offsetCommitBatchingEnabled = DefaultOffsetCommitBatchingEnabled;
+    @Default
+    private long offsetCommitBatchingMaxPublishDelayMicros = DefaultOffsetCommitBatchingMaxPublishDelayMicros;
+    @Default
+    private int offsetCommitBatchingMaxMessages = DefaultOffsetCommitBatchingMaxMessages;
+    @Default
+    private int offsetCommitBatchingMaxBytes = DefaultOffsetCommitBatchingMaxBytes;
 }
@@ -0,0 +1,275 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.coordinator.group;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadata.CommitRecordMetadataAndOffset;
+import io.streamnative.pulsar.handlers.kop.offset.OffsetAndMetadata;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * A memory-compact table of the committed offsets of a group.
+ *
+ * <p>Instead of keeping a {@link TopicPartition}, a {@link CommitRecordMetadataAndOffset}, an {@link Optional} of
+ * {@link PositionImpl} and an {@link OffsetAndMetadata} for each committed partition, the offsets of a topic are
+ * stored in a primitive long array, which is parallel to a sorted array of the committed partition ids. So the memory
+ * only depends on the number of committed partitions, not on the largest partition id, and it's given back when the
+ * partitions are removed. The topic names are interned so that all groups share the same instance and the metadata
+ * string is only stored if it's not empty. The objects are only materialized when they are read.
+ */
+class OffsetTable {
+
+    private static final Interner<String> TOPIC_INTERNER = Interners.newWeakInterner();
+
+    private static final int OFFSET = 0;
+    private static final int COMMIT_TIMESTAMP = 1;
+    private static final int EXPIRE_TIMESTAMP = 2;
+    private static final int LEDGER_ID = 3;
+    private static final int ENTRY_ID = 4;
+    private static final int NUM_FIELDS = 5;
+
+    private static final int[] EMPTY_PARTITIONS = new int[0];
+    private static final long[] EMPTY_VALUES = new long[0];
+    private static final long NO_POSITION = Long.MIN_VALUE;
+    // Distinguish the null metadata from the empty metadata, which is not stored
+    private static final Object NULL_METADATA = new Object();
+
+    private final Map<String, TopicOffsets> topics = new HashMap<>();
+    private int size = 0;
+
+    private static class TopicOffsets {
+
+        // The sorted ids of the committed partitions, only the first count elements are used
+        private int[] partitions = EMPTY_PARTITIONS;
+        private int count = 0;
+        // The fields of the i-th partition are at [i * NUM_FIELDS, (i + 1) * NUM_FIELDS)
+        private long[] values = EMPTY_VALUES;
+        // The metadata of the i-th partition, null if no partition has a non-empty metadata
+        private Object[] metadata = null;
+
+        /**
+         * Get the index of the partition if it's committed, otherwise (-(insertion point) - 1).
+         */
+        int indexOf(int partition) {
+            return Arrays.binarySearch(partitions, 0, count, partition);
+        }
+
+        /**
+         * Insert a partition at the given index and return the index.
+         */
+        int insert(int index, int partition) {
+            if (count == partitions.length) {
+                resize(count + Math.max(1, count >> 1));
+            }
+            System.arraycopy(partitions, index, partitions, index + 1, count - index);
+            System.arraycopy(values, index * NUM_FIELDS, values, (index + 1) * NUM_FIELDS,
+                    (count - index) * NUM_FIELDS);
+            if (metadata != null) {
+                System.arraycopy(metadata, index, metadata, index + 1, count - index);
+                metadata[index] = null;
+            }
+            partitions[index] = partition;
+            count++;
+            return index;
+        }
+
+        void remove(int index) {
+            System.arraycopy(partitions, index + 1, partitions, index, count - index - 1);
+            System.arraycopy(values, (index + 1) * NUM_FIELDS, values, index * NUM_FIELDS,
+                    (count - index - 1) * NUM_FIELDS);
+            if (metadata != null) {
+                System.arraycopy(metadata, index + 1, metadata, index, count - index - 1);
+                metadata[count - 1] = null;
+            }
+            count--;
+            // Give the memory back when most of the capacity is unused
+            if (count <= partitions.length / 4) {
+                resize(count * 2);
+            }
+        }
+
+        void setMetadata(int index, Object value) {
+            if (metadata == null) {
+                if (value == null) {
+                    return;
+                }
+                metadata = new Object[partitions.length];
+            }
+            metadata[index] = value;
+        }
+
+        Object getMetadata(int index) {
+            return (metadata != null) ? metadata[index] : null;
+        }
+
+        private void resize(int capacity) {
+            partitions = Arrays.copyOf(partitions, capacity);
+            values = Arrays.copyOf(values, capacity * NUM_FIELDS);
+            if (metadata != null) {
+                metadata = Arrays.copyOf(metadata, capacity);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    public synchronized boolean containsKey(TopicPartition topicPartition) {
+        final TopicOffsets topicOffsets = topics.get(topicPartition.topic());
+        return topicOffsets != null && topicOffsets.indexOf(topicPartition.partition()) >= 0;
+    }
+
+    public synchronized CommitRecordMetadataAndOffset get(TopicPartition topicPartition) {
+        final TopicOffsets topicOffsets = topics.get(topicPartition.topic());
+        if (topicOffsets == null) {
+            return null;
+        }
+        final int index = topicOffsets.indexOf(topicPartition.partition());
+        return (index >= 0) ? read(topicOffsets, index) : null;
+    }
+
+    public synchronized void put(TopicPartition topicPartition, CommitRecordMetadataAndOffset commitRecord) {
+        final int partition = topicPartition.partition();
+        if (partition < 0) {
+            throw new IllegalArgumentException("Invalid partition " + topicPartition);
+        }
+        final TopicOffsets topicOffsets = topics.computeIfAbsent(
+                TOPIC_INTERNER.intern(topicPartition.topic()), __ -> new TopicOffsets());
+        int index = topicOffsets.indexOf(partition);
+        if (index < 0) {
+            index = topicOffsets.insert(-index - 1, partition);
+            size++;
+        }
+
+        final OffsetAndMetadata offsetAndMetadata = commitRecord.offsetAndMetadata();
+        final int base = index * NUM_FIELDS;
+        topicOffsets.values[base + OFFSET] = offsetAndMetadata.offset();
+        topicOffsets.values[base + COMMIT_TIMESTAMP] = offsetAndMetadata.commitTimestamp();
+        topicOffsets.values[base + EXPIRE_TIMESTAMP] = offsetAndMetadata.expireTimestamp();
+        final Optional<PositionImpl> position = commitRecord.appendedPosition();
+        topicOffsets.values[base + LEDGER_ID] = position.map(PositionImpl::getLedgerId).orElse(NO_POSITION);
+        topicOffsets.values[base + ENTRY_ID] = position.map(PositionImpl::getEntryId).orElse(NO_POSITION);
+
+        final String metadata = offsetAndMetadata.metadata();
+        if (metadata != null && metadata.isEmpty()) {
+            topicOffsets.setMetadata(index, null);
+        } else {
+            topicOffsets.setMetadata(index, (metadata == null) ? NULL_METADATA : metadata);
+        }
+    }
+
+    public synchronized void putAll(Map<TopicPartition, CommitRecordMetadataAndOffset> offsets) {
+        offsets.forEach(this::put);
+    }
+
+    public synchronized CommitRecordMetadataAndOffset remove(TopicPartition topicPartition) {
+        final TopicOffsets topicOffsets = topics.get(topicPartition.topic());
+        if (topicOffsets == null) {
+            return null;
+        }
+        final int index = topicOffsets.indexOf(topicPartition.partition());
+        if (index < 0) {
+            return null;
+        }
+        final CommitRecordMetadataAndOffset removed = read(topicOffsets, index);
+        topicOffsets.remove(index);
+        if (topicOffsets.count == 0) {
+            topics.remove(topicPartition.topic());
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+     * Get a snapshot of the partitions that have committed offsets.
+     */
+    public synchronized Set<TopicPartition> keySet() {
+        final Set<TopicPartition> topicPartitions = new HashSet<>();
+        topics.forEach((topic, topicOffsets) -> {
+            for (int i = 0; i < topicOffsets.count; i++) {
+                topicPartitions.add(new TopicPartition(topic, topicOffsets.partitions[i]));
+            }
+        });
+        return topicPartitions;
+    }
+
+    /**
+     * Get the partitions of the given topics that have committed offsets.
+     */
+    public synchronized List<TopicPartition> partitionsOf(Set<String> topicNames) {
+        final List<TopicPartition> topicPartitions = new ArrayList<>();
+        topicNames.forEach(topic -> {
+            final TopicOffsets topicOffsets = topics.get(topic);
+            if (topicOffsets != null) {
+                for (int i = 0; i < topicOffsets.count; i++) {
+                    topicPartitions.add(new TopicPartition(topic, topicOffsets.partitions[i]));
+                }
+            }
+        });
+        return topicPartitions;
+    }
+
+    public synchronized void forEach(BiConsumer<TopicPartition, CommitRecordMetadataAndOffset> action) {
+        topics.forEach((topic, topicOffsets) -> {
+            for (int i = 0; i < topicOffsets.count; i++) {
+                action.accept(new TopicPartition(topic, topicOffsets.partitions[i]), read(topicOffsets, i));
+            }
+        });
+    }
+
+    private static CommitRecordMetadataAndOffset read(TopicOffsets topicOffsets, int index) {
+        final int base = index * NUM_FIELDS;
+        final long[] values = topicOffsets.values;
+        final long ledgerId = values[base + LEDGER_ID];
+        final Optional<PositionImpl> position = (ledgerId == NO_POSITION)
+                ? Optional.empty()
+                : Optional.of(new PositionImpl(ledgerId, values[base + ENTRY_ID]));
+
+        final String metadata;
+        final Object storedMetadata = topicOffsets.getMetadata(index);
+        if (storedMetadata == null) {
+            metadata = OffsetAndMetadata.NoMetadata;
+        } else if (storedMetadata == NULL_METADATA) {
+            metadata = null;
+        } else {
+            metadata = (String) storedMetadata;
+        }
+
+        return new CommitRecordMetadataAndOffset(position, OffsetAndMetadata.apply(
+                values[base + OFFSET], metadata, values[base + COMMIT_TIMESTAMP], values[base + EXPIRE_TIMESTAMP]));
+    }
+
+    @Override
+    public synchronized String toString() {
+        final Map<TopicPartition, CommitRecordMetadataAndOffset> offsets = new HashMap<>();
+        forEach(offsets::put);
+        return offsets.toString();
+    }
+}
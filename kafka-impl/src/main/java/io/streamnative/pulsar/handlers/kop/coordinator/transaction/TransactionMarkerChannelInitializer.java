@@ -20,10 +20,9 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
-import io.netty.handler.ssl.SslHandler;
 import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
-import io.streamnative.pulsar.handlers.kop.utils.ssl.SSLUtils;
-import org.eclipse.jetty.util.ssl.SslContextFactory;
+import io.streamnative.pulsar.handlers.kop.utils.ssl.SslHandlerFactory;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Transaction marker channel initializer.
@@ -31,28 +30,35 @@ import org.eclipse.jetty.util.ssl.SslContextFactory;
 public class TransactionMarkerChannelInitializer extends ChannelInitializer<SocketChannel> {
 
     private final boolean enableTls;
-    private final SslContextFactory.Client sslContextFactory;
+    private final SslHandlerFactory sslHandlerFactory;
     private final TransactionMarkerChannelManager transactionMarkerChannelManager;
     private final LengthFieldPrepender lengthFieldPrepender;
 
     public TransactionMarkerChannelInitializer(KafkaServiceConfiguration kafkaConfig,
                                                boolean enableTls,
-                                               TransactionMarkerChannelManager transactionMarkerChannelManager) {
+                                               TransactionMarkerChannelManager transactionMarkerChannelManager,
+                                               ScheduledExecutorService scheduler)
+            throws Exception {
         this.enableTls = enableTls;
         this.transactionMarkerChannelManager = transactionMarkerChannelManager;
         if (enableTls) {
-            sslContextFactory = SSLUtils.createClientSslContextFactory(kafkaConfig);
+            sslHandlerFactory = SslHandlerFactory.forClient(kafkaConfig, scheduler);
         } else {
-            sslContextFactory = null;
+            sslHandlerFactory = null;
         }
         this.lengthFieldPrepender = new LengthFieldPrepender(4);
     }
 
+    public void close() {
+        if (sslHandlerFactory != null) {
+            sslHandlerFactory.close();
+        }
+    }
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         if (this.enableTls) {
-            ch.pipeline().addLast(TLS_HANDLER,
-                    new SslHandler(SSLUtils.createClientSslEngine(sslContextFactory)));
+            ch.pipeline().addLast(TLS_HANDLER, sslHandlerFactory.newHandler(ch.alloc()));
         }
         ch.pipeline().addLast(lengthFieldPrepender);
         ch.pipeline().addLast("frameDecoder",
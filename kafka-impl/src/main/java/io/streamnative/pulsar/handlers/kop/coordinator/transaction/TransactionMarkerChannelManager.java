@@ -76,6 +76,7 @@ public class TransactionMarkerChannelManager {
     private final KopBrokerLookupManager kopBrokerLookupManager;
 
     private final Bootstrap bootstrap;
+    private final TransactionMarkerChannelInitializer channelInitializer;
 
     private final Map<InetSocketAddress, CompletableFuture<TransactionMarkerChannelHandler>> handlerMap =
             new ConcurrentHashMap<>();
@@ -182,7 +183,8 @@ public class TransactionMarkerChannelManager {
         bootstrap = new Bootstrap();
         bootstrap.group(eventLoopGroup);
         bootstrap.channel(EventLoopUtil.getClientSocketChannelClass(eventLoopGroup));
-        bootstrap.handler(new TransactionMarkerChannelInitializer(kafkaConfig, enableTls, this));
+        channelInitializer = new TransactionMarkerChannelInitializer(kafkaConfig, enableTls, this, scheduler);
+        bootstrap.handler(channelInitializer);
     }
 
     public CompletableFuture<TransactionMarkerChannelHandler> getChannel(InetSocketAddress socketAddress) {
@@ -558,6 +560,7 @@ public class TransactionMarkerChannelManager {
                 log.info("Cannot close TransactionMarkerChannelHandler for {}", address, err);
             }
         });
+        channelInitializer.close();
         if (authentication != null) {
             try {
                 authentication.close();
@@ -17,6 +17,7 @@ import static org.apache.kafka.common.record.Records.MAGIC_OFFSET;
 import static org.apache.kafka.common.record.Records.OFFSET_OFFSET;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.streamnative.pulsar.handlers.kop.exceptions.MetadataCorruptedException;
 import io.streamnative.pulsar.handlers.kop.utils.ByteBufUtils;
@@ -35,6 +36,7 @@ import org.apache.pulsar.broker.service.plugin.FilterContext;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.api.proto.KeyValue;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
 
 @Slf4j
 public abstract class AbstractEntryFormatter implements EntryFormatter {
@@ -125,6 +127,53 @@ public abstract class AbstractEntryFormatter implements EntryFormatter {
                 conversionTimeNanos);
     }
 
+    /**
+     * Encode the Kafka records into an entry of the Kafka format.
+     *
+     * <p>If the records are still in the memory of the buffer that they are parsed from, and that buffer is not much
+     * larger than the records, the entry is a composite buffer of the serialized metadata and a retained slice of the
+     * source buffer, so the records are not copied. The entry might be kept by the managed ledger cache, so a slice of
+     * a larger buffer, e.g. a cumulation buffer that holds other requests, would keep memory that the cache doesn't
+     * account for. Otherwise, e.g. the records are converted, the records are copied into the entry.
+     */
+    protected static EncodeResult encodeKafkaRecords(final MemoryRecords records,
+                                                     final ByteBuf sourceBuffer,
+                                                     final int numMessages,
+                                                     final int conversionCount,
+                                                     final long conversionTimeNanos) {
+        final MessageMetadata metadata = getMessageMetadataWithNumberMessages(numMessages);
+        final ByteBuf payload = (sourceBuffer != null)
+                ? ByteBufUtils.retainedSliceOf(sourceBuffer, records.buffer()) : null;
+        if (payload != null) {
+            // The same layout as Commands.serializeMetadataAndPayload without the checksum
+            final int metadataSize = metadata.getSerializedSize();
+            final ByteBuf header = PulsarByteBufAllocator.DEFAULT.buffer(4 + metadataSize, 4 + metadataSize);
+            header.writeInt(metadataSize);
+            metadata.writeTo(header);
+            final CompositeByteBuf buf = PulsarByteBufAllocator.DEFAULT.compositeBuffer(2);
+            buf.addComponents(true, header, payload);
+            return EncodeResult.get(records, buf, numMessages, conversionCount, conversionTimeNanos, 0);
+        }
+        final ByteBuf recordsWrapper = Unpooled.wrappedBuffer(records.buffer());
+        final ByteBuf buf = Commands.serializeMetadataAndPayload(Commands.ChecksumType.None, metadata,
+                recordsWrapper);
+        recordsWrapper.release();
+        return EncodeResult.get(records, buf, numMessages, conversionCount, conversionTimeNanos,
+                records.sizeInBytes());
+    }
+
+    private static MessageMetadata getMessageMetadataWithNumberMessages(int numMessages) {
+        final MessageMetadata metadata = new MessageMetadata();
+        metadata.addProperty()
+                .setKey(IDENTITY_KEY)
+                .setValue(IDENTITY_VALUE);
+        metadata.setProducerName("");
+        metadata.setSequenceId(0L);
+        metadata.setPublishTime(System.currentTimeMillis());
+        metadata.setNumMessagesInBatch(numMessages);
+        return metadata;
+    }
+
     protected static boolean isKafkaEntryFormat(final MessageMetadata messageMetadata) {
         final List<KeyValue> keyValues = messageMetadata.getPropertiesList();
         for (KeyValue keyValue : keyValues) {
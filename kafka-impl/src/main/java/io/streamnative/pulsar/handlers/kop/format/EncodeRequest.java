@@ -13,6 +13,7 @@
  */
 package io.streamnative.pulsar.handlers.kop.format;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.util.Recycler;
 import io.streamnative.pulsar.handlers.kop.storage.PartitionLog;
 import lombok.Getter;
@@ -28,14 +29,23 @@ public class EncodeRequest {
     private MemoryRecords records;
     @Setter
     private PartitionLog.LogAppendInfo appendInfo;
+    // The buffer that the records are parsed from, it's null if the records are not parsed from a request
+    private ByteBuf sourceBuffer;
 
     private final Recycler.Handle<EncodeRequest> recyclerHandle;
 
     public static EncodeRequest get(MemoryRecords records,
                                     PartitionLog.LogAppendInfo appendInfo) {
+        return get(records, appendInfo, null);
+    }
+
+    public static EncodeRequest get(MemoryRecords records,
+                                    PartitionLog.LogAppendInfo appendInfo,
+                                    ByteBuf sourceBuffer) {
         EncodeRequest encodeRequest = RECYCLER.get();
         encodeRequest.records = records;
         encodeRequest.appendInfo = appendInfo;
+        encodeRequest.sourceBuffer = sourceBuffer;
         return encodeRequest;
     }
 
@@ -53,6 +63,7 @@ public class EncodeRequest {
     public void recycle() {
         records = null;
         appendInfo = null;
+        sourceBuffer = null;
         recyclerHandle.recycle(this);
     }
 
@@ -39,6 +39,7 @@ public class EncodeResult {
     private int numMessages;
     private int conversionCount;
     private long conversionTimeNanos;
+    private int copiedBytes;
 
     private final Recycler.Handle<EncodeResult> recyclerHandle;
 
@@ -47,12 +48,22 @@ public class EncodeResult {
                                    int numMessages,
                                    int conversionCount,
                                    long conversionTimeNanos) {
+        return get(records, encodedByteBuf, numMessages, conversionCount, conversionTimeNanos, 0);
+    }
+
+    public static EncodeResult get(MemoryRecords records,
+                                   ByteBuf encodedByteBuf,
+                                   int numMessages,
+                                   int conversionCount,
+                                   long conversionTimeNanos,
+                                   int copiedBytes) {
         EncodeResult encodeResult = RECYCLER.get();
         encodeResult.records = records;
         encodeResult.encodedByteBuf = encodedByteBuf;
         encodeResult.numMessages = numMessages;
         encodeResult.conversionCount = conversionCount;
         encodeResult.conversionTimeNanos = conversionTimeNanos;
+        encodeResult.copiedBytes = copiedBytes;
         return encodeResult;
     }
 
@@ -76,6 +87,7 @@ public class EncodeResult {
         numMessages = -1;
         conversionCount = -1;
         conversionTimeNanos = -1L;
+        copiedBytes = -1;
         recyclerHandle.recycle(this);
     }
 
@@ -95,6 +107,8 @@ public class EncodeResult {
         statsLoggerForThisPartition.getOpStatsLogger(PRODUCE_MESSAGE_CONVERSIONS_TIME_NANOS)
                 .registerSuccessfulEvent(conversionTimeNanos, TimeUnit.NANOSECONDS);
 
+        requestStats.getProduceBytesCopied().addCount(copiedBytes);
+
         RequestStats.BATCH_COUNT_PER_MEMORY_RECORDS_INSTANCE.set(numMessages);
     }
 
@@ -13,8 +13,6 @@
  */
 package io.streamnative.pulsar.handlers.kop.format;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.streamnative.pulsar.handlers.kop.storage.PartitionLog;
 import io.streamnative.pulsar.handlers.kop.utils.KopLogValidator;
 import io.streamnative.pulsar.handlers.kop.utils.LongRef;
@@ -25,8 +23,6 @@ import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.RecordBatch;
 import org.apache.kafka.common.record.TimestampType;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
-import org.apache.pulsar.common.api.proto.MessageMetadata;
-import org.apache.pulsar.common.protocol.Commands;
 
 /**
  * The entry formatter that uses Kafka's mixed versions format.
@@ -66,15 +62,11 @@ public class KafkaMixedEntryFormatter extends AbstractEntryFormatter {
         long conversionTimeNanos = validationAndOffsetAssignResult.getConversionTimeNanos();
 
         final int numMessages = appendInfo.numMessages();
-        final ByteBuf recordsWrapper = Unpooled.wrappedBuffer(validRecords.buffer());
-        final ByteBuf buf = Commands.serializeMetadataAndPayload(
-                Commands.ChecksumType.None,
-                getMessageMetadataWithNumberMessages(numMessages),
-                recordsWrapper);
-        recordsWrapper.release();
         validationAndOffsetAssignResult.recycle();
 
-        return EncodeResult.get(validRecords, buf, numMessages, conversionCount, conversionTimeNanos);
+        // The offsets are assigned in place if the records are not converted, so they can still be sliced
+        return encodeKafkaRecords(validRecords, encodeRequest.getSourceBuffer(), numMessages, conversionCount,
+                conversionTimeNanos);
     }
 
     @Override
@@ -82,16 +74,4 @@ public class KafkaMixedEntryFormatter extends AbstractEntryFormatter {
         return super.decode(entries, magic);
     }
 
-    private static MessageMetadata getMessageMetadataWithNumberMessages(int numMessages) {
-        final MessageMetadata metadata = new MessageMetadata();
-        metadata.addProperty()
-                .setKey(IDENTITY_KEY)
-                .setValue(IDENTITY_VALUE);
-        metadata.setProducerName("");
-        metadata.setSequenceId(0L);
-        metadata.setPublishTime(System.currentTimeMillis());
-        metadata.setNumMessagesInBatch(numMessages);
-        return metadata;
-    }
-
 }
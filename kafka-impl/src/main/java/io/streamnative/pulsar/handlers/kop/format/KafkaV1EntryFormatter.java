@@ -13,15 +13,11 @@
  */
 package io.streamnative.pulsar.handlers.kop.format;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.mledger.Entry;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
-import org.apache.pulsar.common.api.proto.MessageMetadata;
-import org.apache.pulsar.common.protocol.Commands;
 
 /**
  * The entry formatter that uses Kafka's V1/V2 format.
@@ -39,14 +35,7 @@ public class KafkaV1EntryFormatter extends AbstractEntryFormatter {
     public EncodeResult encode(final EncodeRequest encodeRequest) {
         final MemoryRecords records = encodeRequest.getRecords();
         final int numMessages = encodeRequest.getAppendInfo().numMessages();
-        final ByteBuf recordsWrapper = Unpooled.wrappedBuffer(records.buffer());
-        final ByteBuf buf = Commands.serializeMetadataAndPayload(
-                Commands.ChecksumType.None,
-                getMessageMetadataWithNumberMessages(numMessages),
-                recordsWrapper);
-        recordsWrapper.release();
-
-        return EncodeResult.get(records, buf, numMessages, 0, 0L);
+        return encodeKafkaRecords(records, encodeRequest.getSourceBuffer(), numMessages, 0, 0L);
     }
 
     @Override
@@ -54,16 +43,4 @@ public class KafkaV1EntryFormatter extends AbstractEntryFormatter {
         return super.decode(entries, magic);
     }
 
-    private static MessageMetadata getMessageMetadataWithNumberMessages(int numMessages) {
-        final MessageMetadata metadata = new MessageMetadata();
-        metadata.addProperty()
-                .setKey(IDENTITY_KEY)
-                .setValue(IDENTITY_VALUE);
-        metadata.setProducerName("");
-        metadata.setSequenceId(0L);
-        metadata.setPublishTime(System.currentTimeMillis());
-        metadata.setNumMessagesInBatch(numMessages);
-        return metadata;
-    }
-
 }
@@ -114,8 +114,9 @@ public class PulsarEntryFormatter extends AbstractEntryFormatter {
 
         batchedMessageMetadataAndPayload.release();
 
+        // Each record is copied into a Pulsar message
         return EncodeResult.get(records, buf, numMessages, numMessagesInBatch,
-                MathUtils.elapsedNanos(startConversionNanos));
+                MathUtils.elapsedNanos(startConversionNanos), records.sizeInBytes());
     }
 
     @Override
@@ -0,0 +1,44 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of creating a non-durable cursor in
+ * {@link io.streamnative.pulsar.handlers.kop.KafkaTopicConsumerManager}, including finding the position of the offset.
+ */
+@Name("io.streamnative.kop.CursorCreate")
+@Label("Cursor Create")
+@Category({"KoP", "Managed Ledger"})
+@Description("Finding the position of a fetch offset and creating a cursor on it")
+@StackTrace(false)
+public class CursorCreateEvent extends KopEvent {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Cursor")
+    public String cursor;
+
+    @Label("Offset")
+    public long offset;
+
+    @Label("Success")
+    public boolean success;
+}
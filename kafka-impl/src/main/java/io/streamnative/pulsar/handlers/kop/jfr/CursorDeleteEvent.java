@@ -0,0 +1,43 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of deleting a cursor in {@link io.streamnative.pulsar.handlers.kop.KafkaTopicConsumerManager}.
+ */
+@Name("io.streamnative.kop.CursorDelete")
+@Label("Cursor Delete")
+@Category({"KoP", "Managed Ledger"})
+@Description("Deleting a cursor that is expired, closed or not needed anymore")
+@StackTrace(false)
+public class CursorDeleteEvent extends KopEvent {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Cursor")
+    public String cursor;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Success")
+    public boolean success;
+}
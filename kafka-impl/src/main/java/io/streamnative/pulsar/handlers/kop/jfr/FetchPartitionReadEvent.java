@@ -0,0 +1,51 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of reading the entries of a partition from the managed ledger for a fetch request.
+ */
+@Name("io.streamnative.kop.FetchPartitionRead")
+@Label("Fetch Partition Read")
+@Category({"KoP", "Managed Ledger"})
+@Description("Reading the entries of a partition for a fetch request")
+@StackTrace(false)
+public class FetchPartitionReadEvent extends KopEvent {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Partition")
+    public int partition;
+
+    @Label("Fetch Offset")
+    public long fetchOffset;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Read Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
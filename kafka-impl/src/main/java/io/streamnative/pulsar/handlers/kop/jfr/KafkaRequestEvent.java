@@ -0,0 +1,55 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of a Kafka request, which begins when the request is received and ends when its response is written.
+ */
+@Name("io.streamnative.kop.KafkaRequest")
+@Label("Kafka Request")
+@Category({"KoP", "Request"})
+@Description("A Kafka request from being received to its response being written")
+@StackTrace(false)
+public class KafkaRequestEvent extends KopEvent {
+
+    @Label("API Key")
+    public String apiKey;
+
+    @Label("API Version")
+    public short apiVersion;
+
+    @Label("Correlation ID")
+    public int correlationId;
+
+    @Label("Client ID")
+    public String clientId;
+
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Response Size")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Success")
+    @Description("Whether the request is completed normally and its response is written")
+    public boolean success;
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Event;
+
+/**
+ * The base class of the JFR events of KoP, which might be committed on a different thread from the one that began.
+ */
+public abstract class KopEvent extends Event {
+
+    // It's not recorded, it's only used to check the per request type thresholds
+    transient long startNanos;
+
+    /**
+     * Begin the event if it's enabled.
+     *
+     * @param event the new event
+     * @return the event, or null if the event is not enabled so that the caller doesn't need to keep it
+     */
+    public static <T extends KopEvent> T beginIfEnabled(T event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    public void endAndCommit() {
+        endAndCommit(0L);
+    }
+
+    /**
+     * End and commit the event if its duration is at least thresholdNanos and it passes the JFR settings.
+     */
+    public void endAndCommit(long thresholdNanos) {
+        end();
+        if (System.nanoTime() - startNanos >= thresholdNanos && shouldCommit()) {
+            commit();
+        }
+    }
+}
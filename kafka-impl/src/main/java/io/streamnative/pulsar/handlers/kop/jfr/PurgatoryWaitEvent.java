@@ -0,0 +1,38 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of a delayed operation, which begins when the operation is created and ends when it's completed.
+ */
+@Name("io.streamnative.kop.PurgatoryWait")
+@Label("Purgatory Wait")
+@Category({"KoP", "Request"})
+@Description("A delayed operation waiting in the purgatory, like a delayed fetch")
+@StackTrace(false)
+public class PurgatoryWaitEvent extends KopEvent {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Expired")
+    @Description("Whether the operation is completed because it's expired")
+    public boolean expired;
+}
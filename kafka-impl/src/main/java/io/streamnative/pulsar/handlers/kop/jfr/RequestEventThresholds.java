@@ -0,0 +1,75 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.common.protocol.ApiKeys;
+
+/**
+ * The per request type thresholds of {@link KafkaRequestEvent} and {@link ResponseBlockedEvent}.
+ *
+ * <p>The thresholds are configured like "Fetch=500,Produce=50" in milliseconds, where the keys are the names of
+ * {@link ApiKeys}. The request types that are not configured use the default threshold.
+ */
+public class RequestEventThresholds {
+
+    private final long[] thresholdNanos;
+
+    private RequestEventThresholds(long[] thresholdNanos) {
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    public static RequestEventThresholds parse(String thresholds, long defaultThresholdMs) {
+        int maxId = 0;
+        for (ApiKeys apiKey : ApiKeys.values()) {
+            maxId = Math.max(maxId, apiKey.id);
+        }
+        final long[] thresholdNanos = new long[maxId + 1];
+        Arrays.fill(thresholdNanos, TimeUnit.MILLISECONDS.toNanos(defaultThresholdMs));
+        if (StringUtils.isBlank(thresholds)) {
+            return new RequestEventThresholds(thresholdNanos);
+        }
+        for (String entry : thresholds.split(",")) {
+            final String[] tokens = entry.split("=");
+            if (tokens.length != 2) {
+                throw new IllegalArgumentException("Invalid threshold '" + entry + "' of JFR request events, it"
+                        + " should be like 'Fetch=500'");
+            }
+            final ApiKeys apiKey = findApiKey(tokens[0].trim());
+            try {
+                thresholdNanos[apiKey.id] = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(tokens[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid threshold '" + entry + "' of JFR request events, the"
+                        + " threshold should be a number of milliseconds");
+            }
+        }
+        return new RequestEventThresholds(thresholdNanos);
+    }
+
+    private static ApiKeys findApiKey(String name) {
+        for (ApiKeys apiKey : ApiKeys.values()) {
+            if (apiKey.name.equalsIgnoreCase(name) || apiKey.name().equalsIgnoreCase(name)) {
+                return apiKey;
+            }
+        }
+        throw new IllegalArgumentException("Unknown request type '" + name + "' in the thresholds of JFR request"
+                + " events");
+    }
+
+    public long getThresholdNanos(ApiKeys apiKey) {
+        return thresholdNanos[apiKey.id];
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event of a response that blocks the responses of the later requests on the same connection.
+ */
+@Name("io.streamnative.kop.ResponseBlocked")
+@Label("Response Blocked")
+@Category({"KoP", "Request"})
+@Description("The responses of a connection are blocked by an incomplete request")
+@StackTrace(false)
+public class ResponseBlockedEvent extends KopEvent {
+
+    @Label("API Key")
+    public String apiKey;
+
+    @Label("Correlation ID")
+    public int correlationId;
+
+    @Label("Remote Address")
+    public String remoteAddress;
+
+    @Label("Blocked Responses")
+    @Description("The number of responses waiting behind the blocking request when it's first blocked")
+    public int blockedResponses;
+}
@@ -0,0 +1,21 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * JDK Flight Recorder events of KoP.
+ *
+ * <p>The events are enabled in the JFR recording settings like other JFR events, e.g. with
+ * {@code -XX:StartFlightRecording:settings=profile}. When no recording is running, creating an event costs almost
+ * nothing, so the event is always created and only kept when {@link jdk.jfr.Event#isEnabled()} returns true.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
@@ -0,0 +1,197 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.security.auth;
+
+import io.streamnative.pulsar.handlers.kop.security.KafkaPrincipal;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.acl.AclOperation;
+import org.apache.kafka.common.utils.Time;
+import org.apache.pulsar.broker.authorization.PulsarAuthorizationProvider;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.metadata.api.Notification;
+
+/**
+ * A per-broker cache of the authorization decisions, which is keyed by the principal's role and tenant spec, the
+ * operation and the resource, so the decisions are shared by all connections of the same principal.
+ *
+ * <p>The authentication data is not a part of the key, so the cache must only be used with an authorization provider
+ * whose decisions don't depend on the authentication data, see {@link #isCacheable(String)}.
+ *
+ * <p>The granted and the denied decisions expire after different times, the failed authorizations are not cached.
+ * The concurrent authorizations of the same key are merged into one. When the cache is full, arbitrary decisions are
+ * evicted. Since the Pulsar tenant and namespace policies are stored in "/admin/policies/tenant[/namespace]", a
+ * notification on these paths invalidates all decisions of the tenant. The topic level policies are not stored in the
+ * metadata store, so their changes only take effect after the decisions expire.
+ */
+@Slf4j
+public class AuthorizationCache {
+
+    static final String POLICIES_ROOT = "/admin/policies";
+    static final String DYNAMIC_CONFIGURATION_PATH = "/admin/configuration";
+
+    // The authorization providers whose decisions only depend on the role, not on the authentication data
+    private static final Set<String> CACHEABLE_AUTHORIZATION_PROVIDERS =
+            Collections.singleton(PulsarAuthorizationProvider.class.getName());
+
+    private final int maxSize;
+    private final long positiveExpireTimeMs;
+    private final long negativeExpireTimeMs;
+    private final Time time;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    @EqualsAndHashCode
+    @ToString
+    private static class Key {
+
+        private final String role;
+        private final String tenantSpec;
+        private final AclOperation operation;
+        private final Resource resource;
+
+        Key(KafkaPrincipal principal, AclOperation operation, Resource resource) {
+            this.role = principal.getName();
+            this.tenantSpec = principal.getTenantSpec();
+            this.operation = operation;
+            this.resource = resource;
+        }
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        // It's updated when the authorization is done
+        private volatile long expireTimeMs = Long.MAX_VALUE;
+    }
+
+    public AuthorizationCache(int maxSize, long positiveExpireTimeMs, long negativeExpireTimeMs, Time time) {
+        this.maxSize = maxSize;
+        this.positiveExpireTimeMs = positiveExpireTimeMs;
+        this.negativeExpireTimeMs = negativeExpireTimeMs;
+        this.time = time;
+    }
+
+    /**
+     * Check if the decisions of the given Pulsar authorization provider can be cached by the role, other providers,
+     * e.g. the ones that extract the roles from the authentication data, are not cached.
+     *
+     * @param authorizationProvider the class name of the authorization provider
+     */
+    public static boolean isCacheable(String authorizationProvider) {
+        return CACHEABLE_AUTHORIZATION_PROVIDERS.contains(authorizationProvider);
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && (positiveExpireTimeMs > 0 || negativeExpireTimeMs > 0);
+    }
+
+    /**
+     * Get the authorization decision, which is made by the given authorizer if it's not cached.
+     */
+    public CompletableFuture<Boolean> authorize(KafkaPrincipal principal, AclOperation operation, Resource resource,
+                                                Supplier<CompletableFuture<Boolean>> authorizer) {
+        if (!isEnabled()) {
+            return authorizer.get();
+        }
+        final Key key = new Key(principal, operation, resource);
+        final long now = time.milliseconds();
+        final Entry cachedEntry = entries.get(key);
+        if (cachedEntry != null && now < cachedEntry.expireTimeMs) {
+            return cachedEntry.future;
+        }
+        final Entry newEntry = new Entry();
+        final Entry entry = entries.compute(key, (__, currentEntry) ->
+                (currentEntry != null && now < currentEntry.expireTimeMs) ? currentEntry : newEntry);
+        if (entry != newEntry) {
+            return entry.future;
+        }
+        evictIfFull();
+
+        authorizer.get().whenComplete((authorized, e) -> {
+            // The entry might have been invalidated or evicted during the authorization, then it's not cached anyway
+            if (e != null || authorized == null) {
+                entries.remove(key, entry);
+            } else {
+                entry.expireTimeMs = time.milliseconds() + (authorized ? positiveExpireTimeMs : negativeExpireTimeMs);
+            }
+            if (e == null) {
+                entry.future.complete(authorized);
+            } else {
+                entry.future.completeExceptionally(e);
+            }
+        });
+        return entry.future;
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public void invalidateTenant(String tenant) {
+        entries.keySet().removeIf(key -> tenant.equals(tenantOf(key.resource)));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Invalidate the cached decisions according to a metadata store notification.
+     */
+    public void onNotification(Notification notification) {
+        final String path = notification.getPath();
+        if (path.startsWith(POLICIES_ROOT + "/")) {
+            final String tenant = path.substring(POLICIES_ROOT.length() + 1).split("/")[0];
+            if (log.isDebugEnabled()) {
+                log.debug("Invalidate the authorization decisions of tenant {} for {} {}",
+                        tenant, notification.getType(), path);
+            }
+            invalidateTenant(tenant);
+        } else if (path.equals(DYNAMIC_CONFIGURATION_PATH)) {
+            // The super user roles might be changed
+            clear();
+        }
+    }
+
+    private static String tenantOf(Resource resource) {
+        switch (resource.getResourceType()) {
+            case TOPIC:
+                return TopicName.get(resource.getName()).getTenant();
+            case NAMESPACE:
+                return resource.getName().split("/")[0];
+            default:
+                return resource.getName();
+        }
+    }
+}
@@ -63,6 +63,13 @@ public class LongAdderCounter implements Counter {
         return counter.sum();
     }
 
+    /**
+     * Get the value without boxing it, which is used by the scrapes.
+     */
+    public long sum() {
+        return counter.sum();
+    }
+
     public Map<String, String> getLabels() {
         return labels;
     }
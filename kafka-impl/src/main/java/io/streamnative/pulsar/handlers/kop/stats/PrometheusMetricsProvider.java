@@ -19,11 +19,13 @@ import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.StringUtils;
 import org.apache.pulsar.broker.stats.prometheus.PrometheusRawMetricsProvider;
@@ -50,6 +52,9 @@ public class PrometheusMetricsProvider implements PrometheusRawMetricsProvider {
     public final ConcurrentMap<ScopeContext, SimpleGauge<? extends Number>> gauges = new ConcurrentHashMap<>();
     public final ConcurrentMap<ScopeContext, DataSketchesOpStatsLogger> opStats = new ConcurrentHashMap<>();
 
+    // The series of each metric name, so that the series of the same metric are written together under one TYPE line
+    private final ConcurrentMap<String, Set<ScopeContext>> families = new ConcurrentHashMap<>();
+
     public PrometheusMetricsProvider() {
         this(CollectorRegistry.defaultRegistry);
     }
@@ -84,10 +89,67 @@ public class PrometheusMetricsProvider implements PrometheusRawMetricsProvider {
 
     @Override
     public void generate(SimpleTextOutputStream writer) {
-        gauges.forEach((sc, gauge) -> PrometheusTextFormatUtil.writeGauge(writer, sc.getScope(), gauge));
-        counters.forEach((sc, counter) -> PrometheusTextFormatUtil.writeCounter(writer, sc.getScope(), counter));
-        opStats.forEach((sc, opStatLogger) ->
-                PrometheusTextFormatUtil.writeOpStat(writer, sc.getScope(), opStatLogger));
+        for (Set<ScopeContext> family : families.values()) {
+            String writtenType = null;
+            for (ScopeContext sc : family) {
+                final SimpleGauge<? extends Number> gauge = gauges.get(sc);
+                if (gauge != null) {
+                    writtenType = maybeWriteType(writer, sc, writtenType, "gauge");
+                    PrometheusTextFormatUtil.writeGauge(writer, sc, gauge);
+                }
+                final LongAdderCounter counter = counters.get(sc);
+                if (counter != null) {
+                    writtenType = maybeWriteType(writer, sc, writtenType, "counter");
+                    PrometheusTextFormatUtil.writeCounter(writer, sc, counter);
+                }
+                final DataSketchesOpStatsLogger opStatsLogger = opStats.get(sc);
+                if (opStatsLogger != null) {
+                    writtenType = maybeWriteType(writer, sc, writtenType, "summary");
+                    PrometheusTextFormatUtil.writeOpStat(writer, sc, opStatsLogger);
+                }
+            }
+        }
+    }
+
+    private static String maybeWriteType(SimpleTextOutputStream writer, ScopeContext sc, String writtenType,
+                                         String type) {
+        // The type only changes within a family if the same name is used by different types of metrics
+        if (!type.equals(writtenType)) {
+            PrometheusTextFormatUtil.writeType(writer, sc, type);
+        }
+        return type;
+    }
+
+    <T> T getOrCreate(ConcurrentMap<ScopeContext, T> metrics, ScopeContext scopeContext,
+                      Function<Map<String, String>, T> factory) {
+        // Avoid the lambda of computeIfAbsent in the common case that the metric exists
+        final T metric = metrics.get(scopeContext);
+        if (metric != null) {
+            return metric;
+        }
+        final T createdMetric = metrics.computeIfAbsent(scopeContext, sc -> factory.apply(sc.getLabels()));
+        // Add it to the family after it's put so that a concurrent removeStats won't remove it from the family
+        families.compute(scopeContext.getScope(), (__, family) -> {
+            if (family == null) {
+                family = ConcurrentHashMap.newKeySet();
+            }
+            family.add(scopeContext);
+            return family;
+        });
+        return createdMetric;
+    }
+
+    void removeStats(ScopeContext scopeContext) {
+        counters.remove(scopeContext);
+        gauges.remove(scopeContext);
+        opStats.remove(scopeContext);
+        families.computeIfPresent(scopeContext.getScope(), (__, family) -> {
+            if (!counters.containsKey(scopeContext) && !gauges.containsKey(scopeContext)
+                    && !opStats.containsKey(scopeContext)) {
+                family.remove(scopeContext);
+            }
+            return family.isEmpty() ? null : family;
+        });
     }
 
     public String getStatsName(String... statsComponents) {
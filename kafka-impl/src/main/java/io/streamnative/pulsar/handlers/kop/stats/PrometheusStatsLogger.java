@@ -44,17 +44,17 @@ public class PrometheusStatsLogger implements StatsLogger {
 
     @Override
     public OpStatsLogger getOpStatsLogger(String name) {
-        return provider.opStats.computeIfAbsent(scopeContext(name), x -> new DataSketchesOpStatsLogger(labels));
+        return provider.getOrCreate(provider.opStats, scopeContext(name), DataSketchesOpStatsLogger::new);
     }
 
     @Override
     public Counter getCounter(String name) {
-        return provider.counters.computeIfAbsent(scopeContext(name), x -> new LongAdderCounter(labels));
+        return provider.getOrCreate(provider.counters, scopeContext(name), LongAdderCounter::new);
     }
 
     @Override
     public <T extends Number> void registerGauge(String name, Gauge<T> gauge) {
-        provider.gauges.computeIfAbsent(scopeContext(name), x -> new SimpleGauge<T>(gauge, labels));
+        provider.getOrCreate(provider.gauges, scopeContext(name), x -> new SimpleGauge<T>(gauge, x));
     }
 
     @Override
@@ -67,6 +67,11 @@ public class PrometheusStatsLogger implements StatsLogger {
         // no-op
     }
 
+    @Override
+    public void removeStats() {
+        scopeContextCache.values().forEach(provider::removeStats);
+    }
+
     @Override
     public StatsLogger scope(String name) {
         return new PrometheusStatsLogger(provider, completeName(name), labels);
@@ -13,42 +13,60 @@
  */
 package io.streamnative.pulsar.handlers.kop.stats;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.prometheus.client.Collector;
 import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.Collector.MetricFamilySamples.Sample;
 import io.prometheus.client.CollectorRegistry;
 import java.util.Enumeration;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.pulsar.common.util.SimpleTextOutputStream;
 
 /**
  * Logic to write metrics in Prometheus text format.
  */
 public class PrometheusTextFormatUtil {
-    public static void writeGauge(SimpleTextOutputStream w, String name, SimpleGauge<? extends Number> gauge) {
+    private static final double[] QUANTILES = { 0.5, 0.75, 0.95, 0.99, 0.999, 0.9999, 1.0 };
+    private static final String[] QUANTILE_STRINGS = new String[QUANTILES.length];
+    private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L };
+    private static final int FRACTION_DIGITS = 6;
+    // Beyond it, the value multiplied by 10^FRACTION_DIGITS might overflow a long
+    private static final double MAX_FIXED_POINT_VALUE = 1e12;
+
+    static {
+        for (int i = 0; i < QUANTILES.length; i++) {
+            QUANTILE_STRINGS[i] = Double.toString(QUANTILES[i]);
+        }
+    }
+
+    public static void writeType(SimpleTextOutputStream w, ScopeContext sc, String type) {
         // Example:
         // # TYPE bookie_storage_entries_count gauge
-        // bookie_storage_entries_count 519
-        w.write("# TYPE ").write(name).write(" gauge\n");
-        w.write(name);
-        writeLabels(w, gauge.getLabels());
-        w.write(' ').write(gauge.getSample().toString()).write('\n');
+        w.write("# TYPE ").write(sc.getScopeBytes()).write(' ').write(type).write('\n');
+    }
 
+    public static void writeGauge(SimpleTextOutputStream w, ScopeContext sc, SimpleGauge<? extends Number> gauge) {
+        // Example:
+        // bookie_storage_entries_count 519
+        w.write(sc.getScopeBytes());
+        writeLabels(w, sc);
+        w.write(' ');
+        writeNumber(w, gauge.getSample());
+        w.write('\n');
     }
 
-    public static void writeCounter(SimpleTextOutputStream w, String name, LongAdderCounter counter) {
+    public static void writeCounter(SimpleTextOutputStream w, ScopeContext sc, LongAdderCounter counter) {
         // Example:
-        // # TYPE jvm_threads_started_total counter
         // jvm_threads_started_total 59
-        w.write("# TYPE ").write(name).write(" counter\n");
-        w.write(name);
-        writeLabels(w, counter.getLabels());
-        w.write(' ').write(counter.get().toString()).write('\n');
+        w.write(sc.getScopeBytes());
+        writeLabels(w, sc);
+        w.write(' ').write(counter.sum()).write('\n');
     }
 
-    public static void writeOpStat(SimpleTextOutputStream w, String name, DataSketchesOpStatsLogger opStat) {
+    public static void writeOpStat(SimpleTextOutputStream w, ScopeContext sc, DataSketchesOpStatsLogger opStat) {
         // Example:
-        // # TYPE bookie_journal_JOURNAL_ADD_ENTRY summary
         // bookie_journal_JOURNAL_ADD_ENTRY{success="false",quantile="0.5",} NaN
         // bookie_journal_JOURNAL_ADD_ENTRY{success="false",quantile="0.75",} NaN
         // bookie_journal_JOURNAL_ADD_ENTRY{success="false",quantile="0.95",} NaN
@@ -67,67 +85,83 @@ public class PrometheusTextFormatUtil {
         // bookie_journal_JOURNAL_ADD_ENTRY{success="true",quantile="1.0",} 10.902
         // bookie_journal_JOURNAL_ADD_ENTRY_count{success="true",} 658.0
         // bookie_journal_JOURNAL_ADD_ENTRY_sum{success="true",} 1265.0800000000002
-        w.write("# TYPE ").write(name).write(" summary\n");
-        writeQuantile(w, opStat, name, false, 0.5);
-        writeQuantile(w, opStat, name, false, 0.75);
-        writeQuantile(w, opStat, name, false, 0.95);
-        writeQuantile(w, opStat, name, false, 0.99);
-        writeQuantile(w, opStat, name, false, 0.999);
-        writeQuantile(w, opStat, name, false, 0.9999);
-        writeQuantile(w, opStat, name, false, 1.0);
-        writeCount(w, opStat, name, false);
-        writeSum(w, opStat, name, false);
-
-        writeQuantile(w, opStat, name, true, 0.5);
-        writeQuantile(w, opStat, name, true, 0.75);
-        writeQuantile(w, opStat, name, true, 0.95);
-        writeQuantile(w, opStat, name, true, 0.99);
-        writeQuantile(w, opStat, name, true, 0.999);
-        writeQuantile(w, opStat, name, true, 0.9999);
-        writeQuantile(w, opStat, name, true, 1.0);
-        writeCount(w, opStat, name, true);
-        writeSum(w, opStat, name, true);
+        writeOpStat(w, sc, opStat, false);
+        writeOpStat(w, sc, opStat, true);
     }
 
-    private static void writeQuantile(SimpleTextOutputStream w, DataSketchesOpStatsLogger opStat, String name,
-                                      boolean success, double quantile) {
-        w.write(name)
-                .write("{success=\"").write(success)
-                .write("\",quantile=\"").write(Double.toString(quantile));
-        if (!opStat.getLabels().isEmpty()) {
-            w.write("\", ");
-            writeLabelsNoBraces(w, opStat.getLabels());
-        } else {
-            w.write("\"");
+    private static void writeOpStat(SimpleTextOutputStream w, ScopeContext sc, DataSketchesOpStatsLogger opStat,
+                                    boolean success) {
+        for (int i = 0; i < QUANTILES.length; i++) {
+            w.write(sc.getScopeBytes())
+                    .write("{success=\"").write(success)
+                    .write("\",quantile=\"").write(QUANTILE_STRINGS[i]);
+            writeLabelsAfterSuccess(w, sc);
+            writeDouble(w, opStat.getQuantileValue(success, QUANTILES[i]));
+            w.write('\n');
         }
-        w.write("} ")
-                .write(Double.toString(opStat.getQuantileValue(success, quantile))).write('\n');
+
+        w.write(sc.getScopeBytes()).write("_count{success=\"").write(success);
+        writeLabelsAfterSuccess(w, sc);
+        w.write(opStat.getCount(success)).write('\n');
+
+        w.write(sc.getScopeBytes()).write("_sum{success=\"").write(success);
+        writeLabelsAfterSuccess(w, sc);
+        // The sum is a long, keep the format of a double
+        w.write(opStat.getSum(success)).write(".0\n");
     }
 
-    private static void writeCount(SimpleTextOutputStream w, DataSketchesOpStatsLogger opStat, String name,
-                                   boolean success) {
-        w.write(name).write("_count{success=\"").write(success);
-        if (!opStat.getLabels().isEmpty()) {
-            w.write("\", ");
-            writeLabelsNoBraces(w, opStat.getLabels());
+    private static void writeLabelsAfterSuccess(SimpleTextOutputStream w, ScopeContext sc) {
+        final byte[] labels = sc.getLabelsBytes();
+        if (labels.length > 0) {
+            w.write("\", ").write(labels);
         } else {
             w.write("\"");
         }
-        w.write("} ")
-                .write(Long.toString(opStat.getCount(success))).write('\n');
+        w.write("} ");
     }
 
-    private static void writeSum(SimpleTextOutputStream w, DataSketchesOpStatsLogger opStat, String name,
-                                 boolean success) {
-        w.write(name).write("_sum{success=\"").write(success);
-        if (!opStat.getLabels().isEmpty()) {
-            w.write("\", ");
-            writeLabelsNoBraces(w, opStat.getLabels());
+    private static void writeNumber(SimpleTextOutputStream w, Number n) {
+        if (n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte
+                || n instanceof AtomicInteger || n instanceof AtomicLong || n instanceof LongAdder) {
+            w.write(n.longValue());
+        } else if (n == null) {
+            w.write("NaN");
         } else {
-            w.write("\"");
+            writeDouble(w, n.doubleValue());
         }
-        w.write("} ")
-                .write(Double.toString(opStat.getSum(success))).write('\n');
+    }
+
+    /**
+     * Write a double without creating the string, with at most {@link #FRACTION_DIGITS} fraction digits.
+     */
+    @VisibleForTesting
+    static void writeDouble(SimpleTextOutputStream w, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED_POINT_VALUE) {
+            // These values are rare, keep the format of Double#toString
+            w.write(Double.toString(value));
+            return;
+        }
+        long fixedPoint = Math.round(value * POWERS_OF_TEN[FRACTION_DIGITS]);
+        if (fixedPoint < 0) {
+            w.write('-');
+            fixedPoint = -fixedPoint;
+        }
+        w.write(fixedPoint / POWERS_OF_TEN[FRACTION_DIGITS]).write('.');
+        long fraction = fixedPoint % POWERS_OF_TEN[FRACTION_DIGITS];
+        if (fraction == 0) {
+            w.write('0');
+            return;
+        }
+        int digits = FRACTION_DIGITS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+        // Write the leading zeros, e.g. "05" of 1.05
+        for (long divisor = POWERS_OF_TEN[digits - 1]; divisor > fraction; divisor /= 10) {
+            w.write('0');
+        }
+        w.write(fraction);
     }
 
     public static void writeMetricsCollectedByPrometheusClient(SimpleTextOutputStream w, CollectorRegistry registry) {
@@ -156,31 +190,11 @@ public class PrometheusTextFormatUtil {
         }
     }
 
-    private static void writeLabels(SimpleTextOutputStream w, Map<String, String> labels) {
-        if (labels.isEmpty()) {
-            return;
-        }
-
-        w.write('{');
-        writeLabelsNoBraces(w, labels);
-        w.write('}');
-    }
-
-    private static void writeLabelsNoBraces(SimpleTextOutputStream w, Map<String, String> labels) {
-        if (labels.isEmpty()) {
+    private static void writeLabels(SimpleTextOutputStream w, ScopeContext sc) {
+        final byte[] labels = sc.getLabelsBytes();
+        if (labels.length == 0) {
             return;
         }
-
-        boolean isFirst = true;
-        for (Map.Entry<String, String> e : labels.entrySet()) {
-            if (!isFirst) {
-                w.write(',');
-            }
-            isFirst = false;
-            w.write(e.getKey())
-                    .write("=\"")
-                    .write(e.getValue())
-                    .write('"');
-        }
+        w.write('{').write(labels).write('}');
     }
 }
@@ -13,6 +13,7 @@
  */
 package io.streamnative.pulsar.handlers.kop.stats;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Objects;
 
@@ -23,15 +24,50 @@ public class ScopeContext {
     private final String scope;
     private final Map<String, String> labels;
 
+    // The text of the scope and the labels are rendered once and reused by each scrape
+    private final byte[] scopeBytes;
+    private volatile byte[] labelsBytes;
+
     public ScopeContext(String scope, Map<String, String> labels) {
         this.scope = scope;
         this.labels = labels;
+        this.scopeBytes = scope.getBytes(StandardCharsets.UTF_8);
     }
 
     public String getScope() {
         return scope;
     }
 
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    byte[] getScopeBytes() {
+        return scopeBytes;
+    }
+
+    /**
+     * Get the labels in the format of `name1="value1",name2="value2"`, without the braces.
+     *
+     * <p>It's rendered on the first scrape rather than on construction because the default labels, like the
+     * cluster, are only filled when the provider starts.
+     */
+    byte[] getLabelsBytes() {
+        byte[] bytes = labelsBytes;
+        if (bytes == null) {
+            final StringBuilder sb = new StringBuilder();
+            labels.forEach((name, value) -> {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(name).append("=\"").append(value).append('"');
+            });
+            bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            labelsBytes = bytes;
+        }
+        return bytes;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
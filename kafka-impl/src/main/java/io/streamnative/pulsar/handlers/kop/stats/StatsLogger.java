@@ -95,4 +95,12 @@ public interface StatsLogger {
      */
     void removeScope(String name, StatsLogger statsLogger);
 
+    /**
+     * Remove the stats that were created by this stats logger, the stats loggers derived from it are not affected.
+     * It can be no-op if the underlying stats provider doesn't have the ability to remove stats.
+     */
+    default void removeStats() {
+        // Provide default implementation for backward compatibility
+    }
+
 }
\ No newline at end of file
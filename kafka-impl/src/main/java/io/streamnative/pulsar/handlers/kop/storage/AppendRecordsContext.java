@@ -13,10 +13,12 @@
  */
 package io.streamnative.pulsar.handlers.kop.storage;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.Recycler;
 import io.streamnative.pulsar.handlers.kop.KafkaTopicManager;
 import io.streamnative.pulsar.handlers.kop.PendingTopicFutures;
+import io.streamnative.pulsar.handlers.kop.RequestTrace;
 import java.util.Map;
 import java.util.function.Consumer;
 import lombok.Getter;
@@ -39,6 +41,9 @@ public class AppendRecordsContext {
     private Consumer<Integer> completeSendOperationForThrottling;
     private Map<TopicPartition, PendingTopicFutures> pendingTopicFuturesMap;
     private ChannelHandlerContext ctx;
+    private RequestTrace trace;
+    // The buffer that the records are parsed from, the records are sliced from it instead of copied when encoding
+    private ByteBuf sourceBuffer;
 
     private AppendRecordsContext(Recycler.Handle<AppendRecordsContext> recyclerHandle) {
         this.recyclerHandle = recyclerHandle;
@@ -49,13 +54,17 @@ public class AppendRecordsContext {
                                            final Consumer<Integer> startSendOperationForThrottling,
                                            final Consumer<Integer> completeSendOperationForThrottling,
                                            final Map<TopicPartition, PendingTopicFutures> pendingTopicFuturesMap,
-                                           final ChannelHandlerContext ctx) {
+                                           final ChannelHandlerContext ctx,
+                                           final RequestTrace trace,
+                                           final ByteBuf sourceBuffer) {
         AppendRecordsContext context = RECYCLER.get();
         context.topicManager = topicManager;
         context.startSendOperationForThrottling = startSendOperationForThrottling;
         context.completeSendOperationForThrottling = completeSendOperationForThrottling;
         context.pendingTopicFuturesMap = pendingTopicFuturesMap;
         context.ctx = ctx;
+        context.trace = trace;
+        context.sourceBuffer = sourceBuffer;
 
         return context;
     }
@@ -65,6 +74,8 @@ public class AppendRecordsContext {
         startSendOperationForThrottling = null;
         completeSendOperationForThrottling = null;
         pendingTopicFuturesMap = null;
+        trace = null;
+        sourceBuffer = null;
         recyclerHandle.recycle(this);
         ctx = null;
     }
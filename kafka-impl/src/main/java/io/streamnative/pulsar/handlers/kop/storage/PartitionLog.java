@@ -25,6 +25,7 @@ import io.streamnative.pulsar.handlers.kop.MessageFetchContext;
 import io.streamnative.pulsar.handlers.kop.MessagePublishContext;
 import io.streamnative.pulsar.handlers.kop.PendingTopicFutures;
 import io.streamnative.pulsar.handlers.kop.RequestStats;
+import io.streamnative.pulsar.handlers.kop.RequestTrace;
 import io.streamnative.pulsar.handlers.kop.exceptions.MetadataCorruptedException;
 import io.streamnative.pulsar.handlers.kop.format.DecodeResult;
 import io.streamnative.pulsar.handlers.kop.format.EncodeRequest;
@@ -32,6 +33,9 @@ import io.streamnative.pulsar.handlers.kop.format.EncodeResult;
 import io.streamnative.pulsar.handlers.kop.format.EntryFormatter;
 import io.streamnative.pulsar.handlers.kop.format.EntryFormatterFactory;
 import io.streamnative.pulsar.handlers.kop.format.KafkaMixedEntryFormatter;
+import io.streamnative.pulsar.handlers.kop.jfr.FetchPartitionReadEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.KopEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.ProducePublishEvent;
 import io.streamnative.pulsar.handlers.kop.utils.KopLogValidator;
 import io.streamnative.pulsar.handlers.kop.utils.MessageMetadataUtils;
 import java.nio.ByteBuffer;
@@ -48,6 +52,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
@@ -107,6 +112,7 @@ public class PartitionLog {
     private final RequestStats requestStats;
     private final Time time;
     private final TopicPartition topicPartition;
+    @Getter
     private final String fullPartitionName;
     private final AtomicReference<CompletableFuture<EntryFormatter>> entryFormatter = new AtomicReference<>();
     private final ProducerStateManager producerStateManager;
@@ -411,48 +417,37 @@ public class PartitionLog {
                 return appendFuture;
             }
 
-            CompletableFuture<EntryFormatter> entryFormatterHandle = getEntryFormatter(topicFuture);
+            final CompletableFuture<EntryFormatter> entryFormatterHandle = getEntryFormatter(topicFuture);
+            final PendingTopicFutures pendingTopicFutures =
+                    appendRecordsContext.getPendingTopicFuturesMap().get(topicPartition);
+            if (topicFuture.isDone() && entryFormatterHandle.isDone()
+                    && !entryFormatterHandle.isCompletedExceptionally()
+                    && (pendingTopicFutures == null || pendingTopicFutures.isEmpty())) {
+                // The topic and the entry formatter are ready and no previous append of this partition is waiting
+                // for them, so the records can be published in order without being queued.
+                encodeAndPublish(topicFuture.join(), entryFormatterHandle.join(), validRecords, appendInfo,
+                        appendFuture, appendRecordsContext, beforeRecordsProcess,
+                        requestStats.getPendingTopicFastPathLatencyStats());
+                return appendFuture;
+            }
+
+            // The queued appends are completed after both the topic and the entry formatter are ready, so each one
+            // is published inline by PendingTopicFutures in the order they're queued.
+            final CompletableFuture<Optional<PersistentTopic>> readyFuture = topicFuture.thenCompose(topicOpt ->
+                    entryFormatterHandle.handle((__, ignored) -> topicOpt));
             final Consumer<Optional<PersistentTopic>> persistentTopicConsumer = persistentTopicOpt -> {
-                if (!persistentTopicOpt.isPresent()) {
+                if (!persistentTopicOpt.isPresent() || entryFormatterHandle.isCompletedExceptionally()) {
                     appendFuture.completeExceptionally(Errors.NOT_LEADER_OR_FOLLOWER.exception());
                     return;
                 }
-
-                final ManagedLedger managedLedger = persistentTopicOpt.get().getManagedLedger();
-                entryFormatterHandle.whenComplete((entryFormatter, ee) ->{
-                    if (ee != null) {
-                        appendFuture.completeExceptionally(Errors.NOT_LEADER_OR_FOLLOWER.exception());
-                        return;
-                    }
-                    if (entryFormatter instanceof KafkaMixedEntryFormatter) {
-                        final long logEndOffset = MessageMetadataUtils.getLogEndOffset(managedLedger);
-                        appendInfo.firstOffset(Optional.of(logEndOffset));
-                    }
-                    final EncodeRequest encodeRequest = EncodeRequest.get(validRecords, appendInfo);
-
-                    requestStats.getPendingTopicLatencyStats().registerSuccessfulEvent(
-                            time.nanoseconds() - beforeRecordsProcess, TimeUnit.NANOSECONDS);
-
-                    long beforeEncodingStarts = time.nanoseconds();
-                    final EncodeResult encodeResult = entryFormatter.encode(encodeRequest);
-                    encodeRequest.recycle();
-
-                    requestStats.getProduceEncodeStats().registerSuccessfulEvent(
-                            time.nanoseconds() - beforeEncodingStarts, TimeUnit.NANOSECONDS);
-                    appendRecordsContext.getStartSendOperationForThrottling()
-                            .accept(encodeResult.getEncodedByteBuf().readableBytes());
-
-                    publishMessages(persistentTopicOpt,
-                            appendFuture,
-                            appendInfo,
-                            encodeResult,
-                            appendRecordsContext);
-                });
+                encodeAndPublish(persistentTopicOpt, entryFormatterHandle.join(), validRecords, appendInfo,
+                        appendFuture, appendRecordsContext, beforeRecordsProcess,
+                        requestStats.getPendingTopicLatencyStats());
             };
 
             appendRecordsContext.getPendingTopicFuturesMap()
                     .computeIfAbsent(topicPartition, ignored -> new PendingTopicFutures(requestStats))
-                    .addListener(topicFuture, persistentTopicConsumer, appendFuture::completeExceptionally);
+                    .addListener(readyFuture, persistentTopicConsumer, appendFuture::completeExceptionally);
         } catch (Exception exception) {
             log.error("Failed to handle produce request for {}", topicPartition, exception);
             appendFuture.completeExceptionally(exception);
@@ -461,6 +456,44 @@ public class PartitionLog {
         return appendFuture;
     }
 
+    private void encodeAndPublish(final Optional<PersistentTopic> persistentTopicOpt,
+                                  final EntryFormatter entryFormatter,
+                                  final MemoryRecords validRecords,
+                                  final LogAppendInfo appendInfo,
+                                  final CompletableFuture<Long> appendFuture,
+                                  final AppendRecordsContext appendRecordsContext,
+                                  final long beforeRecordsProcess,
+                                  final OpStatsLogger pendingTopicLatencyStats) {
+        if (entryFormatter instanceof KafkaMixedEntryFormatter) {
+            final ManagedLedger managedLedger = persistentTopicOpt.get().getManagedLedger();
+            final long logEndOffset = MessageMetadataUtils.getLogEndOffset(managedLedger);
+            appendInfo.firstOffset(Optional.of(logEndOffset));
+        }
+        final EncodeRequest encodeRequest =
+                EncodeRequest.get(validRecords, appendInfo, appendRecordsContext.getSourceBuffer());
+
+        final RequestTrace trace = appendRecordsContext.getTrace();
+        final long pendingTopicNanos = time.nanoseconds() - beforeRecordsProcess;
+        pendingTopicLatencyStats.registerSuccessfulEvent(pendingTopicNanos, TimeUnit.NANOSECONDS);
+        trace.recordElapsed(RequestTrace.Stage.TOPIC_LOOKUP, pendingTopicNanos);
+
+        long beforeEncodingStarts = time.nanoseconds();
+        final EncodeResult encodeResult = entryFormatter.encode(encodeRequest);
+        encodeRequest.recycle();
+
+        final long encodeNanos = time.nanoseconds() - beforeEncodingStarts;
+        requestStats.getProduceEncodeStats().registerSuccessfulEvent(encodeNanos, TimeUnit.NANOSECONDS);
+        trace.recordElapsed(RequestTrace.Stage.ENCODE, encodeNanos);
+        appendRecordsContext.getStartSendOperationForThrottling()
+                .accept(encodeResult.getEncodedByteBuf().readableBytes());
+
+        publishMessages(persistentTopicOpt,
+                appendFuture,
+                appendInfo,
+                encodeResult,
+                appendRecordsContext);
+    }
+
     public Position getLastPosition(KafkaTopicManager topicManager) {
         final CompletableFuture<Optional<PersistentTopic>> topicFuture =
                 topicManager.getTopic(fullPartitionName);
@@ -489,9 +522,11 @@ public class PartitionLog {
         final long startPrepareMetadataNanos = MathUtils.nowInNano();
         final CompletableFuture<ReadRecordsResult> future = new CompletableFuture<>();
         final long offset = partitionData.fetchOffset;
+        final RequestTrace trace = context.getTrace();
         KafkaTopicManager topicManager = context.getTopicManager();
         // The future that is returned by getTopicConsumerManager is always completed normally
         topicManager.getTopicConsumerManager(fullPartitionName).thenAccept(tcm -> {
+            trace.record(RequestTrace.Stage.TOPIC_LOOKUP, startPrepareMetadataNanos);
             if (tcm == null) {
                 registerPrepareMetadataFailedEvent(startPrepareMetadataNanos);
                 // remove null future cache
@@ -512,6 +547,7 @@ public class PartitionLog {
                 log.debug("Fetch for {}: remove tcm to get cursor for fetch offset: {} .", topicPartition, offset);
             }
 
+            final long startCursorNanos = MathUtils.nowInNano();
             final CompletableFuture<Pair<ManagedCursor, Long>> cursorFuture = tcm.removeCursorFuture(offset);
 
             if (cursorFuture == null) {
@@ -523,6 +559,7 @@ public class PartitionLog {
                 return;
             }
             cursorFuture.thenAccept((cursorLongPair) -> {
+                trace.record(RequestTrace.Stage.CURSOR, startCursorNanos);
 
                 if (cursorLongPair == null) {
                     log.warn("KafkaTopicConsumerManager.remove({}) return null for topic {}. "
@@ -551,8 +588,10 @@ public class PartitionLog {
                         return;
                     }
                 }
+                final long startReadNanos = MathUtils.nowInNano();
                 readEntries(cursor, topicPartition, cursorOffset, maxReadEntriesNum, adjustedMaxBytes, topicManager)
                         .whenComplete((entries, throwable) -> {
+                            trace.record(RequestTrace.Stage.READ, startReadNanos);
                             if (throwable != null) {
                                 tcm.deleteOneCursorAsync(cursorLongPair.getLeft(),
                                         "cursor.readEntry fail. deleteCursor");
@@ -635,6 +674,7 @@ public class PartitionLog {
 
         // use compatible magic value by apiVersion
         final byte magic = getCompatibleMagic(context.getHeader().apiVersion());
+        final RequestTrace trace = context.getTrace();
 
         // this part is heavyweight, and we should not execute in the ManagedLedger Ordered executor thread
         final CompletableFuture<String> groupNameFuture = kafkaConfig.isKopEnableGroupLevelConsumerMetrics()
@@ -660,6 +700,7 @@ public class PartitionLog {
             final DecodeResult decodeResult = entryFormatter.decode(committedEntries, magic);
             requestStats.getFetchDecodeStats().registerSuccessfulEvent(
                     MathUtils.elapsedNanos(startDecodingEntriesNanos), TimeUnit.NANOSECONDS);
+            trace.record(RequestTrace.Stage.DECODE, startDecodingEntriesNanos);
 
             // collect consumer metrics
             decodeResult.updateConsumerStats(topicPartition, committedEntries.size(), groupName, requestStats);
@@ -747,10 +788,14 @@ public class PartitionLog {
         }
 
         final long originalOffset = cursorOffset.get();
+        final FetchPartitionReadEvent readEvent = KopEvent.beginIfEnabled(new FetchPartitionReadEvent());
         cursor.asyncReadEntries(maxReadEntriesNum, adjustedMaxBytes, new AsyncCallbacks.ReadEntriesCallback() {
 
             @Override
             public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                if (readEvent != null) {
+                    commitReadEvent(readEvent, originalOffset, entries, true);
+                }
                 if (!entries.isEmpty()) {
                     final Entry lastEntry = entries.get(entries.size() - 1);
                     final PositionImpl currentPosition = PositionImpl.get(
@@ -790,6 +835,9 @@ public class PartitionLog {
 
             @Override
             public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                if (readEvent != null) {
+                    commitReadEvent(readEvent, originalOffset, Collections.emptyList(), false);
+                }
                 log.error("Error read entry for topic: {}", fullPartitionName);
                 if (exception instanceof ManagedLedgerException.ManagedLedgerFencedException) {
                     topicManager.invalidateCacheForFencedManagerLedgerOnTopic(fullPartitionName);
@@ -803,6 +851,21 @@ public class PartitionLog {
         return readFuture;
     }
 
+    private void commitReadEvent(FetchPartitionReadEvent readEvent, long fetchOffset, List<Entry> entries,
+                                 boolean success) {
+        readEvent.topic = topicPartition.topic();
+        readEvent.partition = topicPartition.partition();
+        readEvent.fetchOffset = fetchOffset;
+        readEvent.entries = entries.size();
+        long bytes = 0;
+        for (Entry entry : entries) {
+            bytes += entry.getLength();
+        }
+        readEvent.bytes = bytes;
+        readEvent.success = success;
+        readEvent.endAndCommit();
+    }
+
     // commit the offset, so backlog not affect by this cursor.
     private static void commitOffset(NonDurableCursorImpl cursor, PositionImpl currentPosition) {
         cursor.asyncMarkDelete(currentPosition, new AsyncCallbacks.MarkDeleteCallback() {
@@ -854,15 +917,27 @@ public class PartitionLog {
         final int numMessages = encodeResult.getNumMessages();
         final ByteBuf byteBuf = encodeResult.getEncodedByteBuf();
         final int byteBufSize = byteBuf.readableBytes();
+        // The context might be recycled before the trace is used
+        final RequestTrace trace = appendRecordsContext.getTrace();
         final long beforePublish = time.nanoseconds();
+        final ProducePublishEvent publishEvent = KopEvent.beginIfEnabled(new ProducePublishEvent());
 
         publishMessage(persistentTopic, byteBuf, appendInfo)
                 .whenComplete((offset, e) -> {
             appendRecordsContext.getCompleteSendOperationForThrottling().accept(byteBufSize);
+            if (publishEvent != null) {
+                publishEvent.topic = topicPartition.topic();
+                publishEvent.partition = topicPartition.partition();
+                publishEvent.messages = numMessages;
+                publishEvent.bytes = byteBufSize;
+                publishEvent.success = (e == null);
+                publishEvent.endAndCommit();
+            }
 
             if (e == null) {
-                requestStats.getMessagePublishStats().registerSuccessfulEvent(
-                        time.nanoseconds() - beforePublish, TimeUnit.NANOSECONDS);
+                final long publishNanos = time.nanoseconds() - beforePublish;
+                requestStats.getMessagePublishStats().registerSuccessfulEvent(publishNanos, TimeUnit.NANOSECONDS);
+                trace.recordElapsed(RequestTrace.Stage.PUBLISH, publishNanos);
                 final long lastOffset = offset + numMessages - 1;
 
                 AnalyzeResult analyzeResult = analyzeAndValidateProducerState(
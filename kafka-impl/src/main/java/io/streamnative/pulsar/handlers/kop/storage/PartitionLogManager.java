@@ -23,6 +23,7 @@ import lombok.AllArgsConstructor;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.Time;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
+import org.apache.pulsar.common.naming.TopicName;
 
 /**
  * Manage {@link PartitionLog}.
@@ -35,6 +36,9 @@ public class PartitionLogManager {
     private final Map<String, PartitionLog> logMap;
     private final Time time;
     private final List<EntryFilter> entryFilters;
+    // namespace prefix -> the TopicPartition in the requests -> PartitionLog, it avoids resolving the full partition
+    // name of each partition of each request. The entries are removed with the PartitionLog.
+    private final Map<String, Map<TopicPartition, PartitionLog>> resolvedLogs;
 
     public PartitionLogManager(KafkaServiceConfiguration kafkaConfig,
                                RequestStats requestStats,
@@ -45,23 +49,76 @@ public class PartitionLogManager {
         this.logMap = Maps.newConcurrentMap();
         this.entryFilters = entryFilters;
         this.time = time;
+        this.resolvedLogs = Maps.newConcurrentMap();
     }
 
     public PartitionLog getLog(TopicPartition topicPartition, String namespacePrefix) {
+        final Map<TopicPartition, PartitionLog> logs = (namespacePrefix == null) ? null
+                : resolvedLogs.computeIfAbsent(namespacePrefix, __ -> Maps.newConcurrentMap());
+        if (logs != null) {
+            final PartitionLog partitionLog = logs.get(topicPartition);
+            if (partitionLog != null) {
+                return partitionLog;
+            }
+        }
+
         String kopTopic = KopTopic.toString(topicPartition, namespacePrefix);
 
-        return logMap.computeIfAbsent(kopTopic, key -> {
+        final PartitionLog partitionLog = logMap.computeIfAbsent(kopTopic, key -> {
                 return new PartitionLog(kafkaConfig, requestStats, time, topicPartition, kopTopic, entryFilters,
                         new ProducerStateManager(kopTopic));
         });
+        if (logs != null) {
+            logs.put(topicPartition, partitionLog);
+            // The log might be removed before it's put into the resolved logs
+            if (logMap.get(kopTopic) != partitionLog) {
+                logs.remove(topicPartition, partitionLog);
+            }
+        }
+        return partitionLog;
+    }
+
+    /**
+     * Get the full partition name without creating the PartitionLog. The name of a resolved log is reused.
+     */
+    public String getFullPartitionName(TopicPartition topicPartition, String namespacePrefix) {
+        final Map<TopicPartition, PartitionLog> logs = (namespacePrefix == null) ? null
+                : resolvedLogs.get(namespacePrefix);
+        final PartitionLog partitionLog = (logs == null) ? null : logs.get(topicPartition);
+        if (partitionLog != null) {
+            return partitionLog.getFullPartitionName();
+        }
+        return KopTopic.toString(topicPartition, namespacePrefix);
     }
 
     public PartitionLog removeLog(String topicName) {
-        return logMap.remove(topicName);
+        final PartitionLog partitionLog = logMap.remove(topicName);
+        if (partitionLog != null) {
+            removeResolvedLog(topicName, partitionLog);
+        }
+        return partitionLog;
+    }
+
+    // A partition can be requested by "topic" in its namespace, "tenant/namespace/topic" or the full topic name
+    private void removeResolvedLog(String fullPartitionName, PartitionLog partitionLog) {
+        final TopicName topicName = TopicName.get(fullPartitionName);
+        final int partition = topicName.getPartitionIndex();
+        if (partition < 0) {
+            return;
+        }
+        final String fullTopicName = topicName.getPartitionedTopicName();
+        final String shortTopicName = KopTopic.removePersistentDomain(fullTopicName);
+        final String localTopicName = TopicName.get(fullTopicName).getLocalName();
+        resolvedLogs.forEach((namespacePrefix, logs) -> {
+            logs.remove(new TopicPartition(fullTopicName, partition), partitionLog);
+            logs.remove(new TopicPartition(shortTopicName, partition), partitionLog);
+            if (namespacePrefix.equals(topicName.getNamespace())) {
+                logs.remove(new TopicPartition(localTopicName, partition), partitionLog);
+            }
+        });
     }
 
     public int size() {
         return logMap.size();
     }
 }
-
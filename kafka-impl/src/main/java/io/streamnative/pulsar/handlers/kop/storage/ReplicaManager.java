@@ -148,28 +148,30 @@ public class ReplicaManager {
             }
         };
         entriesPerPartition.forEach((topicPartition, memoryRecords) -> {
-            String fullPartitionName = KopTopic.toString(topicPartition, namespacePrefix);
-            // reject appending to internal topics if it is not allowed
-            if (!internalTopicsAllowed && KopTopic.isInternalTopic(fullPartitionName, metadataNamespace)) {
+            // reject appending to internal topics if it is not allowed, the name is checked before getting the
+            // PartitionLog so that no PartitionLog is created for the rejected partitions
+            if (!internalTopicsAllowed && KopTopic.isInternalTopic(
+                    logManager.getFullPartitionName(topicPartition, namespacePrefix), metadataNamespace)) {
                 addPartitionResponse.accept(topicPartition, new ProduceResponse.PartitionResponse(
                         Errors.forException(new InvalidTopicException(
                                 String.format("Cannot append to internal topic %s", topicPartition.topic())))));
             } else {
-                PartitionLog partitionLog = getPartitionLog(topicPartition, namespacePrefix);
-                if (requiredAcks == 0) {
-                    partitionLog.appendRecords(memoryRecords, origin, appendRecordsContext);
-                } else {
-                    partitionLog.appendRecords(memoryRecords, origin, appendRecordsContext)
-                        .thenAccept(offset -> addPartitionResponse.accept(topicPartition,
-                            new ProduceResponse.PartitionResponse(Errors.NONE, offset, -1L, -1L)))
-                        .exceptionally(ex -> {
-                            addPartitionResponse.accept(topicPartition,
-                                new ProduceResponse.PartitionResponse(Errors.forException(ex.getCause())));
-                            return null;
-                        });
-                }
+                getPartitionLog(topicPartition, namespacePrefix)
+                    .appendRecords(memoryRecords, origin, appendRecordsContext)
+                    .thenAccept(offset -> addPartitionResponse.accept(topicPartition,
+                        new ProduceResponse.PartitionResponse(Errors.NONE, offset, -1L, -1L)))
+                    .exceptionally(ex -> {
+                        addPartitionResponse.accept(topicPartition,
+                            new ProduceResponse.PartitionResponse(Errors.forException(ex.getCause())));
+                        return null;
+                    });
             }
         });
+        if (requiredAcks == 0) {
+            // No response is sent for acks=0, so the future is completed after all the records are appended
+            // instead of after the timeout. The caller can release the records once it's completed.
+            return completableFuture;
+        }
         // delay produce
         if (timeout <= 0) {
             complete.run();
@@ -234,6 +236,7 @@ public class ReplicaManager {
                             readResults,
                             future
                     );
+                    context.onDelayed(delayedFetch);
                     fetchPurgatory.tryCompleteElseWatch(delayedFetch, delayedFetchKeys);
                 });
 
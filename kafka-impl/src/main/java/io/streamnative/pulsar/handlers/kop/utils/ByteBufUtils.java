@@ -16,6 +16,7 @@ package io.streamnative.pulsar.handlers.kop.utils;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.streamnative.pulsar.handlers.kop.format.DecodeResult;
 import io.streamnative.pulsar.handlers.kop.format.DirectBufferOutputStream;
 import java.io.IOException;
@@ -51,6 +52,8 @@ public class ByteBufUtils {
 
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
     private static final int MAX_RECORDS_BUFFER_SIZE = 10 * 1024 * 1024;
+    // The max ratio of the memory that a slice keeps alive to the sliced bytes
+    private static final int MAX_RETAINED_CAPACITY_RATIO = 2;
 
     public static ByteBuffer getKeyByteBuffer(SingleMessageMetadata messageMetadata) {
         if (messageMetadata.hasOrderingKey()) {
@@ -87,6 +90,58 @@ public class ByteBufUtils {
         }
     }
 
+    /**
+     * Get a retained slice of the source buffer that shares the memory with the given NIO buffer, e.g. the records
+     * buffer of a request that is parsed from {@code source.nioBuffer()}.
+     *
+     * <p>A slice retains the whole buffer that the source buffer is derived from, e.g. the cumulation buffer of the
+     * frame decoder that might hold other requests. So the slice is only taken when the retained capacity is at most
+     * {@link #MAX_RETAINED_CAPACITY_RATIO} times the sliced bytes.
+     *
+     * @param source the source buffer
+     * @param buffer the NIO buffer whose remaining bytes are sliced
+     * @return the retained slice, or null if the remaining bytes of the NIO buffer are not in the memory of the
+     *   source buffer's readable bytes, or the slice would retain too much memory
+     */
+    public static ByteBuf retainedSliceOf(@NonNull ByteBuf source, @NonNull ByteBuffer buffer) {
+        if (retainedCapacity(source) > (long) MAX_RETAINED_CAPACITY_RATIO * buffer.remaining()) {
+            return null;
+        }
+        final long index;
+        if (buffer.isDirect()) {
+            if (!source.hasMemoryAddress()) {
+                return null;
+            }
+            // The wrapper shares the memory of the NIO buffer from its position, it's only used to get the address
+            final ByteBuf wrapper = Unpooled.wrappedBuffer(buffer);
+            if (!wrapper.hasMemoryAddress()) {
+                return null;
+            }
+            index = wrapper.memoryAddress() - source.memoryAddress();
+        } else {
+            if (!buffer.hasArray() || !source.hasArray() || buffer.array() != source.array()) {
+                return null;
+            }
+            index = (long) buffer.arrayOffset() + buffer.position() - source.arrayOffset();
+        }
+        if (index < source.readerIndex() || index + buffer.remaining() > source.writerIndex()) {
+            return null;
+        }
+        return source.retainedSlice((int) index, buffer.remaining());
+    }
+
+    /**
+     * Get the capacity of the buffer that the given buffer is derived from, which is the memory that a slice or a
+     * duplicate of the given buffer keeps alive.
+     */
+    public static int retainedCapacity(@NonNull ByteBuf buffer) {
+        ByteBuf root = buffer;
+        for (ByteBuf unwrapped = root.unwrap(); unwrapped != null; unwrapped = root.unwrap()) {
+            root = unwrapped;
+        }
+        return root.capacity();
+    }
+
     public static ByteBuffer getNioBuffer(ByteBuf buffer) {
         if (buffer.isDirect()) {
             return buffer.nioBuffer();
@@ -0,0 +1,58 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.common.TopicPartition;
+
+/**
+ * The full partition names resolved by {@link KopTopic#toString(TopicPartition, String)}, which is owned by a
+ * connection so that the partitions of each request are not resolved again.
+ *
+ * <p>The names only depend on the namespace prefix and the topic partition, so they never become stale. The total
+ * number of cached names of all namespace prefixes is bounded, the names beyond the bound are resolved each time.
+ */
+public class KopTopicNameCache {
+
+    private final int maxSize;
+    // namespace prefix -> topic partition -> full partition name
+    private final Map<String, Map<TopicPartition, String>> names = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public KopTopicNameCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String toString(TopicPartition topicPartition, String namespacePrefix) {
+        if (namespacePrefix == null) {
+            return KopTopic.toString(topicPartition, null);
+        }
+        final Map<TopicPartition, String> partitionNames =
+                names.computeIfAbsent(namespacePrefix, __ -> new ConcurrentHashMap<>());
+        String name = partitionNames.get(topicPartition);
+        if (name == null) {
+            name = KopTopic.toString(topicPartition, namespacePrefix);
+            if (size.incrementAndGet() > maxSize || partitionNames.putIfAbsent(topicPartition, name) != null) {
+                size.decrementAndGet();
+            }
+        }
+        return name;
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
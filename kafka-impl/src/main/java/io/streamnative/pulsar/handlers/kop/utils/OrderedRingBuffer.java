@@ -0,0 +1,164 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A bounded FIFO ring buffer whose elements are only removed from the head.
+ *
+ * <p>Unlike {@link java.util.concurrent.LinkedBlockingQueue#remove(Object)}, which scans the queue to remove an
+ * element, {@link #removeHead(Object)} only compares the head, so advancing the head is O(1). It also doesn't
+ * allocate a node for each element.
+ *
+ * @param <T> the type of the elements
+ */
+public class OrderedRingBuffer<T> {
+
+    private final Object[] elements;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private int head = 0;
+    private int size = 0;
+
+    public OrderedRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity should be positive, but it's " + capacity);
+        }
+        this.elements = new Object[capacity];
+    }
+
+    /**
+     * Add an element to the tail, waiting if necessary for space to become available.
+     */
+    public void put(T element) throws InterruptedException {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        lock.lockInterruptibly();
+        try {
+            while (size == elements.length) {
+                notFull.await();
+            }
+            elements[index(size)] = element;
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the head element.
+     *
+     * @return the head element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        lock.lock();
+        try {
+            return (size == 0) ? null : (T) elements[head];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove the head element if it's the expected element.
+     *
+     * @return true if the element is removed, false if the head is another element, e.g. the expected element has
+     *   been removed by another thread
+     */
+    public boolean removeHead(T expected) {
+        lock.lock();
+        try {
+            if (size == 0 || elements[head] != expected) {
+                return false;
+            }
+            removeHeadUnsafe();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove and return the head element.
+     *
+     * @return the head element, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        lock.lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            final T element = (T) elements[head];
+            removeHeadUnsafe();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check whether any element after the head matches the predicate, from the oldest to the newest.
+     */
+    @SuppressWarnings("unchecked")
+    public boolean anyMatchAfterHead(Predicate<T> predicate) {
+        lock.lock();
+        try {
+            for (int i = 1; i < size; i++) {
+                if (predicate.test((T) elements[index(i)])) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return size == elements.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void removeHeadUnsafe() {
+        elements[head] = null;
+        head = index(1);
+        size--;
+        notFull.signal();
+    }
+
+    private int index(int offset) {
+        final int i = head + offset;
+        return (i < elements.length) ? i : i - elements.length;
+    }
+}
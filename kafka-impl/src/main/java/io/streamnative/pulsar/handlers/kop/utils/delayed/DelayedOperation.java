@@ -13,6 +13,8 @@
  */
 package io.streamnative.pulsar.handlers.kop.utils.delayed;
 
+import io.streamnative.pulsar.handlers.kop.jfr.KopEvent;
+import io.streamnative.pulsar.handlers.kop.jfr.PurgatoryWaitEvent;
 import io.streamnative.pulsar.handlers.kop.utils.timer.TimerTask;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,12 +42,15 @@ public abstract class DelayedOperation extends TimerTask {
     private final AtomicBoolean completed = new AtomicBoolean(false);
     private final AtomicBoolean tryCompletePending = new AtomicBoolean(false);
     final Lock lock;
+    // null if the JFR event is not enabled
+    private final PurgatoryWaitEvent waitEvent;
 
     protected DelayedOperation(long delayMs,
                                Optional<Lock> lockOpt) {
         super(delayMs);
         this.lockOpt = lockOpt;
         this.lock = lockOpt.orElseGet(() -> new ReentrantLock());
+        this.waitEvent = KopEvent.beginIfEnabled(new PurgatoryWaitEvent());
     }
 
     /**
@@ -61,10 +66,19 @@ public abstract class DelayedOperation extends TimerTask {
      * true, others will still return false
      */
     public boolean forceComplete() {
+        return forceComplete(false);
+    }
+
+    private boolean forceComplete(boolean expired) {
         if (completed.compareAndSet(false, true)) {
             // cancel the timeout timer
             cancel();
             onComplete();
+            if (waitEvent != null) {
+                waitEvent.operation = getClass().getSimpleName();
+                waitEvent.expired = expired;
+                waitEvent.endAndCommit();
+            }
             return true;
         } else {
             return false;
@@ -140,7 +154,7 @@ public abstract class DelayedOperation extends TimerTask {
      */
     @Override
     public void run() {
-        if (forceComplete()) {
+        if (forceComplete(true)) {
             onExpiration();
         }
     }
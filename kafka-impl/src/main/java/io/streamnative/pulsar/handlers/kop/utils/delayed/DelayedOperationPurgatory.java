@@ -14,8 +14,7 @@
 package io.streamnative.pulsar.handlers.kop.utils.delayed;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static io.streamnative.pulsar.handlers.kop.utils.CoreUtils.inReadLock;
-import static io.streamnative.pulsar.handlers.kop.utils.CoreUtils.inWriteLock;
+import static io.streamnative.pulsar.handlers.kop.utils.CoreUtils.inLock;
 
 import io.streamnative.pulsar.handlers.kop.utils.ShutdownableThread;
 import io.streamnative.pulsar.handlers.kop.utils.timer.SystemTimer;
@@ -29,7 +28,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -38,6 +38,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class DelayedOperationPurgatory<T extends DelayedOperation> {
 
+    // The default number of shards of watcher lists, the same as Kafka's
+    public static final int DEFAULT_SHARDS = 512;
+
     public static <T extends DelayedOperation> Builder<T> builder() {
         return new Builder<>();
     }
@@ -52,6 +55,7 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
         private int purgeInterval = 1000;
         private boolean reaperEnabled = true;
         private boolean timerEnabled = true;
+        private int shards = DEFAULT_SHARDS;
 
         private Builder() {}
 
@@ -80,6 +84,11 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
             return this;
         }
 
+        public Builder<T> shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
         public DelayedOperationPurgatory<T> build() {
             boolean ownTimer;
             if (null == timer) {
@@ -94,7 +103,8 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
                 ownTimer,
                 purgeInterval,
                 reaperEnabled,
-                timerEnabled
+                timerEnabled,
+                shards
             );
         }
     }
@@ -106,10 +116,8 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
     private final boolean reaperEnabled;
     private final boolean timerEnabled;
 
-    /* a list of operation watching keys */
-    private final ConcurrentMap<Object, Watchers> watchersForKey;
-
-    private final ReentrantReadWriteLock removeWatchersLock = new ReentrantReadWriteLock();
+    /* the watcher lists sharded by the hash of keys, each shard is locked independently */
+    private final List<WatcherList> watcherLists;
 
     // the number of estimated total operations in the purgatory
     private final AtomicInteger estimatedTotalOperations = new AtomicInteger(0);
@@ -125,6 +133,19 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
         boolean reaperEnabled,
         boolean timerEnabled
     ) {
+        this(purgatoryName, timeoutTimer, ownTimer, purgeInterval, reaperEnabled, timerEnabled, DEFAULT_SHARDS);
+    }
+
+    public DelayedOperationPurgatory(
+        String purgatoryName,
+        Timer timeoutTimer,
+        boolean ownTimer,
+        int purgeInterval,
+        boolean reaperEnabled,
+        boolean timerEnabled,
+        int shards
+    ) {
+        checkArgument(shards > 0, "The number of shards must be positive");
         this.purgatoryName = purgatoryName;
         this.timeoutTimer = timeoutTimer;
         this.ownTimer = ownTimer;
@@ -132,7 +153,10 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
         this.reaperEnabled = reaperEnabled;
         this.timerEnabled = timerEnabled;
 
-        this.watchersForKey = new ConcurrentHashMap<>();
+        this.watcherLists = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            watcherLists.add(new WatcherList());
+        }
         this.expirationReaper = new ShutdownableThread(
             String.format("ExpirationReaper-%s", purgatoryName)
         ) {
@@ -220,9 +244,9 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
      * @return the number of completed operations during this process
      */
     public int checkAndComplete(Object key) {
-        Watchers watchers = inReadLock(
-            removeWatchersLock,
-            () -> watchersForKey.get(key));
+        // The lookup doesn't need the lock of the shard. A watchers is only removed from its shard when it's
+        // empty, and no operation can be added to it after the removal, so completing a removed watchers is a no-op.
+        Watchers watchers = watcherList(key).watchersByKey.get(key);
         if (null == watchers) {
             return 0;
         } else {
@@ -250,8 +274,9 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
      * Cancel watching on any delayed operations for the given key. Note the operation will not be completed
      */
     public List<T> cancelForKey(Object key) {
-        return inWriteLock(removeWatchersLock, () -> {
-            Watchers watchers = watchersForKey.remove(key);
+        final WatcherList watcherList = watcherList(key);
+        return inLock(watcherList.watchersLock, () -> {
+            Watchers watchers = watcherList.watchersByKey.remove(key);
             if (watchers != null) {
                 return watchers.cancel();
             } else {
@@ -264,16 +289,23 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
      * note that the returned watchers may be removed from the list by other threads
      */
     private Collection<Watchers> allWatchers() {
-        return inReadLock(removeWatchersLock, () -> watchersForKey.values());
+        return watcherLists.stream()
+            .flatMap(watcherList -> watcherList.watchersByKey.values().stream())
+            .collect(Collectors.toList());
+    }
+
+    private WatcherList watcherList(Object key) {
+        return watcherLists.get(Math.abs(key.hashCode() % watcherLists.size()));
     }
 
     /*
      * Return the watch list of the given key, note that we need to
-     * grab the removeWatchersLock to avoid the operation being added to a removed watcher list
+     * grab the lock of its shard to avoid the operation being added to a removed watcher list
      */
     private void watchForOperation(Object key, T operation) {
-        inReadLock(removeWatchersLock, () -> {
-            watchersForKey.computeIfAbsent(key, (k) -> new Watchers(k))
+        final WatcherList watcherList = watcherList(key);
+        inLock(watcherList.watchersLock, () -> {
+            watcherList.watchersByKey.computeIfAbsent(key, (k) -> new Watchers(k))
                 .watch(operation);
             return null;
         });
@@ -283,14 +315,15 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
      * Remove the key from watcher lists if its list is empty.
      */
     private void removeKeyIfEmpty(Object key, Watchers watchers) {
-        inWriteLock(removeWatchersLock, () -> {
+        final WatcherList watcherList = watcherList(key);
+        inLock(watcherList.watchersLock, () -> {
             // if the current key is no longer correlated to the watchers to remove, skip
-            if (watchersForKey.get(key) != watchers) {
+            if (watcherList.watchersByKey.get(key) != watchers) {
                 return null;
             }
 
             if (watchers != null && watchers.isEmpty()) {
-                watchersForKey.remove(key);
+                watcherList.watchersByKey.remove(key);
             }
             return null;
         });
@@ -313,6 +346,15 @@ public class DelayedOperationPurgatory<T extends DelayedOperation> {
         }
     }
 
+    /**
+     * A shard of the watcher lists.
+     */
+    private class WatcherList {
+
+        private final ConcurrentMap<Object, Watchers> watchersByKey = new ConcurrentHashMap<>();
+        private final ReentrantLock watchersLock = new ReentrantLock();
+    }
+
     /**
      * A linked list of watched delayed operations based on some key.
      */
@@ -0,0 +1,237 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils.ssl;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.TrustManagerFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.kafka.common.config.SslConfigs;
+import org.apache.pulsar.common.util.FileModifiedTimeUpdater;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+
+/**
+ * The factory of {@link SslHandler} for Kafka listeners and the transaction marker channels.
+ *
+ * <p>If kopSslUseOpenSsl is true and OpenSSL is available, the handlers are created from a Netty {@link SslContext}
+ * backed by OpenSSL, which caches the sessions for fast reconnects. Otherwise, they're created from the Jetty
+ * {@link SslContextFactory} with the JDK {@link javax.net.ssl.SSLEngine}.
+ *
+ * <p>In both cases, the key store and the trust store are reloaded when their files are modified, which is checked
+ * every kopSslCertRefreshCheckDurationSec by a task of the given scheduler, so that the stores are never loaded in the
+ * event loop that initializes a channel.
+ */
+@Slf4j
+public class SslHandlerFactory {
+
+    private final KafkaServiceConfiguration kafkaConfig;
+    private final boolean forClient;
+    @Getter
+    private final boolean openSsl;
+    private final List<FileModifiedTimeUpdater> watchedFiles = new ArrayList<>();
+    private final ScheduledFuture<?> refreshTask;
+
+    // Only one of them is used, depending on whether OpenSSL is used
+    private volatile SslContext sslContext;
+    private final SslContextFactory sslContextFactory;
+
+    public static SslHandlerFactory forServer(KafkaServiceConfiguration kafkaConfig,
+                                              @Nullable ScheduledExecutorService scheduler) throws Exception {
+        return new SslHandlerFactory(kafkaConfig, false, scheduler);
+    }
+
+    public static SslHandlerFactory forClient(KafkaServiceConfiguration kafkaConfig,
+                                              @Nullable ScheduledExecutorService scheduler) throws Exception {
+        return new SslHandlerFactory(kafkaConfig, true, scheduler);
+    }
+
+    /**
+     * @param scheduler the scheduler to check whether the stores are modified, if it's null, the stores are never
+     *                  reloaded
+     */
+    private SslHandlerFactory(KafkaServiceConfiguration kafkaConfig, boolean forClient,
+                              @Nullable ScheduledExecutorService scheduler) throws Exception {
+        this.kafkaConfig = kafkaConfig;
+        this.forClient = forClient;
+        if (kafkaConfig.isKopSslUseOpenSsl() && !OpenSsl.isAvailable()) {
+            log.warn("OpenSSL is not available, fall back to the JDK SSLEngine", OpenSsl.unavailabilityCause());
+        }
+        this.openSsl = kafkaConfig.isKopSslUseOpenSsl() && OpenSsl.isAvailable();
+        // The client of transaction markers only uses the trust store
+        if (!forClient && StringUtils.isNotEmpty(kafkaConfig.getKopSslKeystoreLocation())) {
+            watchedFiles.add(new FileModifiedTimeUpdater(kafkaConfig.getKopSslKeystoreLocation()));
+        }
+        if (StringUtils.isNotEmpty(kafkaConfig.getKopSslTruststoreLocation())) {
+            watchedFiles.add(new FileModifiedTimeUpdater(kafkaConfig.getKopSslTruststoreLocation()));
+        }
+
+        if (openSsl) {
+            this.sslContext = buildSslContext();
+            this.sslContextFactory = null;
+        } else {
+            this.sslContext = null;
+            this.sslContextFactory = forClient
+                    ? SSLUtils.createClientSslContextFactory(kafkaConfig)
+                    : SSLUtils.createSslContextFactory(kafkaConfig);
+        }
+
+        final long refreshCheckIntervalSec = kafkaConfig.getKopSslCertRefreshCheckDurationSec();
+        if (scheduler != null && refreshCheckIntervalSec > 0 && !watchedFiles.isEmpty()) {
+            this.refreshTask = scheduler.scheduleWithFixedDelay(this::refreshIfModified,
+                    refreshCheckIntervalSec, refreshCheckIntervalSec, TimeUnit.SECONDS);
+        } else {
+            this.refreshTask = null;
+        }
+    }
+
+    public SslHandler newHandler(ByteBufAllocator allocator) throws Exception {
+        if (openSsl) {
+            return sslContext.newHandler(allocator);
+        }
+        if (forClient) {
+            return new SslHandler(SSLUtils.createClientSslEngine((SslContextFactory.Client) sslContextFactory));
+        } else {
+            return new SslHandler(SSLUtils.createSslEngine((SslContextFactory.Server) sslContextFactory));
+        }
+    }
+
+    public void close() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void refreshIfModified() {
+        boolean modified = false;
+        for (FileModifiedTimeUpdater file : watchedFiles) {
+            // Check all files so that the modified time of each file is updated
+            modified |= file.checkAndRefresh();
+        }
+        if (!modified) {
+            return;
+        }
+        try {
+            refresh();
+            log.info("Reloaded the SSL key store and trust store of {}", forClient ? "client" : "server");
+        } catch (Exception e) {
+            // Keep using the previous context so that the new connections can still be established
+            log.error("Failed to reload the SSL key store and trust store of {}",
+                    forClient ? "client" : "server", e);
+        }
+    }
+
+    private void refresh() throws Exception {
+        if (openSsl) {
+            sslContext = buildSslContext();
+        } else if (sslContextFactory.isStarted()) {
+            // Otherwise, the stores will be loaded when the factory starts with the first handler
+            sslContextFactory.reload(__ -> {});
+        }
+    }
+
+    private SslContext buildSslContext() throws Exception {
+        final SslContextBuilder builder;
+        if (forClient) {
+            builder = SslContextBuilder.forClient();
+        } else {
+            builder = SslContextBuilder.forServer(loadKeyManagerFactory());
+            builder.clientAuth(getClientAuth(kafkaConfig.getKopSslClientAuth()));
+        }
+        builder.sslProvider(SslProvider.OPENSSL)
+                .trustManager(loadTrustManagerFactory())
+                .sessionCacheSize(kafkaConfig.getKopSslSessionCacheSize())
+                .sessionTimeout(kafkaConfig.getKopSslSessionTimeoutSec());
+        if (kafkaConfig.getKopSslEnabledProtocols() != null) {
+            builder.protocols(kafkaConfig.getKopSslEnabledProtocols());
+        }
+        if (kafkaConfig.getKopSslCipherSuites() != null) {
+            builder.ciphers(kafkaConfig.getKopSslCipherSuites());
+        }
+        return builder.build();
+    }
+
+    private KeyManagerFactory loadKeyManagerFactory() throws Exception {
+        final String keyPassword = (kafkaConfig.getKopSslKeyPassword() != null)
+                ? kafkaConfig.getKopSslKeyPassword()
+                : kafkaConfig.getKopSslKeystorePassword();
+        final KeyStore keyStore = loadKeyStore(kafkaConfig.getKopSslKeystoreType(),
+                kafkaConfig.getKopSslKeystoreLocation(), kafkaConfig.getKopSslKeystorePassword());
+        final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
+                (kafkaConfig.getKopSslKeymanagerAlgorithm() != null)
+                        ? kafkaConfig.getKopSslKeymanagerAlgorithm()
+                        : SslConfigs.DEFAULT_SSL_KEYMANGER_ALGORITHM);
+        keyManagerFactory.init(keyStore, (keyPassword != null) ? keyPassword.toCharArray() : null);
+        return keyManagerFactory;
+    }
+
+    private TrustManagerFactory loadTrustManagerFactory() throws Exception {
+        if (StringUtils.isEmpty(kafkaConfig.getKopSslTruststoreLocation())) {
+            // Use the default trust store of JDK
+            return null;
+        }
+        final KeyStore trustStore = loadKeyStore(kafkaConfig.getKopSslTruststoreType(),
+                kafkaConfig.getKopSslTruststoreLocation(), kafkaConfig.getKopSslTruststorePassword());
+        final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                (kafkaConfig.getKopSslTrustmanagerAlgorithm() != null)
+                        ? kafkaConfig.getKopSslTrustmanagerAlgorithm()
+                        : SslConfigs.DEFAULT_SSL_TRUSTMANAGER_ALGORITHM);
+        trustManagerFactory.init(trustStore);
+        return trustManagerFactory;
+    }
+
+    private static KeyStore loadKeyStore(String type, String location, String password) throws Exception {
+        if (StringUtils.isEmpty(location)) {
+            throw new IllegalArgumentException("The location of the " + type + " key store is not configured");
+        }
+        final KeyStore keyStore = KeyStore.getInstance(type);
+        try (InputStream inputStream = new FileInputStream(location)) {
+            keyStore.load(inputStream, (password != null) ? password.toCharArray() : null);
+        }
+        return keyStore;
+    }
+
+    private static ClientAuth getClientAuth(String sslClientAuth) {
+        if (sslClientAuth == null) {
+            return ClientAuth.NONE;
+        }
+        switch (sslClientAuth) {
+            case "requested":
+                return ClientAuth.OPTIONAL;
+            case "required":
+                return ClientAuth.REQUIRE;
+            default:
+                return ClientAuth.NONE;
+        }
+    }
+}
@@ -13,12 +13,22 @@
  */
 package io.streamnative.pulsar.handlers.kop.utils.timer;
 
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.TIMER_LAG;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.TIMER_SCOPE;
+
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.streamnative.pulsar.handlers.kop.stats.NullStatsLogger;
+import io.streamnative.pulsar.handlers.kop.stats.StatsLogger;
+import io.streamnative.pulsar.handlers.kop.utils.ShutdownableThread;
 import io.streamnative.pulsar.handlers.kop.utils.timer.TimerTaskList.TimerTaskEntry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
@@ -27,15 +37,24 @@ import java.util.function.Consumer;
 import javax.annotation.concurrent.ThreadSafe;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.stats.OpStatsLogger;
 import org.apache.kafka.common.utils.Time;
 
 /**
  * A system timer implementation.
+ *
+ * <p>The tasks are spread over a number of shards, each shard has its own {@link TimingWheel} and lock. With a
+ * single shard, the clock is only advanced by the callers of {@link #advanceClock(long)}. With multiple shards,
+ * each shard is advanced by its own reaper thread so that the buckets of different shards are expired in parallel,
+ * and the expired tasks are executed by a thread pool of the same size.
  */
 @Slf4j
 @ThreadSafe
 public class SystemTimer implements Timer {
 
+    // The timeout of each poll of the reaper threads of shards
+    private static final long SHARD_REAPER_POLL_TIMEOUT_MS = 200L;
+
     /**
      * Create a system timer builder.
      *
@@ -54,6 +73,8 @@ public class SystemTimer implements Timer {
         private long tickMs = 1;
         private int wheelSize = 20;
         private long startMs = Time.SYSTEM.hiResClockMs();
+        private int shards = 1;
+        private StatsLogger statsLogger = NullStatsLogger.INSTANCE;
 
         private Builder() {}
 
@@ -77,95 +98,113 @@ public class SystemTimer implements Timer {
             return this;
         }
 
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        public Builder statsLogger(StatsLogger statsLogger) {
+            this.statsLogger = statsLogger;
+            return this;
+        }
+
         public SystemTimer build() {
             Objects.requireNonNull(executorName, "No executor name is provided");
+            if (shards <= 0) {
+                throw new IllegalArgumentException("The number of shards must be positive");
+            }
 
             return new SystemTimer(
                 executorName,
                 tickMs,
                 wheelSize,
-                startMs
+                startMs,
+                shards,
+                statsLogger
             );
         }
 
     }
 
     private final ExecutorService taskExecutor;
-    private final DelayQueue<TimerTaskList> delayQueue;
     private final AtomicInteger taskCounter;
-    private final TimingWheel timingWheel;
-
-    // Locks used to protect data structures while ticking
-    private final ReentrantReadWriteLock readWriteLock;
-    private final Lock readLock;
-    private final Lock writeLock;
-    private final Consumer<TimerTaskEntry> reinsert;
+    private final List<TimerShard> shards;
+    // the reaper threads of shards, it's empty if there is only one shard
+    private final List<ShutdownableThread> shardReapers;
+    // the signal that some shards have expired their buckets, it's only used if there are multiple shards
+    private final Semaphore expiredSignal;
+    // the latency between the expiration time and the time a task is submitted for execution
+    private final OpStatsLogger timerLagStats;
 
     private SystemTimer(String executorName,
                         long tickMs,
                         int wheelSize,
-                        long startMs) {
+                        long startMs,
+                        int numShards,
+                        StatsLogger statsLogger) {
         this.taskExecutor = Executors.newFixedThreadPool(
-            1, new ThreadFactoryBuilder()
+            numShards, new ThreadFactoryBuilder()
                 .setDaemon(false)
                 .setNameFormat("system-timer-%d")
                 .build()
         );
-        this.delayQueue = new DelayQueue();
         this.taskCounter = new AtomicInteger(0);
-        this.timingWheel = new TimingWheel(
-            tickMs,
-            wheelSize,
-            startMs,
-            taskCounter,
-            delayQueue
-        );
-        this.readWriteLock = new ReentrantReadWriteLock();
-        this.readLock = readWriteLock.readLock();
-        this.writeLock = readWriteLock.writeLock();
-        this.reinsert = timerTaskEntry -> addTimerTaskEntry(timerTaskEntry);
+        this.shards = new ArrayList<>(numShards);
+        for (int i = 0; i < numShards; i++) {
+            shards.add(new TimerShard(tickMs, wheelSize, startMs));
+        }
+        this.expiredSignal = new Semaphore(0);
+        this.timerLagStats = statsLogger.scopeLabel(TIMER_SCOPE, executorName).getOpStatsLogger(TIMER_LAG);
+
+        this.shardReapers = new ArrayList<>();
+        if (numShards > 1) {
+            for (int i = 0; i < numShards; i++) {
+                final TimerShard shard = shards.get(i);
+                shardReapers.add(new ShutdownableThread(
+                    String.format("system-timer-reaper-%s-%d", executorName, i)
+                ) {
+                    @Override
+                    protected void doWork() {
+                        try {
+                            if (shard.advanceClock(SHARD_REAPER_POLL_TIMEOUT_MS)
+                                    && expiredSignal.availablePermits() == 0) {
+                                expiredSignal.release();
+                            }
+                        } catch (InterruptedException e) {
+                            // It's interrupted by shutdown()
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+            }
+            shardReapers.forEach(Thread::start);
+        }
     }
 
     @Override
     public void add(TimerTask timerTask) {
-        readLock.lock();
-        try {
-            addTimerTaskEntry(new TimerTaskEntry(
-                timerTask, timerTask.delayMs + Time.SYSTEM.hiResClockMs()
-            ));
-        } finally {
-            readLock.unlock();
-        }
+        final TimerShard shard = (shards.size() == 1)
+            ? shards.get(0)
+            : shards.get(ThreadLocalRandom.current().nextInt(shards.size()));
+        shard.add(timerTask);
     }
 
-    private void addTimerTaskEntry(TimerTaskEntry timerTaskEntry) {
-        if (!timingWheel.add(timerTaskEntry)) {
-            // Already expired or cancelled
-            if (!timerTaskEntry.cancelled()) {
-                taskExecutor.submit(timerTaskEntry.timerTask());
-            }
-        }
+    private void runExpired(TimerTaskEntry timerTaskEntry) {
+        timerLagStats.registerSuccessfulEvent(
+            Math.max(Time.SYSTEM.hiResClockMs() - timerTaskEntry.expirationMs(), 0L), TimeUnit.MILLISECONDS);
+        taskExecutor.submit(timerTaskEntry.timerTask());
     }
 
     @SneakyThrows
     @Override
     public boolean advanceClock(long timeoutMs) {
-        TimerTaskList bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
-        if (null != bucket) {
-            writeLock.lock();
-            try {
-                while (null != bucket) {
-                    timingWheel.advanceClock(bucket.getExpiration());
-                    bucket.flush(reinsert);
-                    bucket = delayQueue.poll();
-                }
-            } finally {
-                writeLock.unlock();
-            }
-            return true;
-        } else {
-            return false;
+        if (shardReapers.isEmpty()) {
+            return shards.get(0).advanceClock(timeoutMs);
         }
+        // The shards are advanced by their own reaper threads, so just wait for any of them to expire its buckets
+        final boolean expired = expiredSignal.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        expiredSignal.drainPermits();
+        return expired;
     }
 
     @Override
@@ -175,7 +214,84 @@ public class SystemTimer implements Timer {
 
     @Override
     public void shutdown() {
+        for (ShutdownableThread shardReaper : shardReapers) {
+            try {
+                shardReaper.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted at shutting down {}", shardReaper.getName());
+            }
+        }
         taskExecutor.shutdown();
     }
 
+    /**
+     * A shard of the timer, which has its own timing wheel and lock.
+     */
+    private class TimerShard {
+
+        private final DelayQueue<TimerTaskList> delayQueue;
+        private final TimingWheel timingWheel;
+
+        // Locks used to protect data structures while ticking
+        private final ReentrantReadWriteLock readWriteLock;
+        private final Lock readLock;
+        private final Lock writeLock;
+        private final Consumer<TimerTaskEntry> reinsert;
+
+        TimerShard(long tickMs, int wheelSize, long startMs) {
+            this.delayQueue = new DelayQueue<>();
+            this.timingWheel = new TimingWheel(
+                tickMs,
+                wheelSize,
+                startMs,
+                taskCounter,
+                delayQueue
+            );
+            this.readWriteLock = new ReentrantReadWriteLock();
+            this.readLock = readWriteLock.readLock();
+            this.writeLock = readWriteLock.writeLock();
+            this.reinsert = timerTaskEntry -> addTimerTaskEntry(timerTaskEntry);
+        }
+
+        void add(TimerTask timerTask) {
+            readLock.lock();
+            try {
+                addTimerTaskEntry(new TimerTaskEntry(
+                    timerTask, timerTask.delayMs + Time.SYSTEM.hiResClockMs()
+                ));
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        private void addTimerTaskEntry(TimerTaskEntry timerTaskEntry) {
+            if (!timingWheel.add(timerTaskEntry)) {
+                // Already expired or cancelled
+                if (!timerTaskEntry.cancelled()) {
+                    runExpired(timerTaskEntry);
+                }
+            }
+        }
+
+        boolean advanceClock(long timeoutMs) throws InterruptedException {
+            TimerTaskList bucket = delayQueue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+            if (null != bucket) {
+                writeLock.lock();
+                try {
+                    while (null != bucket) {
+                        timingWheel.advanceClock(bucket.getExpiration());
+                        bucket.flush(reinsert);
+                        bucket = delayQueue.poll();
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
 }
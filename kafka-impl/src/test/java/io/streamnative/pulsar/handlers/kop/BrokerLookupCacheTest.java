@@ -0,0 +1,158 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import io.streamnative.pulsar.handlers.kop.utils.MockTime;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.pulsar.common.naming.NamespaceBundle;
+import org.apache.pulsar.common.naming.NamespaceName;
+import org.apache.pulsar.common.naming.TopicName;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link BrokerLookupCache}.
+ */
+public class BrokerLookupCacheTest {
+
+    private static final long EXPIRE_TIME_MS = 60000L;
+    private static final long NEGATIVE_EXPIRE_TIME_MS = 1000L;
+    private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("localhost", 6650);
+
+    private MockTime time;
+    private BrokerLookupCache cache;
+    private AtomicInteger numLookups;
+
+    @BeforeMethod
+    public void setUp() {
+        time = new MockTime();
+        cache = new BrokerLookupCache(2, EXPIRE_TIME_MS, NEGATIVE_EXPIRE_TIME_MS, time);
+        numLookups = new AtomicInteger(0);
+    }
+
+    private static NamespaceBundle mockBundle(String namespace) {
+        final NamespaceBundle bundle = mock(NamespaceBundle.class);
+        when(bundle.getNamespaceObject()).thenReturn(NamespaceName.get(namespace));
+        when(bundle.includes(any(TopicName.class))).thenReturn(true);
+        return bundle;
+    }
+
+    private Supplier<CompletableFuture<InetSocketAddress>> loader(CompletableFuture<InetSocketAddress> future) {
+        return () -> {
+            numLookups.incrementAndGet();
+            return future;
+        };
+    }
+
+    @Test
+    public void testCacheOwnedBundle() {
+        final NamespaceBundle bundle = mockBundle("public/default");
+        final CompletableFuture<InetSocketAddress> lookupFuture = new CompletableFuture<>();
+        final CompletableFuture<InetSocketAddress> future1 = cache.get(bundle, loader(lookupFuture), __ -> true);
+        final CompletableFuture<InetSocketAddress> future2 = cache.get(bundle, loader(lookupFuture), __ -> true);
+        assertSame(future1, future2);
+        lookupFuture.complete(ADDRESS);
+        assertEquals(cache.get(bundle, loader(lookupFuture), __ -> true).join(), ADDRESS);
+        assertEquals(numLookups.get(), 1);
+        assertEquals(cache.hitCount(), 2);
+        assertEquals(cache.missCount(), 1);
+
+        time.sleep(EXPIRE_TIME_MS);
+        cache.get(bundle, loader(lookupFuture), __ -> true);
+        assertEquals(numLookups.get(), 2);
+    }
+
+    @Test
+    public void testNotCacheOtherBrokers() {
+        final NamespaceBundle bundle = mockBundle("public/default");
+        final CompletableFuture<InetSocketAddress> lookupFuture = CompletableFuture.completedFuture(ADDRESS);
+        assertEquals(cache.get(bundle, loader(lookupFuture), __ -> false).join(), ADDRESS);
+        assertEquals(cache.get(bundle, loader(lookupFuture), __ -> false).join(), ADDRESS);
+        assertEquals(numLookups.get(), 2);
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testNegativeCache() {
+        final NamespaceBundle bundle = mockBundle("public/default");
+        final CompletableFuture<InetSocketAddress> lookupFuture = new CompletableFuture<>();
+        lookupFuture.completeExceptionally(new IllegalStateException("lookup failed"));
+        assertTrue(cache.get(bundle, loader(lookupFuture), __ -> true).isCompletedExceptionally());
+        assertTrue(cache.get(bundle, loader(lookupFuture), __ -> true).isCompletedExceptionally());
+        assertEquals(numLookups.get(), 1);
+
+        time.sleep(NEGATIVE_EXPIRE_TIME_MS);
+        assertEquals(cache.get(bundle, loader(CompletableFuture.completedFuture(ADDRESS)), __ -> true).join(),
+                ADDRESS);
+        assertEquals(numLookups.get(), 2);
+    }
+
+    @Test
+    public void testInvalidate() {
+        final NamespaceBundle bundle1 = mockBundle("public/default");
+        final NamespaceBundle bundle2 = mockBundle("public/other");
+        final CompletableFuture<InetSocketAddress> lookupFuture = CompletableFuture.completedFuture(ADDRESS);
+        cache.get(bundle1, loader(lookupFuture), __ -> true);
+        cache.get(bundle2, loader(lookupFuture), __ -> true);
+        assertEquals(cache.size(), 2);
+
+        cache.invalidate(TopicName.get("persistent://public/default/my-topic"));
+        assertEquals(cache.size(), 1);
+        cache.invalidate(bundle2);
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testInvalidateDuringLookup() {
+        final NamespaceBundle bundle = mockBundle("public/default");
+        final CompletableFuture<InetSocketAddress> lookupFuture = new CompletableFuture<>();
+        final CompletableFuture<InetSocketAddress> future = cache.get(bundle, loader(lookupFuture), __ -> true);
+        cache.invalidate(bundle);
+        lookupFuture.complete(ADDRESS);
+        assertEquals(future.join(), ADDRESS);
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testEviction() {
+        final NamespaceBundle bundle1 = mockBundle("public/default");
+        final NamespaceBundle bundle2 = mockBundle("public/default");
+        final NamespaceBundle bundle3 = mockBundle("public/default");
+        final CompletableFuture<InetSocketAddress> lookupFuture = CompletableFuture.completedFuture(ADDRESS);
+        cache.get(bundle1, loader(lookupFuture), __ -> true);
+        cache.get(bundle2, loader(lookupFuture), __ -> true);
+        // bundle1 becomes the most recently used one
+        cache.get(bundle1, loader(lookupFuture), __ -> true);
+        cache.get(bundle3, loader(lookupFuture), __ -> true);
+        assertEquals(cache.size(), 2);
+        assertEquals(numLookups.get(), 3);
+
+        cache.get(bundle1, loader(lookupFuture), __ -> true);
+        assertEquals(numLookups.get(), 3);
+        cache.get(bundle2, loader(lookupFuture), __ -> true);
+        assertEquals(numLookups.get(), 4);
+        assertFalse(cache.isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.metadata.api.GetResult;
+import org.apache.pulsar.metadata.api.MetadataStore;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+import org.apache.pulsar.metadata.api.Stat;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link ConnectedGroupCache}.
+ */
+public class ConnectedGroupCacheTest {
+
+    private static final String PATH = "/client_group_id/127.0.0.1-consumer-1";
+
+    @Test
+    public void testOnlyWriteChangedGroupId() {
+        final MetadataStore metadataStore = mock(MetadataStore.class);
+        when(metadataStore.put(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(mock(Stat.class)));
+        final ConnectedGroupCache cache = new ConnectedGroupCache();
+
+        cache.store(PATH, "group-1", metadataStore).join();
+        cache.store(PATH, "group-1", metadataStore).join();
+        verify(metadataStore, times(1)).put(anyString(), any(), any());
+        assertEquals(cache.get(PATH), Optional.of("group-1"));
+
+        cache.store(PATH, "group-2", metadataStore).join();
+        verify(metadataStore, times(2)).put(anyString(), any(), any());
+        assertEquals(cache.get(PATH), Optional.of("group-2"));
+
+        cache.remove(PATH);
+        assertFalse(cache.get(PATH).isPresent());
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() {
+        final MetadataStore metadataStore = mock(MetadataStore.class);
+        final CompletableFuture<Stat> failedFuture = new CompletableFuture<>();
+        failedFuture.completeExceptionally(new IllegalStateException("failed"));
+        when(metadataStore.put(anyString(), any(), any())).thenReturn(failedFuture);
+        final ConnectedGroupCache cache = new ConnectedGroupCache();
+
+        assertTrue(cache.store(PATH, "group-1", metadataStore).isCompletedExceptionally());
+        assertFalse(cache.get(PATH).isPresent());
+        assertTrue(cache.store(PATH, "group-1", metadataStore).isCompletedExceptionally());
+        verify(metadataStore, times(2)).put(anyString(), any(), any());
+    }
+
+    @Test
+    public void testInvalidatedByNotification() {
+        final MetadataStore metadataStore = mock(MetadataStore.class);
+        when(metadataStore.put(anyString(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(mock(Stat.class)));
+        final ConnectedGroupCache cache = new ConnectedGroupCache();
+        cache.store(PATH, "group-1", metadataStore).join();
+
+        // The notification of the write by this broker
+        when(metadataStore.get(PATH)).thenReturn(CompletableFuture.completedFuture(
+                Optional.of(new GetResult("group-1".getBytes(UTF_8), mock(Stat.class)))));
+        cache.onNotification(new Notification(NotificationType.Modified, PATH), metadataStore);
+        cache.onNotification(new Notification(NotificationType.Modified, PATH + "-other"), metadataStore);
+        assertEquals(cache.get(PATH), Optional.of("group-1"));
+
+        // The path is deleted by another broker, the next FIND_COORDINATOR request writes it again
+        cache.onNotification(new Notification(NotificationType.Deleted, PATH), metadataStore);
+        assertFalse(cache.get(PATH).isPresent());
+        cache.store(PATH, "group-1", metadataStore).join();
+        verify(metadataStore, times(2)).put(anyString(), any(), any());
+
+        // The path is overwritten by another broker
+        when(metadataStore.get(PATH)).thenReturn(CompletableFuture.completedFuture(
+                Optional.of(new GetResult("group-2".getBytes(UTF_8), mock(Stat.class)))));
+        cache.onNotification(new Notification(NotificationType.Modified, PATH), metadataStore);
+        assertFalse(cache.get(PATH).isPresent());
+        cache.store(PATH, "group-1", metadataStore).join();
+        verify(metadataStore, times(3)).put(anyString(), any(), any());
+    }
+}
@@ -0,0 +1,658 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.prometheus.client.CollectorRegistry;
+import io.streamnative.pulsar.handlers.kop.stats.PrometheusMetricsProvider;
+import io.streamnative.pulsar.handlers.kop.utils.delayed.DelayedOperation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.message.ApiVersionsResponseData;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.apache.kafka.common.requests.AbstractRequest;
+import org.apache.kafka.common.requests.AbstractResponse;
+import org.apache.kafka.common.requests.ApiVersionsRequest;
+import org.apache.kafka.common.requests.ApiVersionsResponse;
+import org.apache.kafka.common.requests.FetchMetadata;
+import org.apache.kafka.common.requests.FetchRequest;
+import org.apache.kafka.common.requests.FetchResponse;
+import org.apache.kafka.common.requests.KopResponseUtils;
+import org.apache.kafka.common.requests.ProduceRequest;
+import org.apache.kafka.common.requests.ProduceResponse;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link KafkaCommandDecoder}.
+ */
+public class KafkaCommandDecoderTest {
+
+    private KafkaServiceConfiguration kafkaConfig;
+    private RequestStats requestStats;
+    private MockKafkaCommandDecoder decoder;
+    private EmbeddedChannel channel;
+
+    @BeforeMethod
+    public void setUp() {
+        kafkaConfig = new KafkaServiceConfiguration();
+        kafkaConfig.setMaxQueuedRequests(2);
+        requestStats = new RequestStats(
+                new PrometheusMetricsProvider(new CollectorRegistry()).getStatsLogger("kop_server"));
+        decoder = new MockKafkaCommandDecoder(requestStats, kafkaConfig);
+        channel = new EmbeddedChannel(decoder);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf newFrame(AbstractRequest.Builder<?> builder, int correlationId) {
+        final AbstractRequest request = builder.build();
+        final RequestHeader header = new RequestHeader(builder.apiKey(), request.version(), "client", correlationId);
+        return Unpooled.wrappedBuffer(KopResponseUtils.serializeRequest(header, request));
+    }
+
+    private static ByteBuf newApiVersionsFrame(int correlationId) {
+        return newFrame(new ApiVersionsRequest.Builder(), correlationId);
+    }
+
+    private static ByteBuf newAcksZeroProduceFrame(int correlationId) {
+        final ProduceRequestData data = new ProduceRequestData()
+                .setTimeoutMs(30000)
+                .setAcks((short) 0);
+        data.topicData().add(new ProduceRequestData.TopicProduceData()
+                .setName("my-topic")
+                .setPartitionData(Collections.singletonList(new ProduceRequestData.PartitionProduceData()
+                        .setIndex(0)
+                        .setRecords(MemoryRecords.withRecords(CompressionType.NONE,
+                                new SimpleRecord("value".getBytes(StandardCharsets.UTF_8)))))));
+        return newFrame(new ProduceRequest.Builder(ApiKeys.PRODUCE.latestVersion(), ApiKeys.PRODUCE.latestVersion(),
+                data), correlationId);
+    }
+
+    private static ByteBuf newFetchFrame(int correlationId) {
+        final FetchRequest.PartitionData partitionData =
+                new FetchRequest.PartitionData(0L, 0L, 1024 * 1024, Optional.empty());
+        return newFrame(FetchRequest.Builder.forConsumer(500, 1,
+                Collections.singletonMap(new TopicPartition("my-topic", 0), partitionData)), correlationId);
+    }
+
+    private static ByteBuf newProduceFrame(int correlationId) {
+        final ProduceRequestData data = new ProduceRequestData()
+                .setTimeoutMs(30000)
+                .setAcks((short) 1);
+        return newFrame(new ProduceRequest.Builder(ApiKeys.PRODUCE.latestVersion(), ApiKeys.PRODUCE.latestVersion(),
+                data), correlationId);
+    }
+
+    private static AbstractResponse newFetchResponse() {
+        return new FetchResponse<>(Errors.NONE, new LinkedHashMap<>(), 0, FetchMetadata.INVALID_SESSION_ID);
+    }
+
+    private static AbstractResponse newProduceResponse() {
+        return new ProduceResponse(Collections.emptyMap());
+    }
+
+    private static AbstractResponse newApiVersionsResponse() {
+        return new ApiVersionsResponse(new ApiVersionsResponseData());
+    }
+
+    private List<Integer> readResponseCorrelationIds() {
+        final List<Integer> correlationIds = new ArrayList<>();
+        while (true) {
+            final ByteBuf response = channel.readOutbound();
+            if (response == null) {
+                return correlationIds;
+            }
+            // The response header starts with the correlation id
+            correlationIds.add(response.getInt(0));
+            response.release();
+        }
+    }
+
+    @Test(timeOut = 30000)
+    public void testReadIsPausedWhenRequestQueueIsFull() {
+        channel.writeInbound(newApiVersionsFrame(1));
+        channel.writeInbound(newApiVersionsFrame(2));
+        assertTrue(channel.config().isAutoRead());
+
+        // The queue is full, the request waits without blocking the event loop and the reading is paused
+        channel.writeInbound(newApiVersionsFrame(3));
+        assertEquals(decoder.responses.size(), 2);
+        assertFalse(channel.config().isAutoRead());
+        assertTrue(decoder.isAutoReadDisabledRequestQueueFull());
+
+        // The head is slow, the completed response behind it can't free the room
+        decoder.responses.get(1).complete(newApiVersionsResponse());
+        channel.runPendingTasks();
+        assertEquals(decoder.responses.size(), 2);
+        assertFalse(channel.config().isAutoRead());
+        assertTrue(readResponseCorrelationIds().isEmpty());
+
+        // The reading is still paused by another reason
+        decoder.pausedByOthers = true;
+        decoder.responses.get(0).complete(newApiVersionsResponse());
+        channel.runPendingTasks();
+        assertEquals(readResponseCorrelationIds(), List.of(1, 2));
+        assertEquals(decoder.responses.size(), 3);
+        assertFalse(decoder.isAutoReadDisabledRequestQueueFull());
+        assertFalse(channel.config().isAutoRead());
+
+        decoder.pausedByOthers = false;
+        decoder.enableCnxAutoRead();
+        assertTrue(channel.config().isAutoRead());
+        decoder.responses.get(2).complete(newApiVersionsResponse());
+        channel.runPendingTasks();
+        assertEquals(readResponseCorrelationIds(), List.of(3));
+    }
+
+    @Test(timeOut = 30000)
+    public void testCompletedResponsesAreWrittenByOneDrain() throws Exception {
+        final List<String> outboundEvents = new ArrayList<>();
+        channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+                outboundEvents.add("write-" + ((ByteBuf) msg).getInt(0));
+                super.write(ctx, msg, promise);
+            }
+
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                outboundEvents.add("flush");
+                super.flush(ctx);
+            }
+        });
+        channel.writeInbound(newApiVersionsFrame(1));
+        channel.writeInbound(newApiVersionsFrame(2));
+
+        // The responses are completed by another thread, the drain is scheduled to the event loop
+        final Thread thread = new Thread(() -> {
+            decoder.responses.get(1).complete(newApiVersionsResponse());
+            decoder.responses.get(0).complete(newApiVersionsResponse());
+        });
+        thread.start();
+        thread.join();
+        assertTrue(outboundEvents.isEmpty());
+
+        channel.runPendingTasks();
+        assertEquals(outboundEvents, List.of("write-1", "write-2", "flush"));
+        assertEquals(readResponseCorrelationIds(), List.of(1, 2));
+    }
+
+    @Test(timeOut = 30000)
+    public void testWaitingRequestsAreHandledWhenHeadExpires() throws Exception {
+        kafkaConfig.setRequestTimeoutMs(100);
+        channel.writeInbound(newApiVersionsFrame(1));
+        channel.writeInbound(newApiVersionsFrame(2));
+        channel.writeInbound(newApiVersionsFrame(3));
+        decoder.responses.get(1).complete(newApiVersionsResponse());
+        channel.runPendingTasks();
+        assertFalse(channel.config().isAutoRead());
+
+        // The head never completes, the waiting request is handled after the head expires
+        Thread.sleep(200);
+        channel.runScheduledPendingTasks();
+        assertEquals(readResponseCorrelationIds(), List.of(1, 2));
+        assertEquals(decoder.responses.size(), 3);
+        assertTrue(channel.config().isAutoRead());
+    }
+
+    @Test(timeOut = 30000)
+    public void testWaitingRequestsAreReleasedOnClose() {
+        channel.writeInbound(newApiVersionsFrame(1));
+        channel.writeInbound(newApiVersionsFrame(2));
+        final ByteBuf frame = newApiVersionsFrame(3);
+        channel.writeInbound(frame);
+        assertEquals(frame.refCnt(), 1);
+
+        decoder.close();
+        assertEquals(frame.refCnt(), 0);
+        assertNull(channel.readOutbound());
+    }
+
+    @Test(timeOut = 30000)
+    public void testDelayedFetchIsCompletedEarlyWhenBlocking() throws Exception {
+        kafkaConfig.setKopDelayedFetchMaxWaitWhenBlockingMs(100);
+        channel.writeInbound(newFetchFrame(1));
+        final AtomicInteger numCompletions = new AtomicInteger(0);
+        final CompletableFuture<AbstractResponse> fetchResponse = decoder.responses.get(0);
+        // The delayed fetch is registered by MessageFetchContext#onDelayed when there is not enough data
+        decoder.requests.get(0).setDelayedOperation(new DelayedOperation(30000, Optional.empty()) {
+            @Override
+            public void onExpiration() {
+                // no-op
+            }
+
+            @Override
+            public void onComplete() {
+                numCompletions.incrementAndGet();
+                fetchResponse.complete(newFetchResponse());
+            }
+
+            @Override
+            public boolean tryComplete() {
+                return false;
+            }
+        });
+
+        // The completed produce response is blocked by the delayed fetch at the head
+        channel.writeInbound(newProduceFrame(2));
+        decoder.responses.get(1).complete(newProduceResponse());
+        channel.runPendingTasks();
+        assertTrue(readResponseCorrelationIds().isEmpty());
+        assertFalse(fetchResponse.isDone());
+        assertEquals(requestStats.getWaitingFetchesCompletedEarly().get().longValue(), 0L);
+
+        // The delayed fetch is completed with the available data after the max wait instead of its own max wait
+        Thread.sleep(200);
+        channel.runScheduledPendingTasks();
+        channel.runPendingTasks();
+        assertEquals(numCompletions.get(), 1);
+        assertEquals(requestStats.getWaitingFetchesCompletedEarly().get().longValue(), 1L);
+        assertEquals(readResponseCorrelationIds(), List.of(1, 2));
+    }
+
+    @Test(timeOut = 30000)
+    public void testDelayedFetchIsNotCompletedEarlyByDefault() throws Exception {
+        channel.writeInbound(newFetchFrame(1));
+        final DelayedOperation delayedFetch = new DelayedOperation(30000, Optional.empty()) {
+            @Override
+            public void onExpiration() {
+                // no-op
+            }
+
+            @Override
+            public void onComplete() {
+                // no-op
+            }
+
+            @Override
+            public boolean tryComplete() {
+                return false;
+            }
+        };
+        decoder.requests.get(0).setDelayedOperation(delayedFetch);
+        channel.writeInbound(newProduceFrame(2));
+        decoder.responses.get(1).complete(newProduceResponse());
+        channel.runPendingTasks();
+
+        Thread.sleep(200);
+        channel.runScheduledPendingTasks();
+        channel.runPendingTasks();
+        assertFalse(delayedFetch.isCompleted());
+        assertEquals(requestStats.getWaitingFetchesCompletedEarly().get().longValue(), 0L);
+        assertTrue(readResponseCorrelationIds().isEmpty());
+    }
+
+    @Test(timeOut = 30000)
+    public void testAcksZeroProducePausesAtBudget() {
+        final int frameBytes = newAcksZeroProduceFrame(0).readableBytes();
+        kafkaConfig.setKopAcksZeroProduceMaxInflightBytes(2L * frameBytes);
+
+        channel.writeInbound(newAcksZeroProduceFrame(1));
+        assertTrue(channel.config().isAutoRead());
+        channel.writeInbound(newAcksZeroProduceFrame(2));
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 2L * frameBytes);
+        assertFalse(channel.config().isAutoRead());
+        assertTrue(decoder.isAutoReadDisabledAcksZeroProduce());
+        assertEquals(requestStats.getAcksZeroProducePaused().get().longValue(), 1L);
+
+        // The in-flight bytes are not below half of the budget
+        decoder.responses.get(0).complete(newProduceResponse());
+        channel.runPendingTasks();
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), frameBytes);
+        assertFalse(channel.config().isAutoRead());
+
+        decoder.responses.get(1).complete(newProduceResponse());
+        channel.runPendingTasks();
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 0L);
+        assertFalse(decoder.isAutoReadDisabledAcksZeroProduce());
+        assertTrue(channel.config().isAutoRead());
+        // No response is written for acks=0
+        assertNull(channel.readOutbound());
+    }
+
+    @Test(timeOut = 30000)
+    public void testAcksZeroProduceDropWhenBudgetExhausted() {
+        final int frameBytes = newAcksZeroProduceFrame(0).readableBytes();
+        kafkaConfig.setKopAcksZeroProduceMaxInflightBytes(2L * frameBytes);
+        kafkaConfig.setKopAcksZeroProduceDropWhenBudgetExhausted(true);
+
+        channel.writeInbound(newAcksZeroProduceFrame(1));
+        channel.writeInbound(newAcksZeroProduceFrame(2));
+        final ByteBuf droppedFrame = newAcksZeroProduceFrame(3);
+        channel.writeInbound(droppedFrame);
+        assertEquals(decoder.responses.size(), 2);
+        assertEquals(droppedFrame.refCnt(), 0);
+        assertEquals(requestStats.getAcksZeroProduceDropped().get().longValue(), 1L);
+        assertEquals(requestStats.getAcksZeroProducePaused().get().longValue(), 0L);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 2L * frameBytes);
+
+        decoder.responses.get(0).complete(newProduceResponse());
+        channel.writeInbound(newAcksZeroProduceFrame(4));
+        assertEquals(decoder.responses.size(), 3);
+        assertEquals(requestStats.getAcksZeroProduceDropped().get().longValue(), 1L);
+    }
+
+    @Test(timeOut = 30000)
+    public void testAcksZeroProduceRequestIsReleasedOnce() throws Exception {
+        final int frameBytes = newAcksZeroProduceFrame(0).readableBytes();
+        kafkaConfig.setKopAcksZeroProduceMaxInflightBytes(frameBytes);
+        kafkaConfig.setRequestTimeoutMs(100);
+
+        // Keep a reference so that releasing the request twice can be detected
+        final ByteBuf frame = newAcksZeroProduceFrame(1).retain();
+        channel.writeInbound(frame);
+        assertEquals(frame.refCnt(), 2);
+        assertFalse(channel.config().isAutoRead());
+
+        // The append is stuck, the bytes are released from the budget after the request timeout but the request is
+        // still referenced by the append
+        Thread.sleep(200);
+        channel.runScheduledPendingTasks();
+        channel.runPendingTasks();
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 0L);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(frame.refCnt(), 2);
+
+        decoder.responses.get(0).complete(newProduceResponse());
+        assertEquals(frame.refCnt(), 1);
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 0L);
+        frame.release();
+    }
+
+    @Test(timeOut = 30000)
+    public void testAcksZeroProduceRequestThrows() {
+        final int frameBytes = newAcksZeroProduceFrame(0).readableBytes();
+        kafkaConfig.setKopAcksZeroProduceMaxInflightBytes(frameBytes);
+        decoder.handleException = new IllegalStateException("failed to handle the request");
+
+        final ByteBuf frame = newAcksZeroProduceFrame(1).retain();
+        channel.writeInbound(frame);
+        assertTrue(decoder.responses.get(0).isCompletedExceptionally());
+        assertEquals(frame.refCnt(), 1);
+        assertEquals(decoder.getAcksZeroProduceInflightBytes(), 0L);
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+        assertTrue(channel.isActive());
+        frame.release();
+    }
+
+    /**
+     * A {@link KafkaCommandDecoder} that keeps the response futures of the handled requests.
+     */
+    private static class MockKafkaCommandDecoder extends KafkaCommandDecoder {
+
+        final List<KafkaHeaderAndRequest> requests = new ArrayList<>();
+        final List<CompletableFuture<AbstractResponse>> responses = new ArrayList<>();
+        boolean pausedByOthers = false;
+        RuntimeException handleException = null;
+
+        MockKafkaCommandDecoder(RequestStats requestStats, KafkaServiceConfiguration kafkaConfig) {
+            super(requestStats, kafkaConfig, null);
+        }
+
+        void handle(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            requests.add(request);
+            responses.add(response);
+            if (handleException != null) {
+                throw handleException;
+            }
+        }
+
+        @Override
+        protected void enableCnxAutoRead() {
+            if (!pausedByOthers) {
+                super.enableCnxAutoRead();
+            }
+        }
+
+        @Override
+        protected boolean hasAuthenticated() {
+            return true;
+        }
+
+        @Override
+        protected void channelPrepare(ChannelHandlerContext ctx,
+                                      ByteBuf requestBuf,
+                                      BiConsumer<Long, Throwable> registerRequestParseLatency,
+                                      BiConsumer<ApiKeys, Long> registerRequestLatency) {
+            // no-op
+        }
+
+        @Override
+        protected void maybeDelayCloseOnAuthenticationFailure() {
+            // no-op
+        }
+
+        @Override
+        protected void completeCloseOnAuthenticationFailure() {
+            // no-op
+        }
+
+        @Override
+        protected void
+        handleInactive(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleApiVersionsRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleTopicMetadataRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleProduceRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleFindCoordinatorRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleListOffsetRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleOffsetFetchRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleOffsetCommitRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleFetchRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleJoinGroupRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleSyncGroupRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleHeartbeatRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleLeaveGroupRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDescribeGroupRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleListGroupsRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDeleteGroupsRequest(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleSaslAuthenticate(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleSaslHandshake(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleCreateTopics(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDescribeConfigs(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleAlterConfigs(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleInitProducerId(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleAddPartitionsToTxn(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleAddOffsetsToTxn(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleTxnOffsetCommit(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleEndTxn(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleWriteTxnMarkers(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDeleteTopics(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDeleteRecords(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleCreatePartitions(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+
+        @Override
+        protected void
+        handleDescribeCluster(KafkaHeaderAndRequest request, CompletableFuture<AbstractResponse> response) {
+            handle(request, response);
+        }
+    }
+}
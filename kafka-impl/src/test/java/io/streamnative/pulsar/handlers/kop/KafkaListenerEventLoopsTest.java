@@ -0,0 +1,85 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.socket.SocketChannel;
+import io.streamnative.pulsar.handlers.kop.stats.NullStatsLogger;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link KafkaListenerEventLoops}.
+ */
+public class KafkaListenerEventLoopsTest {
+
+    private KafkaServiceConfiguration kafkaConfig;
+    private KafkaListenerEventLoops eventLoops;
+
+    @BeforeMethod
+    public void setUp() {
+        kafkaConfig = new KafkaServiceConfiguration();
+        kafkaConfig.setKafkaListenerIoThreads(2);
+        eventLoops = new KafkaListenerEventLoops(kafkaConfig, NullStatsLogger.INSTANCE);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        eventLoops.close();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertFalse(new KafkaListenerEventLoops(new KafkaServiceConfiguration(), NullStatsLogger.INSTANCE)
+                .isEnabled());
+        assertTrue(eventLoops.isEnabled());
+    }
+
+    @Test(timeOut = 30000)
+    public void testChannelsAreServedByListenerEventLoops() throws Exception {
+        final CompletableFuture<String> threadNameFuture = new CompletableFuture<>();
+        final EndPoint endPoint = EndPoint.parseListeners("PLAINTEXT://127.0.0.1:0").get("PLAINTEXT");
+        eventLoops.bind(endPoint, new ChannelInitializer<SocketChannel>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+                KafkaListenerEventLoops.configureChannel(ch, kafkaConfig);
+                assertTrue(ch.config().isTcpNoDelay());
+                threadNameFuture.complete(Thread.currentThread().getName());
+            }
+        });
+
+        final KafkaListenerEventLoops.ListenerEventLoop listener = eventLoops.getListener("PLAINTEXT");
+        try (Socket ignored = new Socket(listener.localAddress().getAddress(), listener.localAddress().getPort())) {
+            assertTrue(threadNameFuture.get(10, TimeUnit.SECONDS).startsWith("kop-io-PLAINTEXT"));
+        }
+        assertEquals(listener.pendingTasks(), 0);
+        assertTrue(listener.sampleUtilization() >= 0.0);
+
+        // The same listener can't be bound twice
+        expectThrows(IllegalStateException.class, () -> eventLoops.bind(endPoint, new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(SocketChannel ch) {
+            }
+        }));
+    }
+}
@@ -125,6 +125,22 @@ public class PendingTopicFuturesTest {
         Assert.assertEquals(changesOfPendingCount.subList(index, 10), fill(10 - index, 0));
     }
 
+    @Test(timeOut = 10000)
+    void testIsEmpty() throws ExecutionException, InterruptedException {
+        final PendingTopicFutures pendingTopicFutures = new PendingTopicFutures(null);
+        Assert.assertTrue(pendingTopicFutures.isEmpty());
+
+        final CompletableFuture<Optional<PersistentTopic>> topicFuture = new CompletableFuture<>();
+        pendingTopicFutures.addListener(topicFuture, topic -> {}, ex -> {});
+        pendingTopicFutures.addListener(topicFuture, topic -> {}, ex -> {});
+        // the appends that come now must be queued after the pending ones
+        Assert.assertFalse(pendingTopicFutures.isEmpty());
+
+        topicFuture.complete(Optional.empty());
+        Assert.assertEquals(pendingTopicFutures.waitAndGetSize(), 0);
+        Assert.assertTrue(pendingTopicFutures.isEmpty());
+    }
+
     @Test(timeOut = 10000)
     void testParallelAccess() throws ExecutionException, InterruptedException {
         final PendingTopicFutures pendingTopicFutures = new PendingTopicFutures(null);
@@ -0,0 +1,90 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.prometheus.client.CollectorRegistry;
+import io.streamnative.pulsar.handlers.kop.stats.PrometheusMetricsProvider;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.RequestHeader;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link RequestTrace}.
+ */
+public class RequestTraceTest {
+
+    @Test
+    public void testDisabled() {
+        final KafkaServiceConfiguration config = new KafkaServiceConfiguration();
+        final RequestTrace trace = RequestTrace.start(config, MathUtils.nowInNano());
+        assertSame(trace, RequestTrace.DISABLED);
+        assertFalse(trace.isEnabled());
+        trace.recordElapsed(RequestTrace.Stage.READ, 100L);
+        assertEquals(trace.getStageNanos(RequestTrace.Stage.READ), -1L);
+    }
+
+    @Test
+    public void testRecordSlowestStage() {
+        final KafkaServiceConfiguration config = new KafkaServiceConfiguration();
+        config.setKopSlowRequestThresholdMs(1000);
+        final RequestTrace trace = RequestTrace.start(config, MathUtils.nowInNano());
+        assertTrue(trace.isEnabled());
+
+        // The slowest partition wins
+        trace.recordElapsed(RequestTrace.Stage.PUBLISH, TimeUnit.MILLISECONDS.toNanos(3));
+        trace.recordElapsed(RequestTrace.Stage.PUBLISH, TimeUnit.MILLISECONDS.toNanos(5));
+        trace.recordElapsed(RequestTrace.Stage.PUBLISH, TimeUnit.MILLISECONDS.toNanos(4));
+        trace.recordElapsed(RequestTrace.Stage.AUTHORIZE, TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(trace.getStageNanos(RequestTrace.Stage.PUBLISH), TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(trace.getStageNanos(RequestTrace.Stage.READ), -1L);
+        assertEquals(trace.breakdown(), "authorize=1.0 ms, publish=5.0 ms");
+    }
+
+    @Test
+    public void testStageStats() {
+        final KafkaServiceConfiguration config = new KafkaServiceConfiguration();
+        config.setKopRequestStageStatsEnabled(true);
+        final PrometheusMetricsProvider provider = new PrometheusMetricsProvider(new CollectorRegistry());
+        final RequestStats requestStats = new RequestStats(provider.getStatsLogger("kop_server"));
+
+        final RequestTrace trace = RequestTrace.start(config, MathUtils.nowInNano());
+        trace.recordElapsed(RequestTrace.Stage.READ, TimeUnit.MILLISECONDS.toNanos(2));
+        final RequestHeader header = new RequestHeader(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion(), "client", 1);
+        trace.finish(header, null, requestStats);
+        // Only the first call takes effect
+        trace.finish(header, null, requestStats);
+
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            provider.generate(new SimpleTextOutputStream(buf));
+            final String metrics = buf.toString(StandardCharsets.UTF_8);
+            assertTrue(metrics.contains("kop_server_REQUEST_STAGE_LATENCY_count{success=\"true\", "
+                    + "request=\"Fetch\",stage=\"read\"} 1"));
+            assertFalse(metrics.contains("stage=\"publish\"} 1"));
+        } finally {
+            buf.release();
+        }
+    }
+}
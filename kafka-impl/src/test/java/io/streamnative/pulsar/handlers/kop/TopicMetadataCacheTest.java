@@ -0,0 +1,229 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import io.streamnative.pulsar.handlers.kop.utils.MockTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link TopicMetadataCache}.
+ */
+public class TopicMetadataCacheTest {
+
+    private static final long EXPIRE_TIME_MS = 60000L;
+    private static final String NAMESPACE = "public/default";
+    private static final TopicName TOPIC = TopicName.get("persistent://public/default/my-topic");
+
+    private MockTime time;
+    private TopicMetadataCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        time = new MockTime();
+        cache = new TopicMetadataCache(EXPIRE_TIME_MS, time);
+    }
+
+    @Test
+    public void testPartitions() {
+        assertNull(cache.getPartitions(TOPIC));
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        assertEquals(cache.getPartitions(TOPIC), Integer.valueOf(3));
+        assertEquals(cache.getPartitions(TOPIC.getPartition(1)), Integer.valueOf(3));
+
+        time.sleep(EXPIRE_TIME_MS);
+        assertNull(cache.getPartitions(TOPIC));
+    }
+
+    @Test
+    public void testStaleLoadIsNotInstalled() {
+        final long version = cache.version(NAMESPACE);
+        cache.invalidateTopic(TOPIC);
+        cache.putPartitions(TOPIC, 3, version);
+        assertNull(cache.getPartitions(TOPIC));
+    }
+
+    @Test
+    public void testConcurrentListingsAreMerged() {
+        final AtomicInteger numLoads = new AtomicInteger(0);
+        final CompletableFuture<List<TopicAndMetadata>> loadFuture = new CompletableFuture<>();
+        final CompletableFuture<List<TopicAndMetadata>> future1 = cache.getTopicsAsync(NAMESPACE, __ -> {
+            numLoads.incrementAndGet();
+            return loadFuture;
+        });
+        final CompletableFuture<List<TopicAndMetadata>> future2 = cache.getTopicsAsync(NAMESPACE, __ -> {
+            numLoads.incrementAndGet();
+            return loadFuture;
+        });
+        assertSame(future1, future2);
+        assertFalse(future1.isDone());
+
+        final List<TopicAndMetadata> topics = Collections.singletonList(
+                TopicAndMetadata.success(TOPIC.toString(), 2));
+        loadFuture.complete(topics);
+        assertEquals(future1.join(), topics);
+        assertEquals(cache.getTopicsAsync(NAMESPACE, __ -> {
+            numLoads.incrementAndGet();
+            return loadFuture;
+        }).join(), topics);
+        assertEquals(numLoads.get(), 1);
+        // The partition counts are also cached by the listing
+        assertEquals(cache.getPartitions(TOPIC), Integer.valueOf(2));
+    }
+
+    @Test
+    public void testNotifications() {
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        final List<TopicAndMetadata> topics = Collections.singletonList(
+                TopicAndMetadata.success(TOPIC.toString(), 3));
+        cache.getTopicsAsync(NAMESPACE, __ -> CompletableFuture.completedFuture(topics)).join();
+
+        // the updates of the managed ledgers and the cursors don't invalidate the cache
+        cache.onNotification(new Notification(NotificationType.Modified,
+                "/managed-ledgers/public/default/persistent/my-topic-partition-0"));
+        cache.onNotification(new Notification(NotificationType.Created,
+                "/managed-ledgers/public/default/persistent/my-topic-partition-0/my-sub"));
+        cache.onNotification(new Notification(NotificationType.Modified,
+                "/admin/partitioned-topics/public/other/persistent/my-topic"));
+        assertEquals(cache.getPartitions(TOPIC), Integer.valueOf(3));
+        assertEquals(cache.getTopicsAsync(NAMESPACE, __ -> CompletableFuture.completedFuture(null)).join(),
+                topics);
+
+        // the partition count is updated
+        cache.onNotification(new Notification(NotificationType.Modified,
+                "/admin/partitioned-topics/public/default/persistent/my-topic"));
+        assertNull(cache.getPartitions(TOPIC));
+        assertNull(cache.getTopicsAsync(NAMESPACE, __ -> CompletableFuture.completedFuture(null)).join());
+
+        // a new non-partitioned topic is created
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        cache.onNotification(new Notification(NotificationType.Created,
+                "/managed-ledgers/public/default/persistent/new-topic"));
+        assertEquals(cache.getPartitions(TOPIC), Integer.valueOf(3));
+        assertNull(cache.getTopicsAsync(NAMESPACE, __ -> CompletableFuture.completedFuture(null)).join());
+    }
+
+    @Test
+    public void testNamespaces() {
+        final AtomicInteger numLoads = new AtomicInteger(0);
+        final List<String> namespaces = Arrays.asList("default", "other");
+        final Function<String, CompletableFuture<List<String>>> loader = __ -> {
+            numLoads.incrementAndGet();
+            return CompletableFuture.completedFuture(namespaces);
+        };
+        assertEquals(cache.getNamespacesAsync("public", loader).join(), namespaces);
+        assertEquals(cache.getNamespacesAsync("public", loader).join(), namespaces);
+        assertEquals(numLoads.get(), 1);
+
+        // the updates of the namespace policies don't change the namespace list
+        cache.onNotification(new Notification(NotificationType.Modified, "/admin/policies/public/default"));
+        cache.onNotification(new Notification(NotificationType.Created, "/admin/policies/other/new-ns"));
+        cache.getNamespacesAsync("public", loader).join();
+        assertEquals(numLoads.get(), 1);
+
+        cache.onNotification(new Notification(NotificationType.Created, "/admin/policies/public/new-ns"));
+        cache.getNamespacesAsync("public", loader).join();
+        assertEquals(numLoads.get(), 2);
+
+        // the topics of a deleted namespace are also invalidated
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        cache.onNotification(new Notification(NotificationType.Deleted, "/admin/policies/public/default"));
+        assertNull(cache.getPartitions(TOPIC));
+        cache.getNamespacesAsync("public", loader).join();
+        assertEquals(numLoads.get(), 3);
+
+        time.sleep(EXPIRE_TIME_MS);
+        cache.getNamespacesAsync("public", loader).join();
+        assertEquals(numLoads.get(), 4);
+    }
+
+    @Test
+    public void testInvalidationsDontCreateSnapshots() {
+        cache.invalidateTopic(TOPIC);
+        cache.invalidateNamespace(NAMESPACE);
+        cache.invalidateTenant("public");
+        cache.onNotification(new Notification(NotificationType.Created,
+                "/managed-ledgers/public/other/persistent/my-topic"));
+        assertNull(cache.getPartitions(TOPIC));
+        assertEquals(cache.size(), 0);
+
+        // The snapshot is removed when its last entry is invalidated
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        assertEquals(cache.size(), 1);
+        cache.invalidateTopic(TOPIC);
+        assertEquals(cache.size(), 0);
+
+        // The snapshots of a deleted namespace are removed
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        cache.getNamespacesAsync("public", __ -> CompletableFuture.completedFuture(Arrays.asList("default")))
+                .join();
+        assertEquals(cache.size(), 2);
+        cache.onNotification(new Notification(NotificationType.Deleted, "/admin/policies/public/default"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testStaleLoadIsNotInstalledAfterRemoval() {
+        final long version = cache.version(NAMESPACE);
+        cache.invalidateNamespace(NAMESPACE);
+        // The new snapshot doesn't reuse the version of the removed snapshot
+        assertNotEquals(cache.version(NAMESPACE), version);
+        cache.putPartitions(TOPIC, 3, version);
+        assertNull(cache.getPartitions(TOPIC));
+    }
+
+    @Test
+    public void testExpiredEntriesAreRemoved() {
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        cache.getTopicsAsync("public/other", __ -> CompletableFuture.completedFuture(Collections.emptyList()))
+                .join();
+        cache.getNamespacesAsync("public", __ -> CompletableFuture.completedFuture(Arrays.asList("default")))
+                .join();
+        assertEquals(cache.size(), 3);
+
+        time.sleep(EXPIRE_TIME_MS / 2);
+        final TopicName otherTopic = TopicName.get("persistent://public/another/my-topic");
+        cache.putPartitions(otherTopic, 1, cache.version(otherTopic.getNamespace()));
+        assertEquals(cache.size(), 4);
+
+        // Only the entries that are expired are removed
+        time.sleep(EXPIRE_TIME_MS / 2);
+        cache.version(otherTopic.getNamespace());
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getPartitions(otherTopic), Integer.valueOf(1));
+    }
+
+    @Test
+    public void testDisabled() {
+        cache = new TopicMetadataCache(0, time);
+        cache.putPartitions(TOPIC, 3, cache.version(NAMESPACE));
+        assertNull(cache.getPartitions(TOPIC));
+        assertEquals(cache.size(), 0);
+    }
+}
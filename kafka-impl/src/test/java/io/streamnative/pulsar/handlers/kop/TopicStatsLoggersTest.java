@@ -0,0 +1,220 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop;
+
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.BYTES_IN;
+import static io.streamnative.pulsar.handlers.kop.KopServerStats.BYTES_OUT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.prometheus.client.CollectorRegistry;
+import io.streamnative.pulsar.handlers.kop.stats.PrometheusMetricsProvider;
+import io.streamnative.pulsar.handlers.kop.stats.StatsLogger;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.common.util.MathUtils;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link TopicStatsLoggers}.
+ */
+public class TopicStatsLoggersTest {
+
+    private PrometheusMetricsProvider provider;
+    private StatsLogger rootStatsLogger;
+
+    @BeforeMethod
+    public void setUp() {
+        provider = new PrometheusMetricsProvider(new CollectorRegistry());
+        rootStatsLogger = provider.getStatsLogger("kop_server");
+    }
+
+    private String generate() {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            provider.generate(new SimpleTextOutputStream(buf));
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testAggregationLevels() {
+        final TopicPartition tp0 = new TopicPartition("my-topic", 0);
+        final TopicPartition tp1 = new TopicPartition("persistent://my-tenant/my-ns/my-topic", 1);
+
+        final TopicStatsLoggers brokerLoggers = TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.parse("broker"))
+                .build(rootStatsLogger);
+        assertSame(brokerLoggers.get(tp0), rootStatsLogger);
+        assertSame(brokerLoggers.get(tp1), rootStatsLogger);
+
+        final TopicStatsLoggers namespaceLoggers = TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.parse("Namespace"))
+                .namespacePrefix("public/default")
+                .build(rootStatsLogger);
+        namespaceLoggers.get(tp0).getCounter(BYTES_IN).addCount(1);
+        namespaceLoggers.get(tp1).getCounter(BYTES_IN).addCount(1);
+        assertEquals(namespaceLoggers.size(), 2);
+        final String metrics = generate();
+        assertTrue(metrics.contains("kop_server_BYTES_IN{namespace=\"public/default\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{namespace=\"my-tenant/my-ns\"} 1"));
+
+        final TopicStatsLoggers topicLoggers = TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.TOPIC)
+                .build(rootStatsLogger);
+        assertSame(topicLoggers.get(tp0), topicLoggers.get(new TopicPartition("my-topic", 1)));
+        assertEquals(topicLoggers.size(), 1);
+
+        expectThrows(IllegalArgumentException.class, () -> TopicStatsLoggers.AggregationLevel.parse("cluster"));
+    }
+
+    @Test
+    public void testNamespaceOfTenant() {
+        final RequestStats requestStats = new RequestStats(rootStatsLogger, TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.NAMESPACE)
+                .namespacePrefix("public/default"));
+        final TopicPartition tp0 = new TopicPartition("my-topic", 0);
+        requestStats.getStatsLoggerForTopicPartition(tp0).getCounter(BYTES_IN).addCount(1);
+        requestStats.forTenant("my-tenant", "my-tenant/kafka")
+                .getStatsLoggerForTopicPartition(tp0).getCounter(BYTES_IN).addCount(1);
+        final String metrics = generate();
+        assertTrue(metrics.contains("kop_server_BYTES_IN{namespace=\"public/default\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{namespace=\"my-tenant/kafka\",tenant=\"my-tenant\"} 1"));
+    }
+
+    @Test
+    public void testTopK() {
+        final TopicStatsLoggers loggers = TopicStatsLoggers.builder()
+                .maxSeries(2)
+                .maintenanceIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .build(rootStatsLogger);
+        final TopicPartition tp0 = new TopicPartition("my-topic", 0);
+        final TopicPartition tp1 = new TopicPartition("my-topic", 1);
+        final TopicPartition tp2 = new TopicPartition("my-topic", 2);
+
+        loggers.get(tp0).getCounter(BYTES_IN).addCount(1);
+        loggers.get(tp1).getCounter(BYTES_IN).addCount(1);
+        // The max series is reached, so tp2 is aggregated into the others
+        loggers.get(tp2).getCounter(BYTES_IN).addCount(1);
+        loggers.get(tp2, "my-group").getCounter(BYTES_OUT).addCount(1);
+        String metrics = generate();
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"1\",topic=\"my-topic\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"__others__\",topic=\"__others__\"} 1"));
+        assertTrue(metrics.contains(
+                "kop_server_BYTES_OUT{group=\"my-group\",partition=\"__others__\",topic=\"__others__\"} 1"));
+        assertFalse(metrics.contains("partition=\"2\""));
+
+        // tp2 becomes the busiest partition, and tp1 becomes the least busy one
+        for (int i = 0; i < 5; i++) {
+            loggers.get(tp2);
+        }
+        loggers.get(tp0);
+        loggers.maintain(MathUtils.nowInNano());
+        loggers.get(tp2).getCounter(BYTES_IN).addCount(1);
+        loggers.get(tp1).getCounter(BYTES_IN).addCount(1);
+        metrics = generate();
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"0\",topic=\"my-topic\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"2\",topic=\"my-topic\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"__others__\",topic=\"__others__\"} 2"));
+        assertFalse(metrics.contains("partition=\"1\""));
+    }
+
+    @Test
+    public void testExpiry() {
+        final TopicStatsLoggers loggers = TopicStatsLoggers.builder()
+                .expiryMs(1000)
+                .maintenanceIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .build(rootStatsLogger);
+        final TopicPartition tp0 = new TopicPartition("my-topic", 0);
+        loggers.get(tp0).getCounter(BYTES_IN).addCount(1);
+        loggers.get(tp0, "my-group").getCounter(BYTES_OUT).addCount(1);
+        assertTrue(generate().contains("partition=\"0\""));
+
+        loggers.maintain(MathUtils.nowInNano());
+        assertEquals(loggers.size(), 1);
+
+        loggers.maintain(MathUtils.nowInNano() + TimeUnit.SECONDS.toNanos(2));
+        assertEquals(loggers.size(), 0);
+        assertFalse(generate().contains("partition=\"0\""));
+
+        // The series are created again when the partition becomes active again
+        loggers.get(tp0).getCounter(BYTES_IN).addCount(1);
+        assertTrue(generate().contains("kop_server_BYTES_IN{partition=\"0\",topic=\"my-topic\"} 1"));
+    }
+
+    @Test
+    public void testStaleStatsLoggers() {
+        final TopicStatsLoggers loggers = TopicStatsLoggers.builder()
+                .maxSeries(1)
+                .expiryMs(1000)
+                .maintenanceIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .build(rootStatsLogger);
+        final TopicPartition tp0 = new TopicPartition("my-topic", 0);
+        final TopicPartition tp1 = new TopicPartition("my-topic", 1);
+        final StatsLogger staleStatsLogger = loggers.get(tp0);
+        final StatsLogger staleGroupStatsLogger = loggers.get(tp0, "my-group");
+        // The counter is cached by the stats logger before tp0 is demoted
+        staleStatsLogger.getCounter(BYTES_IN);
+
+        // tp1 becomes the busiest partition, so tp0 is demoted
+        for (int i = 0; i < 3; i++) {
+            loggers.get(tp1);
+        }
+        loggers.maintain(MathUtils.nowInNano());
+        staleStatsLogger.getCounter(BYTES_IN).addCount(1);
+        staleGroupStatsLogger.getCounter(BYTES_OUT).addCount(1);
+        String metrics = generate();
+        assertFalse(metrics.contains("partition=\"0\""));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"__others__\",topic=\"__others__\"} 1"));
+        assertTrue(metrics.contains(
+                "kop_server_BYTES_OUT{group=\"my-group\",partition=\"__others__\",topic=\"__others__\"} 1"));
+
+        // tp1 expires
+        final StatsLogger expiredStatsLogger = loggers.get(tp1);
+        loggers.maintain(MathUtils.nowInNano() + TimeUnit.SECONDS.toNanos(2));
+        expiredStatsLogger.getCounter(BYTES_IN).addCount(1);
+        metrics = generate();
+        assertFalse(metrics.contains("partition=\"1\""));
+        assertTrue(metrics.contains("kop_server_BYTES_IN{partition=\"__others__\",topic=\"__others__\"} 2"));
+    }
+
+    @Test
+    public void testOthersGroupsAreCapped() {
+        final TopicStatsLoggers loggers = TopicStatsLoggers.builder()
+                .level(TopicStatsLoggers.AggregationLevel.TOPIC)
+                .maxSeries(1)
+                .maintenanceIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .build(rootStatsLogger);
+        loggers.get(new TopicPartition("topic-0", 0), "group-0");
+        // topic-1 is aggregated into the others
+        loggers.get(new TopicPartition("topic-1", 0), "group-1").getCounter(BYTES_OUT).addCount(1);
+        loggers.get(new TopicPartition("topic-1", 0), "group-2").getCounter(BYTES_OUT).addCount(1);
+        loggers.get(new TopicPartition("topic-1", 0), "group-3").getCounter(BYTES_OUT).addCount(1);
+        final String metrics = generate();
+        assertTrue(metrics.contains("kop_server_BYTES_OUT{group=\"group-1\",topic=\"__others__\"} 1"));
+        assertTrue(metrics.contains("kop_server_BYTES_OUT{group=\"__others__\",topic=\"__others__\"} 2"));
+        assertFalse(metrics.contains("group-2"));
+        assertFalse(metrics.contains("group-3"));
+    }
+}
@@ -28,6 +28,10 @@ import static org.testng.Assert.fail;
 import com.google.common.collect.Sets;
 import io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadata.CommitRecordMetadataAndOffset;
 import io.streamnative.pulsar.handlers.kop.offset.OffsetAndMetadata;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -38,6 +42,7 @@ import java.util.function.Supplier;
 import lombok.val;
 import org.apache.bookkeeper.mledger.impl.PositionImpl;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.protocol.Errors;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -373,6 +378,192 @@ public class GroupMetadataTest {
         assertEquals("roundrobin", group.protocolOrNull());
     }
 
+    @Test
+    public void testReplaceStaticMember() {
+        val groupInstanceId = "instance-1";
+        Map<String, byte[]> protocols = new LinkedHashMap<>();
+        protocols.put("range", new byte[0]);
+        val member = new MemberMetadata(
+            "memberId",
+            groupId.get(),
+            clientId,
+            clientHost,
+            rebalanceTimeoutMs,
+            sessionTimeoutMs,
+            protocolType,
+            protocols).groupInstanceId(Optional.of(groupInstanceId));
+        byte[] assignment = new byte[]{ 1 };
+        member.assignment(assignment);
+        CompletableFuture<JoinGroupResult> joinFuture = new CompletableFuture<>();
+        member.awaitingJoinCallback(joinFuture);
+        group.add(member);
+
+        assertTrue(group.hasStaticMember(groupInstanceId));
+        assertFalse(group.isStaticMemberFenced("memberId", groupInstanceId));
+        assertTrue(group.isStaticMemberFenced("otherMemberId", groupInstanceId));
+
+        MemberMetadata newMember = group.replaceStaticMember(groupInstanceId, "newMemberId",
+            "newClientId", "newClientHost", rebalanceTimeoutMs + 1, sessionTimeoutMs + 1);
+        assertEquals("newMemberId", newMember.memberId());
+        assertEquals("newClientId", newMember.clientId());
+        assertEquals("newClientHost", newMember.clientHost());
+        assertEquals(rebalanceTimeoutMs + 1, newMember.rebalanceTimeoutMs());
+        assertEquals(sessionTimeoutMs + 1, newMember.sessionTimeoutMs());
+        assertEquals(Optional.of(groupInstanceId), newMember.groupInstanceId());
+        assertEquals(assignment, newMember.assignment());
+        assertNull(newMember.awaitingJoinCallback());
+        assertEquals(Errors.FENCED_INSTANCE_ID, joinFuture.join().getError());
+
+        assertFalse(group.has("memberId"));
+        assertTrue(group.has("newMemberId"));
+        assertTrue(group.isLeader("newMemberId"));
+        assertEquals("newMemberId", group.getStaticMemberId(groupInstanceId));
+
+        group.remove("newMemberId");
+        assertFalse(group.hasStaticMember(groupInstanceId));
+    }
+
+    @Test
+    public void testStaticMemberGroupMetadataValue() {
+        Map<String, byte[]> protocols = new LinkedHashMap<>();
+        protocols.put("range", new byte[0]);
+        val staticMember = new MemberMetadata(
+            "staticMemberId",
+            groupId.get(),
+            clientId,
+            clientHost,
+            rebalanceTimeoutMs,
+            sessionTimeoutMs,
+            protocolType,
+            protocols).groupInstanceId(Optional.of("instance-1"));
+        val dynamicMember = new MemberMetadata(
+            "dynamicMemberId",
+            groupId.get(),
+            clientId,
+            clientHost,
+            rebalanceTimeoutMs,
+            sessionTimeoutMs,
+            protocolType,
+            new LinkedHashMap<>(protocols));
+        GroupMetadata stableGroup = GroupMetadata.loadGroup(
+            groupId.get(), Stable, 1, protocolType, "range", "staticMemberId",
+            Arrays.asList(staticMember, dynamicMember));
+        Map<String, byte[]> assignment = new HashMap<>();
+        assignment.put("staticMemberId", new byte[0]);
+        assignment.put("dynamicMemberId", new byte[0]);
+
+        assertEquals(GroupMetadataConstants.CURRENT_GROUP_VALUE_SCHEMA_VERSION,
+            GroupMetadataConstants.groupMetadataValueVersion(stableGroup));
+        byte[] value = GroupMetadataConstants.groupMetadataValue(
+            stableGroup, assignment, GroupMetadataConstants.groupMetadataValueVersion(stableGroup));
+        GroupMetadata loadedGroup = GroupMetadataConstants.readGroupMessageValue(
+            groupId.get(), ByteBuffer.wrap(value));
+        assertEquals(Optional.of("instance-1"), loadedGroup.get("staticMemberId").groupInstanceId());
+        assertEquals(Optional.empty(), loadedGroup.get("dynamicMemberId").groupInstanceId());
+        assertEquals("staticMemberId", loadedGroup.getStaticMemberId("instance-1"));
+
+        // the old versions don't have the group instance id
+        value = GroupMetadataConstants.groupMetadataValue(stableGroup, assignment, (short) 1);
+        loadedGroup = GroupMetadataConstants.readGroupMessageValue(groupId.get(), ByteBuffer.wrap(value));
+        assertFalse(loadedGroup.get("staticMemberId").isStaticMember());
+
+        // a group without static members is still written with the old version
+        GroupMetadata dynamicGroup = GroupMetadata.loadGroup(
+            groupId.get(), Stable, 1, protocolType, "range", "dynamicMemberId",
+            Collections.singletonList(dynamicMember));
+        assertEquals(GroupMetadataConstants.GROUP_VALUE_SCHEMA_VERSION_WITHOUT_STATIC_MEMBERS,
+            GroupMetadataConstants.groupMetadataValueVersion(dynamicGroup));
+    }
+
+    @Test
+    public void testGroupMetadataValueMatchesKafkaLayout() {
+        Map<String, byte[]> protocols = new LinkedHashMap<>();
+        protocols.put("range", new byte[]{ 1, 2 });
+        val staticMember = new MemberMetadata(
+            "staticMemberId",
+            groupId.get(),
+            clientId,
+            clientHost,
+            rebalanceTimeoutMs,
+            sessionTimeoutMs,
+            protocolType,
+            protocols).groupInstanceId(Optional.of("instance-1"));
+        GroupMetadata stableGroup = GroupMetadata.loadGroup(
+            groupId.get(), Stable, 5, protocolType, "range", "staticMemberId",
+            Collections.singletonList(staticMember));
+        Map<String, byte[]> assignment = new HashMap<>();
+        assignment.put("staticMemberId", new byte[]{ 3 });
+
+        // a group with static members is written with the version 3 of Kafka
+        byte[] kafkaV3 = kafkaGroupMetadataValue((short) 3, "instance-1");
+        assertEquals(3, GroupMetadataConstants.groupMetadataValueVersion(stableGroup));
+        assertEquals(GroupMetadataConstants.groupMetadataValue(stableGroup, assignment, (short) 3), kafkaV3);
+        assertEquals(GroupMetadataConstants.groupMetadataValue(stableGroup, assignment, (short) 2),
+            kafkaGroupMetadataValue((short) 2, null));
+
+        GroupMetadata loadedGroup = GroupMetadataConstants.readGroupMessageValue(
+            groupId.get(), ByteBuffer.wrap(kafkaV3));
+        assertEquals(5, loadedGroup.generationId());
+        assertEquals("range", loadedGroup.protocolOrNull());
+        assertEquals("staticMemberId", loadedGroup.leaderOrNull());
+        MemberMetadata loadedMember = loadedGroup.get("staticMemberId");
+        assertEquals(Optional.of("instance-1"), loadedMember.groupInstanceId());
+        assertEquals(clientId, loadedMember.clientId());
+        assertEquals(clientHost, loadedMember.clientHost());
+        assertEquals(rebalanceTimeoutMs, loadedMember.rebalanceTimeoutMs());
+        assertEquals(sessionTimeoutMs, loadedMember.sessionTimeoutMs());
+        assertEquals(new byte[]{ 1, 2 }, loadedMember.metadata("range"));
+
+        loadedGroup = GroupMetadataConstants.readGroupMessageValue(
+            groupId.get(), ByteBuffer.wrap(kafkaGroupMetadataValue((short) 2, null)));
+        loadedMember = loadedGroup.get("staticMemberId");
+        assertFalse(loadedMember.isStaticMember());
+        assertEquals(rebalanceTimeoutMs, loadedMember.rebalanceTimeoutMs());
+        assertEquals(sessionTimeoutMs, loadedMember.sessionTimeoutMs());
+    }
+
+    // Encodes a group metadata value field by field in the order of Kafka's GroupMetadataValue
+    private static byte[] kafkaGroupMetadataValue(short version, String groupInstanceId) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.putShort(version);
+        putString(buffer, protocolType);
+        buffer.putInt(5);
+        putString(buffer, "range");
+        putString(buffer, "staticMemberId");
+        buffer.putLong(-1L);
+        buffer.putInt(1);
+        putString(buffer, "staticMemberId");
+        if (version >= 3) {
+            putString(buffer, groupInstanceId);
+        }
+        putString(buffer, clientId);
+        putString(buffer, clientHost);
+        buffer.putInt(rebalanceTimeoutMs);
+        buffer.putInt(sessionTimeoutMs);
+        buffer.putInt(2).put(new byte[]{ 1, 2 });
+        buffer.putInt(1).put((byte) 3);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    @Test
+    public void testOffsetCommitValueVersion() {
+        byte[] value = GroupMetadataConstants.offsetCommitValue(OffsetAndMetadata.apply(37));
+        assertEquals(GroupMetadataConstants.CURRENT_OFFSET_VALUE_SCHEMA_VERSION, ByteBuffer.wrap(value).getShort());
+    }
+
     @Test
     public void testInitNextGenerationEmptyGroup() {
         assertEquals(Empty, group.currentState());
@@ -437,6 +628,25 @@ public class GroupMetadataTest {
         assertNotEquals(group.offset(topicPartition, NAMESPACE_PREFIX).get().offset(), offset);
     }
 
+    @Test
+    public void testOffsetCommitsInSameEntry() {
+        TopicPartition topicPartition = new TopicPartition("foo", 1);
+        Map<TopicPartition, OffsetAndMetadata> pendingOffsetCommits = new HashMap<>();
+
+        // Both commits are accumulated into the same entry, so they share the same position
+        for (long offset = 20L; offset <= 21L; offset++) {
+            pendingOffsetCommits.put(topicPartition, OffsetAndMetadata.apply(offset));
+            group.prepareOffsetCommit(pendingOffsetCommits);
+        }
+        group.onOffsetCommitAppend(topicPartition,
+                new CommitRecordMetadataAndOffset(Optional.of(new PositionImpl(1000, 1000)),
+                        OffsetAndMetadata.apply(20L)));
+        group.onOffsetCommitAppend(topicPartition,
+                new CommitRecordMetadataAndOffset(Optional.of(new PositionImpl(1000, 1000)),
+                        OffsetAndMetadata.apply(21L)));
+        assertEquals(group.offset(topicPartition, NAMESPACE_PREFIX).get().offset(), 21L);
+    }
+
     @Test
     public void testOffsetCommitFailure() {
         TopicPartition partition = new TopicPartition("foo", 0);
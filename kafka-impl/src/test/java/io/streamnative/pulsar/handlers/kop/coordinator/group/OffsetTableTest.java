@@ -0,0 +1,166 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.coordinator.group;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import io.streamnative.pulsar.handlers.kop.coordinator.group.GroupMetadata.CommitRecordMetadataAndOffset;
+import io.streamnative.pulsar.handlers.kop.offset.OffsetAndMetadata;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.impl.PositionImpl;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jol.info.GraphLayout;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test {@link OffsetTable}.
+ */
+@Slf4j
+public class OffsetTableTest {
+
+    private static CommitRecordMetadataAndOffset commitRecord(long offset, String metadata) {
+        return new CommitRecordMetadataAndOffset(Optional.of(new PositionImpl(10L, offset)),
+                OffsetAndMetadata.apply(offset, metadata, 100L, 200L));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        final OffsetTable table = new OffsetTable();
+        final TopicPartition tp0 = new TopicPartition("topic", 0);
+        final TopicPartition tp5 = new TopicPartition("topic", 5);
+        assertTrue(table.isEmpty());
+        assertNull(table.get(tp0));
+
+        table.put(tp0, commitRecord(1L, ""));
+        table.put(tp5, commitRecord(2L, "metadata"));
+        assertEquals(table.size(), 2);
+        assertEquals(table.get(tp0), commitRecord(1L, ""));
+        assertEquals(table.get(tp5), commitRecord(2L, "metadata"));
+        assertFalse(table.containsKey(new TopicPartition("topic", 1)));
+        assertFalse(table.containsKey(new TopicPartition("other-topic", 0)));
+
+        // Overwrite the metadata with an empty string
+        table.put(tp5, commitRecord(3L, ""));
+        assertEquals(table.size(), 2);
+        assertEquals(table.get(tp5), commitRecord(3L, ""));
+
+        // The null metadata should be distinguished from the empty metadata
+        table.put(tp5, commitRecord(4L, null));
+        assertNull(table.get(tp5).offsetAndMetadata().metadata());
+    }
+
+    @Test
+    public void testNoPosition() {
+        final OffsetTable table = new OffsetTable();
+        final TopicPartition tp = new TopicPartition("topic", 0);
+        final CommitRecordMetadataAndOffset commitRecord =
+                new CommitRecordMetadataAndOffset(Optional.empty(), OffsetAndMetadata.apply(10L));
+        table.put(tp, commitRecord);
+        assertEquals(table.get(tp), commitRecord);
+    }
+
+    @Test
+    public void testRemoveAndIterate() {
+        final OffsetTable table = new OffsetTable();
+        final Map<TopicPartition, CommitRecordMetadataAndOffset> offsets = new HashMap<>();
+        for (String topic : Arrays.asList("a", "b")) {
+            for (int i = 0; i < 3; i++) {
+                offsets.put(new TopicPartition(topic, i), commitRecord(i, topic + i));
+            }
+        }
+        table.putAll(offsets);
+        assertEquals(table.keySet(), offsets.keySet());
+        assertEquals(new HashSet<>(table.partitionsOf(new HashSet<>(Arrays.asList("b", "c")))),
+                new HashSet<>(Arrays.asList(
+                        new TopicPartition("b", 0), new TopicPartition("b", 1), new TopicPartition("b", 2))));
+
+        final Map<TopicPartition, CommitRecordMetadataAndOffset> iterated = new HashMap<>();
+        table.forEach(iterated::put);
+        assertEquals(iterated, offsets);
+
+        assertEquals(table.remove(new TopicPartition("a", 1)), commitRecord(1, "a1"));
+        assertNull(table.remove(new TopicPartition("a", 1)));
+        assertEquals(table.size(), 5);
+        table.remove(new TopicPartition("b", 0));
+        table.remove(new TopicPartition("b", 1));
+        table.remove(new TopicPartition("b", 2));
+        assertTrue(table.partitionsOf(new HashSet<>(Arrays.asList("b"))).isEmpty());
+        assertEquals(table.size(), 2);
+    }
+
+    @Test
+    public void testUnorderedPartitions() {
+        final OffsetTable table = new OffsetTable();
+        for (int partition : new int[]{ 7, 3, 9, 0, 5 }) {
+            table.put(new TopicPartition("topic", partition), commitRecord(partition, "metadata-" + partition));
+        }
+        table.remove(new TopicPartition("topic", 3));
+        table.put(new TopicPartition("topic", 3), commitRecord(33L, ""));
+        for (int partition : new int[]{ 0, 5, 7, 9 }) {
+            assertEquals(table.get(new TopicPartition("topic", partition)),
+                    commitRecord(partition, "metadata-" + partition));
+        }
+        assertEquals(table.get(new TopicPartition("topic", 3)), commitRecord(33L, ""));
+        assertEquals(table.size(), 5);
+    }
+
+    @Test
+    public void testHeapUsage() {
+        // The offsets of a group that consumes 4 topics with 50 partitions each
+        final OffsetTable table = new OffsetTable();
+        final Map<TopicPartition, CommitRecordMetadataAndOffset> offsets = new HashMap<>();
+        for (int topic = 0; topic < 4; topic++) {
+            for (int partition = 0; partition < 50; partition++) {
+                final TopicPartition topicPartition = new TopicPartition("topic-" + topic, partition);
+                table.put(topicPartition, commitRecord(partition, ""));
+                offsets.put(topicPartition, commitRecord(partition, ""));
+            }
+        }
+        final long tableSize = GraphLayout.parseInstance(table).totalSize();
+        final long mapSize = GraphLayout.parseInstance(offsets).totalSize();
+        log.info("The offsets of 200 partitions take {} bytes in OffsetTable and {} bytes in HashMap",
+                tableSize, mapSize);
+        assertTrue(tableSize * 3 < mapSize);
+    }
+
+    @Test
+    public void testHeapUsageOfSparsePartitions() {
+        final OffsetTable table = new OffsetTable();
+        final TopicPartition topicPartition = new TopicPartition("topic", 9999);
+        final long emptySize = GraphLayout.parseInstance(table).totalSize();
+        table.put(topicPartition, commitRecord(1L, "metadata"));
+        // The memory doesn't depend on the partition id
+        final long sparseSize = GraphLayout.parseInstance(table).totalSize();
+        log.info("The offset of partition 9999 takes {} bytes", sparseSize - emptySize);
+        assertTrue(sparseSize - emptySize < 1024);
+
+        // The memory is given back when the partitions are removed
+        for (int partition = 0; partition < 1000; partition++) {
+            table.put(new TopicPartition("topic", partition), commitRecord(partition, "metadata"));
+        }
+        for (int partition = 0; partition < 1000; partition++) {
+            table.remove(new TopicPartition("topic", partition));
+        }
+        assertEquals(table.size(), 1);
+        assertTrue(GraphLayout.parseInstance(table).totalSize() <= sparseSize + 64);
+    }
+}
@@ -18,9 +18,13 @@ import static org.apache.kafka.common.record.LegacyRecord.RECORD_OVERHEAD_V1;
 import static org.apache.kafka.common.record.Records.LOG_OVERHEAD;
 import static org.mockito.Mockito.mock;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
 import io.streamnative.pulsar.handlers.kop.storage.PartitionLog;
 import io.streamnative.pulsar.handlers.kop.storage.ProducerStateManager;
+import io.streamnative.pulsar.handlers.kop.utils.ByteBufUtils;
+import io.streamnative.pulsar.handlers.kop.utils.MessageMetadataUtils;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -49,6 +53,7 @@ import org.apache.kafka.common.utils.Crc32C;
 import org.apache.kafka.common.utils.Time;
 import org.apache.pulsar.broker.service.plugin.EntryFilter;
 import org.apache.pulsar.broker.service.plugin.FilterContext;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -163,6 +168,69 @@ public class EntryFormatterTest {
         checkCorrectOffset(encodeResult.getRecords());
 
     }
+
+    @Test
+    public void testEncodeWithoutCopyingRecords() throws Exception {
+        init();
+
+        final MemoryRecords records = prepareRecords(CompressionType.NONE, RecordBatch.MAGIC_VALUE_V2);
+        final PartitionLog.LogAppendInfo appendInfo = PARTITION_LOG.analyzeAndValidateRecords(records);
+        // Simulate a request frame whose records are after the other fields of the request
+        final int frameSize = Long.BYTES + records.sizeInBytes();
+        final ByteBuf frame = PulsarByteBufAllocator.DEFAULT.directBuffer(frameSize, frameSize);
+        frame.writeLong(0L);
+        frame.writeBytes(records.buffer());
+        final ByteBuffer recordsBuffer = frame.nioBuffer();
+        recordsBuffer.position(Long.BYTES);
+        final MemoryRecords frameRecords = MemoryRecords.readableRecords(recordsBuffer.slice());
+
+        for (EntryFormatter entryFormatter : Arrays.asList(kafkaV1Formatter, kafkaMixedFormatter)) {
+            final EncodeResult encodeResult =
+                    entryFormatter.encode(EncodeRequest.get(frameRecords, appendInfo, frame));
+            Assert.assertEquals(encodeResult.getCopiedBytes(), 0);
+            // The entry holds the frame until it's released
+            Assert.assertEquals(frame.refCnt(), 2);
+            final ByteBuf entryBuffer = encodeResult.getEncodedByteBuf().duplicate();
+            final MessageMetadata metadata = MessageMetadataUtils.parseMessageMetadata(entryBuffer);
+            Assert.assertTrue(AbstractEntryFormatter.isKafkaEntryFormat(metadata));
+            Assert.assertEquals(metadata.getNumMessagesInBatch(), NUM_MESSAGES);
+            Assert.assertEquals(entryBuffer.nioBuffer(), frameRecords.buffer());
+            // The entry retains no more memory than the frame
+            final ByteBuf payload = ((CompositeByteBuf) encodeResult.getEncodedByteBuf()).component(1);
+            Assert.assertEquals(ByteBufUtils.retainedCapacity(payload), frameSize);
+            encodeResult.recycle();
+            Assert.assertEquals(frame.refCnt(), 1);
+        }
+
+        // The records that are not in the frame are copied
+        EncodeResult encodeResult = kafkaV1Formatter.encode(EncodeRequest.get(records, appendInfo, frame));
+        Assert.assertEquals(encodeResult.getCopiedBytes(), records.sizeInBytes());
+        encodeResult.recycle();
+        Assert.assertEquals(frame.refCnt(), 1);
+        frame.release();
+
+        // Simulate a frame that is a slice of a cumulation buffer that holds other requests
+        final ByteBuf cumulation = PulsarByteBufAllocator.DEFAULT.directBuffer(16 * frameSize);
+        cumulation.writeZero(4 * frameSize);
+        cumulation.writeLong(0L);
+        cumulation.writeBytes(records.buffer());
+        cumulation.writeZero(4 * frameSize);
+        final ByteBuf slicedFrame = cumulation.retainedSlice(4 * frameSize, frameSize);
+        final ByteBuffer slicedRecordsBuffer = slicedFrame.nioBuffer();
+        slicedRecordsBuffer.position(Long.BYTES);
+        final MemoryRecords slicedFrameRecords = MemoryRecords.readableRecords(slicedRecordsBuffer.slice());
+        encodeResult = kafkaV1Formatter.encode(EncodeRequest.get(slicedFrameRecords, appendInfo, slicedFrame));
+        // The records are copied, so the entry doesn't retain the cumulation buffer
+        Assert.assertEquals(encodeResult.getCopiedBytes(), records.sizeInBytes());
+        Assert.assertEquals(cumulation.refCnt(), 2);
+        Assert.assertEquals(ByteBufUtils.retainedCapacity(encodeResult.getEncodedByteBuf()),
+                encodeResult.getEncodedByteBuf().capacity());
+        encodeResult.recycle();
+        slicedFrame.release();
+        cumulation.release();
+        Assert.assertEquals(cumulation.refCnt(), 0);
+    }
+
     @Test(dataProvider = "entryFormatters")
     public void testEntryFormatterDecode(AbstractEntryFormatter entryFormatter) {
         //Mock entries
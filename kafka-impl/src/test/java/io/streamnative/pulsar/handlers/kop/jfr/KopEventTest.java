@@ -0,0 +1,83 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.jfr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.expectThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link KopEvent} and {@link RequestEventThresholds}.
+ */
+public class KopEventTest {
+
+    @Test
+    public void testParseThresholds() {
+        final RequestEventThresholds thresholds = RequestEventThresholds.parse(" Fetch=500, PRODUCE = 50", 10);
+        assertEquals(thresholds.getThresholdNanos(ApiKeys.FETCH), TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(thresholds.getThresholdNanos(ApiKeys.PRODUCE), TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(thresholds.getThresholdNanos(ApiKeys.METADATA), TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(RequestEventThresholds.parse("", 0).getThresholdNanos(ApiKeys.FETCH), 0L);
+
+        expectThrows(IllegalArgumentException.class, () -> RequestEventThresholds.parse("Fetch", 0));
+        expectThrows(IllegalArgumentException.class, () -> RequestEventThresholds.parse("Fetch=abc", 0));
+        expectThrows(IllegalArgumentException.class, () -> RequestEventThresholds.parse("Unknown=1", 0));
+    }
+
+    @Test
+    public void testCommitWithThreshold() throws Exception {
+        // No recording is running
+        assertNull(KopEvent.beginIfEnabled(new KafkaRequestEvent()));
+
+        final Path file = Files.createTempFile("kop-event-test", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(KafkaRequestEvent.class);
+                recording.start();
+
+                final KafkaRequestEvent fastEvent = KopEvent.beginIfEnabled(new KafkaRequestEvent());
+                assertNotNull(fastEvent);
+                fastEvent.apiKey = ApiKeys.FETCH.name;
+                fastEvent.endAndCommit(TimeUnit.HOURS.toNanos(1));
+
+                final KafkaRequestEvent slowEvent = KopEvent.beginIfEnabled(new KafkaRequestEvent());
+                assertNotNull(slowEvent);
+                slowEvent.apiKey = ApiKeys.PRODUCE.name;
+                slowEvent.endAndCommit(0L);
+
+                recording.stop();
+                recording.dump(file);
+            }
+            final List<String> apiKeys = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("io.streamnative.kop.KafkaRequest"))
+                    .map((RecordedEvent event) -> event.getString("apiKey"))
+                    .collect(Collectors.toList());
+            assertEquals(apiKeys, List.of(ApiKeys.PRODUCE.name));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
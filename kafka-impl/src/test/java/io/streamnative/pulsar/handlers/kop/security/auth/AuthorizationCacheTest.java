@@ -0,0 +1,168 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.security.auth;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import io.streamnative.pulsar.handlers.kop.security.KafkaPrincipal;
+import io.streamnative.pulsar.handlers.kop.utils.MockTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.kafka.common.acl.AclOperation;
+import org.apache.pulsar.broker.authentication.AuthenticationDataCommand;
+import org.apache.pulsar.metadata.api.Notification;
+import org.apache.pulsar.metadata.api.NotificationType;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link AuthorizationCache}.
+ */
+public class AuthorizationCacheTest {
+
+    private static final long POSITIVE_EXPIRE_TIME_MS = 30000L;
+    private static final long NEGATIVE_EXPIRE_TIME_MS = 5000L;
+    private static final KafkaPrincipal PRINCIPAL = newPrincipal("role", null);
+    private static final Resource TOPIC = Resource.of(ResourceType.TOPIC, "persistent://public/default/my-topic");
+    private static final Resource OTHER_TENANT_TOPIC = Resource.of(ResourceType.TOPIC, "persistent://other/ns/topic");
+
+    private MockTime time;
+    private AuthorizationCache cache;
+    private AtomicInteger numAuthorizations;
+
+    @BeforeMethod
+    public void setUp() {
+        time = new MockTime();
+        cache = new AuthorizationCache(100, POSITIVE_EXPIRE_TIME_MS, NEGATIVE_EXPIRE_TIME_MS, time);
+        numAuthorizations = new AtomicInteger(0);
+    }
+
+    private static KafkaPrincipal newPrincipal(String role, String tenantSpec) {
+        return new KafkaPrincipal(KafkaPrincipal.USER_TYPE, role, tenantSpec, new AuthenticationDataCommand(role));
+    }
+
+    private Supplier<CompletableFuture<Boolean>> authorizer(boolean authorized) {
+        return () -> {
+            numAuthorizations.incrementAndGet();
+            return CompletableFuture.completedFuture(authorized);
+        };
+    }
+
+    @Test
+    public void testPositiveAndNegativeExpiration() {
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertFalse(cache.authorize(PRINCIPAL, AclOperation.WRITE, TOPIC, authorizer(false)).join());
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertFalse(cache.authorize(PRINCIPAL, AclOperation.WRITE, TOPIC, authorizer(false)).join());
+        assertEquals(numAuthorizations.get(), 2);
+
+        time.sleep(NEGATIVE_EXPIRE_TIME_MS);
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.WRITE, TOPIC, authorizer(true)).join());
+        assertEquals(numAuthorizations.get(), 3);
+
+        time.sleep(POSITIVE_EXPIRE_TIME_MS - NEGATIVE_EXPIRE_TIME_MS);
+        assertFalse(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(false)).join());
+        assertEquals(numAuthorizations.get(), 4);
+    }
+
+    @Test
+    public void testDecisionsAreSharedAcrossConnections() {
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertEquals(numAuthorizations.get(), 1);
+
+        // the same role of another connection shares the decision
+        assertTrue(cache.authorize(newPrincipal("role", null), AclOperation.READ, TOPIC, authorizer(false)).join());
+        assertEquals(numAuthorizations.get(), 1);
+
+        // the same role with another tenant is authorized again
+        final KafkaPrincipal tenantPrincipal = new KafkaPrincipal(KafkaPrincipal.USER_TYPE, "role", "public/default",
+                PRINCIPAL.getAuthenticationData());
+        assertFalse(cache.authorize(tenantPrincipal, AclOperation.READ, TOPIC, authorizer(false)).join());
+        assertEquals(numAuthorizations.get(), 2);
+        assertEquals(cache.size(), 2);
+    }
+
+    @Test
+    public void testCacheableAuthorizationProviders() {
+        assertTrue(AuthorizationCache.isCacheable(
+                "org.apache.pulsar.broker.authorization.PulsarAuthorizationProvider"));
+        assertFalse(AuthorizationCache.isCacheable(
+                "org.apache.pulsar.broker.authorization.MultiRolesTokenAuthorizationProvider"));
+    }
+
+    @Test
+    public void testEviction() {
+        cache = new AuthorizationCache(2, POSITIVE_EXPIRE_TIME_MS, NEGATIVE_EXPIRE_TIME_MS, time);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.authorize(newPrincipal("role-" + i, null), AclOperation.READ, TOPIC, authorizer(true))
+                    .join());
+            assertTrue(cache.size() <= 2);
+        }
+        assertEquals(numAuthorizations.get(), 5);
+    }
+
+    @Test
+    public void testConcurrentAuthorizationsAreMerged() {
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        final Supplier<CompletableFuture<Boolean>> authorizer = () -> {
+            numAuthorizations.incrementAndGet();
+            return future;
+        };
+        final CompletableFuture<Boolean> future1 = cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer);
+        final CompletableFuture<Boolean> future2 = cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer);
+        future.complete(true);
+        assertTrue(future1.join());
+        assertTrue(future2.join());
+        assertEquals(numAuthorizations.get(), 1);
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        final CompletableFuture<Boolean> failedFuture = new CompletableFuture<>();
+        failedFuture.completeExceptionally(new IllegalStateException("failed"));
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, () -> failedFuture).isCompletedExceptionally());
+        assertEquals(cache.size(), 0);
+        assertTrue(cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join());
+        assertEquals(numAuthorizations.get(), 1);
+    }
+
+    @Test
+    public void testInvalidateByPolicyChanges() {
+        cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join();
+        cache.authorize(PRINCIPAL, AclOperation.DESCRIBE, Resource.of(ResourceType.NAMESPACE, "public/default"),
+                authorizer(true)).join();
+        cache.authorize(PRINCIPAL, AclOperation.READ, OTHER_TENANT_TOPIC, authorizer(true)).join();
+        assertEquals(cache.size(), 3);
+
+        cache.onNotification(new Notification(NotificationType.Modified, "/admin/policies/public/default"));
+        assertEquals(cache.size(), 1);
+        cache.onNotification(new Notification(NotificationType.Modified, "/managed-ledgers/other/ns/persistent/t"));
+        assertEquals(cache.size(), 1);
+        cache.onNotification(new Notification(NotificationType.Modified, "/admin/configuration"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testDisabled() {
+        cache = new AuthorizationCache(0, POSITIVE_EXPIRE_TIME_MS, NEGATIVE_EXPIRE_TIME_MS, time);
+        cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join();
+        cache.authorize(PRINCIPAL, AclOperation.READ, TOPIC, authorizer(true)).join();
+        assertEquals(numAuthorizations.get(), 2);
+    }
+}
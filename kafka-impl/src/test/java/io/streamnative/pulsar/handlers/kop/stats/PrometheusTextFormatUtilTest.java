@@ -0,0 +1,109 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.stats;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.prometheus.client.CollectorRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.bookkeeper.stats.Gauge;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link PrometheusTextFormatUtil} and the exposition of {@link PrometheusMetricsProvider}.
+ */
+public class PrometheusTextFormatUtilTest {
+
+    private static String write(Consumer<SimpleTextOutputStream> consumer) {
+        final ByteBuf buf = Unpooled.buffer();
+        try {
+            consumer.accept(new SimpleTextOutputStream(buf));
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testWriteDouble() {
+        final double[] values = { 0.0, 1.0, -1.0, 0.5, 1.05, 10.902, 0.000001, -3.25, 123456789.125 };
+        final String[] expected = { "0.0", "1.0", "-1.0", "0.5", "1.05", "10.902", "0.000001", "-3.25",
+                "123456789.125" };
+        for (int i = 0; i < values.length; i++) {
+            final double value = values[i];
+            assertEquals(write(w -> PrometheusTextFormatUtil.writeDouble(w, value)), expected[i]);
+        }
+        assertEquals(write(w -> PrometheusTextFormatUtil.writeDouble(w, Double.NaN)), "NaN");
+        assertEquals(write(w -> PrometheusTextFormatUtil.writeDouble(w, Double.POSITIVE_INFINITY)), "Infinity");
+        assertEquals(write(w -> PrometheusTextFormatUtil.writeDouble(w, 1e15)), "1.0E15");
+    }
+
+    @Test
+    public void testOneTypePerFamily() {
+        final PrometheusMetricsProvider provider = new PrometheusMetricsProvider(new CollectorRegistry());
+        final StatsLogger statsLogger = provider.getStatsLogger("kop_server");
+        final StatsLogger topicStatsLogger = statsLogger.scopeLabel("topic", "a");
+        topicStatsLogger.getCounter("BYTES_IN").addCount(1);
+        statsLogger.scopeLabel("topic", "b").getCounter("BYTES_IN").addCount(2);
+        statsLogger.scopeLabel("request", "Fetch").getOpStatsLogger("REQUEST_LATENCY")
+                .registerSuccessfulEvent(1, TimeUnit.MILLISECONDS);
+        statsLogger.scopeLabel("request", "Produce").getOpStatsLogger("REQUEST_LATENCY")
+                .registerSuccessfulEvent(1, TimeUnit.MILLISECONDS);
+        final AtomicInteger queueSize = new AtomicInteger(3);
+        statsLogger.registerGauge("REQUEST_QUEUE_SIZE", new Gauge<Number>() {
+            @Override
+            public Number getDefaultValue() {
+                return 0;
+            }
+
+            @Override
+            public Number getSample() {
+                return queueSize;
+            }
+        });
+
+        final String metrics = write(provider::generate);
+        final List<String> lines = Arrays.asList(metrics.split("\n"));
+        assertEquals(lines.stream().filter(line -> line.startsWith("# TYPE kop_server_BYTES_IN ")).count(), 1);
+        assertEquals(lines.stream().filter(line -> line.startsWith("# TYPE kop_server_REQUEST_LATENCY ")).count(), 1);
+        assertTrue(lines.contains("# TYPE kop_server_BYTES_IN counter"));
+        assertTrue(lines.contains("# TYPE kop_server_REQUEST_LATENCY summary"));
+        assertTrue(lines.contains("# TYPE kop_server_REQUEST_QUEUE_SIZE gauge"));
+        assertTrue(lines.contains("kop_server_BYTES_IN{topic=\"a\"} 1"));
+        assertTrue(lines.contains("kop_server_BYTES_IN{topic=\"b\"} 2"));
+        assertTrue(lines.contains("kop_server_REQUEST_QUEUE_SIZE 3"));
+        assertTrue(lines.contains("kop_server_REQUEST_LATENCY_count{success=\"true\", request=\"Fetch\"} 1"));
+        assertTrue(lines.contains("kop_server_REQUEST_LATENCY{success=\"false\",quantile=\"0.99\", "
+                + "request=\"Produce\"} NaN"));
+
+        // The series of a family are written together after the TYPE line
+        final int typeIndex = lines.indexOf("# TYPE kop_server_BYTES_IN counter");
+        assertTrue(lines.subList(typeIndex + 1, typeIndex + 3).stream()
+                .allMatch(line -> line.startsWith("kop_server_BYTES_IN{")));
+
+        // The removed series are not written anymore
+        topicStatsLogger.removeStats();
+        assertFalse(write(provider::generate).contains("topic=\"a\""));
+    }
+}
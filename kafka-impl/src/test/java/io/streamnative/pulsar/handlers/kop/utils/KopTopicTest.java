@@ -17,6 +17,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import org.apache.kafka.common.TopicPartition;
 import org.testng.annotations.Test;
 
 /**
@@ -87,4 +88,24 @@ public class KopTopicTest {
         assertEquals(KopTopic.removeDefaultNamespacePrefix(topic1, namespacePrefix), "my-topic");
         assertEquals(KopTopic.removeDefaultNamespacePrefix(topic2, namespacePrefix), topic2);
     }
+
+    @Test
+    public void testNameCache() {
+        final KopTopicNameCache cache = new KopTopicNameCache(2);
+        final TopicPartition topicPartition = new TopicPartition("my-topic", 0);
+        assertEquals(cache.toString(topicPartition, "my-tenant/my-ns"),
+                "persistent://my-tenant/my-ns/my-topic-partition-0");
+        assertEquals(cache.toString(topicPartition, "my-tenant/my-ns"),
+                "persistent://my-tenant/my-ns/my-topic-partition-0");
+        assertEquals(cache.toString(topicPartition, "my-tenant/my-ns-2"),
+                "persistent://my-tenant/my-ns-2/my-topic-partition-0");
+        assertEquals(cache.size(), 2);
+
+        // The names beyond the max size are not cached, no matter which namespace prefix they belong to
+        assertEquals(cache.toString(new TopicPartition("my-topic", 1), "my-tenant/my-ns"),
+                "persistent://my-tenant/my-ns/my-topic-partition-1");
+        assertEquals(cache.toString(topicPartition, "my-tenant/my-ns-3"),
+                "persistent://my-tenant/my-ns-3/my-topic-partition-0");
+        assertEquals(cache.size(), 2);
+    }
 }
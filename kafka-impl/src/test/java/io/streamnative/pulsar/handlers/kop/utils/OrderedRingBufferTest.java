@@ -0,0 +1,76 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+/**
+ * Test for {@link OrderedRingBuffer}.
+ */
+public class OrderedRingBufferTest {
+
+    @Test
+    public void testWrapAround() throws Exception {
+        final OrderedRingBuffer<Integer> buffer = new OrderedRingBuffer<>(3);
+        assertNull(buffer.peek());
+        assertNull(buffer.poll());
+        for (int i = 0; i < 10; i++) {
+            buffer.put(i);
+            buffer.put(i + 100);
+            assertEquals(buffer.size(), 2);
+            assertEquals(buffer.peek(), Integer.valueOf(i));
+            // Only the head can be removed
+            assertFalse(buffer.removeHead(i + 100));
+            assertTrue(buffer.removeHead(buffer.peek()));
+            assertEquals(buffer.poll(), Integer.valueOf(i + 100));
+            assertEquals(buffer.size(), 0);
+        }
+    }
+
+    @Test
+    public void testAnyMatchAfterHead() throws Exception {
+        final OrderedRingBuffer<Integer> buffer = new OrderedRingBuffer<>(4);
+        buffer.put(1);
+        assertFalse(buffer.anyMatchAfterHead(i -> i == 1));
+        buffer.put(2);
+        buffer.put(3);
+        assertTrue(buffer.anyMatchAfterHead(i -> i == 3));
+        assertFalse(buffer.anyMatchAfterHead(i -> i == 1));
+    }
+
+    @Test(timeOut = 10000)
+    public void testPutBlocksWhenFull() throws Exception {
+        final OrderedRingBuffer<Integer> buffer = new OrderedRingBuffer<>(1);
+        buffer.put(0);
+        final CompletableFuture<Void> putFuture = CompletableFuture.runAsync(() -> {
+            try {
+                buffer.put(1);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(putFuture.isDone());
+        assertEquals(buffer.poll(), Integer.valueOf(0));
+        putFuture.get(5, TimeUnit.SECONDS);
+        assertEquals(buffer.peek(), Integer.valueOf(1));
+    }
+}
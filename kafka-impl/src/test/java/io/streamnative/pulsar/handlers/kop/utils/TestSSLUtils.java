@@ -15,8 +15,12 @@ package io.streamnative.pulsar.handlers.kop.utils;
 
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslHandler;
 import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
 import io.streamnative.pulsar.handlers.kop.utils.ssl.SSLUtils;
+import io.streamnative.pulsar.handlers.kop.utils.ssl.SslHandlerFactory;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -76,4 +80,21 @@ public class TestSSLUtils {
             log.debug("ssl factory cipher: {}", c);
         });
     }
+
+    @Test
+    public void testClientSslHandlerFactory() throws Exception {
+        final KafkaServiceConfiguration kConfig = new KafkaServiceConfiguration();
+
+        SslHandlerFactory sslHandlerFactory = SslHandlerFactory.forClient(kConfig, null);
+        Assert.assertFalse(sslHandlerFactory.isOpenSsl());
+        SslHandler sslHandler = sslHandlerFactory.newHandler(UnpooledByteBufAllocator.DEFAULT);
+        Assert.assertTrue(sslHandler.engine().getUseClientMode());
+
+        // It falls back to the JDK SSLEngine if OpenSSL is not available
+        kConfig.setKopSslUseOpenSsl(true);
+        sslHandlerFactory = SslHandlerFactory.forClient(kConfig, null);
+        Assert.assertEquals(sslHandlerFactory.isOpenSsl(), OpenSsl.isAvailable());
+        sslHandler = sslHandlerFactory.newHandler(UnpooledByteBufAllocator.DEFAULT);
+        Assert.assertTrue(sslHandler.engine().getUseClientMode());
+    }
 }
@@ -0,0 +1,115 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils.delayed;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the contention on the watcher lists of {@link DelayedOperationPurgatory}.
+ *
+ * <p>Each invocation watches an operation on a random key, checks a random key, which is mostly a miss, then completes
+ * the operation by checking its key, like a produce request that is completed by the replication of its partition.
+ * With a single shard, all keys share the same lock, like the purgatory before the watcher lists were sharded.
+ *
+ * <p>It's not run by the tests, run it on a machine with at least as many cores as the threads:
+ * <pre>
+ * mvn -pl kafka-impl test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp kafka-impl/target/test-classes:kafka-impl/target/classes:$(cat kafka-impl/target/classpath.txt) \
+ *     org.openjdk.jmh.Main DelayedOperationPurgatoryBenchmark -t 16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class DelayedOperationPurgatoryBenchmark {
+
+    @Param({"1", "512"})
+    public int shards;
+
+    @Param({"16", "10000"})
+    public int keys;
+
+    private DelayedOperationPurgatory<BenchmarkOperation> purgatory;
+
+    private static class BenchmarkOperation extends DelayedOperation {
+
+        private volatile boolean completable = false;
+
+        BenchmarkOperation() {
+            super(TimeUnit.SECONDS.toMillis(30), Optional.empty());
+        }
+
+        @Override
+        public void onExpiration() {
+            // no-op
+        }
+
+        @Override
+        public void onComplete() {
+            // no-op
+        }
+
+        @Override
+        public boolean tryComplete() {
+            return completable && forceComplete();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        purgatory = DelayedOperationPurgatory.<BenchmarkOperation>builder()
+                .purgatoryName("benchmark")
+                .reaperEnabled(false)
+                .timerEnabled(false)
+                .shards(shards)
+                .build();
+    }
+
+    @TearDown
+    public void teardown() {
+        purgatory.shutdown();
+    }
+
+    @Benchmark
+    public int watchAndComplete() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Integer key = random.nextInt(keys);
+        final BenchmarkOperation operation = new BenchmarkOperation();
+        purgatory.tryCompleteElseWatch(operation, Collections.singletonList(key));
+        int completed = purgatory.checkAndComplete(random.nextInt(keys));
+        operation.completable = true;
+        completed += purgatory.checkAndComplete(key);
+        return completed;
+    }
+}
@@ -354,6 +354,47 @@ public class DelayedOperationTest {
         ops.forEach(op -> assertTrue("Operation should have completed", op.isCompleted()));
     }
 
+    /**
+     * Test watching and completing operations from many threads whose keys share a few shards of watcher lists,
+     * so that the keys are added to and removed from the same shards concurrently.
+     */
+    @Test
+    public void testConcurrentCompletersOnSharedShards() throws Exception {
+        final DelayedOperationPurgatory<MockDelayedOperation> shardedPurgatory =
+            DelayedOperationPurgatory.<MockDelayedOperation>builder()
+                .purgatoryName("sharded")
+                .shards(4)
+                .build();
+        final int numThreads = 16;
+        final int numOperationsPerThread = 1000;
+        final int numKeys = 64;
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(numThreads);
+        this.executorService = executor;
+        try {
+            final List<MockDelayedOperation> ops = IntStream.range(0, numThreads * numOperationsPerThread)
+                .mapToObj(i -> new MockDelayedOperation(100000L))
+                .collect(Collectors.toList());
+            final List<Future<?>> futures = IntStream.range(0, numThreads).mapToObj(thread -> executor.submit(() -> {
+                for (int i = thread * numOperationsPerThread; i < (thread + 1) * numOperationsPerThread; i++) {
+                    final MockDelayedOperation op = ops.get(i);
+                    final String key = "key" + (i % numKeys);
+                    shardedPurgatory.tryCompleteElseWatch(op, Lists.newArrayList(key));
+                    op.completable = true;
+                    shardedPurgatory.checkAndComplete(key);
+                }
+            })).collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            ops.forEach(op -> assertTrue("Operation should have completed", op.isCompleted()));
+            IntStream.range(0, numKeys).forEach(i -> shardedPurgatory.checkAndComplete("key" + i));
+            assertEquals("All watch lists should be empty", 0, shardedPurgatory.watched());
+        } finally {
+            shardedPurgatory.shutdown();
+        }
+    }
+
     Future<?> scheduleTryComplete(TestDelayOperation op, long delayMs) {
         return executorService.schedule(() -> {
             if (op.completionAttemptsRemaining.decrementAndGet() == 0) {
@@ -56,7 +56,6 @@ import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
@@ -1078,9 +1077,12 @@ public class KafkaApisTest extends KopProtocolHandlerTestBase {
         final CompletableFuture<AbstractResponse> future = new CompletableFuture<>();
         kafkaRequestHandler.handleProduceRequest(request, future);
 
-        Assert.expectThrows(TimeoutException.class, () -> {
-            future.get(1000, TimeUnit.MILLISECONDS);
-        });
+        // The future is completed once the records are appended instead of after the request timeout, so that the
+        // request can be released without waiting for the timeout
+        final ProduceResponse.PartitionResponse response =
+                ((ProduceResponse) future.get(10, TimeUnit.SECONDS)).responses().get(topicPartition);
+        assertNotNull(response);
+        assertEquals(response.error, Errors.NONE);
     }
 
     @Test(timeOut = 20000)
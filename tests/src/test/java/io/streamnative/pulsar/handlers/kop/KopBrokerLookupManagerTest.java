@@ -13,11 +13,15 @@
  */
 package io.streamnative.pulsar.handlers.kop;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.util.Collections;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.TenantInfo;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -69,4 +73,27 @@ public class KopBrokerLookupManagerTest extends KopProtocolHandlerTestBase {
         assertTrue(kopBrokerLookupManager.isTopicExists(existsTopic).get());
     }
 
+    @Test(timeOut = 20 * 1000)
+    public void testGetBrokerAddress() throws Exception {
+        final String topic = "persistent://" + NAMESPACE + "/" + "test-get-broker-address";
+        admin.topics().createPartitionedTopic(topic, 3);
+
+        final URI brokerUrl = URI.create(pulsar.getBrokerServiceUrl());
+        for (int i = 0; i < 3; i++) {
+            final InetSocketAddress address = lookupClient.getBrokerAddress(TopicName.get(topic).getPartition(i)).get();
+            assertEquals(address.getHostString(), brokerUrl.getHost());
+            assertEquals(address.getPort(), brokerUrl.getPort());
+        }
+    }
+
+    @Test
+    public void testIsServiceUrlOf() {
+        final InetSocketAddress address = InetSocketAddress.createUnresolved("broker", 6650);
+        assertTrue(KopBrokerLookupManager.isServiceUrlOf("pulsar://broker:6650", address));
+        assertTrue(KopBrokerLookupManager.isServiceUrlOf("pulsar+ssl://BROKER:6650", address));
+        assertFalse(KopBrokerLookupManager.isServiceUrlOf("pulsar://mybroker:6650", address));
+        assertFalse(KopBrokerLookupManager.isServiceUrlOf("pulsar://broker:16650", address));
+        assertFalse(KopBrokerLookupManager.isServiceUrlOf("pulsar://broker:665", address));
+        assertFalse(KopBrokerLookupManager.isServiceUrlOf(null, address));
+    }
 }
@@ -39,6 +39,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.admin.LongRunningProcessStatus;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
 import org.apache.pulsar.common.naming.TopicName;
 import org.awaitility.Awaitility;
 import org.testng.Assert;
@@ -97,8 +98,11 @@ public class CompactedPartitionedTopicTest extends KopProtocolHandlerTestBase {
                 final var readResult = compactedTopic.readToLatest(i, msg -> keyValues.computeIfAbsent(
                         new String(msg.getKeyBytes()), __ -> new CopyOnWriteArrayList<>()
                 ).add(msg.getValue())).get();
-                log.info("Load from partition {}: {}ms and {} messages",
-                        i, readResult.timeMs(), readResult.numMessages());
+                log.info("Load from partition {}: {}ms, {} messages and {} batches ({} messages/s)",
+                        i, readResult.timeMs(), readResult.numMessages(), readResult.numBatches(),
+                        readResult.messagesPerSecond());
+                Assert.assertTrue(readResult.numBatches() > 0);
+                Assert.assertTrue(readResult.numBytes() > 0);
             }
             return keyValues;
         };
@@ -127,6 +131,56 @@ public class CompactedPartitionedTopicTest extends KopProtocolHandlerTestBase {
         Assert.assertEquals(keyValues.get("B0"), singleMessageList);
     }
 
+    @Test(timeOut = 30000)
+    public void testConcurrentCommitsInSameEntry() throws Exception {
+        final var topic = "test-concurrent-commits-in-same-entry";
+        admin.topics().createPartitionedTopic(topic, 1);
+        // Wait long enough so that all the commits below are accumulated into one entry
+        final var offsetConfig = OffsetConfig.builder()
+                .offsetsTopicName(topic)
+                .offsetsTopicNumPartitions(1)
+                .offsetCommitTimeoutMs(conf.getOffsetCommitTimeoutMs())
+                .offsetCommitBatchingMaxPublishDelayMicros(1000L * 1000L)
+                .build();
+        @Cleanup final var compactedTopic = new CompactedPartitionedTopic<>(pulsarClient, Schema.STRING,
+                1000, offsetConfig, executor, String::isEmpty);
+        // Create the producer before the commits
+        compactedTopic.sendAsync(0, "init".getBytes(), "init", 0).get();
+
+        final var numGroups = 10;
+        final var futures = new ArrayList<CompletableFuture<MessageId>>();
+        final var completedGroups = new CopyOnWriteArrayList<Integer>();
+        for (int i = 0; i < numGroups; i++) {
+            final var group = i;
+            final var future = compactedTopic.sendAsync(0, ("group-" + i).getBytes(), "offset-" + i, i);
+            future.thenAccept(__ -> completedGroups.add(group));
+            futures.add(future);
+        }
+        // The same group commits again in the same entry
+        futures.add(compactedTopic.sendAsync(0, "group-0".getBytes(), "offset-latest", numGroups));
+        CoreUtils.waitForAll(futures).get();
+
+        // Each commit has its own send future, but all of them share the same position in the offsets topic, which
+        // is passed to GroupMetadata#onOffsetCommitAppend, so they're completed in the order they were sent.
+        Assert.assertEquals(completedGroups, IntStream.range(0, numGroups).boxed().toList());
+        final var firstId = (BatchMessageIdImpl) futures.get(0).get();
+        for (int i = 0; i < futures.size(); i++) {
+            final var messageId = (BatchMessageIdImpl) futures.get(i).get();
+            Assert.assertEquals(messageId.getLedgerId(), firstId.getLedgerId());
+            Assert.assertEquals(messageId.getEntryId(), firstId.getEntryId());
+            Assert.assertEquals(messageId.getBatchIndex(), i);
+            Assert.assertEquals(messageId.getBatchSize(), futures.size());
+        }
+
+        // Each commit is still a separate keyed message, the later commit of the same group wins
+        final var keyValues = new ConcurrentHashMap<String, String>();
+        compactedTopic.readToLatest(0, msg -> keyValues.put(new String(msg.getKeyBytes()), msg.getValue())).get();
+        Assert.assertEquals(keyValues.get("group-0"), "offset-latest");
+        for (int i = 1; i < numGroups; i++) {
+            Assert.assertEquals(keyValues.get("group-" + i), "offset-" + i);
+        }
+    }
+
     @Test(timeOut = 30000)
     public void testSkipEmptyMessages() throws Exception {
         final var topic = "test-skip-empty-messages";
@@ -43,6 +43,7 @@ import java.util.stream.Collectors;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.internals.Topic;
+import org.apache.kafka.common.message.LeaveGroupRequestData.MemberIdentity;
 import org.apache.kafka.common.protocol.Errors;
 import org.apache.kafka.common.requests.JoinGroupRequest;
 import org.apache.kafka.common.requests.OffsetCommitRequest;
@@ -506,6 +507,86 @@ public class GroupCoordinatorTest extends KopProtocolHandlerTestBase {
         assertEquals(Errors.NONE, heartbeatResult);
     }
 
+    @Test
+    public void testHeartbeatDoesNotScheduleNewExpiration() throws Exception {
+        String memberId = JoinGroupRequest.UNKNOWN_MEMBER_ID;
+        int sessionTimeout = 1000;
+
+        JoinGroupResult joinGroupResult = joinGroup(
+            groupId, memberId, protocolType, protocols,
+            sessionTimeout, sessionTimeout
+        );
+        String assignedConsumerId = joinGroupResult.getMemberId();
+        int generationId = joinGroupResult.getGenerationId();
+        assertEquals(Errors.NONE, joinGroupResult.getError());
+
+        KeyValue<Errors, byte[]> syncGroupResult = groupCoordinator.handleSyncGroup(
+            groupId, generationId, assignedConsumerId,
+            ImmutableMap.<String, byte[]>builder()
+                .put(assignedConsumerId, new byte[0])
+                .build()
+        ).get();
+        assertEquals(Errors.NONE, syncGroupResult.getKey());
+
+        int numTimerTasks = timer.size();
+        for (int i = 0; i < 10; i++) {
+            timer.advanceClock(sessionTimeout / 10);
+            assertEquals(Errors.NONE, groupCoordinator.handleHeartbeat(groupId, assignedConsumerId, 1).get());
+        }
+        // The expiration scheduled by the sync group is re-armed when the first deadline is reached
+        assertTrue(timer.size() <= numTimerTasks + 1);
+
+        timer.advanceClock(sessionTimeout / 2);
+        assertEquals(Errors.NONE, groupCoordinator.handleHeartbeat(groupId, assignedConsumerId, 1).get());
+
+        timer.advanceClock(sessionTimeout + 100);
+        assertEquals(Errors.UNKNOWN_MEMBER_ID,
+            groupCoordinator.handleHeartbeat(groupId, assignedConsumerId, 1).get());
+    }
+
+    @Test
+    public void testRejoinWithShorterSessionTimeout() throws Exception {
+        int sessionTimeout = 5000;
+        int shorterSessionTimeout = 1000;
+
+        JoinGroupResult joinGroupResult = joinGroup(
+            groupId, JoinGroupRequest.UNKNOWN_MEMBER_ID, protocolType, protocols,
+            sessionTimeout, sessionTimeout
+        );
+        String assignedConsumerId = joinGroupResult.getMemberId();
+        assertEquals(Errors.NONE, joinGroupResult.getError());
+        KeyValue<Errors, byte[]> syncGroupResult = groupCoordinator.handleSyncGroup(
+            groupId, joinGroupResult.getGenerationId(), assignedConsumerId,
+            ImmutableMap.<String, byte[]>builder()
+                .put(assignedConsumerId, new byte[0])
+                .build()
+        ).get();
+        assertEquals(Errors.NONE, syncGroupResult.getKey());
+
+        // The leader rejoins with a shorter session timeout, which triggers a rebalance
+        JoinGroupResult rejoinGroupResult = joinGroup(
+            groupId, assignedConsumerId, protocolType, protocols,
+            shorterSessionTimeout, shorterSessionTimeout
+        );
+        assertEquals(Errors.NONE, rejoinGroupResult.getError());
+        int generationId = rejoinGroupResult.getGenerationId();
+        syncGroupResult = groupCoordinator.handleSyncGroup(
+            groupId, generationId, assignedConsumerId,
+            ImmutableMap.<String, byte[]>builder()
+                .put(assignedConsumerId, new byte[0])
+                .build()
+        ).get();
+        assertEquals(Errors.NONE, syncGroupResult.getKey());
+
+        timer.advanceClock(shorterSessionTimeout / 2);
+        assertEquals(Errors.NONE, groupCoordinator.handleHeartbeat(groupId, assignedConsumerId, generationId).get());
+
+        // The member is expired by the new session timeout instead of the expiration scheduled by the first sync
+        timer.advanceClock(shorterSessionTimeout + 100);
+        assertEquals(Errors.UNKNOWN_MEMBER_ID,
+            groupCoordinator.handleHeartbeat(groupId, assignedConsumerId, generationId).get());
+    }
+
     @Test
     public void testCommitMaintainsSession() throws Exception {
         String memberId = JoinGroupRequest.UNKNOWN_MEMBER_ID;
@@ -845,6 +926,137 @@ public class GroupCoordinatorTest extends KopProtocolHandlerTestBase {
         assertNotEquals(firstGenerationId, secondJoinResult.getGenerationId());
     }
 
+    @Test
+    public void testStaticMemberRejoinDoesNotRebalance() throws Exception {
+        final String groupInstanceId = "instance-1";
+        CompletableFuture<JoinGroupResult> firstJoinFuture = groupCoordinator.handleJoinGroup(
+            groupId, JoinGroupRequest.UNKNOWN_MEMBER_ID, Optional.of(groupInstanceId),
+            "clientId", "clientHost",
+            DefaultRebalanceTimeout, DefaultSessionTimeout,
+            protocolType, newProtocols()
+        );
+        timer.advanceClock(GroupInitialRebalanceDelay + 1);
+        JoinGroupResult firstJoinResult = firstJoinFuture.get();
+        String firstMemberId = firstJoinResult.getMemberId();
+        int firstGenerationId = firstJoinResult.getGenerationId();
+        assertEquals(Errors.NONE, firstJoinResult.getError());
+
+        byte[] assignment = new byte[]{ 1, 2, 3 };
+        Map<String, byte[]> assignments = new HashMap<>();
+        assignments.put(firstMemberId, assignment);
+        KeyValue<Errors, byte[]> firstSyncResult = groupCoordinator.handleSyncGroup(
+            groupId, firstGenerationId, firstMemberId, assignments
+        ).get();
+        assertEquals(Errors.NONE, firstSyncResult.getKey());
+
+        // the restarted member rejoins with an unknown member id and the same group instance id
+        JoinGroupResult rejoinResult = groupCoordinator.handleJoinGroup(
+            groupId, JoinGroupRequest.UNKNOWN_MEMBER_ID, Optional.of(groupInstanceId),
+            "clientId", "clientHost",
+            DefaultRebalanceTimeout, DefaultSessionTimeout,
+            protocolType, newProtocols()
+        ).get();
+        assertEquals(Errors.NONE, rejoinResult.getError());
+        assertEquals(firstGenerationId, rejoinResult.getGenerationId());
+        assertNotEquals(firstMemberId, rejoinResult.getMemberId());
+        // the previous leader id is returned so that the member doesn't compute a new assignment
+        assertEquals(firstMemberId, rejoinResult.getLeaderId());
+        assertTrue(rejoinResult.getMembers().isEmpty());
+
+        String newMemberId = rejoinResult.getMemberId();
+        KeyValue<Errors, byte[]> syncResult = groupCoordinator.handleSyncGroup(
+            groupId, firstGenerationId, newMemberId, Collections.emptyMap()
+        ).get();
+        assertEquals(Errors.NONE, syncResult.getKey());
+        assertEquals(assignment, syncResult.getValue());
+
+        // the old instance is fenced
+        JoinGroupResult fencedJoinResult = groupCoordinator.handleJoinGroup(
+            groupId, firstMemberId, Optional.of(groupInstanceId),
+            "clientId", "clientHost",
+            DefaultRebalanceTimeout, DefaultSessionTimeout,
+            protocolType, newProtocols()
+        ).get();
+        assertEquals(Errors.FENCED_INSTANCE_ID, fencedJoinResult.getError());
+        assertEquals(Errors.UNKNOWN_MEMBER_ID,
+            groupCoordinator.handleHeartbeat(groupId, firstMemberId, firstGenerationId).get());
+        assertEquals(Errors.FENCED_INSTANCE_ID, groupCoordinator.handleHeartbeat(
+            groupId, firstMemberId, Optional.of(groupInstanceId), firstGenerationId).get());
+        assertEquals(Errors.FENCED_INSTANCE_ID, groupCoordinator.handleSyncGroup(
+            groupId, firstGenerationId, firstMemberId, Optional.of(groupInstanceId), Collections.emptyMap()
+        ).get().getKey());
+        TopicPartition tp = new TopicPartition("topic", 0);
+        Map<TopicPartition, Errors> fencedCommitResult = groupCoordinator.handleCommitOffsets(
+            groupId, firstMemberId, Optional.of(groupInstanceId), firstGenerationId,
+            ImmutableMap.<TopicPartition, OffsetAndMetadata>builder()
+                .put(tp, OffsetAndMetadata.apply(0))
+                .build()
+        ).get();
+        assertEquals(Errors.FENCED_INSTANCE_ID, fencedCommitResult.get(tp));
+
+        // the heartbeat of the old member id doesn't expire the new member
+        timer.advanceClock(DefaultSessionTimeout - 100);
+        assertEquals(Errors.NONE, groupCoordinator.handleHeartbeat(groupId, newMemberId, firstGenerationId).get());
+        timer.advanceClock(200);
+        assertEquals(Errors.NONE, groupCoordinator.handleHeartbeat(groupId, newMemberId, firstGenerationId).get());
+    }
+
+    @Test
+    public void testStaticMemberIsRemovedAfterSessionTimeout() throws Exception {
+        CompletableFuture<JoinGroupResult> joinFuture = groupCoordinator.handleJoinGroup(
+            groupId, JoinGroupRequest.UNKNOWN_MEMBER_ID, Optional.of("instance-1"),
+            "clientId", "clientHost",
+            DefaultRebalanceTimeout, DefaultSessionTimeout,
+            protocolType, newProtocols()
+        );
+        timer.advanceClock(GroupInitialRebalanceDelay + 1);
+        JoinGroupResult joinResult = joinFuture.get();
+        String assignedMemberId = joinResult.getMemberId();
+        int generationId = joinResult.getGenerationId();
+        assertEquals(Errors.NONE, joinResult.getError());
+
+        KeyValue<Errors, byte[]> syncResult = groupCoordinator.handleSyncGroup(
+            groupId, generationId, assignedMemberId, Collections.emptyMap()
+        ).get();
+        assertEquals(Errors.NONE, syncResult.getKey());
+
+        timer.advanceClock(DefaultSessionTimeout + 100);
+        assertEquals(Errors.UNKNOWN_MEMBER_ID,
+            groupCoordinator.handleHeartbeat(groupId, assignedMemberId, generationId).get());
+    }
+
+    @Test
+    public void testLeaveGroupByGroupInstanceId() throws Exception {
+        CompletableFuture<JoinGroupResult> joinFuture = groupCoordinator.handleJoinGroup(
+            groupId, JoinGroupRequest.UNKNOWN_MEMBER_ID, Optional.of("instance-1"),
+            "clientId", "clientHost",
+            DefaultRebalanceTimeout, DefaultSessionTimeout,
+            protocolType, newProtocols()
+        );
+        timer.advanceClock(GroupInitialRebalanceDelay + 1);
+        JoinGroupResult joinResult = joinFuture.get();
+        String assignedMemberId = joinResult.getMemberId();
+        int generationId = joinResult.getGenerationId();
+        assertEquals(Errors.NONE, joinResult.getError());
+
+        assertEquals(Errors.UNKNOWN_MEMBER_ID, groupCoordinator.handleLeaveGroup(groupId,
+            Collections.singletonList(new MemberIdentity()
+                .setMemberId(JoinGroupRequest.UNKNOWN_MEMBER_ID)
+                .setGroupInstanceId("instance-2"))).get());
+        assertEquals(Errors.FENCED_INSTANCE_ID, groupCoordinator.handleLeaveGroup(groupId,
+            Collections.singletonList(new MemberIdentity()
+                .setMemberId("otherMemberId")
+                .setGroupInstanceId("instance-1"))).get());
+
+        // the static member is removed by its group instance id only
+        assertEquals(Errors.NONE, groupCoordinator.handleLeaveGroup(groupId,
+            Collections.singletonList(new MemberIdentity()
+                .setMemberId(JoinGroupRequest.UNKNOWN_MEMBER_ID)
+                .setGroupInstanceId("instance-1"))).get());
+        assertEquals(Errors.UNKNOWN_MEMBER_ID,
+            groupCoordinator.handleHeartbeat(groupId, assignedMemberId, generationId).get());
+    }
+
     @Test
     public void testLeaderFailureInSyncGroup() throws Exception {
         // to get a group of two members:
@@ -0,0 +1,72 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.storage;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Time;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test {@link PartitionLogManager}.
+ */
+public class PartitionLogManagerTest {
+
+    private static final String NAMESPACE_PREFIX = "public/default";
+    private static final String FULL_PARTITION_NAME = "persistent://public/default/my-topic-partition-1";
+
+    @Test
+    public void testResolveAndRemoveLog() {
+        final PartitionLogManager logManager =
+                new PartitionLogManager(new KafkaServiceConfiguration(), null, null, Time.SYSTEM);
+
+        final PartitionLog partitionLog = logManager.getLog(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX);
+        assertEquals(partitionLog.getFullPartitionName(), FULL_PARTITION_NAME);
+        assertSame(logManager.getLog(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX), partitionLog);
+        assertSame(logManager.getLog(new TopicPartition("public/default/my-topic", 1), "other/ns"), partitionLog);
+        assertSame(logManager.getLog(new TopicPartition("persistent://public/default/my-topic", 1), "other/ns"),
+                partitionLog);
+        assertEquals(logManager.size(), 1);
+
+        // All the names that resolve to the removed log should not get it anymore
+        assertSame(logManager.removeLog(FULL_PARTITION_NAME), partitionLog);
+        assertEquals(logManager.size(), 0);
+        final PartitionLog newPartitionLog = logManager.getLog(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX);
+        assertNotSame(newPartitionLog, partitionLog);
+        assertSame(logManager.getLog(new TopicPartition("public/default/my-topic", 1), "other/ns"),
+                newPartitionLog);
+        assertSame(logManager.getLog(new TopicPartition("persistent://public/default/my-topic", 1), "other/ns"),
+                newPartitionLog);
+        assertEquals(logManager.size(), 1);
+    }
+
+    @Test
+    public void testGetFullPartitionNameWithoutCreatingLog() {
+        final PartitionLogManager logManager =
+                new PartitionLogManager(new KafkaServiceConfiguration(), null, null, Time.SYSTEM);
+
+        assertEquals(logManager.getFullPartitionName(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX),
+                FULL_PARTITION_NAME);
+        assertEquals(logManager.size(), 0);
+
+        final PartitionLog partitionLog = logManager.getLog(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX);
+        assertSame(logManager.getFullPartitionName(new TopicPartition("my-topic", 1), NAMESPACE_PREFIX),
+                partitionLog.getFullPartitionName());
+        assertEquals(logManager.size(), 1);
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.streamnative.pulsar.handlers.kop.utils.ssl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.ReferenceCountUtil;
+import io.streamnative.pulsar.handlers.kop.KafkaServiceConfiguration;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Test {@link SslHandlerFactory}.
+ */
+public class SslHandlerFactoryTest {
+
+    private static final String KEYSTORE_PASSWORD = "broker";
+    private static final String KEYSTORE = "./src/test/resources/ssl/certificate/broker.keystore.jks";
+    private static final String NEW_KEYSTORE = "./src/test/resources/ssl/certificate2/server.keystore.jks";
+    private static final String NEW_KEYSTORE_PASSWORD = "server";
+
+    @DataProvider(name = "useOpenSsl")
+    public static Object[][] useOpenSsl() {
+        return new Object[][]{ { true }, { false } };
+    }
+
+    @Test(dataProvider = "useOpenSsl")
+    public void testReloadKeyStore(boolean useOpenSsl) throws Exception {
+        final File keyStoreFile = File.createTempFile("kop-ssl-handler-factory-test", ".jks");
+        keyStoreFile.deleteOnExit();
+        writeKeyStore(KEYSTORE, KEYSTORE_PASSWORD, keyStoreFile);
+
+        final KafkaServiceConfiguration kafkaConfig = new KafkaServiceConfiguration();
+        kafkaConfig.setKopSslUseOpenSsl(useOpenSsl);
+        kafkaConfig.setKopSslKeystoreLocation(keyStoreFile.getAbsolutePath());
+        kafkaConfig.setKopSslKeystorePassword(KEYSTORE_PASSWORD);
+        // The refresh is triggered manually, so no scheduler is needed
+        final SslHandlerFactory sslHandlerFactory = SslHandlerFactory.forServer(kafkaConfig, null);
+
+        final Certificate oldCertificate = handshake(sslHandlerFactory);
+        assertEquals(oldCertificate, readCertificate(keyStoreFile));
+
+        // Nothing is reloaded if the key store is not modified
+        sslHandlerFactory.refreshIfModified();
+        assertEquals(handshake(sslHandlerFactory), oldCertificate);
+
+        // Rotate the key store, the new certificate should be served to the new connections
+        writeKeyStore(NEW_KEYSTORE, NEW_KEYSTORE_PASSWORD, keyStoreFile);
+        Files.setLastModifiedTime(keyStoreFile.toPath(),
+                FileTime.fromMillis(keyStoreFile.lastModified() + 10000));
+        sslHandlerFactory.refreshIfModified();
+        final Certificate newCertificate = handshake(sslHandlerFactory);
+        assertNotEquals(newCertificate, oldCertificate);
+        assertEquals(newCertificate, readCertificate(keyStoreFile));
+        sslHandlerFactory.close();
+    }
+
+    // Copy the private key entries of a key store to the target file with the password of the test
+    private static void writeKeyStore(String source, String sourcePassword, File target) throws Exception {
+        final KeyStore sourceKeyStore = KeyStore.getInstance("JKS");
+        try (InputStream inputStream = new FileInputStream(source)) {
+            sourceKeyStore.load(inputStream, sourcePassword.toCharArray());
+        }
+        final KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        for (String alias : Collections.list(sourceKeyStore.aliases())) {
+            if (sourceKeyStore.isKeyEntry(alias)) {
+                keyStore.setKeyEntry(alias, sourceKeyStore.getKey(alias, sourcePassword.toCharArray()),
+                        KEYSTORE_PASSWORD.toCharArray(), sourceKeyStore.getCertificateChain(alias));
+            }
+        }
+        try (OutputStream outputStream = new FileOutputStream(target)) {
+            keyStore.store(outputStream, KEYSTORE_PASSWORD.toCharArray());
+        }
+    }
+
+    private static Certificate readCertificate(File keyStoreFile) throws Exception {
+        final KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream inputStream = new FileInputStream(keyStoreFile)) {
+            keyStore.load(inputStream, KEYSTORE_PASSWORD.toCharArray());
+        }
+        return keyStore.getCertificate(keyStore.aliases().nextElement());
+    }
+
+    // Run a TLS handshake in memory with a new handler of the factory and return the certificate served to the client
+    private static Certificate handshake(SslHandlerFactory sslHandlerFactory) throws Exception {
+        final SSLEngine serverEngine = sslHandlerFactory.newHandler(UnpooledByteBufAllocator.DEFAULT).engine();
+        final SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, InsecureTrustManagerFactory.INSTANCE.getTrustManagers(), null);
+        final SSLEngine clientEngine = clientContext.createSSLEngine();
+        clientEngine.setUseClientMode(true);
+        try {
+            final ByteBuffer empty = ByteBuffer.allocate(0);
+            final ByteBuffer clientToServer = ByteBuffer.allocate(clientEngine.getSession().getPacketBufferSize());
+            final ByteBuffer serverToClient = ByteBuffer.allocate(serverEngine.getSession().getPacketBufferSize());
+            final ByteBuffer applicationData =
+                    ByteBuffer.allocate(clientEngine.getSession().getApplicationBufferSize());
+            clientEngine.beginHandshake();
+            serverEngine.beginHandshake();
+            for (int i = 0; i < 100 && (isHandshaking(clientEngine) || isHandshaking(serverEngine)); i++) {
+                clientEngine.wrap(empty, clientToServer);
+                runDelegatedTasks(clientEngine);
+                serverEngine.wrap(empty, serverToClient);
+                runDelegatedTasks(serverEngine);
+
+                clientToServer.flip();
+                serverEngine.unwrap(clientToServer, applicationData);
+                clientToServer.compact();
+                runDelegatedTasks(serverEngine);
+                serverToClient.flip();
+                clientEngine.unwrap(serverToClient, applicationData);
+                serverToClient.compact();
+                runDelegatedTasks(clientEngine);
+            }
+            return clientEngine.getSession().getPeerCertificates()[0];
+        } finally {
+            ReferenceCountUtil.release(serverEngine);
+        }
+    }
+
+    private static boolean isHandshaking(SSLEngine engine) {
+        final SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+                && status != SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine) {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+}
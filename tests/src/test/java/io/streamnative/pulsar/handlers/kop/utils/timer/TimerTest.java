@@ -156,4 +156,29 @@ public class TimerTest {
         );
     }
 
+    @Test
+    public void testShardedTaskExpiration() throws InterruptedException {
+        final Timer shardedTimer = SystemTimer.builder()
+            .executorName("test-sharded")
+            .tickMs(1)
+            .wheelSize(3)
+            .shards(4)
+            .build();
+        try {
+            final List<Integer> output = new ArrayList<>();
+            final CountDownLatch latch = new CountDownLatch(500);
+            IntStream.range(0, 500).forEach(i -> shardedTimer.add(new TestTask(i % 100, i, latch, output)));
+
+            // the shards are advanced by their own threads, so the tasks expire without advancing the clock here
+            assertTrue("all tasks should expire", latch.await(10, TimeUnit.SECONDS));
+            assertEquals(0, shardedTimer.size());
+            synchronized (output) {
+                Collections.sort(output);
+                assertEquals(IntStream.range(0, 500).boxed().collect(Collectors.toList()), output);
+            }
+        } finally {
+            shardedTimer.shutdown();
+        }
+    }
+
 }